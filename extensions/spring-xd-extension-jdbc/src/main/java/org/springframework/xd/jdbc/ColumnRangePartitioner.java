@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Partitions the rows of a table into ranges of a numeric column, so that each partition can be read by a separate
+ * step execution. The minimum and maximum values of the column are queried, and the interval between them is split
+ * into {@link #setPartitions(int) partitions} ranges of equal width; rows with a null value are read along with the
+ * first range. The ranges of an integral column are closed ranges of integers, while those of other numeric columns,
+ * e.g. DECIMAL or DOUBLE, are half-open ranges bounded by the exact minimum and maximum.
+ * <p/>
+ * The execution context of each partition holds:
+ * <ul>
+ * <li>{@value #PARTITION_CLAUSE}: the where clause selecting its rows, for
+ * {@link NamedColumnJdbcItemReader#setPartitionClause(String)}</li>
+ * <li>{@value #PARTITION_SUFFIX}: a suffix distinguishing its output, e.g. file names, from those of the other
+ * partitions</li>
+ * </ul>
+ * When no column is set, or the table is empty, a single partition with an empty clause and suffix is returned.
+ *
+ * @since 1.0
+ */
+public class ColumnRangePartitioner implements Partitioner {
+
+	/**
+	 * Execution context key of the where clause of a partition.
+	 */
+	public static final String PARTITION_CLAUSE = "partClause";
+
+	/**
+	 * Execution context key of the suffix of a partition.
+	 */
+	public static final String PARTITION_SUFFIX = "partSuffix";
+
+	private static final Log logger = LogFactory.getLog(ColumnRangePartitioner.class);
+
+	private JdbcTemplate jdbcTemplate;
+
+	private String table;
+
+	private String column;
+
+	private int partitions;
+
+	public void setDataSource(DataSource dataSource) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	/**
+	 * The table to partition.
+	 */
+	public void setTable(String table) {
+		this.table = table;
+	}
+
+	/**
+	 * The numeric column whose values are split into ranges; no partitioning takes place if empty.
+	 */
+	public void setColumn(String column) {
+		this.column = column;
+	}
+
+	/**
+	 * The number of partitions; when not set, the grid size requested by the partition handler is used.
+	 */
+	public void setPartitions(int partitions) {
+		this.partitions = partitions;
+	}
+
+	@Override
+	public Map<String, ExecutionContext> partition(int gridSize) {
+		int count = this.partitions > 0 ? this.partitions : gridSize;
+		Map<String, ExecutionContext> result = new HashMap<String, ExecutionContext>();
+		if (!StringUtils.hasText(this.column) || count <= 1) {
+			result.put("partition0", context("", ""));
+			return result;
+		}
+		Assert.notNull(this.jdbcTemplate, "dataSource must be set");
+		Assert.hasText(this.table, "table must be set");
+		Map<String, Object> range = this.jdbcTemplate.queryForMap("select min(" + this.column + ") as lo, max("
+				+ this.column + ") as hi from " + this.table);
+		Number min = (Number) range.get("lo");
+		Number max = (Number) range.get("hi");
+		if (min == null || max == null) {
+			result.put("partition0", context("", ""));
+			return result;
+		}
+		if (isIntegral(min) && isIntegral(max)) {
+			partitionIntegral(min.longValue(), max.longValue(), count, result);
+		}
+		else {
+			partitionDecimal(new BigDecimal(min.toString()), new BigDecimal(max.toString()), count, result);
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Partitioned " + this.table + " on " + this.column + " [" + min + ", " + max + "] into "
+					+ result.size() + " ranges");
+		}
+		return result;
+	}
+
+	/**
+	 * Split the values into closed ranges of integers, so that no partition is empty when there are fewer values than
+	 * partitions.
+	 */
+	private void partitionIntegral(long lo, long hi, int count, Map<String, ExecutionContext> result) {
+		long width = Math.max(1, (hi - lo) / count + 1);
+		long start = lo;
+		for (int i = 0; start <= hi; i++) {
+			long end = i == count - 1 ? hi : Math.min(hi, start + width - 1);
+			result.put("partition" + i, context(clause(i, this.column + " >= " + start + " and " + this.column
+					+ " <= " + end), "-p" + i));
+			if (end == hi) {
+				break;
+			}
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Split the values into half-open ranges, the last one being closed, as values of a non-integral column may fall
+	 * anywhere between two bounds.
+	 */
+	private void partitionDecimal(BigDecimal lo, BigDecimal hi, int count, Map<String, ExecutionContext> result) {
+		if (lo.compareTo(hi) == 0) {
+			count = 1;
+		}
+		BigDecimal width = hi.subtract(lo).divide(BigDecimal.valueOf(count), MathContext.DECIMAL64);
+		BigDecimal start = lo;
+		for (int i = 0; i < count; i++) {
+			String range;
+			if (i == count - 1) {
+				range = this.column + " >= " + start.toPlainString() + " and " + this.column + " <= "
+						+ hi.toPlainString();
+			}
+			else {
+				BigDecimal end = lo.add(width.multiply(BigDecimal.valueOf(i + 1)));
+				range = this.column + " >= " + start.toPlainString() + " and " + this.column + " < "
+						+ end.toPlainString();
+				start = end;
+			}
+			result.put("partition" + i, context(clause(i, range), "-p" + i));
+		}
+	}
+
+	/**
+	 * @return the where clause of the partition with the given index, the first one also selecting the null values
+	 */
+	private String clause(int index, String range) {
+		return index == 0 ? "where (" + range + ") or " + this.column + " is null" : "where " + range;
+	}
+
+	private static boolean isIntegral(Number number) {
+		return number instanceof Long || number instanceof Integer || number instanceof Short
+				|| number instanceof Byte || number instanceof BigInteger;
+	}
+
+	private ExecutionContext context(String clause, String suffix) {
+		ExecutionContext context = new ExecutionContext();
+		context.putString(PARTITION_CLAUSE, clause);
+		context.putString(PARTITION_SUFFIX, suffix);
+		return context;
+	}
+
+}
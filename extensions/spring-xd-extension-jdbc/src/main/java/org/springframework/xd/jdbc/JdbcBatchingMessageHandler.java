@@ -0,0 +1,436 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.messaging.Message;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Message handler that inserts the payloads it receives into a table, in JDBC batches. Payloads are expected to be
+ * maps of column name to value, as produced by {@link JdbcMessagePayloadTransformer}.
+ * <p/>
+ * Rows are collected until {@link #setBatchSize(int) batchSize} rows are pending, or until
+ * {@link #setBatchTimeout(long) batchTimeout} milliseconds have elapsed since the first of them arrived, and are then
+ * written with a single {@link JdbcTemplate#batchUpdate(String, List)} call. With {@link CommitMode#BATCH}, each
+ * batch is written in one transaction; with {@link CommitMode#AUTO}, the statements are committed as the connection's
+ * auto-commit setting dictates. If a batch fails, the rows that were not written are retried one at a time, so that a
+ * single bad row does not cause its whole batch to be lost; rows that fail again are counted, logged and reported to
+ * the caller when the batch was written on its thread.
+ * <p/>
+ * By default, full batches are written on the thread that sends the message completing them. When
+ * {@link #setWriterThreads(int) writerThreads} is positive, they are handed to that many writer threads instead, and
+ * a sender waits when all of them are busy and as many batches are queued; rows are then not necessarily inserted in
+ * the order they were received, and failures are only logged.
+ *
+ * @since 1.0
+ */
+public class JdbcBatchingMessageHandler extends AbstractMessageHandler implements DisposableBean {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final List<String> columnNames = new ArrayList<String>();
+
+	private volatile String tableName;
+
+	private volatile int batchSize = 1;
+
+	private volatile long batchTimeout = 1000;
+
+	private volatile int writerThreads;
+
+	private volatile CommitMode commitMode = CommitMode.BATCH;
+
+	private volatile String sql;
+
+	private final Object lock = new Object();
+
+	private List<Object[]> rows = new ArrayList<Object[]>();
+
+	private ScheduledFuture<?> pendingFlush;
+
+	private ScheduledExecutorService scheduler;
+
+	private ThreadPoolExecutor writers;
+
+	private final AtomicLong writtenRows = new AtomicLong();
+
+	private final AtomicLong failedRows = new AtomicLong();
+
+	private final AtomicLong batches = new AtomicLong();
+
+	public JdbcBatchingMessageHandler(DataSource dataSource) {
+		Assert.notNull(dataSource, "'dataSource' cannot be null");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+	}
+
+	public void setTableName(String tableName) {
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Set the columns to insert, as a comma delimited list; values are looked up in the payload by column name.
+	 */
+	public void setColumnNames(String columnNames) {
+		this.columnNames.clear();
+		for (String name : StringUtils.tokenizeToStringArray(columnNames, ",")) {
+			this.columnNames.add(name.trim());
+		}
+	}
+
+	/**
+	 * Set the number of rows written per batch; 1, the default, writes each row as it is received.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the time, in milliseconds, after which an incomplete batch is written; 0 waits for the batch to be complete.
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		Assert.isTrue(batchTimeout >= 0, "'batchTimeout' cannot be negative");
+		this.batchTimeout = batchTimeout;
+	}
+
+	/**
+	 * Set the number of threads writing batches concurrently; 0, the default, writes them on the sending thread.
+	 */
+	public void setWriterThreads(int writerThreads) {
+		Assert.isTrue(writerThreads >= 0, "'writerThreads' cannot be negative");
+		this.writerThreads = writerThreads;
+	}
+
+	public void setCommitMode(CommitMode commitMode) {
+		Assert.notNull(commitMode, "'commitMode' cannot be null");
+		this.commitMode = commitMode;
+	}
+
+	public String getSql() {
+		return this.sql;
+	}
+
+	public long getWrittenRowCount() {
+		return this.writtenRows.get();
+	}
+
+	public long getFailedRowCount() {
+		return this.failedRows.get();
+	}
+
+	public long getBatchCount() {
+		return this.batches.get();
+	}
+
+	@Override
+	public String getComponentType() {
+		return "jdbc:batching-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		Assert.hasText(this.tableName, "'tableName' is required");
+		Assert.notEmpty(this.columnNames, "'columnNames' is required");
+		StringBuilder columns = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		for (String column : this.columnNames) {
+			if (columns.length() > 0) {
+				columns.append(", ");
+				values.append(", ");
+			}
+			columns.append(column);
+			values.append("?");
+		}
+		this.sql = "insert into " + this.tableName + " (" + columns + ") values(" + values + ")";
+		String prefix = getComponentName() == null ? "jdbc-batch-" : getComponentName() + "-";
+		if (this.batchSize > 1 && this.batchTimeout > 0) {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(prefix + "timer-"));
+		}
+		if (this.writerThreads > 0) {
+			this.writers = new ThreadPoolExecutor(this.writerThreads, this.writerThreads, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(this.writerThreads), new NamedThreadFactory(prefix + "writer-"));
+			this.writers.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		Object[] row = toRow(message.getPayload());
+		List<Object[]> batch = null;
+		synchronized (this.lock) {
+			this.rows.add(row);
+			if (this.rows.size() >= this.batchSize) {
+				batch = takeRows();
+			}
+			else if (this.rows.size() == 1 && this.scheduler != null) {
+				this.pendingFlush = this.scheduler.schedule(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							flush();
+						}
+						catch (RuntimeException e) {
+							logger.error("Failed to write rows into " + tableName, e);
+						}
+					}
+				}, this.batchTimeout, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (batch != null) {
+			dispatch(batch);
+		}
+	}
+
+	/**
+	 * Write the pending rows, if any.
+	 */
+	public void flush() {
+		List<Object[]> batch;
+		synchronized (this.lock) {
+			batch = takeRows();
+		}
+		if (batch != null) {
+			dispatch(batch);
+		}
+	}
+
+	/**
+	 * Write the pending rows, and wait for the writer threads to complete.
+	 */
+	@Override
+	public void destroy() throws Exception {
+		if (this.scheduler != null) {
+			this.scheduler.shutdown();
+		}
+		try {
+			flush();
+		}
+		finally {
+			if (this.writers != null) {
+				this.writers.shutdown();
+				if (!this.writers.awaitTermination(30, TimeUnit.SECONDS)) {
+					logger.warn("Timed out waiting for the writer threads to complete");
+				}
+			}
+		}
+	}
+
+	private Object[] toRow(Object payload) {
+		Object[] row = new Object[this.columnNames.size()];
+		if (payload instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) payload;
+			for (int i = 0; i < row.length; i++) {
+				row[i] = map.get(this.columnNames.get(i));
+			}
+		}
+		else {
+			Assert.isTrue(row.length == 1, "Payload must be a Map when inserting more than one column, received: "
+					+ payload.getClass().getName());
+			row[0] = payload;
+		}
+		return row;
+	}
+
+	/**
+	 * Must be called while holding {@link #lock}.
+	 */
+	private List<Object[]> takeRows() {
+		if (this.pendingFlush != null) {
+			this.pendingFlush.cancel(false);
+			this.pendingFlush = null;
+		}
+		if (this.rows.isEmpty()) {
+			return null;
+		}
+		List<Object[]> batch = this.rows;
+		this.rows = new ArrayList<Object[]>(Math.min(this.batchSize, 1024));
+		return batch;
+	}
+
+	private void dispatch(final List<Object[]> batch) {
+		if (this.writers == null || this.writers.isShutdown()) {
+			write(batch);
+			return;
+		}
+		// when all writers are busy and the queue is full, the batch is written by the caller
+		this.writers.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					write(batch);
+				}
+				catch (RuntimeException e) {
+					logger.error("Failed to write rows into " + tableName, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Write a batch; if it fails, retry the rows that were not written one at a time.
+	 *
+	 * @throws DataAccessException the last failure, if any row could not be written
+	 */
+	private void write(List<Object[]> batch) {
+		this.batches.incrementAndGet();
+		try {
+			if (this.commitMode == CommitMode.BATCH) {
+				batchUpdateInTransaction(batch);
+			}
+			else {
+				this.jdbcTemplate.batchUpdate(this.sql, batch);
+			}
+			this.writtenRows.addAndGet(batch.size());
+			return;
+		}
+		catch (DataAccessException e) {
+			if (batch.size() == 1) {
+				this.failedRows.incrementAndGet();
+				throw e;
+			}
+			logger.warn("Batch of " + batch.size() + " rows failed, retrying them one at a time: " + e.getMessage());
+			retry(batch, succeededRows(e, batch.size()));
+		}
+	}
+
+	private void retry(List<Object[]> batch, boolean[] succeeded) {
+		DataAccessException lastFailure = null;
+		int failed = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			if (succeeded[i]) {
+				this.writtenRows.incrementAndGet();
+				continue;
+			}
+			try {
+				this.jdbcTemplate.update(this.sql, batch.get(i));
+				this.writtenRows.incrementAndGet();
+			}
+			catch (DataAccessException e) {
+				failed++;
+				lastFailure = e;
+			}
+		}
+		if (lastFailure != null) {
+			this.failedRows.addAndGet(failed);
+			logger.error(failed + " of " + batch.size() + " rows could not be written into " + this.tableName);
+			throw lastFailure;
+		}
+	}
+
+	/**
+	 * Determine the rows of a failed batch that need not be retried. In {@link CommitMode#BATCH}, the transaction was
+	 * rolled back, so none were written; otherwise, the driver reports the rows it wrote, which, depending on the
+	 * driver, are either those preceding the first failure or all those that did not fail.
+	 */
+	private boolean[] succeededRows(DataAccessException e, int size) {
+		boolean[] succeeded = new boolean[size];
+		if (this.commitMode == CommitMode.BATCH) {
+			return succeeded;
+		}
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof BatchUpdateException) {
+				int[] counts = ((BatchUpdateException) cause).getUpdateCounts();
+				if (counts != null) {
+					for (int i = 0; i < counts.length && i < size; i++) {
+						succeeded[i] = counts[i] != Statement.EXECUTE_FAILED;
+					}
+				}
+				break;
+			}
+		}
+		return succeeded;
+	}
+
+	private void batchUpdateInTransaction(final List<Object[]> batch) {
+		this.transactionTemplate.execute(new TransactionCallback<Object>() {
+
+			@Override
+			public Object doInTransaction(TransactionStatus status) {
+				return jdbcTemplate.batchUpdate(sql, batch);
+			}
+		});
+	}
+
+
+	/**
+	 * How the rows of a batch are committed.
+	 */
+	public static enum CommitMode {
+
+		/**
+		 * Write each batch in one transaction; if it fails, no row of the batch is written before the retry.
+		 */
+		BATCH,
+
+		/**
+		 * Rely on the auto-commit setting of the connection; if a batch fails, the rows the driver wrote are kept.
+		 */
+		AUTO
+	}
+
+
+	private static class NamedThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, this.prefix + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
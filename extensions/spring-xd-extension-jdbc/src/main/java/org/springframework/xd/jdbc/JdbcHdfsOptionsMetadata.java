@@ -4,6 +4,7 @@ package org.springframework.xd.jdbc;
 import static org.springframework.xd.module.options.spi.ModulePlaceholders.XD_JOB_NAME;
 
 import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
 
 import org.springframework.util.StringUtils;
 import org.springframework.xd.module.options.mixins.BatchJobRestartableOptionMixin;
@@ -34,6 +35,10 @@ public class JdbcHdfsOptionsMetadata {
 
 	private String fileExtension = "csv";
 
+	private String partitionColumn = "";
+
+	private int partitions = 1;
+
 	@ModuleOption("the table to read data from")
 	public void setTableName(String tableName) {
 		this.tableName = tableName;
@@ -59,6 +64,21 @@ public class JdbcHdfsOptionsMetadata {
 		}
 	}
 
+	@AssertTrue(message = "Use 'tableName' and 'columns' along with 'partitionColumn' to read more than one partition")
+	boolean isPartitionColumnSetWhenPartitioned() {
+		return partitions <= 1 || (StringUtils.hasText(partitionColumn) && !StringUtils.hasText(sql));
+	}
+
+	@ModuleOption("the numeric column used to split the table into ranges read in parallel")
+	public void setPartitionColumn(String partitionColumn) {
+		this.partitionColumn = partitionColumn;
+	}
+
+	@ModuleOption("the number of partitions (ranges of 'partitionColumn') to read in parallel")
+	public void setPartitions(int partitions) {
+		this.partitions = partitions;
+	}
+
 	@ModuleOption("the filename to use in HDFS")
 	public void setFileName(String fileName) {
 		this.fileName = fileName;
@@ -106,4 +126,13 @@ public class JdbcHdfsOptionsMetadata {
 	public String getFileExtension() {
 		return fileExtension;
 	}
+
+	public String getPartitionColumn() {
+		return partitionColumn;
+	}
+
+	@Min(1)
+	public int getPartitions() {
+		return partitions;
+	}
 }
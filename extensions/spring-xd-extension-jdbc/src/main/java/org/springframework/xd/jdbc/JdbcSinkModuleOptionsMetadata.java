@@ -16,6 +16,10 @@
 
 package org.springframework.xd.jdbc;
 
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.xd.jdbc.JdbcBatchingMessageHandler.CommitMode;
 import org.springframework.xd.jdbc.JdbcSinkModuleOptionsMetadata.JdbcSinkImportToJdbcMixin;
 import org.springframework.xd.module.options.spi.Mixin;
 import org.springframework.xd.module.options.spi.ModuleOption;
@@ -31,6 +35,14 @@ public class JdbcSinkModuleOptionsMetadata {
 
 	private String columns = "payload";
 
+	private int batchSize = 1;
+
+	private long batchTimeout = 1000;
+
+	private int writerThreads = 0;
+
+	private CommitMode commitMode = CommitMode.BATCH;
+
 	@ModuleOption("the database columns to map the data to")
 	public void setColumns(String columns) {
 		this.columns = columns;
@@ -40,6 +52,46 @@ public class JdbcSinkModuleOptionsMetadata {
 		return columns;
 	}
 
+	@ModuleOption("the number of rows to insert per JDBC batch")
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	@Min(1)
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@ModuleOption("the time (ms) after which an incomplete batch is inserted, or 0 to wait for the batch to be complete")
+	public void setBatchTimeout(long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+
+	@Min(0)
+	public long getBatchTimeout() {
+		return batchTimeout;
+	}
+
+	@ModuleOption("the number of threads inserting batches concurrently, or 0 to insert them on the receiving thread")
+	public void setWriterThreads(int writerThreads) {
+		this.writerThreads = writerThreads;
+	}
+
+	@Min(0)
+	public int getWriterThreads() {
+		return writerThreads;
+	}
+
+	@ModuleOption("whether each batch is committed in one transaction (BATCH) or as the connection auto-commits (AUTO)")
+	public void setCommitMode(CommitMode commitMode) {
+		this.commitMode = commitMode;
+	}
+
+	@NotNull
+	public CommitMode getCommitMode() {
+		return commitMode;
+	}
+
 	public static class JdbcSinkImportToJdbcMixin extends AbstractImportToJdbcOptionsMetadata {
 
 		/**
@@ -1,7 +1,11 @@
 package org.springframework.xd.jdbc;
 
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.springframework.batch.item.database.JdbcCursorItemReader;
 import org.springframework.jdbc.core.RowMapper;
@@ -20,6 +24,7 @@ import org.springframework.xd.tuple.TupleBuilder;
 public class NamedColumnJdbcItemReader extends JdbcCursorItemReader<Tuple> {
 	private String names;
 	private String tableName;
+	private String partitionClause;
 
 	/**
 	 * The column names in the database, in the order in which they should be read and
@@ -36,6 +41,13 @@ public class NamedColumnJdbcItemReader extends JdbcCursorItemReader<Tuple> {
 		this.tableName = tableName;
 	}
 
+	/**
+	 * A where clause restricting the rows read from the table, as produced by {@link ColumnRangePartitioner}.
+	 */
+	public void setPartitionClause(String partitionClause) {
+		this.partitionClause = partitionClause;
+	}
+
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		if (!StringUtils.hasText(getSql())) {
@@ -43,27 +55,49 @@ public class NamedColumnJdbcItemReader extends JdbcCursorItemReader<Tuple> {
 			Assert.hasText(names, "columns must be set");
 
 			String sql = "select " + names + " from " + tableName;
+			if (StringUtils.hasText(partitionClause)) {
+				sql = sql + " " + partitionClause;
+			}
 			log.info("Setting SQL to: " + sql);
 			setSql(sql);
 		}
-		else if (StringUtils.hasText(names) || StringUtils.hasText(tableName)) {
-			log.warn("You must set either the 'sql' property or 'tableName' and 'columns'.");
+		else {
+			if (StringUtils.hasText(names) || StringUtils.hasText(tableName)) {
+				log.warn("You must set either the 'sql' property or 'tableName' and 'columns'.");
+			}
+			Assert.isTrue(!StringUtils.hasText(partitionClause), "partitioning requires 'tableName' and 'columns'");
 		}
 
-		setRowMapper(new RowMapper<Tuple>() {
-			@Override
-			public Tuple mapRow(ResultSet rs, int rowNum) throws SQLException {
-				TupleBuilder builder = TupleBuilder.tuple();
+		setRowMapper(new TupleRowMapper());
 
-				for (int i=1; i <= rs.getMetaData().getColumnCount(); i++) {
-					String name = JdbcUtils.lookupColumnName(rs.getMetaData(), i);
-					builder.put(name, JdbcUtils.getResultSetValue(rs, i, String.class));
-				}
+		super.afterPropertiesSet();
+	}
 
-				return builder.build();
-			}
-		});
+	/**
+	 * Maps each row to a tuple of its column values as strings; the column names are looked up once per result set.
+	 */
+	private static class TupleRowMapper implements RowMapper<Tuple> {
 
-		super.afterPropertiesSet();
+		private ResultSet resultSet;
+
+		private List<String> columnNames;
+
+		@Override
+		public Tuple mapRow(ResultSet rs, int rowNum) throws SQLException {
+			if (rs != resultSet) {
+				ResultSetMetaData metaData = rs.getMetaData();
+				String[] names = new String[metaData.getColumnCount()];
+				for (int i = 0; i < names.length; i++) {
+					names[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+				}
+				columnNames = Arrays.asList(names);
+				resultSet = rs;
+			}
+			List<Object> values = new ArrayList<Object>(columnNames.size());
+			for (int i = 1; i <= columnNames.size(); i++) {
+				values.add(JdbcUtils.getResultSetValue(rs, i, String.class));
+			}
+			return TupleBuilder.tuple().ofNamesAndValues(columnNames, values);
+		}
 	}
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.xd.tuple.Tuple;
+
+/**
+ * Tests for {@link ColumnRangePartitioner} and partitioned reads with {@link NamedColumnJdbcItemReader}.
+ *
+ * @since 1.0
+ */
+public class ColumnRangePartitionerTests {
+
+	private final EmbeddedDatabase db = new EmbeddedDatabaseBuilder().build();
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(db);
+
+	private final ColumnRangePartitioner partitioner = new ColumnRangePartitioner();
+
+	@Before
+	public void setUp() {
+		jdbcTemplate.execute("create table test (id integer, name varchar(20))");
+		partitioner.setDataSource(db);
+		partitioner.setTable("test");
+		partitioner.setColumn("id");
+	}
+
+	@After
+	public void tearDown() {
+		db.shutdown();
+	}
+
+	@Test
+	public void testSinglePartitionWithoutColumn() {
+		partitioner.setColumn("");
+		Map<String, ExecutionContext> partitions = partitioner.partition(4);
+		assertEquals(1, partitions.size());
+		ExecutionContext context = partitions.values().iterator().next();
+		assertEquals("", context.getString(ColumnRangePartitioner.PARTITION_CLAUSE));
+		assertEquals("", context.getString(ColumnRangePartitioner.PARTITION_SUFFIX));
+	}
+
+	@Test
+	public void testSinglePartitionForEmptyTable() {
+		partitioner.setPartitions(3);
+		assertEquals(1, partitioner.partition(1).size());
+	}
+
+	@Test
+	public void testPartitionsCoverAllRows() throws Exception {
+		for (int i = 1; i <= 100; i++) {
+			jdbcTemplate.update("insert into test values (?, ?)", i * 7, "name" + i);
+		}
+		jdbcTemplate.update("insert into test values (null, 'nameless')");
+		partitioner.setPartitions(3);
+		Map<String, ExecutionContext> partitions = partitioner.partition(1);
+		assertEquals(3, partitions.size());
+		Set<String> names = new HashSet<String>();
+		Set<String> suffixes = new HashSet<String>();
+		for (ExecutionContext context : partitions.values()) {
+			suffixes.add(context.getString(ColumnRangePartitioner.PARTITION_SUFFIX));
+			assertTrue(read("test", "id", context, names) > 30);
+		}
+		assertEquals(101, names.size());
+		assertEquals(3, suffixes.size());
+	}
+
+	@Test
+	public void testDecimalPartitionsCoverAllRowsOnce() throws Exception {
+		jdbcTemplate.execute("create table amounts (amount decimal(10,2), name varchar(20))");
+		String[] amounts = { "1.00", "1.50", "2.70", "3.33", "3.34", "4.99", "5.00" };
+		for (int i = 0; i < amounts.length; i++) {
+			jdbcTemplate.update("insert into amounts values (" + amounts[i] + ", ?)", "name" + i);
+		}
+		jdbcTemplate.update("insert into amounts values (null, 'nameless')");
+		partitioner.setTable("amounts");
+		partitioner.setColumn("amount");
+		partitioner.setPartitions(3);
+		Map<String, ExecutionContext> partitions = partitioner.partition(1);
+		assertEquals(3, partitions.size());
+		Set<String> names = new HashSet<String>();
+		int read = 0;
+		for (ExecutionContext context : partitions.values()) {
+			read += read("amounts", "amount", context, names);
+		}
+		assertEquals(amounts.length + 1, read);
+		assertEquals(amounts.length + 1, names.size());
+	}
+
+	@Test
+	public void testFewerValuesThanPartitions() {
+		jdbcTemplate.update("insert into test values (1, 'foo')");
+		jdbcTemplate.update("insert into test values (2, 'bar')");
+		partitioner.setPartitions(5);
+		assertEquals(2, partitioner.partition(1).size());
+	}
+
+	/**
+	 * Read the rows of a partition, asserting that none was read before.
+	 *
+	 * @return the number of rows read
+	 */
+	private int read(String table, String column, ExecutionContext context, Set<String> names) throws Exception {
+		int read = 0;
+		NamedColumnJdbcItemReader reader = new NamedColumnJdbcItemReader();
+		reader.setDataSource(db);
+		reader.setTableName(table);
+		reader.setColumnNames(column + ", name");
+		reader.setPartitionClause(context.getString(ColumnRangePartitioner.PARTITION_CLAUSE));
+		reader.afterPropertiesSet();
+		reader.open(new ExecutionContext());
+		Tuple tuple;
+		while ((tuple = reader.read()) != null) {
+			assertEquals(2, tuple.size());
+			assertTrue(names.add(tuple.getString("NAME")));
+			read++;
+		}
+		reader.close();
+		return read;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.messaging.MessagingException;
+import org.springframework.xd.jdbc.JdbcBatchingMessageHandler.CommitMode;
+
+/**
+ * Tests for {@link JdbcBatchingMessageHandler}.
+ *
+ * @since 1.0
+ */
+public class JdbcBatchingMessageHandlerTests {
+
+	private final EmbeddedDatabase db = new EmbeddedDatabaseBuilder().build();
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(db);
+
+	private final JdbcBatchingMessageHandler handler = new JdbcBatchingMessageHandler(db);
+
+	@Before
+	public void setUp() {
+		jdbcTemplate.execute("create table test (id integer primary key, name varchar(20))");
+		handler.setTableName("test");
+		handler.setColumnNames("id, name");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		handler.destroy();
+		db.shutdown();
+	}
+
+	@Test
+	public void testRowPerMessageByDefault() throws Exception {
+		handler.afterPropertiesSet();
+		assertEquals("insert into test (id, name) values(?, ?)", handler.getSql());
+		send(1, "foo");
+		assertEquals(1, count());
+		assertEquals("foo", jdbcTemplate.queryForObject("select name from test where id = 1", String.class));
+	}
+
+	@Test
+	public void testBatchSize() throws Exception {
+		handler.setBatchSize(3);
+		handler.setBatchTimeout(0);
+		handler.afterPropertiesSet();
+		send(1, "foo");
+		send(2, "bar");
+		assertEquals(0, count());
+		send(3, "baz");
+		assertEquals(3, count());
+		assertEquals(1, handler.getBatchCount());
+		send(4, "qux");
+		handler.destroy();
+		assertEquals(4, count());
+	}
+
+	@Test
+	public void testBatchTimeout() throws Exception {
+		handler.setBatchSize(100);
+		handler.setBatchTimeout(50);
+		handler.afterPropertiesSet();
+		send(1, "foo");
+		send(2, "bar");
+		for (int i = 0; i < 100 && count() < 2; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(2, count());
+		assertEquals(1, handler.getBatchCount());
+	}
+
+	@Test
+	public void testFailedRowsAreRetriedIndividually() throws Exception {
+		handler.setBatchSize(3);
+		handler.setBatchTimeout(0);
+		handler.afterPropertiesSet();
+		send(1, "foo");
+		send(1, "duplicate");
+		try {
+			send(2, "bar");
+			fail("Expected the duplicate row to be reported");
+		}
+		catch (MessagingException e) {
+			assertTrue(e.getCause() instanceof DataAccessException);
+		}
+		assertEquals(2, count());
+		assertEquals(2, handler.getWrittenRowCount());
+		assertEquals(1, handler.getFailedRowCount());
+	}
+
+	@Test
+	public void testAutoCommit() throws Exception {
+		handler.setBatchSize(3);
+		handler.setBatchTimeout(0);
+		handler.setCommitMode(CommitMode.AUTO);
+		handler.afterPropertiesSet();
+		send(1, "foo");
+		send(2, "bar");
+		send(3, "baz");
+		assertEquals(3, count());
+	}
+
+	@Test
+	public void testWriterThreads() throws Exception {
+		handler.setBatchSize(10);
+		handler.setBatchTimeout(0);
+		handler.setWriterThreads(2);
+		handler.afterPropertiesSet();
+		for (int i = 0; i < 95; i++) {
+			send(i, "row" + i);
+		}
+		handler.destroy();
+		assertEquals(95, count());
+		assertEquals(10, handler.getBatchCount());
+	}
+
+	@Test
+	public void testSingleColumnWithPlainPayload() throws Exception {
+		jdbcTemplate.execute("create table plain (payload varchar(20))");
+		JdbcBatchingMessageHandler plain = new JdbcBatchingMessageHandler(db);
+		plain.setTableName("plain");
+		plain.setColumnNames("payload");
+		plain.afterPropertiesSet();
+		plain.handleMessage(MessageBuilder.withPayload("foo").build());
+		assertEquals("foo", jdbcTemplate.queryForObject("select payload from plain", String.class));
+	}
+
+	private void send(int id, String name) {
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("id", id);
+		row.put("name", name);
+		handler.handleMessage(MessageBuilder.withPayload(row).build());
+	}
+
+	private int count() {
+		return jdbcTemplate.queryForObject("select count(*) from test", Integer.class);
+	}
+
+}
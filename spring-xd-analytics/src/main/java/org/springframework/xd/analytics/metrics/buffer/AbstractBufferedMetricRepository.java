@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.buffer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.util.Assert;
+
+/**
+ * Base class for repository decorators that accumulate metric updates locally and write them to the decorated
+ * repository in batches, once {@link #setBufferSize(int) bufferSize} updates are pending or
+ * {@link #setFlushInterval(long) flushInterval} milliseconds have elapsed, whichever comes first. Pending updates are
+ * also written before any read or non incremental write, and when the repository is destroyed.
+ * <p>
+ * Subclasses record updates while holding the {@link #updateLock() update lock}, and swap out their pending updates
+ * while holding the {@link #swapLock() swap lock}, so that no update is lost to a concurrent flush.
+ *
+ * @since 1.0
+ */
+public abstract class AbstractBufferedMetricRepository implements InitializingBean, DisposableBean {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Object flushMonitor = new Object();
+
+	private final AtomicInteger pendingUpdates = new AtomicInteger();
+
+	private volatile int bufferSize = DEFAULT_BUFFER_SIZE;
+
+	private volatile long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+	private ScheduledExecutorService flushExecutor;
+
+	private final AtomicLong flushCount = new AtomicLong();
+
+	private final AtomicLong totalFlushTime = new AtomicLong();
+
+	private final AtomicLong totalBatchSize = new AtomicLong();
+
+	private volatile long lastFlushTime;
+
+	private volatile long maxFlushTime;
+
+	private volatile int lastBatchSize;
+
+	/**
+	 * Set the number of pending updates that triggers a flush. A size of 1 disables buffering altogether: every update
+	 * is written immediately.
+	 */
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be positive");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Set the maximum time, in milliseconds, that an update is kept pending before being written.
+	 */
+	public void setFlushInterval(long flushInterval) {
+		Assert.isTrue(flushInterval > 0, "'flushInterval' must be positive");
+		this.flushInterval = flushInterval;
+	}
+
+	@Override
+	public synchronized void afterPropertiesSet() {
+		if (isBuffering() && this.flushExecutor == null) {
+			this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Metric Flusher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						flush();
+					}
+					catch (RuntimeException e) {
+						// updates are kept pending and retried on the next run
+						logger.warn("Failed to write buffered metric updates", e);
+					}
+				}
+			}, this.flushInterval, this.flushInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (this.flushExecutor != null) {
+			this.flushExecutor.shutdown();
+			this.flushExecutor = null;
+		}
+		flush();
+	}
+
+	/**
+	 * Write all pending updates to the decorated repository.
+	 */
+	@ManagedOperation
+	public void flush() {
+		synchronized (this.flushMonitor) {
+			this.pendingUpdates.set(0);
+			long start = System.nanoTime();
+			int batchSize = doFlush();
+			if (batchSize > 0) {
+				long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				this.flushCount.incrementAndGet();
+				this.totalFlushTime.addAndGet(time);
+				this.totalBatchSize.addAndGet(batchSize);
+				this.lastFlushTime = time;
+				this.lastBatchSize = batchSize;
+				if (time > this.maxFlushTime) {
+					this.maxFlushTime = time;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Swap out the pending updates and write them to the decorated repository. If that fails, implementations should
+	 * put the updates back before rethrowing, so that they are retried by the next flush.
+	 *
+	 * @return the number of writes made to the decorated repository
+	 */
+	protected abstract int doFlush();
+
+	/**
+	 * @return whether updates are buffered at all
+	 */
+	protected boolean isBuffering() {
+		return this.bufferSize > 1;
+	}
+
+	/**
+	 * Lock to hold while recording an update.
+	 */
+	protected Lock updateLock() {
+		return this.lock.readLock();
+	}
+
+	/**
+	 * Lock to hold while swapping out pending updates.
+	 */
+	protected Lock swapLock() {
+		return this.lock.writeLock();
+	}
+
+	/**
+	 * Signal that an update was recorded, flushing if the buffer is full. Must be called without holding the
+	 * {@link #updateLock() update lock}.
+	 */
+	protected void updateRecorded() {
+		if (this.pendingUpdates.incrementAndGet() >= this.bufferSize) {
+			flush();
+		}
+	}
+
+	@ManagedAttribute(description = "Number of flushes that wrote updates")
+	public long getFlushCount() {
+		return this.flushCount.get();
+	}
+
+	@ManagedAttribute(description = "Duration of the last flush, in milliseconds")
+	public long getLastFlushTime() {
+		return this.lastFlushTime;
+	}
+
+	@ManagedAttribute(description = "Longest flush, in milliseconds")
+	public long getMaxFlushTime() {
+		return this.maxFlushTime;
+	}
+
+	@ManagedAttribute(description = "Average flush duration, in milliseconds")
+	public double getMeanFlushTime() {
+		long count = this.flushCount.get();
+		return count == 0 ? 0 : (double) this.totalFlushTime.get() / count;
+	}
+
+	@ManagedAttribute(description = "Number of writes made by the last flush")
+	public int getLastBatchSize() {
+		return this.lastBatchSize;
+	}
+
+	@ManagedAttribute(description = "Average number of writes per flush")
+	public double getMeanBatchSize() {
+		long count = this.flushCount.get();
+		return count == 0 ? 0 : (double) this.totalBatchSize.get() / count;
+	}
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.buffer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.Counter;
+import org.springframework.xd.analytics.metrics.core.CounterRepository;
+
+/**
+ * A {@link CounterRepository} that sums increments locally and writes them to a delegate repository in batches, as
+ * one increment per counter.
+ * <p>
+ * While increments are pending, the value returned by {@link #increment(String, long)} is the value returned by the
+ * last write to the delegate plus the pending increments.
+ *
+ * @since 1.0
+ */
+@ManagedResource
+public class BufferedCounterRepository extends AbstractBufferedMetricRepository implements CounterRepository {
+
+	private final CounterRepository delegate;
+
+	private volatile ConcurrentMap<String, AtomicLong> pending = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final ConcurrentMap<String, Long> written = new ConcurrentHashMap<String, Long>();
+
+	public BufferedCounterRepository(CounterRepository delegate) {
+		Assert.notNull(delegate, "'delegate' cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public long increment(String name) {
+		return increment(name, 1L);
+	}
+
+	@Override
+	public long increment(String name, long amount) {
+		Assert.notNull(name, "'name' cannot be null");
+		if (!isBuffering()) {
+			return this.delegate.increment(name, amount);
+		}
+		long pendingAmount;
+		updateLock().lock();
+		try {
+			pendingAmount = add(this.pending, name, amount);
+		}
+		finally {
+			updateLock().unlock();
+		}
+		Long writtenValue = this.written.get(name);
+		updateRecorded();
+		return (writtenValue == null) ? pendingAmount : writtenValue + pendingAmount;
+	}
+
+	@Override
+	public long decrement(String name) {
+		if (!isBuffering()) {
+			return this.delegate.decrement(name);
+		}
+		return increment(name, -1L);
+	}
+
+	@Override
+	protected int doFlush() {
+		Map<String, AtomicLong> toWrite;
+		swapLock().lock();
+		try {
+			if (this.pending.isEmpty()) {
+				return 0;
+			}
+			toWrite = this.pending;
+			this.pending = new ConcurrentHashMap<String, AtomicLong>();
+		}
+		finally {
+			swapLock().unlock();
+		}
+		int writes = 0;
+		try {
+			for (Map.Entry<String, AtomicLong> entry : toWrite.entrySet()) {
+				long amount = entry.getValue().get();
+				this.written.put(entry.getKey(), this.delegate.increment(entry.getKey(), amount));
+				// done with this one, so that it is not written twice if a later one fails
+				entry.getValue().set(0);
+				writes++;
+			}
+		}
+		catch (RuntimeException e) {
+			updateLock().lock();
+			try {
+				for (Map.Entry<String, AtomicLong> entry : toWrite.entrySet()) {
+					if (entry.getValue().get() != 0) {
+						add(this.pending, entry.getKey(), entry.getValue().get());
+					}
+				}
+			}
+			finally {
+				updateLock().unlock();
+			}
+			throw e;
+		}
+		return writes;
+	}
+
+	private static long add(ConcurrentMap<String, AtomicLong> amounts, String name, long amount) {
+		AtomicLong current = amounts.get(name);
+		if (current == null) {
+			current = new AtomicLong();
+			AtomicLong existing = amounts.putIfAbsent(name, current);
+			if (existing != null) {
+				current = existing;
+			}
+		}
+		return current.addAndGet(amount);
+	}
+
+	@Override
+	public void reset(String name) {
+		flush();
+		this.delegate.reset(name);
+		this.written.remove(name);
+	}
+
+	@Override
+	public <S extends Counter> S save(S entity) {
+		flush();
+		return this.delegate.save(entity);
+	}
+
+	@Override
+	public <S extends Counter> Iterable<S> save(Iterable<S> entities) {
+		flush();
+		return this.delegate.save(entities);
+	}
+
+	@Override
+	public Counter findOne(String id) {
+		flush();
+		return this.delegate.findOne(id);
+	}
+
+	@Override
+	public boolean exists(String id) {
+		flush();
+		return this.delegate.exists(id);
+	}
+
+	@Override
+	public Iterable<Counter> findAll() {
+		flush();
+		return this.delegate.findAll();
+	}
+
+	@Override
+	public Iterable<Counter> findAll(Iterable<String> ids) {
+		flush();
+		return this.delegate.findAll(ids);
+	}
+
+	@Override
+	public Iterable<Counter> findAll(Sort sort) {
+		flush();
+		return this.delegate.findAll(sort);
+	}
+
+	@Override
+	public Page<Counter> findAll(Pageable pageable) {
+		flush();
+		return this.delegate.findAll(pageable);
+	}
+
+	@Override
+	public Iterable<Counter> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
+		flush();
+		return this.delegate.findAllInRange(from, fromInclusive, to, toInclusive);
+	}
+
+	@Override
+	public long count() {
+		flush();
+		return this.delegate.count();
+	}
+
+	@Override
+	public void delete(String id) {
+		flush();
+		this.delegate.delete(id);
+		this.written.remove(id);
+	}
+
+	@Override
+	public void delete(Counter entity) {
+		flush();
+		this.delegate.delete(entity);
+		this.written.remove(entity.getName());
+	}
+
+	@Override
+	public void delete(Iterable<? extends Counter> entities) {
+		flush();
+		this.delegate.delete(entities);
+		for (Counter entity : entities) {
+			this.written.remove(entity.getName());
+		}
+	}
+
+	@Override
+	public void deleteAll() {
+		flush();
+		this.written.clear();
+		this.delegate.deleteAll();
+	}
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.buffer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.FieldValueCounter;
+import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
+
+/**
+ * A {@link FieldValueCounterRepository} that sums increments locally and writes them to a delegate repository in
+ * batches, as one increment per counter and field value.
+ *
+ * @since 1.0
+ */
+@ManagedResource
+public class BufferedFieldValueCounterRepository extends AbstractBufferedMetricRepository implements
+		FieldValueCounterRepository {
+
+	private final FieldValueCounterRepository delegate;
+
+	private volatile ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> pending = new ConcurrentHashMap<String, ConcurrentMap<String, AtomicLong>>();
+
+	public BufferedFieldValueCounterRepository(FieldValueCounterRepository delegate) {
+		Assert.notNull(delegate, "'delegate' cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void increment(String name, String fieldName) {
+		if (isBuffering()) {
+			add(name, fieldName, 1L);
+		}
+		else {
+			this.delegate.increment(name, fieldName);
+		}
+	}
+
+	@Override
+	public void decrement(String name, String fieldName) {
+		if (isBuffering()) {
+			add(name, fieldName, -1L);
+		}
+		else {
+			this.delegate.decrement(name, fieldName);
+		}
+	}
+
+	@Override
+	public void increment(String name, String fieldName, double amount) {
+		// fractional amounts are not buffered
+		this.delegate.increment(name, fieldName, amount);
+	}
+
+	private void add(String name, String fieldName, long amount) {
+		Assert.notNull(name, "'name' cannot be null");
+		updateLock().lock();
+		try {
+			add(this.pending, name, fieldName, amount);
+		}
+		finally {
+			updateLock().unlock();
+		}
+		updateRecorded();
+	}
+
+	@Override
+	protected int doFlush() {
+		Map<String, ConcurrentMap<String, AtomicLong>> toWrite;
+		swapLock().lock();
+		try {
+			if (this.pending.isEmpty()) {
+				return 0;
+			}
+			toWrite = this.pending;
+			this.pending = new ConcurrentHashMap<String, ConcurrentMap<String, AtomicLong>>();
+		}
+		finally {
+			swapLock().unlock();
+		}
+		int writes = 0;
+		try {
+			for (Map.Entry<String, ConcurrentMap<String, AtomicLong>> counter : toWrite.entrySet()) {
+				for (Map.Entry<String, AtomicLong> field : counter.getValue().entrySet()) {
+					long amount = field.getValue().get();
+					if (amount != 0) {
+						this.delegate.increment(counter.getKey(), field.getKey(), amount);
+						// done with this one, so that it is not written twice if a later one fails
+						field.getValue().set(0);
+						writes++;
+					}
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			updateLock().lock();
+			try {
+				for (Map.Entry<String, ConcurrentMap<String, AtomicLong>> counter : toWrite.entrySet()) {
+					for (Map.Entry<String, AtomicLong> field : counter.getValue().entrySet()) {
+						if (field.getValue().get() != 0) {
+							add(this.pending, counter.getKey(), field.getKey(), field.getValue().get());
+						}
+					}
+				}
+			}
+			finally {
+				updateLock().unlock();
+			}
+			throw e;
+		}
+		return writes;
+	}
+
+	private static void add(ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> amounts, String name,
+			String fieldName, long amount) {
+		ConcurrentMap<String, AtomicLong> fields = amounts.get(name);
+		if (fields == null) {
+			fields = new ConcurrentHashMap<String, AtomicLong>();
+			ConcurrentMap<String, AtomicLong> existing = amounts.putIfAbsent(name, fields);
+			if (existing != null) {
+				fields = existing;
+			}
+		}
+		AtomicLong current = fields.get(fieldName);
+		if (current == null) {
+			current = new AtomicLong();
+			AtomicLong existing = fields.putIfAbsent(fieldName, current);
+			if (existing != null) {
+				current = existing;
+			}
+		}
+		current.addAndGet(amount);
+	}
+
+	@Override
+	public void reset(String name, String fieldName) {
+		flush();
+		this.delegate.reset(name, fieldName);
+	}
+
+	@Override
+	public <S extends FieldValueCounter> S save(S entity) {
+		flush();
+		return this.delegate.save(entity);
+	}
+
+	@Override
+	public <S extends FieldValueCounter> Iterable<S> save(Iterable<S> entities) {
+		flush();
+		return this.delegate.save(entities);
+	}
+
+	@Override
+	public FieldValueCounter findOne(String id) {
+		flush();
+		return this.delegate.findOne(id);
+	}
+
+	@Override
+	public boolean exists(String id) {
+		flush();
+		return this.delegate.exists(id);
+	}
+
+	@Override
+	public Iterable<FieldValueCounter> findAll() {
+		flush();
+		return this.delegate.findAll();
+	}
+
+	@Override
+	public Iterable<FieldValueCounter> findAll(Iterable<String> ids) {
+		flush();
+		return this.delegate.findAll(ids);
+	}
+
+	@Override
+	public long count() {
+		flush();
+		return this.delegate.count();
+	}
+
+	@Override
+	public void delete(String id) {
+		flush();
+		this.delegate.delete(id);
+	}
+
+	@Override
+	public void delete(FieldValueCounter entity) {
+		flush();
+		this.delegate.delete(entity);
+	}
+
+	@Override
+	public void delete(Iterable<? extends FieldValueCounter> entities) {
+		flush();
+		this.delegate.delete(entities);
+	}
+
+	@Override
+	public void deleteAll() {
+		flush();
+		this.delegate.deleteAll();
+	}
+
+}
@@ -36,6 +36,16 @@ public interface FieldValueCounterRepository extends MetricRepository<FieldValue
 	 */
 	void increment(String name, String fieldName);
 
+	/**
+	 * Increment the FieldValueCounter for a given field name by the given amount, creating missing counters.
+	 * 
+	 * @param name the FieldValueCounter name
+	 * @param fieldName the name of the field
+	 * @param amount the amount to add, which may be negative
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void increment(String name, String fieldName, double amount);
+
 	/**
 	 * Decrement the FieldValueCounter for a given field name by one, creating missing counters.
 	 * 
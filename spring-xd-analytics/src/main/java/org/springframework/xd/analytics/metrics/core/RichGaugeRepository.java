@@ -39,6 +39,16 @@ public interface RichGaugeRepository extends MetricRepository<RichGauge> {
 	 */
 	void setValue(String name, double value);
 
+	/**
+	 * Sets several successive values of the gauge at once, as if {@link #setValue(String, double)} had been called
+	 * with each of them in turn.
+	 * 
+	 * @param name the gauge name
+	 * @param values the values of the gauge, oldest first
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void setValues(String name, double[] values);
+
 	/**
 	 * Sets the "smoothing constant", "alpha" for use in calculating an <a
 	 * href="http://www.itl.nist.gov/div898/handbook/pmc/section4/pmc431.htm">exponential moving average</a> for the
@@ -40,6 +40,11 @@ public class InMemoryFieldValueCounterRepository extends InMemoryMetricRepositor
 		modifyFieldValue(name, fieldName, 1);
 	}
 
+	@Override
+	public synchronized void increment(String name, String fieldName, double amount) {
+		modifyFieldValue(name, fieldName, amount);
+	}
+
 	@Override
 	public synchronized void decrement(String name, String fieldName) {
 		modifyFieldValue(name, fieldName, -1);
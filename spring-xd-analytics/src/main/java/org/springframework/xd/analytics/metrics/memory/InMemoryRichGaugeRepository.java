@@ -54,6 +54,14 @@ public class InMemoryRichGaugeRepository extends InMemoryMetricRepository<RichGa
 		setRichGaugeValue(gauge, value);
 	}
 
+	@Override
+	public void setValues(String name, double[] values) {
+		RichGauge gauge = getOrCreate(name);
+		for (double value : values) {
+			setRichGaugeValue(gauge, value);
+		}
+	}
+
 	@Override
 	public void setAlpha(String name, double value) {
 		RichGauge gauge = getOrCreate(name);
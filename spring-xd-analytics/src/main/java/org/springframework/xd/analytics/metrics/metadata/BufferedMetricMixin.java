@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.metadata;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.xd.module.options.spi.ModuleOption;
+
+
+/**
+ * Adds {@code bufferSize} and {@code flushInterval} options, that control how metric updates are buffered locally
+ * before being written to the store.
+ * 
+ * @since 1.0
+ */
+public class BufferedMetricMixin {
+
+	private int bufferSize = 1;
+
+	private long flushInterval = 1000;
+
+	@Min(1)
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	@ModuleOption("the number of updates to buffer before writing them to the store (1 writes every update)")
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	@Min(1)
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	@ModuleOption("the maximum time (ms) that buffered updates wait before being written to the store")
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+
+}
@@ -27,7 +27,7 @@ import org.springframework.xd.module.options.spi.ModuleOption;
  * 
  * @author Eric Bottard
  */
-@Mixin({ MetricNameMixin.class })
+@Mixin({ MetricNameMixin.class, BufferedMetricMixin.class })
 public class FieldValueCounterSinkOptionsMetadata {
 
 	private String fieldName = null;
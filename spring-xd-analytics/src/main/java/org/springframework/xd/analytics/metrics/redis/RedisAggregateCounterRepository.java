@@ -17,39 +17,104 @@
 package org.springframework.xd.analytics.metrics.redis;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.joda.time.*;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.SetOperations;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.AggregateCount;
 import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
 import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
+import org.springframework.xd.analytics.metrics.core.Counter;
 import org.springframework.xd.analytics.metrics.core.MetricUtils;
 
 /**
  * Redis implementation of {@link AggregateCounterRepository}. Subclasses and intercepts calls to
  * {@link RedisCounterRepository} to also track counts in various redis hashes.
+ * <p>
+ * All the writes caused by an increment (the per resolution hashes, the bookkeeping set and the total) are sent in a
+ * single pipeline, costing one network round trip.
+ * <p>
+ * Optionally, increments can be pre-aggregated locally for a {@link #setPreAggregationWindow(long) window} of time:
+ * increments to the same counter and minute are then coalesced and written in one pipeline when the window elapses.
+ * Pending increments are also written before counters or counts are read and when the repository is destroyed. In
+ * that mode, the value returned by {@code increment} is the last written total plus the increments not written yet,
+ * including those being written.
  * 
  * @author Eric Bottard
  * @author Luke Taylor
  */
 @Qualifier("aggregate")
-public class RedisAggregateCounterRepository extends RedisCounterRepository implements AggregateCounterRepository {
+public class RedisAggregateCounterRepository extends RedisCounterRepository implements AggregateCounterRepository,
+		DisposableBean {
+
+	private final Log logger = LogFactory.getLog(getClass());
 
 	protected HashOperations<String, String, Long> hashOperations;
 
 	protected SetOperations<String, String> setOperations;
 
+	private final RedisSerializer<String> stringSerializer = new StringRedisSerializer();
+
+	private final Object monitor = new Object();
+
+	/**
+	 * Increments waiting to be written, by counter and minute. Guarded by {@link #monitor}.
+	 */
+	private Map<String, PendingIncrement> pendingIncrements = new HashMap<String, PendingIncrement>();
+
+	/**
+	 * Sum of the pending increments, by counter. Guarded by {@link #monitor}.
+	 */
+	private Map<String, Long> pendingTotals = new HashMap<String, Long>();
+
+	/**
+	 * Sum of the increments being written, by counter. Guarded by {@link #monitor}.
+	 */
+	private Map<String, Long> inFlightTotals = new HashMap<String, Long>();
+
+	/**
+	 * Totals returned by the last write, by counter. Guarded by {@link #monitor}.
+	 */
+	private final Map<String, Long> writtenTotals = new HashMap<String, Long>();
+
+	/**
+	 * Serializes flushes, so that at most one batch of increments is in flight.
+	 */
+	private final Object flushMonitor = new Object();
+
+	private volatile long preAggregationWindow;
+
+	private ScheduledExecutorService flushExecutor;
+
 	/**
 	 * @param redisConnectionFactory
 	 */
@@ -66,6 +131,46 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		setOperations = redisTemplate.opsForSet();
 	}
 
+	/**
+	 * Set the time, in milliseconds, during which increments are coalesced locally before being written to redis. The
+	 * default (0) writes every increment immediately.
+	 */
+	public synchronized void setPreAggregationWindow(long preAggregationWindow) {
+		Assert.isTrue(preAggregationWindow >= 0, "'preAggregationWindow' cannot be negative");
+		if (this.flushExecutor != null) {
+			this.flushExecutor.shutdown();
+			this.flushExecutor = null;
+		}
+		this.preAggregationWindow = preAggregationWindow;
+		if (preAggregationWindow > 0) {
+			this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Aggregate Counter Flusher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						flush();
+					}
+					catch (RuntimeException e) {
+						// increments are kept pending and retried on the next run
+						logger.warn("Failed to write pending aggregate counter increments", e);
+					}
+				}
+			}, preAggregationWindow, preAggregationWindow, TimeUnit.MILLISECONDS);
+		}
+		else {
+			flush();
+		}
+	}
+
 	@Override
 	public long increment(String name) {
 		return increment(name, 1, new DateTime());
@@ -74,16 +179,139 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 	@Override
 	public long increment(String name, long amount, DateTime dateTime) {
 		final AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, dateTime);
+		if (this.preAggregationWindow <= 0) {
+			return doIncrements(Collections.singletonList(new PendingIncrement(name, akg, amount))).get(name);
+		}
+		synchronized (this.monitor) {
+			String bucket = akg.getHourKey() + AggregateKeyGenerator.SEPARATOR + akg.getMinute();
+			PendingIncrement pending = this.pendingIncrements.get(bucket);
+			if (pending == null) {
+				this.pendingIncrements.put(bucket, new PendingIncrement(name, akg, amount));
+			}
+			else {
+				pending.amount += amount;
+			}
+			Long pendingTotal = this.pendingTotals.get(name);
+			pendingTotal = (pendingTotal == null) ? amount : pendingTotal + amount;
+			this.pendingTotals.put(name, pendingTotal);
+			Long inFlightTotal = this.inFlightTotals.get(name);
+			Long writtenTotal = this.writtenTotals.get(name);
+			return pendingTotal + (inFlightTotal == null ? 0 : inFlightTotal)
+					+ (writtenTotal == null ? 0 : writtenTotal);
+		}
+	}
 
-		String bookkeepingKey = bookkeepingKeyFor(name);
+	/**
+	 * Write the increments that are pending locally, if any. If the write fails, the increments are kept pending.
+	 */
+	public void flush() {
+		synchronized (this.flushMonitor) {
+			Map<String, PendingIncrement> toWrite;
+			synchronized (this.monitor) {
+				if (this.pendingIncrements.isEmpty()) {
+					return;
+				}
+				toWrite = this.pendingIncrements;
+				this.pendingIncrements = new HashMap<String, PendingIncrement>();
+				// still counted by increment() until the written totals reflect them
+				this.inFlightTotals = this.pendingTotals;
+				this.pendingTotals = new HashMap<String, Long>();
+			}
+			Map<String, Long> totals;
+			try {
+				totals = doIncrements(toWrite.values());
+			}
+			catch (RuntimeException e) {
+				synchronized (this.monitor) {
+					for (Map.Entry<String, PendingIncrement> entry : toWrite.entrySet()) {
+						PendingIncrement failed = entry.getValue();
+						PendingIncrement pending = this.pendingIncrements.get(entry.getKey());
+						if (pending == null) {
+							this.pendingIncrements.put(entry.getKey(), failed);
+						}
+						else {
+							pending.amount += failed.amount;
+						}
+						Long pendingTotal = this.pendingTotals.get(failed.name);
+						this.pendingTotals.put(failed.name, (pendingTotal == null) ? failed.amount : pendingTotal
+								+ failed.amount);
+					}
+					this.inFlightTotals = new HashMap<String, Long>();
+				}
+				throw e;
+			}
+			synchronized (this.monitor) {
+				this.writtenTotals.putAll(totals);
+				this.inFlightTotals = new HashMap<String, Long>();
+			}
+		}
+	}
 
-		doIncrementHash(akg.getYearsKey(), akg.getYear(), amount, bookkeepingKey);
-		doIncrementHash(akg.getYearKey(), akg.getMonth(), amount, bookkeepingKey);
-		doIncrementHash(akg.getMonthKey(), akg.getDay(), amount, bookkeepingKey);
-		doIncrementHash(akg.getDayKey(), akg.getHour(), amount, bookkeepingKey);
-		doIncrementHash(akg.getHourKey(), akg.getMinute(), amount, bookkeepingKey);
+	/**
+	 * Write the given increments in a single pipeline, returning the new totals by counter name.
+	 */
+	private Map<String, Long> doIncrements(Collection<PendingIncrement> increments) {
+		// the total and bookkeeping set only need to be written once per counter
+		final Map<String, Long> amounts = new LinkedHashMap<String, Long>();
+		final Map<String, Set<String>> hashKeys = new HashMap<String, Set<String>>();
+		for (PendingIncrement increment : increments) {
+			Long amount = amounts.get(increment.name);
+			amounts.put(increment.name, (amount == null) ? increment.amount : amount + increment.amount);
+			Set<String> keys = hashKeys.get(increment.name);
+			if (keys == null) {
+				keys = new HashSet<String>();
+				hashKeys.put(increment.name, keys);
+			}
+			AggregateKeyGenerator akg = increment.akg;
+			keys.add(akg.getYearsKey());
+			keys.add(akg.getYearKey());
+			keys.add(akg.getMonthKey());
+			keys.add(akg.getDayKey());
+			keys.add(akg.getHourKey());
+		}
+		final Collection<PendingIncrement> toWrite = increments;
+		List<Object> results = redisOperations.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				for (PendingIncrement increment : toWrite) {
+					AggregateKeyGenerator akg = increment.akg;
+					long amount = increment.amount;
+					connection.hIncrBy(bytes(akg.getYearsKey()), bytes(akg.getYear()), amount);
+					connection.hIncrBy(bytes(akg.getYearKey()), bytes(akg.getMonth()), amount);
+					connection.hIncrBy(bytes(akg.getMonthKey()), bytes(akg.getDay()), amount);
+					connection.hIncrBy(bytes(akg.getDayKey()), bytes(akg.getHour()), amount);
+					connection.hIncrBy(bytes(akg.getHourKey()), bytes(akg.getMinute()), amount);
+				}
+				byte[] membershipKey = bytes(getPrefix());
+				for (Map.Entry<String, Long> entry : amounts.entrySet()) {
+					String name = entry.getKey();
+					Set<String> keys = hashKeys.get(name);
+					byte[][] members = new byte[keys.size()][];
+					int i = 0;
+					for (String key : keys) {
+						members[i++] = bytes(key);
+					}
+					connection.sAdd(bytes(bookkeepingKeyFor(name)), members);
+					String redisKey = redisKeyFromId(name);
+					connection.zAdd(membershipKey, 0.0D, bytes(redisKey));
+					connection.incrBy(bytes(redisKey), entry.getValue());
+				}
+				return null;
+			}
+		});
+		// each counter ends with SADD, ZADD and INCRBY
+		Map<String, Long> totals = new HashMap<String, Long>(amounts.size());
+		int index = results.size() - amounts.size() * 3;
+		for (String name : amounts.keySet()) {
+			index += 3;
+			totals.put(name, (Long) results.get(index - 1));
+		}
+		return totals;
+	}
 
-		return super.increment(name, amount);
+	private byte[] bytes(String value) {
+		return this.stringSerializer.serialize(value);
 	}
 
 	/**
@@ -93,18 +321,46 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		return "metric_meta.aggregatecounters." + counterName;
 	}
 
-	/**
-	 * Internally increments the given hash key, keeping track of created hash for a given counter, so they can be
-	 * cleaned up when needed.
-	 */
-	private void doIncrementHash(String key, String hashKey, long amount, String bookkeepingKey) {
-		long newValue = hashOperations.increment(key, hashKey, amount);
-		// TODO: the following test does not necessarily mean that the hash
-		// is new, just that the key inside that hash is new. So we end up
-		// calling add more than needed
-		if (newValue == amount) {
-			setOperations.add(bookkeepingKey, key);
-		}
+	@Override
+	public Counter findOne(String id) {
+		flush();
+		return super.findOne(id);
+	}
+
+	@Override
+	public Iterable<Counter> findAll() {
+		flush();
+		return super.findAll();
+	}
+
+	@Override
+	public Iterable<Counter> findAll(Iterable<String> ids) {
+		flush();
+		return super.findAll(ids);
+	}
+
+	@Override
+	public Page<Counter> findAll(Pageable pageable) {
+		flush();
+		return super.findAll(pageable);
+	}
+
+	@Override
+	public Iterable<Counter> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
+		flush();
+		return super.findAllInRange(from, fromInclusive, to, toInclusive);
+	}
+
+	@Override
+	public boolean exists(String id) {
+		flush();
+		return super.exists(id);
+	}
+
+	@Override
+	public long count() {
+		flush();
+		return super.count();
 	}
 
 	@Override
@@ -130,6 +386,7 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 	 */
 	@Override
 	public AggregateCount getCounts(String name, Interval interval, AggregateCountResolution resolution) {
+		flush();
 
 		DateTime end = interval.getEnd();
 		Chronology c = interval.getChronology();
@@ -264,6 +521,7 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 
 	@Override
 	public void delete(String id) {
+		discardPending(id);
 		String metricMetaKey = bookkeepingKeyFor(id);
 		super.delete(id);
 		Set<String> otherKeys = setOperations.members(metricMetaKey);
@@ -271,4 +529,45 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		otherKeys.add(metricMetaKey);
 		redisOperations.delete(otherKeys);
 	}
+
+	private void discardPending(String name) {
+		synchronized (this.monitor) {
+			Iterator<PendingIncrement> iterator = this.pendingIncrements.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().name.equals(name)) {
+					iterator.remove();
+				}
+			}
+			this.pendingTotals.remove(name);
+			this.writtenTotals.remove(name);
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (this.flushExecutor != null) {
+			this.flushExecutor.shutdown();
+			this.flushExecutor = null;
+		}
+		flush();
+	}
+
+
+	/**
+	 * An increment of a counter, for a given minute.
+	 */
+	private static class PendingIncrement {
+
+		private final String name;
+
+		private final AggregateKeyGenerator akg;
+
+		private long amount;
+
+		PendingIncrement(String name, AggregateKeyGenerator akg, long amount) {
+			this.name = name;
+			this.akg = akg;
+			this.amount = amount;
+		}
+	}
 }
@@ -157,6 +157,7 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, 1.0);
 	}
 
+	@Override
 	public void increment(String counterName, String fieldName, double score) {
 		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, score);
 	}
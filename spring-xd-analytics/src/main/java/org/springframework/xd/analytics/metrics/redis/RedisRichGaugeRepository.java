@@ -16,13 +16,21 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import java.util.Collections;
+
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.xd.analytics.metrics.core.MetricUtils;
 import org.springframework.xd.analytics.metrics.core.RichGauge;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 
 /**
+ * Redis implementation of {@link RichGaugeRepository}. Gauges are stored as a space delimited string; new values are
+ * applied by a Lua script on the server, so that each update takes one round trip and concurrent updates are not lost.
+ * 
  * @author Luke Taylor
  */
 public final class RedisRichGaugeRepository extends
@@ -30,8 +38,47 @@ public final class RedisRichGaugeRepository extends
 
 	private static final String ZERO = serialize(new RichGauge("zero"));
 
+	/**
+	 * Applies the values in ARGV, in order, to the gauge stored under KEYS[1], the same way
+	 * {@link MetricUtils#setRichGaugeValue(RichGauge, double)} does.
+	 */
+	private static final String SET_VALUES_SCRIPT = ""
+			+ "local function fmt(x)\n"
+			+ "  if x ~= x then return 'NaN' end\n"
+			+ "  if x == math.huge then return 'Infinity' end\n"
+			+ "  if x == -math.huge then return '-Infinity' end\n"
+			+ "  return string.format('%.17g', x)\n"
+			+ "end\n"
+			+ "local value, alpha, average, max, min, count = 0, -1, 0, 0, 0, 0\n"
+			+ "local current = redis.call('GET', KEYS[1])\n"
+			+ "if current then\n"
+			+ "  local p = {}\n"
+			+ "  for part in string.gmatch(current, '%S+') do p[#p + 1] = tonumber(part) end\n"
+			+ "  value, alpha, average, max, min, count = p[1], p[2], p[3], p[4], p[5], p[6]\n"
+			+ "end\n"
+			+ "for i = 1, #ARGV do\n"
+			+ "  local v = tonumber(ARGV[i])\n"
+			+ "  if count == 0 then max = v; min = v\n"
+			+ "  elseif v > max then max = v\n"
+			+ "  elseif v < min then min = v end\n"
+			+ "  if alpha > 0 and count > 0 then average = alpha * value + (1 - alpha) * average\n"
+			+ "  else average = (average * count + v) / (count + 1) end\n"
+			+ "  count = count + 1\n"
+			+ "  value = v\n"
+			+ "end\n"
+			+ "local result = fmt(value) .. ' ' .. fmt(alpha) .. ' ' .. fmt(average) .. ' ' .. fmt(max) .. ' ' .. fmt(min)\n"
+			+ "  .. ' ' .. string.format('%d', count)\n"
+			+ "redis.call('SET', KEYS[1], result)\n"
+			+ "return result\n";
+
+	private final RedisScript<String> setValuesScript;
+
 	public RedisRichGaugeRepository(RedisConnectionFactory connectionFactory) {
 		super(connectionFactory, "richgauges.");
+		DefaultRedisScript<String> script = new DefaultRedisScript<String>();
+		script.setScriptText(SET_VALUES_SCRIPT);
+		script.setResultType(String.class);
+		this.setValuesScript = script;
 	}
 
 	@Override
@@ -45,13 +92,21 @@ public final class RedisRichGaugeRepository extends
 
 	@Override
 	public void setValue(String name, double value) {
-		String key = getMetricKey(name);
-		RichGauge g = findOne(name);
-		if (g == null) {
-			g = new RichGauge(name);
+		setValues(name, new double[] { value });
+	}
+
+	@Override
+	public void setValues(String name, double[] values) {
+		Assert.notNull(name, "The gauge name cannot be null");
+		Assert.notNull(values, "values cannot be null");
+		if (values.length == 0) {
+			return;
+		}
+		Object[] args = new Object[values.length];
+		for (int i = 0; i < values.length; i++) {
+			args[i] = Double.toString(values[i]);
 		}
-		MetricUtils.setRichGaugeValue(g, value);
-		getValueOperations().set(key, serialize(g));
+		getRedisOperations().execute(this.setValuesScript, Collections.singletonList(getMetricKey(name)), args);
 	}
 
 	@Override
@@ -70,4 +70,17 @@ public abstract class AbstractRichGaugeRepositoryTests {
 		g = gs.findOne("test");
 		assertEquals(70.71, g.getAverage(), 1E-6);
 	}
+
+	@Test
+	public void testSetValuesMatchesSuccessiveSetValue() throws Exception {
+		RichGaugeRepository gs = createService();
+		gs.setAlpha("test", 0.1);
+		gs.setValues("test", new double[] { 71.0, 70.0, 69.0, 68.0 });
+		RichGauge g = gs.findOne("test");
+		assertEquals(68.0, g.getValue(), 1E-6);
+		assertEquals(70.71, g.getAverage(), 1E-6);
+		assertEquals(71.0, g.getMax(), 1E-6);
+		assertEquals(68.0, g.getMin(), 1E-6);
+		assertEquals(4, g.getCount());
+	}
 }
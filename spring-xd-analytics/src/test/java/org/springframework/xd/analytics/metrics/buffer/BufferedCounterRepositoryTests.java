@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.AbstractCounterRepositoryTests;
+import org.springframework.xd.analytics.metrics.core.CounterRepository;
+import org.springframework.xd.analytics.metrics.memory.InMemoryCounterRepository;
+
+public class BufferedCounterRepositoryTests extends AbstractCounterRepositoryTests {
+
+	private CounterRepository delegate;
+
+	private BufferedCounterRepository buffered;
+
+	@Before
+	public void setUp() {
+		delegate = spy(new InMemoryCounterRepository());
+		buffered = new BufferedCounterRepository(delegate);
+		buffered.setBufferSize(10);
+		buffered.setFlushInterval(60000);
+		buffered.afterPropertiesSet();
+		counterRepository = buffered;
+	}
+
+	@After
+	public void tearDown() {
+		buffered.destroy();
+	}
+
+	@Test
+	public void testIncrementsAreSummed() {
+		assertEquals(1, buffered.increment("foo"));
+		assertEquals(3, buffered.increment("foo", 2));
+		assertEquals(2, buffered.increment("bar", 2));
+		assertNull(delegate.findOne("foo"));
+
+		buffered.flush();
+		verify(delegate).increment("foo", 3);
+		verify(delegate).increment("bar", 2);
+		assertEquals(3, delegate.findOne("foo").getValue());
+		assertEquals(1, buffered.getFlushCount());
+		assertEquals(2, buffered.getLastBatchSize());
+
+		assertEquals(4, buffered.increment("foo"));
+	}
+
+	@Test
+	public void testReadsSeePendingIncrements() {
+		buffered.increment("foo");
+		buffered.decrement("foo");
+		buffered.increment("foo", 5);
+		assertEquals(5, buffered.findOne("foo").getValue());
+	}
+
+	@Test
+	public void testFlushWhenBufferIsFull() {
+		for (int i = 0; i < 10; i++) {
+			buffered.increment("foo");
+		}
+		verify(delegate).increment("foo", 10);
+	}
+
+	@Test
+	public void testFlushAfterInterval() throws Exception {
+		buffered.destroy();
+		buffered.setFlushInterval(10);
+		buffered.afterPropertiesSet();
+		buffered.increment("foo");
+		for (int i = 0; i < 100 && delegate.findOne("foo") == null; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, delegate.findOne("foo").getValue());
+	}
+
+	@Test
+	public void testDestroyDrains() {
+		buffered.increment("foo", 7);
+		buffered.destroy();
+		assertEquals(7, delegate.findOne("foo").getValue());
+	}
+
+	@Test
+	public void testFailedFlushIsRetried() {
+		buffered.increment("foo", 7);
+		doThrow(new IllegalStateException("down")).doCallRealMethod().when(delegate).increment("foo", 7L);
+		try {
+			buffered.flush();
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+		}
+		buffered.flush();
+		verify(delegate, times(2)).increment("foo", 7);
+		assertEquals(7, delegate.findOne("foo").getValue());
+	}
+
+	@Test
+	public void testNoBuffering() {
+		buffered.setBufferSize(1);
+		buffered.increment("foo");
+		assertEquals(1, delegate.findOne("foo").getValue());
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.AbstractFieldValueCounterRepositoryTests;
+import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
+import org.springframework.xd.analytics.metrics.memory.InMemoryFieldValueCounterRepository;
+
+public class BufferedFieldValueCounterRepositoryTests extends AbstractFieldValueCounterRepositoryTests {
+
+	private FieldValueCounterRepository delegate;
+
+	private BufferedFieldValueCounterRepository buffered;
+
+	@Before
+	public void setUp() {
+		delegate = spy(new InMemoryFieldValueCounterRepository());
+		buffered = new BufferedFieldValueCounterRepository(delegate);
+		buffered.setBufferSize(100);
+		buffered.setFlushInterval(60000);
+		buffered.afterPropertiesSet();
+		fieldValueCounterRepository = buffered;
+	}
+
+	@After
+	public void tearDown() {
+		buffered.destroy();
+	}
+
+	@Test
+	public void testIncrementsAreSummedPerFieldValue() {
+		buffered.increment("tickers", "VMW");
+		buffered.increment("tickers", "VMW");
+		buffered.increment("tickers", "ORCL");
+		buffered.decrement("tickers", "ORCL");
+		assertNull(delegate.findOne("tickers"));
+
+		buffered.flush();
+		verify(delegate).increment("tickers", "VMW", 2.0);
+		assertEquals(2.0, delegate.findOne("tickers").getFieldValueCount().get("VMW"), 0.0);
+		assertNull(delegate.findOne("tickers").getFieldValueCount().get("ORCL"));
+		assertEquals(1, buffered.getLastBatchSize());
+	}
+
+	@Test
+	public void testDestroyDrains() {
+		buffered.increment("tickers", "VMW");
+		buffered.destroy();
+		assertEquals(1.0, delegate.findOne("tickers").getFieldValueCount().get("VMW"), 0.0);
+	}
+
+}
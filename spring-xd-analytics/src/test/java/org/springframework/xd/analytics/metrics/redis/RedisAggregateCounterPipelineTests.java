@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * Checks the commands sent by {@link RedisAggregateCounterRepository} against a mock connection.
+ *
+ * @since 1.0
+ */
+public class RedisAggregateCounterPipelineTests {
+
+	private final RedisConnection connection = mock(RedisConnection.class);
+
+	private RedisAggregateCounterRepository repository;
+
+	@Before
+	public void setUp() {
+		RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+		when(connectionFactory.getConnection()).thenReturn(connection);
+		// 5 x HINCRBY, SADD, ZADD, INCRBY
+		when(connection.closePipeline()).thenReturn(
+				Arrays.<Object> asList(1L, 1L, 1L, 1L, 1L, 5L, true, 42L));
+		repository = new RedisAggregateCounterRepository(connectionFactory);
+	}
+
+	@After
+	public void tearDown() {
+		repository.destroy();
+	}
+
+	@Test
+	public void testIncrementIsPipelined() {
+		assertEquals(42L, repository.increment("test", 1, new DateTime(2014, 3, 4, 10, 20)));
+		verify(connection).openPipeline();
+		verify(connection, times(5)).hIncrBy(any(byte[].class), any(byte[].class), anyLong());
+		verify(connection).sAdd(any(byte[].class), Matchers.<byte[]> anyVararg());
+		verify(connection).zAdd(any(byte[].class), anyDouble(), any(byte[].class));
+		verify(connection).incrBy(any(byte[].class), anyLong());
+		verify(connection).closePipeline();
+	}
+
+	@Test
+	public void testIncrementsAreCoalescedWithinWindow() {
+		repository.setPreAggregationWindow(60000);
+		DateTime time = new DateTime(2014, 3, 4, 10, 20, 5);
+		assertEquals(1L, repository.increment("test", 1, time));
+		assertEquals(3L, repository.increment("test", 2, time.plusSeconds(30)));
+		verify(connection, never()).openPipeline();
+
+		repository.flush();
+		verify(connection, times(5)).hIncrBy(any(byte[].class), any(byte[].class), anyLong());
+		verify(connection).incrBy(any(byte[].class), anyLong());
+		verify(connection).closePipeline();
+		assertEquals(43L, repository.increment("test", 1, time));
+	}
+
+	@Test
+	public void testIncrementsBeingWrittenAreCounted() {
+		repository.setPreAggregationWindow(60000);
+		final DateTime time = new DateTime(2014, 3, 4, 10, 20, 5);
+		repository.increment("test", 3, time);
+		final List<Long> totalsDuringFlush = new ArrayList<Long>();
+		when(connection.closePipeline()).thenAnswer(new Answer<List<Object>>() {
+
+			@Override
+			public List<Object> answer(InvocationOnMock invocation) {
+				totalsDuringFlush.add(repository.increment("test", 1, time));
+				return Arrays.<Object> asList(1L, 1L, 1L, 1L, 1L, 5L, true, 45L);
+			}
+		});
+		repository.flush();
+		assertEquals(Arrays.asList(4L), totalsDuringFlush);
+		assertEquals(47L, repository.increment("test", 1, time));
+	}
+
+	@Test
+	public void testPendingIncrementsWrittenBeforeReads() {
+		repository.setPreAggregationWindow(60000);
+		repository.increment("test", 1, new DateTime(2014, 3, 4, 10, 20));
+		repository.count();
+		verify(connection).closePipeline();
+	}
+
+}
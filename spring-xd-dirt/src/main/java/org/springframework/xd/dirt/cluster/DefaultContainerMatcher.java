@@ -19,14 +19,20 @@ package org.springframework.xd.dirt.cluster;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
@@ -52,6 +58,10 @@ import org.springframework.xd.dirt.module.ModuleDescriptor;
  * <p/>
  * In cases where all containers are not deploying a module, an attempt at container round robin distribution for module
  * deployments will be made (but not guaranteed).
+ * <p/>
+ * Criteria expressions are parsed once and kept, along with the outcome of their evaluation against each container;
+ * as {@link Container} instances are immutable, a container is only evaluated again when the repository returns a new
+ * instance for it, <i>i.e.</i> when its attributes may have changed. This class is thread safe.
  * 
  * @author Patrick Peralta
  * @author Mark Fisher
@@ -70,21 +80,19 @@ public class DefaultContainerMatcher implements ContainerMatcher {
 	private int index;
 
 	/**
-	 * Parser for criteria expressions.
+	 * Maximum number of criteria expressions kept in {@link #criteriaCache}.
 	 */
-	private final SpelExpressionParser expressionParser = new SpelExpressionParser();
+	private static final int MAX_CACHED_CRITERIA = 256;
 
 	/**
-	 * Evaluation context for criteria expressions.
+	 * Parser for criteria expressions.
 	 */
-	private final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+	private final SpelExpressionParser expressionParser = new SpelExpressionParser();
 
 	/**
-	 * Creates a container matcher instance and prepares the SpEL evaluation context to support Map properties directly.
+	 * Parsed criteria expressions, keyed by their text.
 	 */
-	public DefaultContainerMatcher() {
-		evaluationContext.addPropertyAccessor(new MapAccessor());
-	}
+	private final ConcurrentMap<String, CompiledCriteria> criteriaCache = new ConcurrentHashMap<String, CompiledCriteria>();
 
 	/**
 	 * {@inheritDoc}
@@ -147,15 +155,35 @@ public class DefaultContainerMatcher implements ContainerMatcher {
 		LOG.debug("Matching containers for criteria '{}'", criteria);
 
 		List<Container> candidates = new ArrayList<Container>();
+		CompiledCriteria compiled = StringUtils.isEmpty(criteria) ? null : compile(criteria);
+		// outcomes for the containers seen by this match only, so that departed containers are forgotten
+		Map<String, Outcome> outcomes = compiled == null ? null : new HashMap<String, Outcome>();
+		EvaluationContext evaluationContext = null;
 
 		for (Iterator<Container> iterator = containerRepository.getContainerIterator(); iterator.hasNext();) {
 			Container container = iterator.next();
-			LOG.trace("Evaluating container {}", container);
-			if (StringUtils.isEmpty(criteria) || isCandidate(container, criteria)) {
+			boolean candidate = true;
+			if (compiled != null) {
+				Outcome outcome = compiled.outcomes.get(container.getName());
+				if (outcome == null || outcome.container != container) {
+					LOG.trace("Evaluating container {}", container);
+					if (evaluationContext == null) {
+						evaluationContext = createEvaluationContext();
+					}
+					outcome = new Outcome(container, isCandidate(container, compiled.expression, evaluationContext,
+							criteria));
+				}
+				outcomes.put(container.getName(), outcome);
+				candidate = outcome.candidate;
+			}
+			if (candidate) {
 				LOG.trace("\tAdded container {}", container);
 				candidates.add(container);
 			}
 		}
+		if (compiled != null) {
+			compiled.outcomes = outcomes;
+		}
 
 		if (candidates.isEmpty()) {
 			LOG.warn("No currently available containers match criteria '{}'", criteria);
@@ -163,18 +191,53 @@ public class DefaultContainerMatcher implements ContainerMatcher {
 		return candidates;
 	}
 
+	/**
+	 * Return the parsed form of a criteria expression, parsing it if it is not cached yet.
+	 * 
+	 * @param criteria the criteria expression
+	 * @return the parsed criteria
+	 */
+	private CompiledCriteria compile(String criteria) {
+		CompiledCriteria compiled = criteriaCache.get(criteria);
+		if (compiled == null) {
+			if (criteriaCache.size() >= MAX_CACHED_CRITERIA) {
+				criteriaCache.clear();
+			}
+			compiled = new CompiledCriteria(expressionParser.parseExpression(criteria));
+			CompiledCriteria existing = criteriaCache.putIfAbsent(criteria, compiled);
+			if (existing != null) {
+				compiled = existing;
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Create an evaluation context that supports Map properties directly. Evaluation contexts are not thread safe,
+	 * hence one is created for each match.
+	 * 
+	 * @return the evaluation context
+	 */
+	private EvaluationContext createEvaluationContext() {
+		StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+		evaluationContext.addPropertyAccessor(new MapAccessor());
+		return evaluationContext;
+	}
+
 	/**
 	 * Evaluate the criteria expression against the attributes of the provided container to see if it is a candidate for
 	 * module deployment.
 	 * 
 	 * @param container the container instance whose attributes should be considered
-	 * @param criteria the criteria expression to evaluate against the container attributes
+	 * @param expression the parsed criteria expression
+	 * @param evaluationContext the context to evaluate the expression in
+	 * @param criteria the criteria expression, for logging
 	 * @return whether the container is a candidate
 	 */
-	private boolean isCandidate(Container container, String criteria) {
+	private boolean isCandidate(Container container, Expression expression, EvaluationContext evaluationContext,
+			String criteria) {
 		try {
-			return expressionParser.parseExpression(criteria).getValue(evaluationContext, container.getAttributes(),
-					Boolean.class);
+			return Boolean.TRUE.equals(expression.getValue(evaluationContext, container.getAttributes(), Boolean.class));
 		}
 		catch (SpelEvaluationException e) {
 			if (e.getMessageCode().equals(SpelMessage.PROPERTY_OR_FIELD_NOT_READABLE)) {
@@ -203,4 +266,45 @@ public class DefaultContainerMatcher implements ContainerMatcher {
 		return i;
 	}
 
+	/**
+	 * A parsed criteria expression, along with its outcome for the containers seen by the latest match.
+	 */
+	private static class CompiledCriteria {
+
+		/**
+		 * The parsed expression.
+		 */
+		private final Expression expression;
+
+		/**
+		 * Outcome of the expression, keyed by container name. Replaced as a whole after each match.
+		 */
+		private volatile Map<String, Outcome> outcomes = Collections.emptyMap();
+
+		private CompiledCriteria(Expression expression) {
+			this.expression = expression;
+		}
+	}
+
+	/**
+	 * Whether a given container instance is a candidate for a criteria expression.
+	 */
+	private static class Outcome {
+
+		/**
+		 * The container instance the expression was evaluated against.
+		 */
+		private final Container container;
+
+		/**
+		 * Whether the container is a candidate.
+		 */
+		private final boolean candidate;
+
+		private Outcome(Container container, boolean candidate) {
+			this.container = container;
+			this.candidate = candidate;
+		}
+	}
+
 }
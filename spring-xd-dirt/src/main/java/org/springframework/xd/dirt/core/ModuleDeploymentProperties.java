@@ -39,6 +39,24 @@ public class ModuleDeploymentProperties implements Map<String, String> {
 	 */
 	public static final String CRITERIA_KEY = "criteria";
 
+	/**
+	 * Key for the {@code partitionKeyExpression} property. Value should be a SpEL expression, evaluated against each
+	 * message sent by the module to obtain the key that selects the partition of the next module to send it to.
+	 */
+	public static final String PARTITION_KEY_EXPRESSION_KEY = "partitionKeyExpression";
+
+	/**
+	 * Key for the {@code partitionCount} property. Value should be an integer. Defaults to the count of the next
+	 * module in the stream.
+	 */
+	public static final String PARTITION_COUNT_KEY = "partitionCount";
+
+	/**
+	 * Key for the {@code partitionIndex} property, which is set by the container for each instance of a module that
+	 * consumes a partitioned output. Value is an integer.
+	 */
+	public static final String PARTITION_INDEX_KEY = "partitionIndex";
+
 	/**
 	 * The underlying map.
 	 */
@@ -89,6 +107,59 @@ public class ModuleDeploymentProperties implements Map<String, String> {
 		return this;
 	}
 
+	/**
+	 * Return the expression that selects the partition of the next module to send each message to.
+	 *
+	 * @return partition key expression or {@code null} if the output of this module is not partitioned.
+	 */
+	public String getPartitionKeyExpression() {
+		return get(PARTITION_KEY_EXPRESSION_KEY);
+	}
+
+	/**
+	 * Specify the expression that selects the partition of the next module to send each message to.
+	 */
+	public ModuleDeploymentProperties setPartitionKeyExpression(String partitionKeyExpression) {
+		put(PARTITION_KEY_EXPRESSION_KEY, partitionKeyExpression);
+		return this;
+	}
+
+	/**
+	 * Return the number of partitions the output of this module is split into.
+	 *
+	 * @return number of partitions or {@code null} if not specified.
+	 */
+	public Integer getPartitionCount() {
+		String partitionCount = get(PARTITION_COUNT_KEY);
+		return partitionCount == null ? null : Integer.valueOf(partitionCount);
+	}
+
+	/**
+	 * Specify the number of partitions the output of this module is split into.
+	 */
+	public ModuleDeploymentProperties setPartitionCount(int partitionCount) {
+		put(PARTITION_COUNT_KEY, String.valueOf(partitionCount));
+		return this;
+	}
+
+	/**
+	 * Return the partition of its input this module instance consumes.
+	 *
+	 * @return partition index or {@code null} if the input of this module is not partitioned.
+	 */
+	public Integer getPartitionIndex() {
+		String partitionIndex = get(PARTITION_INDEX_KEY);
+		return partitionIndex == null ? null : Integer.valueOf(partitionIndex);
+	}
+
+	/**
+	 * Specify the partition of its input this module instance consumes.
+	 */
+	public ModuleDeploymentProperties setPartitionIndex(int partitionIndex) {
+		put(PARTITION_INDEX_KEY, String.valueOf(partitionIndex));
+		return this;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -63,6 +63,29 @@ public interface MessageBus {
 	 */
 	void bindPubSubProducer(final String name, MessageChannel outputChannel);
 
+	/**
+	 * Bind a message producer on a p2p channel split into partitions. Each message is sent to the partition selected
+	 * by the hash code of its key, modulo the number of partitions, so that all the messages with a given key are
+	 * received, in order, by the consumer of that partition. To unbind, invoke unbindProducer().
+	 *
+	 * @param name the logical identity of the message target
+	 * @param moduleOutputChannel the channel bound as a producer
+	 * @param partitionKeyExpression the SpEL expression evaluated against each message to obtain its key
+	 * @param partitionCount the number of partitions
+	 */
+	void bindPartitionedProducer(String name, MessageChannel moduleOutputChannel, String partitionKeyExpression,
+			int partitionCount);
+
+	/**
+	 * Bind a message consumer on a single partition of a p2p channel bound with
+	 * {@link #bindPartitionedProducer(String, MessageChannel, String, int)}. To unbind, invoke unbindConsumer().
+	 *
+	 * @param name the logical identity of the message source
+	 * @param moduleInputChannel the channel bound as a consumer
+	 * @param partitionIndex the partition to consume, from 0 to the number of partitions - 1
+	 */
+	void bindPartitionedConsumer(String name, MessageChannel moduleInputChannel, int partitionIndex);
+
 	/**
 	 * Unbind an inbound inter-module channel and stop any active components that use the channel.
 	 * 
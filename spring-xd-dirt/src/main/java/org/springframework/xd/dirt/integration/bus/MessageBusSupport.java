@@ -14,17 +14,26 @@
 package org.springframework.xd.dirt.integration.bus;
 
 import static org.springframework.http.MediaType.ALL;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -33,16 +42,26 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.context.Lifecycle;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.http.MediaType;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.endpoint.EventDrivenConsumer;
+import org.springframework.integration.expression.ExpressionUtils;
+import org.springframework.integration.handler.AbstractMessageHandler;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHeaders;
-import org.springframework.messaging.converter.ContentTypeResolver;
+import org.springframework.messaging.SubscribableChannel;
 import org.springframework.util.AlternativeJdkIdGenerator;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.IdGenerator;
 import org.springframework.util.MimeType;
+import org.springframework.util.ObjectUtils;
+import org.springframework.xd.dirt.integration.bus.converter.MessageConverterUtils;
 import org.springframework.xd.dirt.integration.bus.serializer.MultiTypeCodec;
 import org.springframework.xd.dirt.integration.bus.serializer.SerializationException;
 
@@ -57,7 +76,18 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 
 	private volatile MultiTypeCodec<Object> codec;
 
-	private final ContentTypeResolver contentTypeResolver = new StringConvertingContentTypeResolver();
+	private final StringConvertingContentTypeResolver contentTypeResolver = new StringConvertingContentTypeResolver();
+
+	/**
+	 * The payload classes named by content types, by class loader they were loaded with. Both class loaders and
+	 * classes are weakly referenced, so that the classes of undeployed modules can be unloaded; lookups take no lock.
+	 */
+	private final ConcurrentMap<ClassLoaderKey, ConcurrentMap<String, WeakReference<Class<?>>>> payloadTypes = new ConcurrentHashMap<ClassLoaderKey, ConcurrentMap<String, WeakReference<Class<?>>>>();
+
+	/**
+	 * Where the keys of {@link #payloadTypes} are enqueued once their class loader has been collected.
+	 */
+	private final ReferenceQueue<ClassLoader> collectedClassLoaders = new ReferenceQueue<ClassLoader>();
 
 	protected static final String ORIGINAL_CONTENT_TYPE_HEADER = "originalContentType";
 
@@ -69,6 +99,23 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 
 	private volatile BeanFactory beanFactory;
 
+	private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+	/**
+	 * The channels bound to the partitions of each partitioned producer, by module output channel.
+	 */
+	private final ConcurrentMap<MessageChannel, MessageChannel[]> partitionedProducers = new ConcurrentHashMap<MessageChannel, MessageChannel[]>();
+
+	/**
+	 * The partition bound by each partitioned consumer, by module input channel.
+	 */
+	private final ConcurrentMap<MessageChannel, String> partitionedConsumers = new ConcurrentHashMap<MessageChannel, String>();
+
+	/**
+	 * The input type declared by each consuming module, by module input channel.
+	 */
+	private final ConcurrentMap<MessageChannel, InputType> inputTypes = new ConcurrentHashMap<MessageChannel, InputType>();
+
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
 		this.beanFactory = beanFactory;
@@ -86,6 +133,76 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 		return idGenerator;
 	}
 
+	/**
+	 * Declare the type a consuming module converts the messages of its input channel to, as set with its
+	 * {@code inputType} option. Payloads that the module would otherwise convert from a deserialized String, such as
+	 * JSON to be converted to a Tuple, are then handed to the module as the bytes received, for its converters to
+	 * convert from directly. The declaration is dropped when the consumer is unbound.
+	 *
+	 * @param moduleInputChannel the module input channel, as bound to this bus
+	 * @param contentType the declared input content type
+	 * @param dataType the Java type the module input channel accepts
+	 */
+	public void setInputType(MessageChannel moduleInputChannel, MimeType contentType, Class<?> dataType) {
+		Assert.notNull(moduleInputChannel, "'moduleInputChannel' cannot be null");
+		Assert.notNull(contentType, "'contentType' cannot be null");
+		Assert.notNull(dataType, "'dataType' cannot be null");
+		this.inputTypes.put(moduleInputChannel, new InputType(contentType, dataType));
+	}
+
+	/**
+	 * Bind a producer to each partition, named after the given name and the index of the partition, and route the
+	 * messages of the module output channel to them.
+	 */
+	@Override
+	public void bindPartitionedProducer(String name, MessageChannel moduleOutputChannel,
+			String partitionKeyExpression, int partitionCount) {
+		Assert.isInstanceOf(SubscribableChannel.class, moduleOutputChannel);
+		Assert.hasText(partitionKeyExpression, "'partitionKeyExpression' cannot be empty");
+		Assert.isTrue(partitionCount > 0, "'partitionCount' must be positive");
+		MessageChannel[] partitions = new MessageChannel[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			DirectChannel partition = new DirectChannel();
+			if (getBeanFactory() != null) {
+				partition.setBeanFactory(getBeanFactory());
+			}
+			partition.setBeanName(partitionName(name, i) + ".partition");
+			partition.afterPropertiesSet();
+			bindProducer(partitionName(name, i), partition);
+			partitions[i] = partition;
+		}
+		this.partitionedProducers.put(moduleOutputChannel, partitions);
+		PartitioningHandler handler = new PartitioningHandler(
+				PARSER.parseExpression(partitionKeyExpression), partitions);
+		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler);
+		if (getBeanFactory() != null) {
+			consumer.setBeanFactory(getBeanFactory());
+		}
+		consumer.setBeanName("outbound." + name);
+		consumer.afterPropertiesSet();
+		Binding producerBinding = Binding.forProducer(moduleOutputChannel, consumer);
+		addBinding(producerBinding);
+		producerBinding.start();
+	}
+
+	/**
+	 * Bind a consumer to the partition named after the given name and partition index.
+	 */
+	@Override
+	public void bindPartitionedConsumer(String name, MessageChannel moduleInputChannel, int partitionIndex) {
+		Assert.isTrue(partitionIndex >= 0, "'partitionIndex' cannot be negative");
+		String partitionName = partitionName(name, partitionIndex);
+		bindConsumer(partitionName, moduleInputChannel);
+		this.partitionedConsumers.put(moduleInputChannel, partitionName);
+	}
+
+	/**
+	 * @return the logical name of the given partition of a partitioned p2p channel
+	 */
+	protected String partitionName(String name, int partitionIndex) {
+		return name + "-" + partitionIndex;
+	}
+
 	@Override
 	public void unbindConsumers(String name) {
 		deleteBindings("inbound." + name);
@@ -98,12 +215,20 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 
 	@Override
 	public void unbindConsumer(String name, MessageChannel channel) {
-		deleteBinding("inbound." + name, channel);
+		this.inputTypes.remove(channel);
+		String partitionName = this.partitionedConsumers.remove(channel);
+		deleteBinding("inbound." + (partitionName != null ? partitionName : name), channel);
 	}
 
 	@Override
 	public void unbindProducer(String name, MessageChannel channel) {
 		deleteBinding("outbound." + name, channel);
+		MessageChannel[] partitions = this.partitionedProducers.remove(channel);
+		if (partitions != null) {
+			for (int i = 0; i < partitions.length; i++) {
+				deleteBinding("outbound." + partitionName(name, i), partitions[i]);
+			}
+		}
 	}
 
 	protected void addBinding(Binding binding) {
@@ -178,6 +303,33 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 		}
 	}
 
+	/**
+	 * Write the given payload to a stream, the same way {@link #serializePayloadIfNecessary(Message, MediaType)}
+	 * serializes it, so that it can share a buffer with other data.
+	 *
+	 * @param payload the payload
+	 * @param out the stream to write to
+	 * @return the content type of the serialized payload
+	 * @see #deserializePayloadIfNecessary(byte[], int, int, Map)
+	 */
+	protected final String serializePayload(Object payload, OutputStream out) {
+		try {
+			if (payload instanceof byte[]) {
+				out.write((byte[]) payload);
+			}
+			else if (payload instanceof String) {
+				out.write(((String) payload).getBytes("UTF-8"));
+			}
+			else {
+				this.codec.serialize(payload, out);
+			}
+		}
+		catch (IOException e) {
+			throw new SerializationException("unable to serialize payload [" + payload.getClass().getName() + "]", e);
+		}
+		return resolveContentType(payload);
+	}
+
 	private byte[] serializePayloadIfNecessary(Object originalPayload) {
 		if (originalPayload instanceof byte[]) {
 			return (byte[]) originalPayload;
@@ -199,10 +351,24 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 	}
 
 	protected final Message<?> deserializePayloadIfNecessary(Message<?> message) {
+		return deserializePayloadIfNecessary(message, null);
+	}
+
+	/**
+	 * Deserialize the payload of a message received for the given module input channel, unless the module declared an
+	 * input type it can convert to straight from the serialized payload.
+	 *
+	 * @param message the message received
+	 * @param moduleInputChannel the module input channel the message is for, if known
+	 * @return the message to send to the module input channel
+	 * @see #setInputType(MessageChannel, MimeType, Class)
+	 */
+	protected final Message<?> deserializePayloadIfNecessary(Message<?> message, MessageChannel moduleInputChannel) {
 		Message<?> messageToSend = message;
 		Object originalPayload = message.getPayload();
 		MimeType contentType = contentTypeResolver.resolve(message.getHeaders());
-		Object payload = deserializePayload(originalPayload, contentType);
+		Object payload = isPassThrough(contentType, message.getHeaders().get(ORIGINAL_CONTENT_TYPE_HEADER),
+				moduleInputChannel) ? originalPayload : deserializePayload(originalPayload, contentType);
 		if (payload != null) {
 			MessageBuilder<Object> transformed = MessageBuilder.withPayload(payload).copyHeaders(message.getHeaders());
 			Object originalContentType = message.getHeaders().get(ORIGINAL_CONTENT_TYPE_HEADER);
@@ -213,28 +379,93 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 		return messageToSend;
 	}
 
+	/**
+	 * Build a message from a serialized payload held in a region of an array, such as a frame that also carries the
+	 * headers, decoding the payload in place rather than copying it out first. The headers are those the payload was
+	 * sent with, as set by {@link #serializePayloadIfNecessary(Message, MediaType)}.
+	 *
+	 * @param bytes the array holding the payload
+	 * @param offset the offset of the payload in the array
+	 * @param length the length of the payload
+	 * @param headers the headers of the message
+	 * @return the message
+	 */
+	protected final Message<?> deserializePayloadIfNecessary(byte[] bytes, int offset, int length,
+			Map<String, Object> headers) {
+		return deserializePayloadIfNecessary(bytes, offset, length, headers, null);
+	}
+
+	/**
+	 * Build a message from a serialized payload held in a region of an array, as
+	 * {@link #deserializePayloadIfNecessary(byte[], int, int, Map)} does, for the given module input channel; the
+	 * payload is only copied out, not deserialized, if the module declared an input type it can convert to straight
+	 * from the serialized payload.
+	 *
+	 * @param bytes the array holding the payload
+	 * @param offset the offset of the payload in the array
+	 * @param length the length of the payload
+	 * @param headers the headers of the message
+	 * @param moduleInputChannel the module input channel the message is for, if known
+	 * @return the message
+	 * @see #setInputType(MessageChannel, MimeType, Class)
+	 */
+	protected final Message<?> deserializePayloadIfNecessary(byte[] bytes, int offset, int length,
+			Map<String, Object> headers, MessageChannel moduleInputChannel) {
+		MimeType contentType = this.contentTypeResolver.resolve(headers.get(MessageHeaders.CONTENT_TYPE));
+		Object payload;
+		if (contentType == null || APPLICATION_OCTET_STREAM.equals(contentType)
+				|| isPassThrough(contentType, headers.get(ORIGINAL_CONTENT_TYPE_HEADER), moduleInputChannel)) {
+			payload = new byte[length];
+			System.arraycopy(bytes, offset, payload, 0, length);
+		}
+		else {
+			payload = deserializePayload(bytes, offset, length, contentType);
+		}
+		return MessageBuilder.withPayload(payload)
+				.copyHeaders(headers)
+				.setHeader(MessageHeaders.CONTENT_TYPE, headers.get(ORIGINAL_CONTENT_TYPE_HEADER))
+				.setHeader(ORIGINAL_CONTENT_TYPE_HEADER, null)
+				.build();
+	}
+
+	/**
+	 * Tell whether a payload should be handed to the module as received: this is the case of JSON, sent as a String,
+	 * when the module converts its input to a Tuple or a POJO, as the JSON converters read bytes as well as Strings.
+	 */
+	private boolean isPassThrough(MimeType contentType, Object originalContentType, MessageChannel moduleInputChannel) {
+		if (moduleInputChannel == null || originalContentType == null || !TEXT_PLAIN.equals(contentType)) {
+			return false;
+		}
+		InputType inputType = this.inputTypes.get(moduleInputChannel);
+		return inputType != null && inputType.convertsFromJsonBytes
+				&& APPLICATION_JSON.includes(this.contentTypeResolver.resolve(originalContentType));
+	}
+
 	private Object deserializePayload(Object payload, MimeType contentType) {
 		if (payload instanceof byte[]) {
 			if (APPLICATION_OCTET_STREAM.equals(contentType)) {
 				return payload;
 			}
 			else {
-				return deserializePayload((byte[]) payload, contentType);
+				byte[] bytes = (byte[]) payload;
+				return deserializePayload(bytes, 0, bytes.length, contentType);
 			}
 		}
 		return payload;
 	}
 
-	private Object deserializePayload(byte[] bytes, MimeType contentType) {
+	private Object deserializePayload(byte[] bytes, int offset, int length, MimeType contentType) {
 		Class<?> targetType = null;
 		try {
 			if (contentType.equals(TEXT_PLAIN)) {
-				return new String(bytes, "UTF-8");
+				return new String(bytes, offset, length, "UTF-8");
 			}
-			targetType = Class.forName(contentType.getParameter("type"));
-
+			targetType = resolvePayloadType(contentType.getParameter("type"));
 
-			return codec.deserialize(bytes, targetType);
+			if (offset == 0 && length == bytes.length) {
+				return codec.deserialize(bytes, targetType);
+			}
+			return codec.deserialize(new ByteArrayInputStream(bytes, offset, length), targetType);
 		}
 		catch (ClassNotFoundException e) {
 			throw new SerializationException("unable to deserialize [" + targetType + "]. Class not found.", e);
@@ -245,7 +476,42 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 
 	}
 
-	private String resolveContentType(Object originalPayload) {
+	/**
+	 * Return the class of the given name, as seen by the {@link ClassUtils#getDefaultClassLoader() default class
+	 * loader} of the calling thread, loading it only the first time it is asked for.
+	 */
+	private Class<?> resolvePayloadType(String name) throws ClassNotFoundException {
+		ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+		if (classLoader == null) {
+			return ClassUtils.forName(name, null);
+		}
+		ConcurrentMap<String, WeakReference<Class<?>>> types = this.payloadTypes.get(new ClassLoaderKey(classLoader,
+				null));
+		if (types != null) {
+			WeakReference<Class<?>> reference = types.get(name);
+			Class<?> type = reference == null ? null : reference.get();
+			if (type != null) {
+				return type;
+			}
+		}
+		Class<?> type = ClassUtils.forName(name, classLoader);
+		if (types == null) {
+			Reference<? extends ClassLoader> collected;
+			while ((collected = this.collectedClassLoaders.poll()) != null) {
+				this.payloadTypes.remove(collected);
+			}
+			types = new ConcurrentHashMap<String, WeakReference<Class<?>>>();
+			ConcurrentMap<String, WeakReference<Class<?>>> existing = this.payloadTypes.putIfAbsent(
+					new ClassLoaderKey(classLoader, this.collectedClassLoaders), types);
+			if (existing != null) {
+				types = existing;
+			}
+		}
+		types.put(name, new WeakReference<Class<?>>(type));
+		return type;
+	}
+
+	protected final String resolveContentType(Object originalPayload) {
 		if (originalPayload instanceof byte[]) {
 			return APPLICATION_OCTET_STREAM_VALUE;
 		}
@@ -255,4 +521,86 @@ public abstract class MessageBusSupport implements MessageBus, BeanFactoryAware
 		return "application/x-java-object;type=" + originalPayload.getClass().getName();
 	}
 
+	/**
+	 * Weak reference to a class loader that is equal to the references to the same loader, for use as a map key.
+	 */
+	private static class ClassLoaderKey extends WeakReference<ClassLoader> {
+
+		private final int hash;
+
+		ClassLoaderKey(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+			super(classLoader, queue);
+			this.hash = System.identityHashCode(classLoader);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof ClassLoaderKey)) {
+				return false;
+			}
+			ClassLoader classLoader = get();
+			return classLoader != null && classLoader == ((ClassLoaderKey) obj).get();
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+	}
+
+	/**
+	 * The input type declared by a consuming module.
+	 */
+	private static class InputType {
+
+		/**
+		 * Whether the module converts JSON to its input type, rather than taking it as a String or bytes.
+		 */
+		private final boolean convertsFromJsonBytes;
+
+		private InputType(MimeType contentType, Class<?> dataType) {
+			this.convertsFromJsonBytes = (MessageConverterUtils.X_XD_TUPLE.includes(contentType)
+					|| MessageConverterUtils.X_JAVA_OBJECT.includes(contentType))
+					&& !dataType.isAssignableFrom(String.class) && !dataType.isAssignableFrom(byte[].class);
+		}
+	}
+
+	/**
+	 * Sends each message to the partition selected by the hash code of its key.
+	 */
+	private class PartitioningHandler extends AbstractMessageHandler {
+
+		private final Expression partitionKeyExpression;
+
+		private final MessageChannel[] partitions;
+
+		private final EvaluationContext evaluationContext;
+
+		private PartitioningHandler(Expression partitionKeyExpression, MessageChannel[] partitions) {
+			this.partitionKeyExpression = partitionKeyExpression;
+			this.partitions = partitions;
+			BeanFactory beanFactory = getBeanFactory();
+			if (beanFactory != null) {
+				this.setBeanFactory(beanFactory);
+				this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(beanFactory);
+			}
+			else {
+				this.evaluationContext = ExpressionUtils.createStandardEvaluationContext();
+			}
+		}
+
+		@Override
+		protected void handleMessageInternal(Message<?> message) throws Exception {
+			Object key = this.partitionKeyExpression.getValue(this.evaluationContext, message);
+			// Math.abs(Integer.MIN_VALUE) is negative, so the remainder is taken first
+			int partition = Math.abs(ObjectUtils.nullSafeHashCode(key) % this.partitions.length);
+			this.partitions[partition].send(message);
+		}
+
+	}
+
 }
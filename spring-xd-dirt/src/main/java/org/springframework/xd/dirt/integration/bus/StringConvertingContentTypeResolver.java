@@ -16,27 +16,49 @@
 
 package org.springframework.xd.dirt.integration.bus;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.converter.DefaultContentTypeResolver;
 import org.springframework.util.MimeType;
 
 /**
- * A {@link DefaultContentTypeResolver} that can parse String values.
+ * A {@link DefaultContentTypeResolver} that can parse String values. Parsed values are cached, as a bus sees the
+ * same few content types over and over; the cache is bounded, and only holds {@link MimeType}s, which do not
+ * reference any class.
  * 
  * @author David Turanski
  */
 public class StringConvertingContentTypeResolver extends DefaultContentTypeResolver {
 
+	private static final int MAX_CACHED_MIME_TYPES = 256;
+
+	private final ConcurrentMap<String, MimeType> mimeTypes = new ConcurrentHashMap<String, MimeType>();
 
 	@Override
 	// TODO: This will likely be pushed to core Spring
 	public MimeType resolve(MessageHeaders headers) {
-		Object value = headers.get(MessageHeaders.CONTENT_TYPE);
+		return resolve(headers.get(MessageHeaders.CONTENT_TYPE));
+	}
+
+	/**
+	 * Resolve a content type header value, which may be a {@link MimeType} or a String.
+	 */
+	public MimeType resolve(Object value) {
 		if (value instanceof MimeType) {
 			return (MimeType) value;
 		}
 		else if (value instanceof String) {
-			return MimeType.valueOf((String) value);
+			MimeType mimeType = this.mimeTypes.get(value);
+			if (mimeType == null) {
+				mimeType = MimeType.valueOf((String) value);
+				if (this.mimeTypes.size() >= MAX_CACHED_MIME_TYPES) {
+					this.mimeTypes.clear();
+				}
+				this.mimeTypes.put((String) value, mimeType);
+			}
+			return mimeType;
 		}
 		return getDefaultMimeType();
 	}
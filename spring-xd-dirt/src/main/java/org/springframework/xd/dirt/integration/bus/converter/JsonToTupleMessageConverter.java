@@ -22,6 +22,7 @@ import java.util.List;
 import org.springframework.messaging.Message;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.xd.tuple.JsonBytesToTupleConverter;
 import org.springframework.xd.tuple.Tuple;
 import org.springframework.xd.tuple.TupleBuilder;
 
@@ -39,6 +40,8 @@ public class JsonToTupleMessageConverter extends AbstractFromMessageConverter {
 		targetMimeTypes.add(MessageConverterUtils.X_JAVA_OBJECT);
 	}
 
+	private final JsonBytesToTupleConverter jsonBytesToTupleConverter = new JsonBytesToTupleConverter();
+
 	public JsonToTupleMessageConverter() {
 		super(MimeTypeUtils.APPLICATION_JSON, targetMimeTypes);
 	}
@@ -55,14 +58,14 @@ public class JsonToTupleMessageConverter extends AbstractFromMessageConverter {
 
 	@Override
 	public Object convertFromInternal(Message<?> message, Class<?> targetClass) {
-		String source = null;
+		Tuple t;
 		if (message.getPayload() instanceof byte[]) {
-			source = new String((byte[]) message.getPayload());
+			// parsed as is, without decoding it to a String first
+			t = jsonBytesToTupleConverter.convert((byte[]) message.getPayload());
 		}
 		else {
-			source = (String) message.getPayload();
+			t = TupleBuilder.fromString((String) message.getPayload());
 		}
-		Tuple t = TupleBuilder.fromString(source);
 		return buildConvertedMessage(t, message.getHeaders(), MessageConverterUtils.javaObjectMimeType(t.getClass()));
 	}
 }
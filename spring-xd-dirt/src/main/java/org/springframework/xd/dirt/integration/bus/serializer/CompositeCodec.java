@@ -20,7 +20,9 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.springframework.integration.util.ClassUtils;
 import org.springframework.util.Assert;
@@ -28,6 +30,8 @@ import org.springframework.util.Assert;
 
 /**
  * A codec that can delegate to one out of many codecs, depending on the type of the object to serialize/deserialize.
+ * The delegate chosen for each type is remembered; types are weakly referenced, so that the classes of undeployed
+ * modules can be unloaded.
  * 
  * @author David Turanski
  */
@@ -37,6 +41,13 @@ public class CompositeCodec<P> implements MultiTypeCodec<Object> {
 
 	private final Map<Class<?>, AbstractCodec<P>> delegates;
 
+	/**
+	 * The delegate found for each type, or {@link #NO_DELEGATE}.
+	 */
+	private final Map<Class<?>, Object> resolvedDelegates = Collections.synchronizedMap(new WeakHashMap<Class<?>, Object>());
+
+	private static final Object NO_DELEGATE = new Object();
+
 	public CompositeCodec(Map<Class<?>, AbstractCodec<P>> delegates, MultiTypeCodec<P> defaultCodec)
 	{
 		Assert.notNull(defaultCodec, "'defaultCodec' cannot be null");
@@ -78,12 +89,18 @@ public class CompositeCodec<P> implements MultiTypeCodec<Object> {
 		return deserialize(new ByteArrayInputStream(bytes), type);
 	}
 
+	@SuppressWarnings("unchecked")
 	private AbstractCodec<P> findDelegate(Class<?> type) {
 		if (delegates == null) {
 			return null;
 		}
-
-		Class<?> clazz = ClassUtils.findClosestMatch(type, delegates.keySet(), false);
-		return delegates.get(clazz);
+		Object delegate = resolvedDelegates.get(type);
+		if (delegate == null) {
+			Class<?> clazz = ClassUtils.findClosestMatch(type, delegates.keySet(), false);
+			AbstractCodec<P> codec = clazz == null ? null : delegates.get(clazz);
+			delegate = codec == null ? NO_DELEGATE : codec;
+			resolvedDelegates.put(type, delegate);
+		}
+		return delegate == NO_DELEGATE ? null : (AbstractCodec<P>) delegate;
 	}
 }
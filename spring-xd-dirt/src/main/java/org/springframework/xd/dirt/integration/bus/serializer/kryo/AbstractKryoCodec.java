@@ -16,7 +16,6 @@
 
 package org.springframework.xd.dirt.integration.bus.serializer.kryo;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,11 +29,47 @@ import com.esotericsoftware.kryo.io.Output;
 
 
 /**
+ * Base class for single type codecs using {@link com.esotericsoftware.kryo.Kryo}. Kryo instances and their buffers are
+ * obtained from a per-codec {@link KryoPool}.
  * 
  * @author David Turanski
  */
 abstract class AbstractKryoCodec<T> extends AbstractCodec<T> {
 
+	private final KryoPool kryoPool = new KryoPool(new KryoPool.KryoFactory() {
+
+		@Override
+		public Kryo create() {
+			return getKryoInstance();
+		}
+	});
+
+	/**
+	 * Set the maximum number of idle {@link Kryo} instances retained by this codec.
+	 * 
+	 * @param poolSize the pool size
+	 */
+	public void setPoolSize(int poolSize) {
+		this.kryoPool.setMaxSize(poolSize);
+	}
+
+	/**
+	 * Set the classes to register, with stable ids, on each {@link Kryo} instance used by this codec.
+	 * 
+	 * @param registeredClasses the classes to register
+	 * @see KryoPool#setRegisteredClasses(Class[])
+	 */
+	public void setRegisteredClasses(Class<?>[] registeredClasses) {
+		this.kryoPool.setRegisteredClasses(registeredClasses);
+	}
+
+	/**
+	 * @return the pool of {@link Kryo} instances, e.g. to monitor its hit and miss counts
+	 */
+	public KryoPool getKryoPool() {
+		return this.kryoPool;
+	}
+
 	/**
 	 * Serialize an object using an existing output stream
 	 * 
@@ -45,9 +80,11 @@ abstract class AbstractKryoCodec<T> extends AbstractCodec<T> {
 	@Override
 	public void serialize(T object, OutputStream outputStream) throws IOException {
 		Assert.notNull(outputStream, "outputStream cannot be null");
-		Output output = new Output(outputStream);
-		doSerialize(object, getKryoInstance(), output);
+		KryoPool.PooledKryo pooled = this.kryoPool.borrow();
+		Output output = pooled.getOutput(outputStream);
+		doSerialize(object, pooled.getKryo(), output);
 		output.close();
+		this.kryoPool.release(pooled);
 	}
 
 	/**
@@ -59,9 +96,11 @@ abstract class AbstractKryoCodec<T> extends AbstractCodec<T> {
 	 */
 	@Override
 	public T deserialize(InputStream inputStream) throws IOException {
-		Input input = new Input(inputStream);
-		T result = doDeserialize(getKryoInstance(), input);
+		KryoPool.PooledKryo pooled = this.kryoPool.borrow();
+		Input input = pooled.getInput(inputStream);
+		T result = doDeserialize(pooled.getKryo(), input);
 		input.close();
+		this.kryoPool.release(pooled);
 		return result;
 	}
 
@@ -74,9 +113,16 @@ abstract class AbstractKryoCodec<T> extends AbstractCodec<T> {
 	 */
 	@Override
 	public T deserialize(byte[] bytes) throws IOException {
-		return deserialize(new ByteArrayInputStream(bytes));
+		KryoPool.PooledKryo pooled = this.kryoPool.borrow();
+		T result = doDeserialize(pooled.getKryo(), pooled.getInput(bytes));
+		this.kryoPool.release(pooled);
+		return result;
 	}
 
+	/**
+	 * Create and configure a new {@link Kryo} instance for the pool. Subclasses may override to register classes or
+	 * change the instantiator strategy.
+	 */
 	protected Kryo getKryoInstance() {
 		return new Kryo();
 	}
@@ -16,7 +16,6 @@
 
 package org.springframework.xd.dirt.integration.bus.serializer.kryo;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,13 +27,48 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
 /**
- * Base class for serializers using {@link com.esotericsoftware.kryo.Kryo}
+ * Base class for serializers using {@link com.esotericsoftware.kryo.Kryo}. Kryo instances and their buffers are
+ * obtained from a per-codec {@link KryoPool}.
  * 
  * @author David Turanski
  * @since 1.0
  */
 abstract class AbstractKryoMultiTypeCodec<T> implements MultiTypeCodec<T> {
 
+	private final KryoPool kryoPool = new KryoPool(new KryoPool.KryoFactory() {
+
+		@Override
+		public Kryo create() {
+			return getKryoInstance();
+		}
+	});
+
+	/**
+	 * Set the maximum number of idle {@link Kryo} instances retained by this codec.
+	 * 
+	 * @param poolSize the pool size
+	 */
+	public void setPoolSize(int poolSize) {
+		this.kryoPool.setMaxSize(poolSize);
+	}
+
+	/**
+	 * Set the classes to register, with stable ids, on each {@link Kryo} instance used by this codec.
+	 * 
+	 * @param registeredClasses the classes to register
+	 * @see KryoPool#setRegisteredClasses(Class[])
+	 */
+	public void setRegisteredClasses(Class<?>[] registeredClasses) {
+		this.kryoPool.setRegisteredClasses(registeredClasses);
+	}
+
+	/**
+	 * @return the pool of {@link Kryo} instances, e.g. to monitor its hit and miss counts
+	 */
+	public KryoPool getKryoPool() {
+		return this.kryoPool;
+	}
+
 	/**
 	 * Serialize an object using an existing output stream
 	 * 
@@ -44,9 +78,11 @@ abstract class AbstractKryoMultiTypeCodec<T> implements MultiTypeCodec<T> {
 	 */
 	@Override
 	public void serialize(T object, OutputStream outputStream) throws IOException {
-		Output output = (outputStream == null) ? new Output(2048, -1) : new Output(outputStream);
-		doSerialize(object, getKryoInstance(), output);
+		KryoPool.PooledKryo pooled = this.kryoPool.borrow();
+		Output output = (outputStream == null) ? new Output(2048, -1) : pooled.getOutput(outputStream);
+		doSerialize(object, pooled.getKryo(), output);
 		output.close();
+		this.kryoPool.release(pooled);
 	}
 
 	/**
@@ -59,9 +95,11 @@ abstract class AbstractKryoMultiTypeCodec<T> implements MultiTypeCodec<T> {
 	 */
 	@Override
 	public T deserialize(InputStream inputStream, Class<? extends T> type) throws IOException {
-		Input input = new Input(inputStream);
-		T result = doDeserialize(getKryoInstance(), input, type);
+		KryoPool.PooledKryo pooled = this.kryoPool.borrow();
+		Input input = pooled.getInput(inputStream);
+		T result = doDeserialize(pooled.getKryo(), input, type);
 		input.close();
+		this.kryoPool.release(pooled);
 		return result;
 	}
 
@@ -75,12 +113,18 @@ abstract class AbstractKryoMultiTypeCodec<T> implements MultiTypeCodec<T> {
 	 */
 	@Override
 	public T deserialize(byte[] bytes, Class<? extends T> type) throws IOException {
-		return deserialize(new ByteArrayInputStream(bytes), type);
+		KryoPool.PooledKryo pooled = this.kryoPool.borrow();
+		T result = doDeserialize(pooled.getKryo(), pooled.getInput(bytes), type);
+		this.kryoPool.release(pooled);
+		return result;
 	}
 
 	protected abstract T doDeserialize(Kryo kryo, Input input, Class<? extends T> type);
 
 	protected abstract void doSerialize(T object, Kryo kryo, Output output);
 
+	/**
+	 * Create and configure a new {@link Kryo} instance for the pool.
+	 */
 	protected abstract Kryo getKryoInstance();
 }
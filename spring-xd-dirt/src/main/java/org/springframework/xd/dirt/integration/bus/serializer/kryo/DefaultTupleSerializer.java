@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.serializer.kryo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.format.support.FormattingConversionService;
+import org.springframework.util.Assert;
+import org.springframework.xd.tuple.DefaultTuple;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleSchema;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo {@link Serializer} for {@link DefaultTuple}. Writes the id, timestamp, field names and values directly. On read,
+ * field names are resolved to their interned {@link TupleSchema}, and every restored tuple (including nested ones) is
+ * handed the same, shared conversion service and string converter rather than new ones per tuple.
+ *
+ * @since 1.0
+ */
+public class DefaultTupleSerializer extends Serializer<DefaultTuple> {
+
+	private final FormattingConversionService conversionService;
+
+	private final Converter<Tuple, String> tupleToStringConverter;
+
+	/**
+	 * @param conversionService the conversion service shared by restored tuples; must not be modified afterwards
+	 * @param tupleToStringConverter the string converter shared by restored tuples
+	 */
+	public DefaultTupleSerializer(FormattingConversionService conversionService,
+			Converter<Tuple, String> tupleToStringConverter) {
+		Assert.notNull(conversionService, "'conversionService' cannot be null");
+		Assert.notNull(tupleToStringConverter, "'tupleToStringConverter' cannot be null");
+		this.conversionService = conversionService;
+		this.tupleToStringConverter = tupleToStringConverter;
+		setImmutable(true);
+	}
+
+	@Override
+	public void write(Kryo kryo, Output output, DefaultTuple tuple) {
+		UUID id = tuple.getId();
+		output.writeLong(id.getMostSignificantBits());
+		output.writeLong(id.getLeastSignificantBits());
+		output.writeLong(tuple.getTimestamp());
+		List<String> names = tuple.getFieldNames();
+		List<Object> values = tuple.getValues();
+		int size = names.size();
+		output.writeInt(size, true);
+		for (int i = 0; i < size; i++) {
+			output.writeString(names.get(i));
+		}
+		for (int i = 0; i < size; i++) {
+			kryo.writeClassAndObject(output, values.get(i));
+		}
+	}
+
+	@Override
+	public DefaultTuple read(Kryo kryo, Input input, Class<DefaultTuple> type) {
+		UUID id = new UUID(input.readLong(), input.readLong());
+		Long timestamp = input.readLong();
+		int size = input.readInt(true);
+		List<String> names = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++) {
+			names.add(input.readString());
+		}
+		Object[] values = new Object[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = kryo.readClassAndObject(input);
+		}
+		DefaultTuple tuple = new DefaultTuple(TupleSchema.forNames(names), values, this.conversionService, id,
+				timestamp);
+		tuple.setTupleToStringConverter(this.tupleToStringConverter);
+		return tuple;
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.serializer.kryo;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A bounded, thread safe pool of {@link Kryo} instances. {@link Kryo} is not thread safe and is relatively expensive
+ * to create and configure, so codecs borrow an instance (together with reusable {@link Output} and {@link Input}
+ * buffers) for the duration of a single serialize or deserialize call and release it afterwards. If the pool is empty
+ * a new instance is created; if it is full when an instance is released, that instance is discarded.
+ * <p>
+ * Classes listed in {@link #setRegisteredClasses(Class[])} are registered on every instance with fixed ids, starting
+ * at {@link #FIRST_REGISTRATION_ID}, in the order given. The list must therefore be identical (same classes, same
+ * order) on every node exchanging data through the codec.
+ *
+ * @since 1.0
+ */
+public class KryoPool {
+
+	public static final int DEFAULT_MAX_SIZE = 16;
+
+	/**
+	 * The id assigned to the first class in the registration list. Chosen well above the ids Kryo uses for its default
+	 * registrations and for classes registered by the codecs themselves.
+	 */
+	public static final int FIRST_REGISTRATION_ID = 100;
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private static final byte[] EMPTY_BUFFER = new byte[0];
+
+	private static final Class<?>[] NO_CLASSES = new Class<?>[0];
+
+	private final KryoFactory factory;
+
+	private volatile BlockingQueue<PooledKryo> pool = new LinkedBlockingQueue<PooledKryo>(DEFAULT_MAX_SIZE);
+
+	private volatile Class<?>[] registeredClasses = NO_CLASSES;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	public KryoPool(KryoFactory factory) {
+		Assert.notNull(factory, "'factory' cannot be null");
+		this.factory = factory;
+	}
+
+	/**
+	 * Set the maximum number of idle instances retained by the pool. Any currently pooled instances are discarded.
+	 * @param maxSize the maximum pool size
+	 */
+	public void setMaxSize(int maxSize) {
+		Assert.isTrue(maxSize > 0, "'maxSize' must be greater than 0");
+		this.pool = new LinkedBlockingQueue<PooledKryo>(maxSize);
+	}
+
+	/**
+	 * Set the classes to register, with stable ids, on each {@link Kryo} instance. Any currently pooled instances are
+	 * discarded.
+	 * @param registeredClasses the classes to register, in id order
+	 */
+	public void setRegisteredClasses(Class<?>[] registeredClasses) {
+		this.registeredClasses = (registeredClasses == null) ? NO_CLASSES : registeredClasses.clone();
+		clear();
+	}
+
+	/**
+	 * Obtain an instance from the pool, creating one if none is available. The caller must hand it back with
+	 * {@link #release(PooledKryo)} once done, unless the instance may have been left in an inconsistent state (e.g.
+	 * after an exception), in which case it should simply be dropped.
+	 */
+	public PooledKryo borrow() {
+		PooledKryo pooled = this.pool.poll();
+		if (pooled != null) {
+			this.hits.incrementAndGet();
+			return pooled;
+		}
+		this.misses.incrementAndGet();
+		return new PooledKryo(createKryo());
+	}
+
+	/**
+	 * Return an instance to the pool. The instance is discarded if the pool is full.
+	 */
+	public void release(PooledKryo pooled) {
+		pooled.reset();
+		this.pool.offer(pooled);
+	}
+
+	/**
+	 * Discard all pooled instances.
+	 */
+	public void clear() {
+		this.pool.clear();
+	}
+
+	/**
+	 * @return the number of borrow requests satisfied by a pooled instance
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of borrow requests that required a new instance
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return the number of idle instances currently pooled
+	 */
+	public int size() {
+		return this.pool.size();
+	}
+
+	private Kryo createKryo() {
+		Kryo kryo = this.factory.create();
+		Class<?>[] classes = this.registeredClasses;
+		for (int i = 0; i < classes.length; i++) {
+			kryo.register(classes[i], FIRST_REGISTRATION_ID + i);
+		}
+		return kryo;
+	}
+
+
+	/**
+	 * Creates the {@link Kryo} instances held by the pool.
+	 */
+	public interface KryoFactory {
+
+		Kryo create();
+	}
+
+
+	/**
+	 * A {@link Kryo} instance bundled with the buffers used to drive it.
+	 */
+	public static class PooledKryo {
+
+		private final Kryo kryo;
+
+		private final Output output = new Output(BUFFER_SIZE);
+
+		private final Input streamInput = new Input(BUFFER_SIZE);
+
+		private final Input bytesInput = new Input(EMPTY_BUFFER);
+
+		PooledKryo(Kryo kryo) {
+			this.kryo = kryo;
+		}
+
+		public Kryo getKryo() {
+			return this.kryo;
+		}
+
+		/**
+		 * @return an {@link Output} writing to the given stream through the pooled buffer
+		 */
+		public Output getOutput(OutputStream outputStream) {
+			this.output.setOutputStream(outputStream);
+			return this.output;
+		}
+
+		/**
+		 * @return an {@link Input} reading from the given stream through the pooled buffer
+		 */
+		public Input getInput(InputStream inputStream) {
+			this.streamInput.setInputStream(inputStream);
+			return this.streamInput;
+		}
+
+		/**
+		 * @return an {@link Input} reading directly from the given bytes, without copying them
+		 */
+		public Input getInput(byte[] bytes) {
+			this.bytesInput.setBuffer(bytes);
+			return this.bytesInput;
+		}
+
+		/**
+		 * Release references to caller supplied streams and arrays so pooled instances don't pin them.
+		 */
+		void reset() {
+			this.output.setOutputStream(null);
+			this.streamInput.setInputStream(null);
+			this.bytesInput.setBuffer(EMPTY_BUFFER);
+		}
+	}
+
+}
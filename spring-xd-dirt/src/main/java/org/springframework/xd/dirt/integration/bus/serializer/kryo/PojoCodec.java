@@ -23,7 +23,9 @@ import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.shaded.org.objenesis.strategy.StdInstantiatorStrategy;
 
 /**
- * Kryo Serializer that can handle arbitrary types
+ * Kryo Serializer that can handle arbitrary types. The payload type is not registered on the (pooled) Kryo instances,
+ * since ids assigned on the fly would depend on each instance's history; classes that need stable ids should be listed
+ * in {@link #setRegisteredClasses(Class[])} instead.
  * 
  * @author David Turanski
  * @since 1.0
@@ -32,19 +34,17 @@ public class PojoCodec extends AbstractKryoMultiTypeCodec<Object> {
 
 	@Override
 	protected void doSerialize(Object object, Kryo kryo, Output output) {
-		kryo.register(object.getClass());
 		kryo.writeObject(output, object);
 	}
 
 	@Override
 	protected Object doDeserialize(Kryo kryo, Input input, Class<? extends Object> type) {
-		kryo.register(type);
 		return kryo.readObject(input, type);
 	}
 
 
 	@Override
-	protected synchronized Kryo getKryoInstance() {
+	protected Kryo getKryoInstance() {
 		Kryo kryo = new Kryo();
 		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
 		return kryo;
@@ -16,10 +16,9 @@
 
 package org.springframework.xd.dirt.integration.bus.serializer.kryo;
 
-import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.xd.tuple.DefaultTuple;
-import org.springframework.xd.tuple.DefaultTupleConversionService;
 import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleConversionServiceRegistry;
 import org.springframework.xd.tuple.TupleToJsonStringConverter;
 
 import com.esotericsoftware.kryo.Kryo;
@@ -28,13 +27,17 @@ import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.shaded.org.objenesis.strategy.StdInstantiatorStrategy;
 
 /**
- * Kryo serializer for {@link Tuple}
+ * Kryo serializer for {@link Tuple}. Deserialized tuples share a single conversion service and string converter, see
+ * {@link DefaultTupleSerializer}.
  * 
  * @author David Turanski
  * @since 1.0
  */
 public class TupleCodec extends AbstractKryoCodec<Tuple> {
 
+	private final DefaultTupleSerializer tupleSerializer = new DefaultTupleSerializer(
+			TupleConversionServiceRegistry.getConversionService(), new TupleToJsonStringConverter());
+
 	@Override
 	protected void doSerialize(Tuple object, Kryo kryo, Output output) {
 		kryo.writeObject(output, object);
@@ -42,40 +45,14 @@ public class TupleCodec extends AbstractKryoCodec<Tuple> {
 
 	@Override
 	protected Tuple doDeserialize(Kryo kryo, Input input) {
-		DefaultTuple tuple = kryo.readObject(input, DefaultTuple.class);
-		restoreConversionService(tuple);
-
-		return tuple;
-	}
-
-	/**
-	 * @param tuple
-	 */
-	private void restoreConversionService(DefaultTuple tuple) {
-		setConversionService(tuple, new DefaultTupleConversionService(), new TupleToJsonStringConverter());
-		for (Object value : tuple.getValues()) {
-			if (value instanceof DefaultTuple) {
-				restoreConversionService((DefaultTuple) value);
-			}
-		}
-	}
-
-	/**
-	 * @param defaultTupleConversionService
-	 * @param tupleToJsonStringConverter
-	 */
-	private void setConversionService(DefaultTuple tuple, DefaultTupleConversionService defaultTupleConversionService,
-			TupleToJsonStringConverter tupleToJsonStringConverter) {
-		DirectFieldAccessor dfa = new DirectFieldAccessor(tuple);
-		dfa.setPropertyValue("formattingConversionService", defaultTupleConversionService);
-		dfa.setPropertyValue("tupleToStringConverter", tupleToJsonStringConverter);
+		return kryo.readObject(input, DefaultTuple.class);
 	}
 
 	@Override
 	protected Kryo getKryoInstance() {
 		Kryo kryo = new Kryo();
 		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
-		kryo.register(DefaultTuple.class);
+		kryo.register(DefaultTuple.class, this.tupleSerializer);
 		return kryo;
 	}
 }
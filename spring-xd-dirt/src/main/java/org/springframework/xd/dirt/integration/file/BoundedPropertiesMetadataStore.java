@@ -0,0 +1,224 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link ConcurrentMetadataStore} that holds at most {@link #setMaxEntries(int) maxEntries} entries, and, if given a
+ * file, saves them to it as properties so that they survive restarts.
+ * <p/>
+ * When full, the entry that was least recently read or written is dropped. Used with an accept-once file filter,
+ * which looks up every file it lists, the entries of the files still in the directory are thus kept, and those of the
+ * files that were removed from it are dropped first; the limit should be larger than the number of files the
+ * directory holds at any time.
+ * <p/>
+ * Changes are saved at most every {@link #setSaveInterval(long) saveInterval} milliseconds, when the store is
+ * modified, and when it is destroyed; the file is written to a temporary file first, then renamed, so that it is
+ * never left half written.
+ *
+ * @since 1.0
+ */
+public class BoundedPropertiesMetadataStore implements ConcurrentMetadataStore, InitializingBean, DisposableBean {
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final File file;
+
+	private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	private volatile long saveInterval = 1000;
+
+	private final Map<String, String> entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	private boolean dirty;
+
+	private long lastSaved;
+
+	/**
+	 * Create a store that is only held in memory.
+	 */
+	public BoundedPropertiesMetadataStore() {
+		this(null);
+	}
+
+	/**
+	 * @param file the properties file to load the entries from, if it exists, and to save them to; null to only hold
+	 * them in memory
+	 */
+	public BoundedPropertiesMetadataStore(File file) {
+		this.file = file;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		Assert.isTrue(maxEntries > 0, "'maxEntries' must be positive");
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Set the minimum time, in milliseconds, between two saves triggered by changes; 0 saves every change.
+	 */
+	public void setSaveInterval(long saveInterval) {
+		this.saveInterval = saveInterval;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		if (this.file == null || !this.file.exists()) {
+			return;
+		}
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(this.file);
+		try {
+			properties.load(in);
+		}
+		finally {
+			in.close();
+		}
+		synchronized (this) {
+			for (String key : properties.stringPropertyNames()) {
+				this.entries.put(key, properties.getProperty(key));
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + properties.size() + " entries from " + this.file);
+		}
+	}
+
+	@Override
+	public synchronized void put(String key, String value) {
+		Assert.notNull(key, "'key' cannot be null");
+		Assert.notNull(value, "'value' cannot be null");
+		this.entries.put(key, value);
+		changed();
+	}
+
+	@Override
+	public synchronized String get(String key) {
+		return this.entries.get(key);
+	}
+
+	@Override
+	public synchronized String remove(String key) {
+		String value = this.entries.remove(key);
+		if (value != null) {
+			changed();
+		}
+		return value;
+	}
+
+	@Override
+	public synchronized String putIfAbsent(String key, String value) {
+		Assert.notNull(key, "'key' cannot be null");
+		Assert.notNull(value, "'value' cannot be null");
+		String existing = this.entries.get(key);
+		if (existing == null) {
+			this.entries.put(key, value);
+			changed();
+		}
+		return existing;
+	}
+
+	@Override
+	public synchronized boolean replace(String key, String oldValue, String newValue) {
+		Assert.notNull(newValue, "'newValue' cannot be null");
+		if (!ObjectUtils.nullSafeEquals(this.entries.get(key), oldValue)) {
+			return false;
+		}
+		this.entries.put(key, newValue);
+		changed();
+		return true;
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Save the entries, if they changed since they were last saved.
+	 */
+	public synchronized void flush() throws IOException {
+		if (!this.dirty || this.file == null) {
+			return;
+		}
+		Properties properties = new Properties();
+		properties.putAll(this.entries);
+		File parent = this.file.getAbsoluteFile().getParentFile();
+		if (!parent.exists() && !parent.mkdirs() && !parent.isDirectory()) {
+			throw new IOException("Could not create directory " + parent);
+		}
+		File temp = new File(parent, this.file.getName() + ".tmp");
+		OutputStream out = new FileOutputStream(temp);
+		try {
+			properties.store(out, null);
+		}
+		finally {
+			out.close();
+		}
+		// renameTo does not replace the target on all platforms
+		if (!temp.renameTo(this.file) && !(this.file.delete() && temp.renameTo(this.file))) {
+			throw new IOException("Could not rename " + temp + " to " + this.file);
+		}
+		this.dirty = false;
+		this.lastSaved = System.currentTimeMillis();
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		flush();
+	}
+
+	private void changed() {
+		this.dirty = true;
+		if (System.currentTimeMillis() - this.lastSaved >= this.saveInterval) {
+			try {
+				flush();
+			}
+			catch (IOException e) {
+				logger.warn("Failed to save " + this.file + ", will retry on the next change", e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.file;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.file.support.FileExistsMode;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Message handler that appends the payloads it receives, each followed by an optional delimiter, to a file that is
+ * kept open between messages. Payloads may be byte arrays, Strings (encoded with the {@link #setCharset(String)
+ * charset}), Files or InputStreams (whose contents are copied); unless {@link #setBinary(boolean) binary}, any other
+ * payload is written as its {@code toString()}.
+ * <p/>
+ * Writes go through a buffer of {@link #setBufferSize(int) bufferSize} bytes, which is flushed once any of the
+ * {@link #setFlushCount(int) flushCount}, {@link #setFlushBytes(long) flushBytes} or
+ * {@link #setFlushInterval(long) flushInterval} thresholds is reached, and when the file is closed; the interval is
+ * also checked by a timer, so that data does not linger in the buffer of an idle handler. With
+ * {@link #setFsync(boolean) fsync}, each flush also forces the data to the storage device.
+ * <p/>
+ * Without rollover, all payloads are written to {@code <fileName><suffix>}, and the {@link #setMode(FileExistsMode)
+ * mode} tells what to do if it exists when opened. When a {@link #setRollover(long) rollover} size or
+ * {@link #setRolloverInterval(long) rolloverInterval} is set, payloads are written to {@code
+ * <fileName>-<index><suffix>} instead, starting with the first index that does not exist yet, and the next file is
+ * opened once the current one reaches the size or age. With {@link #setCompress(boolean) compress}, files are
+ * gzipped and get a {@code .gz} suffix; their contents can only be read in full once they are closed.
+ *
+ * @since 1.0
+ */
+public class BufferedFileWritingMessageHandler extends AbstractMessageHandler implements DisposableBean {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private final File directory;
+
+	private final String fileName;
+
+	private volatile String suffix = "";
+
+	private volatile String charset = "UTF-8";
+
+	private volatile boolean binary;
+
+	private volatile String delimiterText;
+
+	private volatile byte[] delimiter = new byte[0];
+
+	private volatile FileExistsMode mode = FileExistsMode.APPEND;
+
+	private volatile int bufferSize = DEFAULT_BUFFER_SIZE;
+
+	private volatile int flushCount;
+
+	private volatile long flushBytes;
+
+	private volatile long flushInterval;
+
+	private volatile boolean fsync;
+
+	private volatile long rollover;
+
+	private volatile long rolloverInterval;
+
+	private volatile boolean compress;
+
+	private ScheduledExecutorService scheduler;
+
+	private FileOutputStream fileStream;
+
+	private OutputStream out;
+
+	private File currentFile;
+
+	private File ignoredFile;
+
+	private int index;
+
+	private long fileBytes;
+
+	private long fileOpened;
+
+	private int unflushedCount;
+
+	private long unflushedBytes;
+
+	private long lastFlush;
+
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	private final AtomicLong messagesWritten = new AtomicLong();
+
+	private final AtomicLong filesClosed = new AtomicLong();
+
+	private final long started = System.currentTimeMillis();
+
+	private long syncCount;
+
+	private long syncNanos;
+
+	private long maxSyncNanos;
+
+	/**
+	 * @param directory the directory to write to, created if needed
+	 * @param fileName the name of the files, without their suffix
+	 */
+	public BufferedFileWritingMessageHandler(File directory, String fileName) {
+		Assert.notNull(directory, "'directory' cannot be null");
+		Assert.hasText(fileName, "'fileName' cannot be empty");
+		this.directory = directory;
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Set the suffix of the file names, including any leading dot.
+	 */
+	public void setSuffix(String suffix) {
+		this.suffix = suffix == null ? "" : suffix;
+	}
+
+	public void setCharset(String charset) {
+		Assert.hasText(charset, "'charset' cannot be empty");
+		this.charset = charset;
+	}
+
+	/**
+	 * Set whether only byte[], String, File and InputStream payloads are accepted; otherwise other payloads are
+	 * written as their String representation. False by default.
+	 */
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+
+	/**
+	 * Set the delimiter written after each payload, encoded with the charset; none by default.
+	 */
+	public void setDelimiter(String delimiter) {
+		this.delimiterText = delimiter;
+	}
+
+	/**
+	 * Set what to do if the file exists when it is opened: append to it (the default), replace it, fail, or ignore
+	 * the payloads meant for it. Only applies without rollover.
+	 */
+	public void setMode(FileExistsMode mode) {
+		Assert.notNull(mode, "'mode' cannot be null");
+		this.mode = mode;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be positive");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Set the number of messages after which the buffer is flushed, or 0 (the default) for no such threshold.
+	 */
+	public void setFlushCount(int flushCount) {
+		this.flushCount = flushCount;
+	}
+
+	/**
+	 * Set the number of bytes after which the buffer is flushed, or 0 (the default) for no such threshold.
+	 */
+	public void setFlushBytes(long flushBytes) {
+		this.flushBytes = flushBytes;
+	}
+
+	/**
+	 * Set the time, in milliseconds, after which buffered data is flushed, or 0 (the default) for no such threshold.
+	 */
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Set whether each flush forces the data to the storage device.
+	 */
+	public void setFsync(boolean fsync) {
+		this.fsync = fsync;
+	}
+
+	/**
+	 * Set the number of bytes after which the next file is opened, or 0 (the default) for no such threshold. Bytes
+	 * are counted before compression.
+	 */
+	public void setRollover(long rollover) {
+		this.rollover = rollover;
+	}
+
+	/**
+	 * Set the time, in milliseconds, after which the next file is opened, or 0 (the default) for no such threshold.
+	 */
+	public void setRolloverInterval(long rolloverInterval) {
+		this.rolloverInterval = rolloverInterval;
+	}
+
+	/**
+	 * Set whether the files are gzipped.
+	 */
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+
+	/**
+	 * @return the number of bytes written, before compression, including delimiters
+	 */
+	public long getBytesWritten() {
+		return this.bytesWritten.get();
+	}
+
+	public long getMessagesWritten() {
+		return this.messagesWritten.get();
+	}
+
+	/**
+	 * @return the number of files closed, including those rolled over
+	 */
+	public long getFilesClosed() {
+		return this.filesClosed.get();
+	}
+
+	/**
+	 * @return the mean number of bytes written per second since the handler was created
+	 */
+	public long getBytesPerSecond() {
+		long elapsed = Math.max(1, System.currentTimeMillis() - this.started);
+		return this.bytesWritten.get() * 1000 / elapsed;
+	}
+
+	/**
+	 * @return the mean duration of the forced writes to the storage device, in microseconds
+	 */
+	public synchronized long getMeanFsyncMicros() {
+		return this.syncCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(this.syncNanos / this.syncCount);
+	}
+
+	/**
+	 * @return the longest forced write to the storage device, in microseconds
+	 */
+	public synchronized long getMaxFsyncMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(this.maxSyncNanos);
+	}
+
+	/**
+	 * @return the file being written to, if any
+	 */
+	public synchronized File getCurrentFile() {
+		return this.currentFile;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "file:buffered-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		if (this.delimiterText != null) {
+			this.delimiter = this.delimiterText.getBytes(this.charset);
+		}
+		long period = Math.min(this.flushInterval > 0 ? this.flushInterval : Long.MAX_VALUE,
+				this.rolloverInterval > 0 ? this.rolloverInterval : Long.MAX_VALUE);
+		if (period != Long.MAX_VALUE) {
+			// check a few times per period, so that thresholds are not overshot by more than a fraction of it
+			period = Math.max(10, period / 4);
+			String prefix = getComponentName() == null ? "file-writer-" : getComponentName() + "-";
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(prefix));
+			this.scheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						checkIntervals();
+					}
+					catch (IOException e) {
+						logger.error("Failed to flush " + getCurrentFile(), e);
+					}
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	protected synchronized void handleMessageInternal(Message<?> message) throws Exception {
+		if (this.out != null && this.rolloverInterval > 0
+				&& System.currentTimeMillis() - this.fileOpened >= this.rolloverInterval) {
+			closeCurrentFile();
+		}
+		if (!prepareFile(message)) {
+			return;
+		}
+		long count = writePayload(message) + this.delimiter.length;
+		if (this.delimiter.length > 0) {
+			this.out.write(this.delimiter);
+		}
+		this.fileBytes += count;
+		this.unflushedBytes += count;
+		this.unflushedCount++;
+		this.bytesWritten.addAndGet(count);
+		this.messagesWritten.incrementAndGet();
+		if (this.rollover > 0 && this.fileBytes >= this.rollover) {
+			closeCurrentFile();
+		}
+		else if ((this.flushCount > 0 && this.unflushedCount >= this.flushCount)
+				|| (this.flushBytes > 0 && this.unflushedBytes >= this.flushBytes)
+				|| (this.flushInterval > 0 && System.currentTimeMillis() - this.lastFlush >= this.flushInterval)) {
+			flush();
+		}
+	}
+
+	/**
+	 * Write the buffered data to the current file, forcing it to the storage device if so configured.
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.out == null) {
+			return;
+		}
+		this.out.flush();
+		if (this.fsync) {
+			long start = System.nanoTime();
+			this.fileStream.getChannel().force(false);
+			long nanos = System.nanoTime() - start;
+			this.syncCount++;
+			this.syncNanos += nanos;
+			this.maxSyncNanos = Math.max(this.maxSyncNanos, nanos);
+		}
+		this.unflushedCount = 0;
+		this.unflushedBytes = 0;
+		this.lastFlush = System.currentTimeMillis();
+	}
+
+	@Override
+	public void destroy() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdown();
+		}
+		synchronized (this) {
+			if (this.out != null) {
+				try {
+					closeCurrentFile();
+				}
+				catch (IOException e) {
+					logger.warn("Failed to close " + this.currentFile, e);
+				}
+			}
+		}
+	}
+
+	private synchronized void checkIntervals() throws IOException {
+		if (this.out == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if (this.rolloverInterval > 0 && now - this.fileOpened >= this.rolloverInterval) {
+			closeCurrentFile();
+		}
+		else if (this.flushInterval > 0 && this.unflushedCount > 0 && now - this.lastFlush >= this.flushInterval) {
+			flush();
+		}
+	}
+
+	/**
+	 * Open the file to write to, unless one is already open.
+	 *
+	 * @return whether the payload should be written, i.e. false if it is to be ignored
+	 */
+	private boolean prepareFile(Message<?> message) throws IOException {
+		if (this.out != null) {
+			return true;
+		}
+		if (!this.directory.exists() && !this.directory.mkdirs() && !this.directory.isDirectory()) {
+			throw new MessageHandlingException(message, "Could not create directory " + this.directory);
+		}
+		String extension = this.compress ? this.suffix + ".gz" : this.suffix;
+		boolean rolling = this.rollover > 0 || this.rolloverInterval > 0;
+		File file;
+		boolean append = false;
+		if (rolling) {
+			do {
+				file = new File(this.directory, this.fileName + "-" + this.index + extension);
+				this.index++;
+			}
+			while (file.exists());
+		}
+		else {
+			file = new File(this.directory, this.fileName + extension);
+			if (file.exists()) {
+				switch (this.mode) {
+					case FAIL:
+						throw new MessageHandlingException(message, "The destination file already exists at '"
+								+ file.getAbsolutePath() + "'.");
+					case IGNORE:
+						if (!file.equals(this.ignoredFile)) {
+							logger.info("Ignoring payloads, as " + file + " already exists");
+							this.ignoredFile = file;
+						}
+						return false;
+					case APPEND:
+						append = true;
+						break;
+					default:
+						break;
+				}
+			}
+		}
+		this.fileStream = new FileOutputStream(file, append);
+		OutputStream stream = this.fileStream;
+		try {
+			if (this.compress) {
+				stream = new GZIPOutputStream(stream, this.bufferSize);
+			}
+		}
+		catch (IOException e) {
+			this.fileStream.close();
+			throw e;
+		}
+		this.out = new BufferedOutputStream(stream, this.bufferSize);
+		this.currentFile = file;
+		this.fileBytes = 0;
+		this.fileOpened = System.currentTimeMillis();
+		this.lastFlush = this.fileOpened;
+		if (logger.isDebugEnabled()) {
+			logger.debug("Opened " + file + (append ? " for appending" : ""));
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of bytes written
+	 */
+	private long writePayload(Message<?> message) throws IOException {
+		Object payload = message.getPayload();
+		if (payload instanceof byte[]) {
+			this.out.write((byte[]) payload);
+			return ((byte[]) payload).length;
+		}
+		else if (payload instanceof String) {
+			return writeString((String) payload);
+		}
+		else if (payload instanceof File) {
+			InputStream in = new FileInputStream((File) payload);
+			try {
+				return copy(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		else if (payload instanceof InputStream) {
+			return copy((InputStream) payload);
+		}
+		else if (!this.binary) {
+			return writeString(String.valueOf(payload));
+		}
+		throw new MessageHandlingException(message, "Unsupported payload type: " + payload.getClass().getName()
+				+ "; expected byte[], String, File or InputStream");
+	}
+
+	private long writeString(String text) throws IOException {
+		byte[] bytes = text.getBytes(this.charset);
+		this.out.write(bytes);
+		return bytes.length;
+	}
+
+	/**
+	 * Copy the stream to the buffer; unlike {@code StreamUtils.copy()}, does not flush it.
+	 */
+	private long copy(InputStream in) throws IOException {
+		byte[] buffer = new byte[4096];
+		long count = 0;
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			this.out.write(buffer, 0, read);
+			count += read;
+		}
+		return count;
+	}
+
+	private void closeCurrentFile() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			try {
+				this.out.close();
+			}
+			finally {
+				this.out = null;
+				this.fileStream = null;
+				this.filesClosed.incrementAndGet();
+				if (logger.isInfoEnabled()) {
+					logger.info("Closed " + this.currentFile + " after " + this.fileBytes + " bytes; "
+							+ getBytesPerSecond() + " bytes/s overall"
+							+ (this.fsync ? ", fsync mean " + getMeanFsyncMicros() + "us, max "
+									+ getMaxFsyncMicros() + "us" : ""));
+				}
+				this.currentFile = null;
+			}
+		}
+	}
+
+}
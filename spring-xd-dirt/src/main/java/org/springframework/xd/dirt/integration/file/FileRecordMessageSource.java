@@ -0,0 +1,316 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.core.MessageSource;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+
+/**
+ * {@link MessageSource} that reads the files received from another source, and returns one message per line or per
+ * {@link #setDelimiter(String) delimited} record, as a String. Lines may end with either {@code \n} or {@code \r\n};
+ * the line ending, or delimiter, is not part of the payload. Messages carry the {@link FileHeaders#ORIGINAL_FILE} and
+ * {@link FileHeaders#FILENAME} headers.
+ * <p/>
+ * Files are read through a {@link FileChannel}, a buffer at a time; those of at least {@link #setMapThreshold(long)
+ * mapThreshold} bytes are memory-mapped instead, a region at a time. Records are only read as messages are received,
+ * so that, when polled, a file is read no faster than its records are consumed, and memory use only depends on the
+ * size of the largest record.
+ * <p/>
+ * If given an {@link #setAcceptOnceFilter(PatternAcceptOnceFileListFilter) acceptOnceFilter}, a file is only recorded
+ * as processed by it once all its records have been received.
+ *
+ * @since 1.0
+ */
+public class FileRecordMessageSource implements MessageSource<String>, DisposableBean {
+
+	public static final long DEFAULT_MAP_THRESHOLD = 8 * 1024 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final long REGION_SIZE = 64 * 1024 * 1024;
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final MessageSource<File> fileSource;
+
+	private volatile String charset = "UTF-8";
+
+	private volatile String delimiter;
+
+	private volatile long mapThreshold = DEFAULT_MAP_THRESHOLD;
+
+	private volatile PatternAcceptOnceFileListFilter acceptOnceFilter;
+
+	private RecordReader reader;
+
+	/**
+	 * @param fileSource the source of the files to read
+	 */
+	public FileRecordMessageSource(MessageSource<File> fileSource) {
+		Assert.notNull(fileSource, "'fileSource' cannot be null");
+		this.fileSource = fileSource;
+	}
+
+	public void setCharset(String charset) {
+		Assert.hasText(charset, "'charset' cannot be empty");
+		this.charset = charset;
+	}
+
+	/**
+	 * Set the delimiter that separates records, instead of line endings.
+	 */
+	public void setDelimiter(String delimiter) {
+		this.delimiter = delimiter == null || delimiter.length() == 0 ? null : delimiter;
+	}
+
+	/**
+	 * Set the size, in bytes, from which files are memory-mapped rather than read into a buffer.
+	 */
+	public void setMapThreshold(long mapThreshold) {
+		this.mapThreshold = mapThreshold;
+	}
+
+	/**
+	 * Set the filter that accepted the files, to notify when a file has been read to its end.
+	 */
+	public void setAcceptOnceFilter(PatternAcceptOnceFileListFilter acceptOnceFilter) {
+		this.acceptOnceFilter = acceptOnceFilter;
+	}
+
+	@Override
+	public synchronized Message<String> receive() {
+		while (true) {
+			if (this.reader == null) {
+				Message<File> fileMessage = this.fileSource.receive();
+				if (fileMessage == null) {
+					return null;
+				}
+				open(fileMessage.getPayload());
+			}
+			File file = this.reader.file;
+			byte[] record;
+			try {
+				record = this.reader.next();
+			}
+			catch (IOException e) {
+				close();
+				throw new MessagingException("Failed to read " + file, e);
+			}
+			if (record == null) {
+				close();
+				// the previous receive() returned its last record, which has thus been handled
+				if (this.acceptOnceFilter != null) {
+					this.acceptOnceFilter.processed(file);
+				}
+				continue;
+			}
+			try {
+				return MessageBuilder.withPayload(new String(record, 0, this.reader.length, this.charset))
+						.setHeader(FileHeaders.ORIGINAL_FILE, file)
+						.setHeader(FileHeaders.FILENAME, file.getName())
+						.build();
+			}
+			catch (UnsupportedEncodingException e) {
+				close();
+				throw new MessagingException("Unsupported charset " + this.charset, e);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (this.reader != null) {
+			close();
+		}
+	}
+
+	private void open(File file) {
+		try {
+			byte[] bytes = this.delimiter == null ? new byte[] { '\n' } : this.delimiter.getBytes(this.charset);
+			this.reader = new RecordReader(file, bytes, this.delimiter == null,
+					file.length() >= this.mapThreshold);
+		}
+		catch (IOException e) {
+			throw new MessagingException("Failed to open " + file, e);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Reading records from " + file + (this.reader.mapped ? " (memory-mapped)" : ""));
+		}
+	}
+
+	private void close() {
+		try {
+			this.reader.close();
+		}
+		catch (IOException e) {
+			logger.warn("Failed to close " + this.reader.file, e);
+		}
+		this.reader = null;
+	}
+
+
+	/**
+	 * Reads the records of a file, in a byte array reused from one record to the next.
+	 */
+	private static class RecordReader {
+
+		private final File file;
+
+		private final FileInputStream stream;
+
+		private final FileChannel channel;
+
+		private final byte[] delimiter;
+
+		private final boolean lines;
+
+		private final boolean mapped;
+
+		private final long size;
+
+		private long position;
+
+		private ByteBuffer buffer;
+
+		private byte[] record = new byte[256];
+
+		private int length;
+
+		private boolean eof;
+
+		RecordReader(File file, byte[] delimiter, boolean lines, boolean mapped) throws IOException {
+			this.file = file;
+			this.stream = new FileInputStream(file);
+			this.channel = this.stream.getChannel();
+			this.delimiter = delimiter;
+			this.lines = lines;
+			this.mapped = mapped;
+			this.size = this.channel.size();
+			if (!mapped) {
+				this.buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(this.size, 1)));
+				this.buffer.flip();
+			}
+		}
+
+		/**
+		 * Read the next record into {@link #record}, its length into {@link #length}.
+		 *
+		 * @return the record array, or null at the end of the file
+		 */
+		byte[] next() throws IOException {
+			if (this.eof) {
+				return null;
+			}
+			this.length = 0;
+			byte last = this.delimiter[this.delimiter.length - 1];
+			while (true) {
+				if ((this.buffer == null || !this.buffer.hasRemaining()) && !fill()) {
+					this.eof = true;
+					return this.length > 0 ? this.record : null;
+				}
+				int start = this.buffer.position();
+				int limit = this.buffer.limit();
+				for (int i = start; i < limit; i++) {
+					if (this.buffer.get(i) == last) {
+						append(i + 1 - start);
+						start = i + 1;
+						if (endsWithDelimiter()) {
+							this.length -= this.delimiter.length;
+							if (this.lines && this.length > 0 && this.record[this.length - 1] == '\r') {
+								this.length--;
+							}
+							return this.record;
+						}
+					}
+				}
+				append(limit - start);
+			}
+		}
+
+		void close() throws IOException {
+			this.buffer = null;
+			this.stream.close();
+		}
+
+		/**
+		 * Make the next bytes of the file available in {@link #buffer}.
+		 *
+		 * @return false at the end of the file
+		 */
+		private boolean fill() throws IOException {
+			if (this.mapped) {
+				if (this.position >= this.size) {
+					return false;
+				}
+				long count = Math.min(REGION_SIZE, this.size - this.position);
+				this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, count);
+				this.position += count;
+				return true;
+			}
+			this.buffer.clear();
+			int read;
+			do {
+				read = this.channel.read(this.buffer);
+			}
+			while (read == 0);
+			this.buffer.flip();
+			return read > 0;
+		}
+
+		/**
+		 * Copy the next {@code count} bytes of the buffer to the record.
+		 */
+		private void append(int count) {
+			if (this.length + count > this.record.length) {
+				byte[] grown = new byte[Math.max(this.record.length * 2, this.length + count)];
+				System.arraycopy(this.record, 0, grown, 0, this.length);
+				this.record = grown;
+			}
+			this.buffer.get(this.record, this.length, count);
+			this.length += count;
+		}
+
+		private boolean endsWithDelimiter() {
+			int offset = this.length - this.delimiter.length;
+			if (offset < 0) {
+				return false;
+			}
+			for (int i = 0; i < this.delimiter.length; i++) {
+				if (this.record[offset + i] != this.delimiter[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.file;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.integration.file.filters.AbstractFileListFilter;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.Assert;
+
+/**
+ * File list filter that accepts the files whose name matches an Ant style pattern, unless they were already
+ * {@link #processed(File) processed}, as recorded in a metadata store along with their last modification time; a
+ * file modified since it was processed is accepted again.
+ * <p/>
+ * Files are only recorded once processed, not when listed, so that those that were listed but not processed yet, for
+ * instance when the module is undeployed, are accepted again by the next filter using the same store. Within the
+ * lifetime of a filter, a file is accepted only once until it is processed, so that it is not queued twice.
+ *
+ * @since 1.0
+ */
+public class PatternAcceptOnceFileListFilter extends AbstractFileListFilter<File> {
+
+	private final AntPathMatcher matcher = new AntPathMatcher();
+
+	private final ConcurrentMetadataStore store;
+
+	private final String prefix;
+
+	private final String pattern;
+
+	/**
+	 * The files accepted but not processed yet.
+	 */
+	private final Set<File> inProgress = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+	/**
+	 * @param store the store in which the processed files are recorded
+	 * @param prefix the prefix of the keys of the store
+	 * @param pattern the pattern the file names must match
+	 */
+	public PatternAcceptOnceFileListFilter(ConcurrentMetadataStore store, String prefix, String pattern) {
+		Assert.notNull(store, "'store' cannot be null");
+		Assert.notNull(prefix, "'prefix' cannot be null");
+		Assert.hasText(pattern, "'pattern' cannot be empty");
+		this.store = store;
+		this.prefix = prefix;
+		this.pattern = pattern;
+	}
+
+	@Override
+	protected boolean accept(File file) {
+		if (!this.matcher.match(this.pattern, file.getName())) {
+			return false;
+		}
+		String lastModified = this.store.get(key(file));
+		if (lastModified != null && lastModified.equals(Long.toString(file.lastModified()))) {
+			return false;
+		}
+		return this.inProgress.add(file);
+	}
+
+	/**
+	 * Record that the file was processed, so that it is not accepted again unless modified.
+	 */
+	public void processed(File file) {
+		this.store.put(key(file), Long.toString(file.lastModified()));
+		this.inProgress.remove(file);
+	}
+
+	private String key(File file) {
+		return this.prefix + file.getAbsolutePath();
+	}
+
+}
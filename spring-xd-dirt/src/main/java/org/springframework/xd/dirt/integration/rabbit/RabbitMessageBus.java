@@ -187,7 +187,7 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 		adapter.afterPropertiesSet();
 		Binding consumerBinding = Binding.forConsumer(adapter, moduleInputChannel);
 		addBinding(consumerBinding);
-		ReceivingHandler convertingBridge = new ReceivingHandler();
+		ReceivingHandler convertingBridge = new ReceivingHandler(moduleInputChannel);
 		convertingBridge.setOutputChannel(moduleInputChannel);
 		convertingBridge.setBeanName(name + ".convert.bridge");
 		convertingBridge.afterPropertiesSet();
@@ -312,14 +312,17 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 
 	private class ReceivingHandler extends AbstractReplyProducingMessageHandler {
 
-		public ReceivingHandler() {
+		private final MessageChannel moduleInputChannel;
+
+		public ReceivingHandler(MessageChannel moduleInputChannel) {
 			super();
+			this.moduleInputChannel = moduleInputChannel;
 			this.setBeanFactory(RabbitMessageBus.this.getBeanFactory());
 		}
 
 		@Override
 		protected Object handleRequestMessage(Message<?> requestMessage) {
-			return deserializePayloadIfNecessary(requestMessage);
+			return deserializePayloadIfNecessary(requestMessage, this.moduleInputChannel);
 		}
 
 		@Override
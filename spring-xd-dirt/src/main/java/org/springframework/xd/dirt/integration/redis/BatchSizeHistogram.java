@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.redis;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the sizes of the batches written to or read from a Redis queue, in power of two buckets: 1, 2-3, 4-7 and so
+ * on.
+ *
+ * @since 1.0
+ */
+public class BatchSizeHistogram {
+
+	private static final int BUCKETS = 17;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong batches = new AtomicLong();
+
+	private final AtomicLong items = new AtomicLong();
+
+	/**
+	 * Record a batch of the given size.
+	 */
+	public void record(int size) {
+		if (size <= 0) {
+			return;
+		}
+		int bucket = Math.min(31 - Integer.numberOfLeadingZeros(size), BUCKETS - 1);
+		this.counts.incrementAndGet(bucket);
+		this.batches.incrementAndGet();
+		this.items.addAndGet(size);
+	}
+
+	/**
+	 * @return the number of batches recorded in each bucket; bucket {@code i} holds the batches of {@code 2^i} to
+	 *         {@code 2^(i+1) - 1} items, the last bucket holds all larger batches
+	 */
+	public long[] getCounts() {
+		long[] result = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			result[i] = this.counts.get(i);
+		}
+		return result;
+	}
+
+	public long getBatchCount() {
+		return this.batches.get();
+	}
+
+	public double getMeanBatchSize() {
+		long count = this.batches.get();
+		return count == 0 ? 0 : (double) this.items.get() / count;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = this.counts.get(i);
+			if (count > 0) {
+				if (builder.length() > 1) {
+					builder.append(", ");
+				}
+				int low = 1 << i;
+				if (i == BUCKETS - 1) {
+					builder.append(low).append('+');
+				}
+				else if (i == 0) {
+					builder.append(low);
+				}
+				else {
+					builder.append(low).append('-').append((low << 1) - 1);
+				}
+				builder.append('=').append(count);
+			}
+		}
+		return builder.append("] mean=").append(String.format("%.1f", getMeanBatchSize())).toString();
+	}
+
+}
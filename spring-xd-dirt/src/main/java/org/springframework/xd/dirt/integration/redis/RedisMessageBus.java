@@ -16,10 +16,16 @@
 
 package org.springframework.xd.dirt.integration.redis;
 
+import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -37,6 +43,8 @@ import org.springframework.integration.redis.inbound.RedisQueueMessageDrivenEndp
 import org.springframework.integration.redis.outbound.RedisPublishingMessageHandler;
 import org.springframework.integration.redis.outbound.RedisQueueOutboundChannelAdapter;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
@@ -56,6 +64,7 @@ import org.springframework.xd.dirt.integration.bus.serializer.MultiTypeCodec;
  * @author David Turanski
  * @author Jennifer Hickey
  */
+@ManagedResource
 public class RedisMessageBus extends MessageBusSupport implements DisposableBean, IntegrationEvaluationContextAware {
 
 	private static final String REPLY_TO = "replyTo";
@@ -64,10 +73,31 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 
 	private RedisConnectionFactory connectionFactory;
 
-	private final EmbeddedHeadersMessageConverter embeddedHeadersMessageConverter = new EmbeddedHeadersMessageConverter();
+	/**
+	 * Serialization buffers larger than this are not kept for reuse.
+	 */
+	private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+	private volatile EmbeddedHeadersMessageConverter embeddedHeadersMessageConverter = new EmbeddedHeadersMessageConverter();
+
+	private final ThreadLocal<SerializationBuffer> buffers = new ThreadLocal<SerializationBuffer>() {
+
+		@Override
+		protected SerializationBuffer initialValue() {
+			return new SerializationBuffer(1024);
+		}
+	};
 
 	private volatile EvaluationContext evaluationContext;
 
+	private volatile int batchSize = 1;
+
+	private volatile long batchTimeout = 1000;
+
+	private ScheduledExecutorService batchScheduler;
+
+	private final ConcurrentMap<String, BatchSizeHistogram> batchSizeHistograms = new ConcurrentHashMap<String, BatchSizeHistogram>();
+
 	public RedisMessageBus(RedisConnectionFactory connectionFactory, MultiTypeCodec<Object> codec) {
 		Assert.notNull(connectionFactory, "connectionFactory must not be null");
 		Assert.notNull(codec, "codec must not be null");
@@ -75,6 +105,47 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		setCodec(codec);
 	}
 
+	/**
+	 * Set the version of the format used to embed headers in the messages sent by this bus. Messages in either
+	 * version are always accepted. The default, version 1, is also understood by earlier releases, so containers can
+	 * be upgraded one at a time; once none of them runs an earlier release, they can all be switched to version 2,
+	 * which lifts the 255 byte limit on header names and values.
+	 *
+	 * @param version 1 or 2
+	 */
+	public void setEmbeddedHeadersVersion(int version) {
+		this.embeddedHeadersMessageConverter = new EmbeddedHeadersMessageConverter(version);
+	}
+
+	/**
+	 * Set the maximum number of messages pushed to, or popped from, a queue at once by stream bindings. The default, 1,
+	 * sends and receives every message on its own. Request and reply queues are never batched.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the maximum time, in microseconds, that a producer holds a message waiting for its batch to fill up.
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		Assert.isTrue(batchTimeout >= 0, "'batchTimeout' cannot be negative");
+		this.batchTimeout = batchTimeout;
+	}
+
+	/**
+	 * @return the sizes of the batches sent and received by each batching binding, keyed by endpoint name
+	 */
+	@ManagedAttribute(description = "Batch size histograms of the batching queue bindings")
+	public Map<String, String> getBatchSizeHistograms() {
+		Map<String, String> histograms = new TreeMap<String, String>();
+		for (Map.Entry<String, BatchSizeHistogram> entry : this.batchSizeHistograms.entrySet()) {
+			histograms.put(entry.getKey(), entry.getValue().toString());
+		}
+		return histograms;
+	}
+
 	@Override
 	public void setIntegrationEvaluationContext(EvaluationContext context) {
 		this.evaluationContext = context;
@@ -82,6 +153,15 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 
 	@Override
 	public void bindConsumer(final String name, MessageChannel moduleInputChannel) {
+		if (this.batchSize > 1) {
+			RedisQueueBatchingInboundEndpoint adapter = new RedisQueueBatchingInboundEndpoint("queue." + name,
+					this.connectionFactory);
+			adapter.setBeanFactory(this.getBeanFactory());
+			adapter.setBatchSize(this.batchSize);
+			this.batchSizeHistograms.put("inbound." + name, adapter.getHistogram());
+			doRegisterConsumer(name, moduleInputChannel, adapter);
+			return;
+		}
 		RedisQueueMessageDrivenEndpoint adapter = new RedisQueueMessageDrivenEndpoint("queue." + name,
 				this.connectionFactory);
 		adapter.setBeanFactory(this.getBeanFactory());
@@ -107,7 +187,7 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		adapter.afterPropertiesSet();
 		Binding consumerBinding = Binding.forConsumer(adapter, moduleInputChannel);
 		addBinding(consumerBinding);
-		ReceivingHandler convertingBridge = new ReceivingHandler();
+		ReceivingHandler convertingBridge = new ReceivingHandler(moduleInputChannel);
 		convertingBridge.setOutputChannel(moduleInputChannel);
 		convertingBridge.setBeanName(name + ".convert.bridge");
 		convertingBridge.afterPropertiesSet();
@@ -118,6 +198,17 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 	@Override
 	public void bindProducer(final String name, MessageChannel moduleOutputChannel) {
 		Assert.isInstanceOf(SubscribableChannel.class, moduleOutputChannel);
+		if (this.batchSize > 1) {
+			RedisQueueBatchingOutboundHandler queue = new RedisQueueBatchingOutboundHandler("queue." + name,
+					this.connectionFactory, getBatchScheduler());
+			queue.setBeanFactory(this.getBeanFactory());
+			queue.setBatchSize(this.batchSize);
+			queue.setBatchTimeout(this.batchTimeout);
+			queue.afterPropertiesSet();
+			this.batchSizeHistograms.put("outbound." + name, queue.getHistogram());
+			doRegisterProducer(name, moduleOutputChannel, queue);
+			return;
+		}
 		RedisQueueOutboundChannelAdapter queue = new RedisQueueOutboundChannelAdapter("queue." + name,
 				connectionFactory);
 		queue.setBeanFactory(this.getBeanFactory());
@@ -134,15 +225,41 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		doRegisterProducer(name, moduleOutputChannel, topic);
 	}
 
+	@Override
+	protected void deleteBindings(String name) {
+		super.deleteBindings(name);
+		this.batchSizeHistograms.remove(name);
+	}
+
+	@Override
+	protected void deleteBinding(String name, MessageChannel channel) {
+		super.deleteBinding(name, channel);
+		this.batchSizeHistograms.remove(name);
+	}
+
 	private void doRegisterProducer(final String name, MessageChannel moduleOutputChannel, MessageHandler delegate) {
 		this.doRegisterProducer(name, moduleOutputChannel, delegate, null);
 	}
 
-	private void doRegisterProducer(final String name, MessageChannel moduleOutputChannel, MessageHandler delegate,
-			String replyTo) {
+	private void doRegisterProducer(final String name, MessageChannel moduleOutputChannel,
+			final MessageHandler delegate, String replyTo) {
 		Assert.isInstanceOf(SubscribableChannel.class, moduleOutputChannel);
 		MessageHandler handler = new SendingHandler(delegate, replyTo);
-		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler);
+		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler) {
+
+			@Override
+			protected void doStop() {
+				super.doStop();
+				if (delegate instanceof RedisQueueBatchingOutboundHandler) {
+					try {
+						((RedisQueueBatchingOutboundHandler) delegate).flush();
+					}
+					catch (RuntimeException e) {
+						logger.error("Failed to push the last batch of " + name, e);
+					}
+				}
+			}
+		};
 		consumer.setBeanFactory(this.getBeanFactory());
 		consumer.setBeanName("outbound." + name);
 		consumer.afterPropertiesSet();
@@ -193,6 +310,26 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 	@Override
 	public void destroy() {
 		stopBindings();
+		synchronized (this) {
+			if (this.batchScheduler != null) {
+				this.batchScheduler.shutdown();
+			}
+		}
+	}
+
+	private synchronized ScheduledExecutorService getBatchScheduler() {
+		if (this.batchScheduler == null) {
+			this.batchScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Redis Queue Batch Flusher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return this.batchScheduler;
 	}
 
 	private class SendingHandler extends AbstractMessageHandler {
@@ -210,98 +347,282 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 
 		@Override
 		protected void handleMessageInternal(Message<?> message) throws Exception {
-			@SuppressWarnings("unchecked")
-			Message<byte[]> transformed = (Message<byte[]>) serializePayloadIfNecessary(message,
-					MediaType.APPLICATION_OCTET_STREAM);
+			Object payload = message.getPayload();
+			Map<String, Object> headers = new HashMap<String, Object>(message.getHeaders());
+			headers.put(MessageHeaders.CONTENT_TYPE, resolveContentType(payload));
+			Object originalContentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+			if (originalContentType != null) {
+				headers.put(ORIGINAL_CONTENT_TYPE_HEADER, originalContentType);
+			}
 			if (this.replyTo != null) {
-				transformed = MessageBuilder.fromMessage(transformed)
-						.setHeader(REPLY_TO, this.replyTo)
-						.build();
+				headers.put(REPLY_TO, this.replyTo);
 			}
-			Message<?> messageToSend = embeddedHeadersMessageConverter.embedHeaders(transformed,
+			byte[][] embeddedHeaders = embeddedHeadersMessageConverter.encodeHeaders(headers,
 					MessageHeaders.CONTENT_TYPE, ORIGINAL_CONTENT_TYPE_HEADER, REPLY_TO);
-			Assert.isInstanceOf(byte[].class, messageToSend.getPayload());
-			delegate.handleMessage(messageToSend);
+			// the outbound adapters keep a reference to the payload, so the frame is allocated once at its exact size,
+			// and the headers written straight into it
+			byte[] frame;
+			if (payload instanceof byte[]) {
+				byte[] bytes = (byte[]) payload;
+				frame = embeddedHeadersMessageConverter.newFrame(embeddedHeaders, bytes.length);
+				System.arraycopy(bytes, 0, frame, frame.length - bytes.length, bytes.length);
+			}
+			else {
+				SerializationBuffer buffer = buffers.get();
+				buffer.reset();
+				serializePayload(payload, buffer);
+				frame = embeddedHeadersMessageConverter.newFrame(embeddedHeaders, buffer.size());
+				buffer.copyTo(frame, frame.length - buffer.size());
+				if (buffer.size() > MAX_POOLED_BUFFER_SIZE) {
+					buffers.remove();
+				}
+			}
+			delegate.handleMessage(MessageBuilder.withPayload(frame).copyHeaders(headers).build());
 		}
 
 	}
 
 	private class ReceivingHandler extends AbstractReplyProducingMessageHandler {
 
-		public ReceivingHandler() {
+		private final MessageChannel moduleInputChannel;
+
+		public ReceivingHandler(MessageChannel moduleInputChannel) {
 			super();
+			this.moduleInputChannel = moduleInputChannel;
 			this.setBeanFactory(RedisMessageBus.this.getBeanFactory());
 		}
 
-		@SuppressWarnings("unchecked")
 		@Override
 		protected Object handleRequestMessage(Message<?> requestMessage) {
-			Message<?> theRequestMessage = requestMessage;
+			byte[] frame = (byte[]) requestMessage.getPayload();
+			Map<String, Object> headers = new HashMap<String, Object>();
+			int offset;
 			try {
-				theRequestMessage = embeddedHeadersMessageConverter.extractHeaders((Message<byte[]>) requestMessage);
+				offset = embeddedHeadersMessageConverter.decodeHeaders(frame, headers);
 			}
 			catch (UnsupportedEncodingException e) {
 				logger.error("Could not convert message", e);
+				return deserializePayloadIfNecessary(requestMessage, this.moduleInputChannel);
 			}
-			return deserializePayloadIfNecessary(theRequestMessage);
+			// the payload is decoded in place, without first being copied out of the frame
+			return deserializePayloadIfNecessary(frame, offset, frame.length - offset, headers,
+					this.moduleInputChannel);
 		}
 
 	};
 
+	/**
+	 * Per-thread buffer that payloads are serialized into, then copied from into their frame.
+	 */
+	private static class SerializationBuffer extends ByteArrayOutputStream {
+
+		SerializationBuffer(int size) {
+			super(size);
+		}
+
+		void copyTo(byte[] destination, int offset) {
+			System.arraycopy(this.buf, 0, destination, offset, this.count);
+		}
+
+	}
+
+	/**
+	 * Embeds headers in a byte[] payload, as a prefix of String values. Version 2 frames start with 0xff, followed by
+	 * the version, the number of headers, then for each header the length of its name, the name, the length of its
+	 * value and the value; lengths are UTF-8 byte counts, written as unsigned varints, and the count a varint too.
+	 * Version 1 frames have no marker nor version, and use single bytes for the count and lengths, so that no header
+	 * name or value may exceed 255 bytes. Both versions are read.
+	 */
 	static class EmbeddedHeadersMessageConverter {
 
+		static final int LEGACY_VERSION = 1;
+
+		static final int CURRENT_VERSION = 2;
+
+		/**
+		 * The version written by default, which earlier releases can read.
+		 */
+		static final int DEFAULT_VERSION = LEGACY_VERSION;
+
+		private static final int VERSION_MARKER = 0xff;
+
+		private final int version;
+
+		EmbeddedHeadersMessageConverter() {
+			this(DEFAULT_VERSION);
+		}
+
+		EmbeddedHeadersMessageConverter(int version) {
+			Assert.isTrue(version == LEGACY_VERSION || version == CURRENT_VERSION, "Unsupported embedded headers version: "
+					+ version);
+			this.version = version;
+		}
+
 		/**
-		 * Encodes requested headers into payload; max headers = 255; max header name length = 255; max header value
-		 * length = 255.
+		 * Encodes requested headers into payload.
 		 *
 		 * @throws UnsupportedEncodingException
 		 */
 		Message<byte[]> embedHeaders(Message<byte[]> message, String... headers) throws UnsupportedEncodingException {
-			String[] headerValues = new String[headers.length];
-			int n = 0;
+			byte[] payload = message.getPayload();
+			byte[] newPayload = newFrame(encodeHeaders(message.getHeaders(), headers), payload.length);
+			System.arraycopy(payload, 0, newPayload, newPayload.length - payload.length, payload.length);
+			return MessageBuilder.withPayload(newPayload).copyHeaders(message.getHeaders()).build();
+		}
+
+		Message<byte[]> extractHeaders(Message<byte[]> message) throws UnsupportedEncodingException {
+			byte[] bytes = message.getPayload();
+			Map<String, Object> headers = new HashMap<String, Object>();
+			int offset = decodeHeaders(bytes, headers);
+			byte[] newPayload = new byte[bytes.length - offset];
+			System.arraycopy(bytes, offset, newPayload, 0, newPayload.length);
+			return MessageBuilder.withPayload(newPayload).copyHeaders(headers).build();
+		}
+
+		/**
+		 * Encode the names and values of the requested headers that have a value.
+		 *
+		 * @return the UTF-8 bytes of each name followed by its value
+		 */
+		byte[][] encodeHeaders(Map<String, ?> headers, String... names) throws UnsupportedEncodingException {
 			int headerCount = 0;
-			int headersLength = 0;
-			for (String header : headers) {
-				String value = message.getHeaders().get(header) == null ? null
-						: message.getHeaders().get(header).toString();
-				headerValues[n++] = value;
-				if (value != null) {
+			for (String name : names) {
+				if (headers.get(name) != null) {
 					headerCount++;
-					headersLength += header.length() + value.length();
 				}
 			}
-			byte[] newPayload = new byte[message.getPayload().length + headersLength + headerCount * 2 + 1];
-			ByteBuffer byteBuffer = ByteBuffer.wrap(newPayload);
-			byteBuffer.put((byte) headerCount);
-			for (int i = 0; i < headers.length; i++) {
-				if (headerValues[i] != null) {
-					byteBuffer.put((byte) headers[i].length());
-					byteBuffer.put(headers[i].getBytes("UTF-8"));
-					byteBuffer.put((byte) headerValues[i].length());
-					byteBuffer.put(headerValues[i].getBytes("UTF-8"));
+			Assert.isTrue(this.version != LEGACY_VERSION || headerCount < VERSION_MARKER,
+					"Too many headers to embed: " + headerCount);
+			byte[][] encoded = new byte[headerCount * 2][];
+			int i = 0;
+			for (String name : names) {
+				Object value = headers.get(name);
+				if (value != null) {
+					encoded[i++] = name.getBytes("UTF-8");
+					encoded[i++] = value.toString().getBytes("UTF-8");
 				}
 			}
-			byteBuffer.put(message.getPayload());
-			return MessageBuilder.withPayload(newPayload).copyHeaders(message.getHeaders()).build();
+			if (this.version == LEGACY_VERSION) {
+				for (byte[] bytes : encoded) {
+					Assert.isTrue(bytes.length <= 255, "Header too long to embed in version " + LEGACY_VERSION
+							+ " format: " + new String(bytes, "UTF-8"));
+				}
+			}
+			return encoded;
 		}
 
-		Message<byte[]> extractHeaders(Message<byte[]> message) throws UnsupportedEncodingException {
-			byte[] bytes = message.getPayload();
-			ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-			int headerCount = byteBuffer.get();
-			Map<String, String> headers = new HashMap<String, String>();
+		/**
+		 * Allocate a frame for a payload of the given length and write the encoded headers at its start.
+		 *
+		 * @param encoded the headers, as returned by {@link #encodeHeaders(Map, String...)}
+		 * @param payloadLength the length of the payload, to be written at the end of the frame
+		 */
+		byte[] newFrame(byte[][] encoded, int payloadLength) {
+			int length = 0;
+			for (byte[] bytes : encoded) {
+				length += bytes.length;
+			}
+			int headerCount = encoded.length / 2;
+			if (this.version == LEGACY_VERSION) {
+				length += 1 + encoded.length;
+			}
+			else {
+				length += 2 + varIntLength(headerCount);
+				for (byte[] bytes : encoded) {
+					length += varIntLength(bytes.length);
+				}
+			}
+			byte[] frame = new byte[length + payloadLength];
+			int position = 0;
+			if (this.version == LEGACY_VERSION) {
+				frame[position++] = (byte) headerCount;
+			}
+			else {
+				frame[position++] = (byte) VERSION_MARKER;
+				frame[position++] = (byte) this.version;
+				position = writeVarInt(frame, position, headerCount);
+			}
+			for (byte[] bytes : encoded) {
+				if (this.version == LEGACY_VERSION) {
+					frame[position++] = (byte) bytes.length;
+				}
+				else {
+					position = writeVarInt(frame, position, bytes.length);
+				}
+				System.arraycopy(bytes, 0, frame, position, bytes.length);
+				position += bytes.length;
+			}
+			return frame;
+		}
+
+		/**
+		 * Decode the headers embedded in a frame, in either version.
+		 *
+		 * @param bytes the frame
+		 * @param headers the map to add the headers to
+		 * @return the offset of the payload in the frame
+		 */
+		int decodeHeaders(byte[] bytes, Map<String, Object> headers) throws UnsupportedEncodingException {
+			int[] position = new int[1];
+			int first = bytes[position[0]++] & 0xff;
+			if (first != VERSION_MARKER) {
+				for (int i = 0; i < first; i++) {
+					String headerName = readString(bytes, position, bytes[position[0]++] & 0xff);
+					String headerValue = readString(bytes, position, bytes[position[0]++] & 0xff);
+					headers.put(headerName, headerValue);
+				}
+				return position[0];
+			}
+			int frameVersion = bytes[position[0]++] & 0xff;
+			if (frameVersion != CURRENT_VERSION) {
+				throw new IllegalArgumentException("Unsupported embedded headers version: " + frameVersion);
+			}
+			int headerCount = readVarInt(bytes, position);
 			for (int i = 0; i < headerCount; i++) {
-				int len = byteBuffer.get();
-				String headerName = new String(bytes, byteBuffer.position(), len, "UTF-8");
-				byteBuffer.position(byteBuffer.position() + len);
-				len = byteBuffer.get();
-				String headerValue = new String(bytes, byteBuffer.position(), len, "UTF-8");
-				byteBuffer.position(byteBuffer.position() + len);
+				String headerName = readString(bytes, position, readVarInt(bytes, position));
+				String headerValue = readString(bytes, position, readVarInt(bytes, position));
 				headers.put(headerName, headerValue);
 			}
-			byte[] newPayload = new byte[byteBuffer.remaining()];
-			byteBuffer.get(newPayload);
-			return MessageBuilder.withPayload(newPayload).copyHeaders(headers).build();
+			return position[0];
+		}
+
+		private static String readString(byte[] bytes, int[] position, int length) throws UnsupportedEncodingException {
+			String value = new String(bytes, position[0], length, "UTF-8");
+			position[0] += length;
+			return value;
+		}
+
+		private static int varIntLength(int value) {
+			int length = 1;
+			while ((value & ~0x7f) != 0) {
+				length++;
+				value >>>= 7;
+			}
+			return length;
+		}
+
+		/**
+		 * @return the position after the varint
+		 */
+		private static int writeVarInt(byte[] bytes, int position, int value) {
+			while ((value & ~0x7f) != 0) {
+				bytes[position++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			bytes[position++] = (byte) value;
+			return position;
+		}
+
+		private static int readVarInt(byte[] bytes, int[] position) {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				int b = bytes[position[0]++];
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Malformed varint in embedded headers");
 		}
 
 	}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.redis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * Receives byte[] payloads from a Redis queue in batches. Each wake-up blocks on {@code BRPOP} for the first payload,
+ * then drains up to {@link #setBatchSize(int) batchSize} - 1 more, oldest first, with an {@code LRANGE} and
+ * {@code LTRIM} run in a single transaction, so that competing consumers never receive the same payload.
+ *
+ * @since 1.0
+ */
+public class RedisQueueBatchingInboundEndpoint extends MessageProducerSupport {
+
+	private final String queueName;
+
+	private final byte[] queueKey;
+
+	private final RedisTemplate<?, ?> template = new RedisTemplate<Object, Object>();
+
+	private final BatchSizeHistogram histogram = new BatchSizeHistogram();
+
+	private volatile int batchSize = 100;
+
+	private volatile long receiveTimeout = 1000;
+
+	private volatile long recoveryInterval = 5000;
+
+	private volatile TaskExecutor taskExecutor;
+
+	private volatile boolean listening;
+
+	public RedisQueueBatchingInboundEndpoint(String queueName, RedisConnectionFactory connectionFactory) {
+		Assert.hasText(queueName, "'queueName' cannot be empty");
+		Assert.notNull(connectionFactory, "'connectionFactory' cannot be null");
+		this.queueName = queueName;
+		this.queueKey = queueName.getBytes();
+		this.template.setConnectionFactory(connectionFactory);
+		this.template.afterPropertiesSet();
+	}
+
+	/**
+	 * Set the maximum number of payloads received per wake-up.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the time, in milliseconds, to block waiting for a payload; rounded up to whole seconds.
+	 */
+	public void setReceiveTimeout(long receiveTimeout) {
+		Assert.isTrue(receiveTimeout > 0, "'receiveTimeout' must be positive");
+		this.receiveTimeout = receiveTimeout;
+	}
+
+	/**
+	 * Set the time, in milliseconds, to wait before receiving again after a failure.
+	 */
+	public void setRecoveryInterval(long recoveryInterval) {
+		this.recoveryInterval = recoveryInterval;
+	}
+
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	public BatchSizeHistogram getHistogram() {
+		return this.histogram;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "redis:queue-batching-inbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() {
+		super.onInit();
+		if (this.taskExecutor == null) {
+			String beanName = this.getComponentName();
+			this.taskExecutor = new SimpleAsyncTaskExecutor((beanName == null ? "" : beanName + "-")
+					+ this.getComponentType());
+		}
+	}
+
+	@Override
+	protected void doStart() {
+		this.listening = true;
+		this.taskExecutor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				while (listening) {
+					try {
+						for (byte[] payload : receive()) {
+							try {
+								sendMessage(MessageBuilder.withPayload(payload).build());
+							}
+							catch (RuntimeException e) {
+								// the rest of the batch has already been taken off the queue
+								logger.error("Failed to send message received from queue [" + queueName + "]", e);
+							}
+						}
+					}
+					catch (RuntimeException e) {
+						if (listening) {
+							logger.error("Failed to receive from queue [" + queueName + "], retrying in "
+									+ recoveryInterval + "ms", e);
+							try {
+								Thread.sleep(recoveryInterval);
+							}
+							catch (InterruptedException ie) {
+								Thread.currentThread().interrupt();
+								listening = false;
+							}
+						}
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	protected void doStop() {
+		this.listening = false;
+	}
+
+	/**
+	 * Receive the next batch of payloads, oldest first.
+	 *
+	 * @return the payloads, empty if none arrived before the receive timeout
+	 */
+	List<byte[]> receive() {
+		final int timeout = (int) TimeUnit.MILLISECONDS.toSeconds(this.receiveTimeout + 999);
+		final int drain = this.batchSize - 1;
+		List<byte[]> batch = this.template.execute(new RedisCallback<List<byte[]>>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+				List<byte[]> popped = connection.bRPop(timeout, queueKey);
+				if (popped == null || popped.size() < 2) {
+					return Collections.emptyList();
+				}
+				List<byte[]> batch = new ArrayList<byte[]>();
+				batch.add(popped.get(1));
+				if (drain > 0) {
+					connection.multi();
+					connection.lRange(queueKey, -drain, -1);
+					connection.lTrim(queueKey, 0, -drain - 1);
+					List<Object> results = connection.exec();
+					if (results != null && !results.isEmpty()) {
+						List<byte[]> drained = (List<byte[]>) results.get(0);
+						// the oldest payloads are at the right of the list
+						for (int i = drained.size() - 1; i >= 0; i--) {
+							batch.add(drained.get(i));
+						}
+					}
+				}
+				return batch;
+			}
+		});
+		if (!batch.isEmpty()) {
+			this.histogram.record(batch.size());
+		}
+		return batch;
+	}
+
+}
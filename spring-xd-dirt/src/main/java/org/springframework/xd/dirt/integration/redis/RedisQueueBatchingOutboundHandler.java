@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+/**
+ * Pushes byte[] payloads to a Redis queue in batches: up to {@link #setBatchSize(int) batchSize} payloads, or those
+ * received within {@link #setBatchTimeout(long) batchTimeout} microseconds of the first one, are sent with a single
+ * multi-value {@code LPUSH}, so that they are consumed in the order they were handled, from the right of the list.
+ * <p>
+ * A batch that could not be pushed is kept and retried in the background, and payloads are rejected while it is
+ * still pending; a payload that was accepted is never rejected afterwards, so delivery is at least once. Pending
+ * payloads are pushed when the handler is {@link #flush() flushed}.
+ *
+ * @since 1.0
+ */
+public class RedisQueueBatchingOutboundHandler extends AbstractMessageHandler {
+
+	private static final long RETRY_INTERVAL = 1000;
+
+	private final byte[] queueName;
+
+	private final RedisTemplate<?, ?> template = new RedisTemplate<Object, Object>();
+
+	private final ScheduledExecutorService scheduler;
+
+	private final Object monitor = new Object();
+
+	private final List<byte[]> pending = new ArrayList<byte[]>();
+
+	private final BatchSizeHistogram histogram = new BatchSizeHistogram();
+
+	private volatile int batchSize = 100;
+
+	private volatile long batchTimeout = 1000;
+
+	/**
+	 * Whether {@link #retryTask} is scheduled; guarded by {@link #monitor}.
+	 */
+	private boolean retryScheduled;
+
+	private final Runnable flushTask = new Runnable() {
+
+		@Override
+		public void run() {
+			try {
+				flush();
+			}
+			catch (RuntimeException e) {
+				logPushFailure(e);
+			}
+		}
+	};
+
+	private final Runnable retryTask = new Runnable() {
+
+		@Override
+		public void run() {
+			try {
+				synchronized (monitor) {
+					retryScheduled = false;
+					if (!pending.isEmpty()) {
+						doFlush();
+					}
+				}
+			}
+			catch (RuntimeException e) {
+				logPushFailure(e);
+			}
+		}
+	};
+
+	/**
+	 * @param queueName the name of the Redis list
+	 * @param connectionFactory the connection factory
+	 * @param scheduler the scheduler used to push incomplete batches once the batch timeout has elapsed
+	 */
+	public RedisQueueBatchingOutboundHandler(String queueName, RedisConnectionFactory connectionFactory,
+			ScheduledExecutorService scheduler) {
+		Assert.hasText(queueName, "'queueName' cannot be empty");
+		Assert.notNull(connectionFactory, "'connectionFactory' cannot be null");
+		Assert.notNull(scheduler, "'scheduler' cannot be null");
+		this.queueName = queueName.getBytes();
+		this.template.setConnectionFactory(connectionFactory);
+		this.template.afterPropertiesSet();
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Set the maximum number of payloads pushed at once.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the maximum time, in microseconds, that a payload is held waiting for a batch to fill up.
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		Assert.isTrue(batchTimeout >= 0, "'batchTimeout' cannot be negative");
+		this.batchTimeout = batchTimeout;
+	}
+
+	public BatchSizeHistogram getHistogram() {
+		return this.histogram;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "redis:queue-batching-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		Assert.isInstanceOf(byte[].class, message.getPayload());
+		synchronized (this.monitor) {
+			if (this.pending.size() >= this.batchSize) {
+				// a previous push failed
+				doFlush();
+			}
+			this.pending.add((byte[]) message.getPayload());
+			if (this.pending.size() >= this.batchSize) {
+				try {
+					doFlush();
+				}
+				catch (RuntimeException e) {
+					// the payload is pending and will be pushed by the retry; failing the message would duplicate it
+					logPushFailure(e);
+				}
+			}
+			else if (this.pending.size() == 1) {
+				this.scheduler.schedule(this.flushTask, this.batchTimeout, TimeUnit.MICROSECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Push the pending payloads, if any.
+	 */
+	public void flush() {
+		synchronized (this.monitor) {
+			if (!this.pending.isEmpty()) {
+				doFlush();
+			}
+		}
+	}
+
+	private void doFlush() {
+		final byte[][] values = this.pending.toArray(new byte[this.pending.size()][]);
+		try {
+			this.template.execute(new RedisCallback<Object>() {
+
+				@Override
+				public Object doInRedis(RedisConnection connection) throws DataAccessException {
+					return connection.lPush(queueName, values);
+				}
+			});
+		}
+		catch (RuntimeException e) {
+			if (!this.retryScheduled) {
+				this.scheduler.schedule(this.retryTask, RETRY_INTERVAL, TimeUnit.MILLISECONDS);
+				this.retryScheduled = true;
+			}
+			throw e;
+		}
+		this.pending.clear();
+		this.histogram.record(values.length);
+	}
+
+	private void logPushFailure(RuntimeException e) {
+		logger.error("Failed to push batch to queue [" + new String(this.queueName) + "], will retry", e);
+	}
+
+}
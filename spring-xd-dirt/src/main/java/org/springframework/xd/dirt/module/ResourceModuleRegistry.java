@@ -16,10 +16,17 @@
 
 package org.springframework.xd.dirt.module;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.Resource;
@@ -29,6 +36,7 @@ import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.xd.dirt.core.RuntimeIOException;
+import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.ModuleType;
 
 /**
@@ -40,6 +48,11 @@ import org.springframework.xd.module.ModuleType;
  * <i>e.g.</i> {@code source/time/config/time.xml} and extra classpath is loaded from jars in a lib subdirectory
  * <i>e.g.</i> {@code source/time/lib/*.jar}</li>
  * </ul>
+ * Lookups are served from a catalog of the modules, indexed by type and name, which is built on first use. When the
+ * root is a file system directory, the catalog is rebuilt if, when checked at most every
+ * {@link #setRefreshInterval(long) refreshInterval} milliseconds, the modification time of the directories of the
+ * module types, of the modules, or of their {@code config} and {@code lib} sub-directories has changed; other roots,
+ * such as the classpath, are only scanned once.
  * 
  * @author Mark Fisher
  * @author Glenn Renfro
@@ -48,14 +61,144 @@ import org.springframework.xd.module.ModuleType;
 public class ResourceModuleRegistry extends AbstractModuleRegistry implements ResourceLoaderAware {
 
 
+	private static final Logger logger = LoggerFactory.getLogger(ResourceModuleRegistry.class);
+
 	private final String root;
 
 	private ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
 
+	private volatile long refreshInterval = 5000;
+
+	private volatile Catalog catalog;
+
+	private volatile long lastChecked;
+
 	public ResourceModuleRegistry(String root) {
 		this.root = StringUtils.trimTrailingCharacter(root, '/');
 	}
 
+	/**
+	 * Set the minimum time, in milliseconds, between two checks of the module directories for changes; a negative
+	 * value disables the checks once the catalog is built.
+	 */
+	public void setRefreshInterval(long refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+	@Override
+	public ModuleDefinition findDefinition(String name, ModuleType moduleType) {
+		CatalogEntry entry = catalog().entries.get(moduleType).get(name);
+		return entry == null ? null : new ModuleDefinition(name, moduleType, entry.resource, entry.classpath);
+	}
+
+	@Override
+	public List<ModuleDefinition> findDefinitions(ModuleType type) {
+		Map<String, CatalogEntry> entries = catalog().entries.get(type);
+		List<ModuleDefinition> results = new ArrayList<ModuleDefinition>(entries.size());
+		for (Map.Entry<String, CatalogEntry> entry : entries.entrySet()) {
+			results.add(new ModuleDefinition(entry.getKey(), type, entry.getValue().resource,
+					entry.getValue().classpath));
+		}
+		return results;
+	}
+
+	/**
+	 * Return the catalog, building it on first use, or rebuilding it if the module directories have changed since.
+	 */
+	private Catalog catalog() {
+		Catalog current = this.catalog;
+		if (current != null && (this.refreshInterval < 0
+				|| System.currentTimeMillis() - this.lastChecked < this.refreshInterval)) {
+			return current;
+		}
+		synchronized (this) {
+			current = this.catalog;
+			long now = System.currentTimeMillis();
+			if (current != null && (this.refreshInterval < 0 || now - this.lastChecked < this.refreshInterval)) {
+				return current;
+			}
+			this.lastChecked = now;
+			File rootDirectory = rootDirectory();
+			long fingerprint = rootDirectory == null ? 0 : fingerprint(rootDirectory);
+			if (current != null && current.fingerprint == fingerprint) {
+				return current;
+			}
+			current = buildCatalog(fingerprint);
+			this.catalog = current;
+			return current;
+		}
+	}
+
+	private Catalog buildCatalog(long fingerprint) {
+		long start = System.currentTimeMillis();
+		Map<ModuleType, Map<String, CatalogEntry>> entries = new EnumMap<ModuleType, Map<String, CatalogEntry>>(
+				ModuleType.class);
+		int count = 0;
+		for (ModuleType type : ModuleType.values()) {
+			Map<String, CatalogEntry> byName = new TreeMap<String, CatalogEntry>();
+			for (Resource candidate : locateApplicationContexts(type)) {
+				String name = inferModuleName(candidate);
+				if (byName.containsKey(name)) {
+					continue;
+				}
+				// resolve the name as a lookup would, which also discards XML files that are not module contexts
+				Resource resource = locateApplicationContext(name, type);
+				if (resource != null) {
+					byName.put(name, new CatalogEntry(resource, maybeLocateClasspath(resource, name, type)));
+					count++;
+				}
+			}
+			entries.put(type, byName);
+		}
+		logger.info("Indexed {} modules from {} in {} ms", count, this.root, System.currentTimeMillis() - start);
+		return new Catalog(entries, fingerprint);
+	}
+
+	/**
+	 * Return the root as a directory, if it is one, or null if it is not, or may resolve to several locations.
+	 */
+	private File rootDirectory() {
+		if (this.root.contains("*") || this.root.startsWith(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX)) {
+			return null;
+		}
+		try {
+			Resource resource = this.resolver.getResource(this.root + "/");
+			if (!resource.getURL().getProtocol().equals("file")) {
+				return null;
+			}
+			File file = resource.getFile();
+			return file.isDirectory() ? file : null;
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Combine the modification times of the directories that change when a module, or one of its jars, is added or
+	 * removed.
+	 */
+	private static long fingerprint(File rootDirectory) {
+		long fingerprint = 17;
+		for (ModuleType type : ModuleType.values()) {
+			File typeDirectory = new File(rootDirectory, type.name());
+			fingerprint = 31 * fingerprint + typeDirectory.lastModified();
+			File[] modules = typeDirectory.listFiles();
+			if (modules == null) {
+				continue;
+			}
+			for (File module : modules) {
+				if (module.isDirectory()) {
+					fingerprint = 31 * fingerprint + module.getName().hashCode();
+					fingerprint = 31 * fingerprint + module.lastModified();
+					fingerprint = 31 * fingerprint + new File(module, "config").lastModified();
+					fingerprint = 31 * fingerprint + new File(module, "lib").lastModified();
+				}
+			}
+		}
+		return fingerprint;
+	}
+
 	@Override
 	protected Resource locateApplicationContext(String name, ModuleType type) {
 		try {
@@ -172,4 +315,34 @@ public class ResourceModuleRegistry extends AbstractModuleRegistry implements Re
 				resource.getFilename().lastIndexOf('.'));
 	}
 
+
+
+	/**
+	 * Modules indexed by type and name.
+	 */
+	private static class Catalog {
+
+		private final Map<ModuleType, Map<String, CatalogEntry>> entries;
+
+		private final long fingerprint;
+
+		Catalog(Map<ModuleType, Map<String, CatalogEntry>> entries, long fingerprint) {
+			this.entries = entries;
+			this.fingerprint = fingerprint;
+		}
+	}
+
+
+	private static class CatalogEntry {
+
+		private final Resource resource;
+
+		private final URL[] classpath;
+
+		CatalogEntry(Resource resource, URL[] classpath) {
+			this.resource = resource;
+			this.classpath = classpath;
+		}
+	}
+
 }
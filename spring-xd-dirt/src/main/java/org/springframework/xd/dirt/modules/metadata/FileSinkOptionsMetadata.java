@@ -18,6 +18,7 @@ package org.springframework.xd.dirt.modules.metadata;
 
 import static org.springframework.xd.dirt.modules.metadata.FileSinkOptionsMetadata.Mode.APPEND;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import org.hibernate.validator.constraints.NotBlank;
@@ -45,12 +46,28 @@ public class FileSinkOptionsMetadata {
 
 	private Mode mode = APPEND;
 
+	private int bufferSize = 64 * 1024;
+
+	private int flushCount = 0;
+
+	private long flushBytes = 0;
+
+	private long flushInterval = 100;
+
+	private boolean fsync = false;
+
+	private long rollover = 0;
+
+	private long rolloverInterval = 0;
+
+	private boolean compress = false;
+
 	@NotNull
 	public Mode getMode() {
 		return mode;
 	}
 
-	@ModuleOption("what to do if the file already exists")
+	@ModuleOption("what to do if the file already exists when it is opened")
 	public void setMode(Mode mode) {
 		this.mode = mode;
 	}
@@ -106,6 +123,84 @@ public class FileSinkOptionsMetadata {
 		return charset;
 	}
 
+	@Min(1)
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	@ModuleOption("the size of the write buffer, in bytes")
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	@Min(0)
+	public int getFlushCount() {
+		return flushCount;
+	}
+
+	@ModuleOption("the number of messages after which the buffer is flushed (0 for no limit)")
+	public void setFlushCount(int flushCount) {
+		this.flushCount = flushCount;
+	}
+
+	@Min(0)
+	public long getFlushBytes() {
+		return flushBytes;
+	}
+
+	@ModuleOption("the number of bytes after which the buffer is flushed (0 for no limit)")
+	public void setFlushBytes(long flushBytes) {
+		this.flushBytes = flushBytes;
+	}
+
+	@Min(0)
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	@ModuleOption("the time in ms after which buffered data is flushed (0 for no limit)")
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public boolean isFsync() {
+		return fsync;
+	}
+
+	@ModuleOption("whether each flush forces the data to the storage device")
+	public void setFsync(boolean fsync) {
+		this.fsync = fsync;
+	}
+
+	@Min(0)
+	public long getRollover() {
+		return rollover;
+	}
+
+	@ModuleOption("the number of bytes after which a new file is started (0 for no rollover)")
+	public void setRollover(long rollover) {
+		this.rollover = rollover;
+	}
+
+	@Min(0)
+	public long getRolloverInterval() {
+		return rolloverInterval;
+	}
+
+	@ModuleOption("the time in ms after which a new file is started (0 for no rollover)")
+	public void setRolloverInterval(long rolloverInterval) {
+		this.rolloverInterval = rolloverInterval;
+	}
+
+	public boolean isCompress() {
+		return compress;
+	}
+
+	@ModuleOption("whether to gzip the files")
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+
 	public static enum Mode {
 		APPEND, REPLACE, FAIL, IGNORE;
 	}
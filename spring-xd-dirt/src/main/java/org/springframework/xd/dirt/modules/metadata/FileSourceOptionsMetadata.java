@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.modules.metadata;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
+
+import org.hibernate.validator.constraints.NotBlank;
+
+import org.springframework.xd.module.options.spi.ModuleOption;
+import org.springframework.xd.module.options.spi.ProfileNamesProvider;
+
+/**
+ * Describes options to the {@code file} source module.
+ *
+ * @since 1.0
+ */
+public class FileSourceOptionsMetadata implements ProfileNamesProvider {
+
+	// Don't provide defaults here but in xml file for now, as they depend on the stream name
+	private String dir;
+
+	private String seenFiles = "";
+
+	private boolean preventDuplicates = true;
+
+	private int maxSeenFiles = 10000;
+
+	private String pattern = "*";
+
+	private int fixedDelay = 5;
+
+	private boolean ref = false;
+
+	private boolean split = false;
+
+	private String delimiter = "";
+
+	private String charset = "UTF-8";
+
+	@Override
+	public String[] profilesToActivate() {
+		return new String[] {
+			split ? "use-split" : "use-contents",
+			preventDuplicates ? "prevent-duplicates" : "allow-duplicates"
+		};
+	}
+
+	@AssertTrue(message = "ref and split are mutually exclusive")
+	private boolean isValid() {
+		return !(ref && split);
+	}
+
+	public String getDir() {
+		return dir;
+	}
+
+	@ModuleOption("the absolute path to the directory to monitor for files")
+	public void setDir(String dir) {
+		this.dir = dir;
+	}
+
+	public boolean isPreventDuplicates() {
+		return preventDuplicates;
+	}
+
+	@ModuleOption("whether to prevent the same file from being processed twice")
+	public void setPreventDuplicates(boolean preventDuplicates) {
+		this.preventDuplicates = preventDuplicates;
+	}
+
+	public String getSeenFiles() {
+		return seenFiles;
+	}
+
+	@ModuleOption("a properties file in which to record processed files, so that they are not processed again after a restart; in memory only if empty")
+	public void setSeenFiles(String seenFiles) {
+		this.seenFiles = seenFiles;
+	}
+
+	@Min(1)
+	public int getMaxSeenFiles() {
+		return maxSeenFiles;
+	}
+
+	@ModuleOption("the maximum number of processed files to record, the least recently listed being forgotten first")
+	public void setMaxSeenFiles(int maxSeenFiles) {
+		this.maxSeenFiles = maxSeenFiles;
+	}
+
+	@NotBlank
+	public String getPattern() {
+		return pattern;
+	}
+
+	@ModuleOption("a filter expression (Ant style) to accept only files that match the pattern")
+	public void setPattern(String pattern) {
+		this.pattern = pattern;
+	}
+
+	@Min(0)
+	public int getFixedDelay() {
+		return fixedDelay;
+	}
+
+	@ModuleOption("the fixed delay polling interval specified in seconds")
+	public void setFixedDelay(int fixedDelay) {
+		this.fixedDelay = fixedDelay;
+	}
+
+	public boolean isRef() {
+		return ref;
+	}
+
+	@ModuleOption("set to true to output the File object itself")
+	public void setRef(boolean ref) {
+		this.ref = ref;
+	}
+
+	public boolean isSplit() {
+		return split;
+	}
+
+	@ModuleOption("set to true to stream files and output one message per line or delimited record")
+	public void setSplit(boolean split) {
+		this.split = split;
+	}
+
+	public String getDelimiter() {
+		return delimiter;
+	}
+
+	@ModuleOption("the record delimiter when splitting, line endings if empty")
+	public void setDelimiter(String delimiter) {
+		this.delimiter = delimiter;
+	}
+
+	@NotBlank
+	public String getCharset() {
+		return charset;
+	}
+
+	@ModuleOption("the charset of the files when splitting")
+	public void setCharset(String charset) {
+		this.charset = charset;
+	}
+
+}
@@ -22,6 +22,7 @@ import org.springframework.integration.channel.interceptor.WireTap;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
+import org.springframework.xd.dirt.core.ModuleDeploymentProperties;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.module.DeploymentMetadata;
 import org.springframework.xd.module.ModuleType;
@@ -54,11 +55,21 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 
 	protected final MessageBus messageBus;
 
+	private volatile TapSubscriptionRegistry tapSubscriptionRegistry;
+
 	public AbstractMessageBusBinderPlugin(MessageBus messageBus) {
 		Assert.notNull(messageBus, "messageBus cannot be null.");
 		this.messageBus = messageBus;
 	}
 
+	/**
+	 * Set the registry used to publish to taps only while they have subscribers. Without one, every tap publishes all
+	 * the messages of the tapped channel.
+	 */
+	public void setTapSubscriptionRegistry(TapSubscriptionRegistry tapSubscriptionRegistry) {
+		this.tapSubscriptionRegistry = tapSubscriptionRegistry;
+	}
+
 	/**
 	 * Bind input/output channel of the module's message consumer/producers to {@link MessageBus}'s message
 	 * source/target entities.
@@ -68,11 +79,17 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 	protected final void bindConsumerAndProducers(Module module) {
 		MessageChannel inputChannel = module.getComponent(MODULE_INPUT_CHANNEL, MessageChannel.class);
 		if (inputChannel != null) {
-			bindMessageConsumer(inputChannel, getInputChannelName(module));
+			String inputChannelName = getInputChannelName(module);
+			bindMessageConsumer(inputChannel, inputChannelName, module.getDeploymentMetadata());
+			if (this.tapSubscriptionRegistry != null && isStreamTap(inputChannelName)) {
+				// subscribe only once bound, so that nothing published from then on is lost
+				this.tapSubscriptionRegistry.subscribe(module,
+						inputChannelName.substring(TAP_CHANNEL_PREFIX.length()));
+			}
 		}
 		MessageChannel outputChannel = module.getComponent(MODULE_OUTPUT_CHANNEL, MessageChannel.class);
 		if (outputChannel != null) {
-			bindMessageProducer(outputChannel, getOutputChannelName(module));
+			bindMessageProducer(outputChannel, getOutputChannelName(module), module.getDeploymentMetadata());
 			createAndBindTapChannel(module, outputChannel);
 		}
 	}
@@ -81,19 +98,32 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 
 	protected abstract String getOutputChannelName(Module module);
 
-	private void bindMessageConsumer(MessageChannel inputChannel, String inputChannelName) {
+	private void bindMessageConsumer(MessageChannel inputChannel, String inputChannelName,
+			DeploymentMetadata deploymentMetadata) {
+		Integer partitionIndex = deploymentMetadata.getAttribute(ModuleDeploymentProperties.PARTITION_INDEX_KEY,
+				Integer.class);
 		if (isChannelPubSub(inputChannelName)) {
 			messageBus.bindPubSubConsumer(inputChannelName, inputChannel);
 		}
+		else if (partitionIndex != null) {
+			messageBus.bindPartitionedConsumer(inputChannelName, inputChannel, partitionIndex);
+		}
 		else {
 			messageBus.bindConsumer(inputChannelName, inputChannel);
 		}
 	}
 
-	private void bindMessageProducer(MessageChannel outputChannel, String outputChannelName) {
+	private void bindMessageProducer(MessageChannel outputChannel, String outputChannelName,
+			DeploymentMetadata deploymentMetadata) {
+		String partitionKeyExpression = deploymentMetadata.getAttribute(
+				ModuleDeploymentProperties.PARTITION_KEY_EXPRESSION_KEY, String.class);
 		if (isChannelPubSub(outputChannelName)) {
 			messageBus.bindPubSubProducer(outputChannelName, outputChannel);
 		}
+		else if (partitionKeyExpression != null) {
+			messageBus.bindPartitionedProducer(outputChannelName, outputChannel, partitionKeyExpression,
+					deploymentMetadata.getAttribute(ModuleDeploymentProperties.PARTITION_COUNT_KEY, Integer.class));
+		}
 		else {
 			messageBus.bindProducer(outputChannelName, outputChannel);
 		}
@@ -109,8 +139,18 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 	private void createAndBindTapChannel(Module module, MessageChannel outputChannel) {
 		if (outputChannel instanceof ChannelInterceptorAware) {
 			String tapChannelName = buildTapChannelName(module);
-			MessageChannel tapChannel = tapOutputChannel(tapChannelName, (ChannelInterceptorAware) outputChannel);
+			DirectChannel tapChannel = new DirectChannel();
+			tapChannel.setBeanName(tapChannelName + ".tap.bridge");
+			WireTap wireTap = new WireTap(tapChannel);
+			if (this.tapSubscriptionRegistry != null) {
+				// started once the tap has a subscriber
+				wireTap.stop();
+			}
+			((ChannelInterceptorAware) outputChannel).addInterceptor(wireTap);
 			messageBus.bindPubSubProducer(tapChannelName, tapChannel);
+			if (this.tapSubscriptionRegistry != null) {
+				this.tapSubscriptionRegistry.track(tapChannelName.substring(TAP_CHANNEL_PREFIX.length()), wireTap);
+			}
 		}
 		else {
 			if (logger.isDebugEnabled()) {
@@ -119,13 +159,6 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 		}
 	}
 
-	private MessageChannel tapOutputChannel(String tapChannelName, ChannelInterceptorAware outputChannel) {
-		DirectChannel tapChannel = new DirectChannel();
-		tapChannel.setBeanName(tapChannelName + ".tap.bridge");
-		outputChannel.addInterceptor(new WireTap(tapChannel));
-		return tapChannel;
-	}
-
 	/**
 	 * Unbind input/output channel of the module's message consumer/producers from {@link MessageBus}'s message
 	 * source/target entities.
@@ -135,6 +168,9 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 	protected final void unbindConsumerAndProducers(Module module) {
 		MessageChannel inputChannel = module.getComponent(MODULE_INPUT_CHANNEL, MessageChannel.class);
 		if (inputChannel != null) {
+			if (this.tapSubscriptionRegistry != null) {
+				this.tapSubscriptionRegistry.unsubscribe(module);
+			}
 			messageBus.unbindConsumer(getInputChannelName(module), inputChannel);
 		}
 		MessageChannel outputChannel = module.getComponent(MODULE_OUTPUT_CHANNEL, MessageChannel.class);
@@ -145,8 +181,12 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 	}
 
 	private void unbindTapChannel(Module module) {
+		String tapChannelName = buildTapChannelName(module);
+		if (this.tapSubscriptionRegistry != null) {
+			this.tapSubscriptionRegistry.stopTracking(tapChannelName.substring(TAP_CHANNEL_PREFIX.length()));
+		}
 		// Should this be unbindProducer() as there won't be multiple producers on the tap channel.
-		messageBus.unbindProducers(buildTapChannelName(module));
+		messageBus.unbindProducers(tapChannelName);
 	}
 
 	private String buildTapChannelName(Module module) {
@@ -156,6 +196,16 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 		return String.format("%s%s.%s.%s", TAP_CHANNEL_PREFIX, dm.getGroup(), module.getName(), dm.getIndex());
 	}
 
+	/**
+	 * Whether the channel is a tap on a stream module, as created by {@link #createAndBindTapChannel}. The parser drops
+	 * the {@code stream:} scope of those ({@code tap:<stream>.<module>.<index>}), while job, queue and topic taps keep
+	 * theirs ({@code tap:job:<job>}) and are never tracked by the registry.
+	 */
+	private boolean isStreamTap(String channelName) {
+		return channelName.startsWith(TAP_CHANNEL_PREFIX)
+				&& channelName.indexOf(':', TAP_CHANNEL_PREFIX.length()) == -1;
+	}
+
 	private boolean isChannelPubSub(String channelName) {
 		Assert.isTrue(StringUtils.hasText(channelName), "Channel name should not be empty/null.");
 		// Check if the channelName starts with tap: or topic:
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.plugins;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.Lifecycle;
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnectionListener;
+
+/**
+ * Tracks the consumers of taps in ZooKeeper, so that a tap only publishes while it has subscribers. Each consumer of a
+ * tap writes an ephemeral node under {@code /xd/taps/<tap>} once it is bound to the bus, and the container of the
+ * tapped module starts its tap when the first such node appears, and stops it when the last one goes away. Messages
+ * sent from the moment a subscription is observed are thus all delivered to it.
+ * <p>
+ * Subscriptions and taps registered while ZooKeeper is not connected are written and watched once it is. Subscriptions
+ * are also written again when the connection is re-established, as their ephemeral nodes may have been removed along
+ * with the previous session.
+ *
+ * @since 1.0
+ */
+public class TapSubscriptionRegistry implements ZooKeeperConnectionListener, InitializingBean, DisposableBean {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final ZooKeeperConnection zkConnection;
+
+	/**
+	 * Subscriptions made in this container, by subscriber.
+	 */
+	private final ConcurrentMap<Object, String> subscriptions = new ConcurrentHashMap<Object, String>();
+
+	/**
+	 * Paths of the ephemeral nodes written for the subscriptions, by subscriber.
+	 */
+	private final ConcurrentMap<Object, String> subscriptionPaths = new ConcurrentHashMap<Object, String>();
+
+	/**
+	 * Taps of this container, by name.
+	 */
+	private final ConcurrentMap<String, Lifecycle> taps = new ConcurrentHashMap<String, Lifecycle>();
+
+	/**
+	 * Caches of the subscriptions to the taps of this container, by tap.
+	 */
+	private final ConcurrentMap<String, PathChildrenCache> subscriberCaches = new ConcurrentHashMap<String, PathChildrenCache>();
+
+	private final ExecutorService cacheExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "TapSubscribersPathChildrenCache");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	public TapSubscriptionRegistry(ZooKeeperConnection zkConnection) {
+		Assert.notNull(zkConnection, "'zkConnection' cannot be null");
+		this.zkConnection = zkConnection;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		this.zkConnection.addListener(this);
+	}
+
+	@Override
+	public void destroy() {
+		this.zkConnection.removeListener(this);
+		for (String tap : this.taps.keySet()) {
+			stopTracking(tap);
+		}
+		this.cacheExecutor.shutdown();
+	}
+
+	/**
+	 * Record that the given subscriber consumes the given tap. Must be called once the subscriber is bound to the bus.
+	 *
+	 * @param subscriber the subscriber, typically a module
+	 * @param tap the name of the tap, without prefix
+	 */
+	public void subscribe(Object subscriber, String tap) {
+		this.subscriptions.put(subscriber, tap);
+		if (this.zkConnection.isConnected()) {
+			writeSubscription(this.zkConnection.getClient(), subscriber, tap);
+		}
+	}
+
+	/**
+	 * Remove the subscription of the given subscriber, if any.
+	 */
+	public void unsubscribe(Object subscriber) {
+		this.subscriptions.remove(subscriber);
+		String path = this.subscriptionPaths.remove(subscriber);
+		if (path != null && this.zkConnection.isConnected()) {
+			try {
+				this.zkConnection.getClient().delete().forPath(path);
+			}
+			catch (KeeperException.NoNodeException e) {
+				// already gone with a previous session
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Start and stop the given tap as subscriptions to it come and go. The tap should initially be stopped.
+	 *
+	 * @param tap the name of the tap, without prefix
+	 * @param lifecycle the component that publishes the tapped messages
+	 */
+	public synchronized void track(String tap, Lifecycle lifecycle) {
+		this.taps.put(tap, lifecycle);
+		if (this.zkConnection.isConnected()) {
+			watchSubscriptions(this.zkConnection.getClient(), tap, lifecycle);
+		}
+	}
+
+	/**
+	 * Stop watching the subscriptions to the given tap.
+	 */
+	public synchronized void stopTracking(String tap) {
+		this.taps.remove(tap);
+		PathChildrenCache cache = this.subscriberCaches.remove(tap);
+		if (cache != null) {
+			try {
+				cache.close();
+			}
+			catch (IOException e) {
+				logger.warn("Failed to close subscriber cache of tap " + tap, e);
+			}
+		}
+	}
+
+	private void watchSubscriptions(CuratorFramework client, String tap, final Lifecycle lifecycle) {
+		String path = Paths.build(Paths.TAPS, tap);
+		Paths.ensurePath(client, path);
+		final PathChildrenCache cache = new PathChildrenCache(client, path, false, false, this.cacheExecutor);
+		cache.getListenable().addListener(new PathChildrenCacheListener() {
+
+			@Override
+			public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) {
+				update(cache, lifecycle);
+			}
+		});
+		try {
+			cache.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		this.subscriberCaches.put(tap, cache);
+		update(cache, lifecycle);
+	}
+
+	private void update(PathChildrenCache cache, Lifecycle lifecycle) {
+		synchronized (lifecycle) {
+			boolean subscribed = !cache.getCurrentData().isEmpty();
+			if (subscribed && !lifecycle.isRunning()) {
+				lifecycle.start();
+			}
+			else if (!subscribed && lifecycle.isRunning()) {
+				lifecycle.stop();
+			}
+		}
+	}
+
+	private void writeSubscription(CuratorFramework client, Object subscriber, String tap) {
+		try {
+			String path = client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
+					.forPath(Paths.build(Paths.TAPS, tap, "subscriber-"));
+			this.subscriptionPaths.put(subscriber, path);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void onConnect(CuratorFramework client) {
+		synchronized (this) {
+			for (Map.Entry<String, Lifecycle> tap : this.taps.entrySet()) {
+				if (!this.subscriberCaches.containsKey(tap.getKey())) {
+					try {
+						watchSubscriptions(client, tap.getKey(), tap.getValue());
+					}
+					catch (RuntimeException e) {
+						logger.error("Failed to watch subscriptions to tap " + tap.getKey(), e);
+					}
+				}
+			}
+		}
+		for (Map.Entry<Object, String> subscription : this.subscriptions.entrySet()) {
+			try {
+				String path = this.subscriptionPaths.get(subscription.getKey());
+				if (path == null || client.checkExists().forPath(path) == null) {
+					writeSubscription(client, subscription.getKey(), subscription.getValue());
+				}
+			}
+			catch (Exception e) {
+				logger.error("Failed to restore subscription to tap " + subscription.getValue(), e);
+			}
+		}
+	}
+
+	@Override
+	public void onDisconnect(CuratorFramework client) {
+	}
+
+}
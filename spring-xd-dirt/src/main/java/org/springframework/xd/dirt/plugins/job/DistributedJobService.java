@@ -16,7 +16,11 @@
 
 package org.springframework.xd.dirt.plugins.job;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.springframework.batch.admin.service.SearchableJobExecutionDao;
 import org.springframework.batch.admin.service.SearchableJobInstanceDao;
@@ -24,6 +28,7 @@ import org.springframework.batch.admin.service.SearchableStepExecutionDao;
 import org.springframework.batch.admin.service.SimpleJobService;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersInvalidException;
 import org.springframework.batch.core.launch.JobLauncher;
@@ -46,18 +51,19 @@ public class DistributedJobService extends SimpleJobService {
 
 	private DistributedJobLocator distributedJobLocator;
 
-	private SearchableJobExecutionDao jobExecutionDao;
+	private SearchableJobInstanceDao jobInstanceDao;
 
-	private SearchableStepExecutionDao stepExecutionDao;
+	private JdbcJobExecutionDetailsDao jobExecutionDetailsDao;
 
 	public DistributedJobService(SearchableJobInstanceDao jobInstanceDao, SearchableJobExecutionDao jobExecutionDao,
 			SearchableStepExecutionDao stepExecutionDao, JobRepository jobRepository, JobLauncher jobLauncher,
-			DistributedJobLocator batchJobLocator, ExecutionContextDao executionContextDao) {
+			DistributedJobLocator batchJobLocator, ExecutionContextDao executionContextDao,
+			JdbcJobExecutionDetailsDao jobExecutionDetailsDao) {
 		super(jobInstanceDao, jobExecutionDao, stepExecutionDao, jobRepository, jobLauncher, batchJobLocator,
 				executionContextDao);
 		this.distributedJobLocator = batchJobLocator;
-		this.jobExecutionDao = jobExecutionDao;
-		this.stepExecutionDao = stepExecutionDao;
+		this.jobInstanceDao = jobInstanceDao;
+		this.jobExecutionDetailsDao = jobExecutionDetailsDao;
 	}
 
 	@Override
@@ -91,17 +97,78 @@ public class DistributedJobService extends SimpleJobService {
 		return (isLaunchable(jobName) ? distributedJobLocator.isIncrementable(jobName) : false);
 	}
 
+	/**
+	 * List job executions with their step executions, loaded in a fixed number of queries.
+	 */
 	@Override
 	public Collection<JobExecution> listJobExecutions(int start, int count) {
-		Collection<JobExecution> jobExecutions = jobExecutionDao.getJobExecutions(start, count);
-		// Associate step executions for each of the job executions in the list.
-		for (JobExecution jobExecution : jobExecutions) {
-			stepExecutionDao.addStepExecutions(jobExecution);
+		return jobExecutionDetailsDao.getJobExecutions(null, start, count);
+	}
+
+	/**
+	 * List the job executions that precede the given one, with their step executions.
+	 *
+	 * @param beforeJobExecutionId the id of the last execution of the previous page
+	 * @param count the maximum number of executions to return
+	 */
+	public Collection<JobExecution> listJobExecutionsBefore(long beforeJobExecutionId, int count) {
+		return jobExecutionDetailsDao.getJobExecutions(null, beforeJobExecutionId, count);
+	}
+
+	@Override
+	public Collection<JobExecution> listJobExecutionsForJob(String jobName, int start, int count)
+			throws NoSuchJobException {
+		checkJobExists(jobName);
+		return jobExecutionDetailsDao.getJobExecutions(jobName, start, count);
+	}
+
+	/**
+	 * List the job executions of a job that precede the given one, with their step executions.
+	 *
+	 * @param jobName the name of the job
+	 * @param beforeJobExecutionId the id of the last execution of the previous page
+	 * @param count the maximum number of executions to return
+	 */
+	public Collection<JobExecution> listJobExecutionsForJobBefore(String jobName, long beforeJobExecutionId,
+			int count) throws NoSuchJobException {
+		checkJobExists(jobName);
+		return jobExecutionDetailsDao.getJobExecutions(jobName, beforeJobExecutionId, count);
+	}
+
+	@Override
+	public Collection<JobExecution> getJobExecutionsForJobInstance(String jobName, Long jobInstanceId)
+			throws NoSuchJobException {
+		checkJobExists(jobName);
+		List<JobExecution> jobExecutions = jobExecutionDetailsDao.getJobExecutionsForJobInstances(
+				Collections.singleton(jobInstanceId)).get(jobInstanceId);
+		return jobExecutions == null ? new ArrayList<JobExecution>() : jobExecutions;
+	}
+
+	/**
+	 * Get the job executions of several job instances of a job at once.
+	 *
+	 * @return the executions, by job instance id; instances without executions are not mapped
+	 */
+	public Map<Long, List<JobExecution>> getJobExecutionsForJobInstances(String jobName,
+			Collection<JobInstance> jobInstances) throws NoSuchJobException {
+		checkJobExists(jobName);
+		List<Long> ids = new ArrayList<Long>(jobInstances.size());
+		for (JobInstance jobInstance : jobInstances) {
+			ids.add(jobInstance.getId());
 		}
-		return jobExecutions;
+		return jobExecutionDetailsDao.getJobExecutionsForJobInstances(ids);
 	}
 
 	public Job getJob(String jobName) throws NoSuchJobException {
 		return distributedJobLocator.getJob(jobName);
 	}
+
+	/**
+	 * Same check as the (private) one of {@link SimpleJobService}.
+	 */
+	private void checkJobExists(String jobName) throws NoSuchJobException {
+		if (!distributedJobLocator.getJobNames().contains(jobName) && jobInstanceDao.countJobInstances(jobName) < 1) {
+			throw new NoSuchJobException("No Job with that name either current or historic: [" + jobName + "]");
+		}
+	}
 }
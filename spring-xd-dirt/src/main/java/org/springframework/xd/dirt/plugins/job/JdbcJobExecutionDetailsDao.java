@@ -0,0 +1,385 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.plugins.job;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameter.ParameterType;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.dao.AbstractJdbcBatchMetadataDao;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.PagingQueryProvider;
+import org.springframework.batch.item.database.support.SqlPagingQueryProviderFactoryBean;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.Assert;
+
+/**
+ * Loads pages of job executions together with their parameters and step executions, in a fixed number of queries
+ * rather than in a few queries per execution: one for the page of executions, then one for the parameters and one
+ * for the step executions of all the executions of the page. Step execution contexts are not loaded.
+ * <p/>
+ * Pages are selected by the id of the last execution of the previous page (keyset pagination), using the database
+ * specific queries of a {@link PagingQueryProvider}; the offset based methods first look up the id of the execution
+ * preceding the page, as the Batch Admin DAOs do. Executions are returned most recent first.
+ * <p/>
+ * Finished executions (those that have an end time) are kept in a cache, so that their parameters and step
+ * executions are not loaded again; the cached instances are shared, and must not be modified.
+ *
+ * @since 1.0
+ */
+public class JdbcJobExecutionDetailsDao extends AbstractJdbcBatchMetadataDao {
+
+	private static final int MAX_CACHED_EXECUTIONS = 1024;
+
+	/**
+	 * Beyond this, ids are split across several IN lists, as some databases limit their size.
+	 */
+	private static final int MAX_IN_LIST = 500;
+
+	private static final String FIELDS = "E.JOB_EXECUTION_ID, E.START_TIME, E.END_TIME, E.STATUS, E.EXIT_CODE, "
+			+ "E.EXIT_MESSAGE, E.CREATE_TIME, E.LAST_UPDATED, E.VERSION, I.JOB_INSTANCE_ID, I.JOB_NAME";
+
+	private static final String FROM = "%PREFIX%JOB_EXECUTION E, %PREFIX%JOB_INSTANCE I";
+
+	private static final String JOIN = "E.JOB_INSTANCE_ID=I.JOB_INSTANCE_ID";
+
+	private static final String FIND_BY_INSTANCES = "SELECT " + FIELDS + " FROM " + FROM + " WHERE " + JOIN
+			+ " AND E.JOB_INSTANCE_ID IN (%IDS%) ORDER BY E.JOB_EXECUTION_ID DESC";
+
+	private static final String FIND_PARAMETERS = "SELECT JOB_EXECUTION_ID, KEY_NAME, TYPE_CD, STRING_VAL, "
+			+ "DATE_VAL, LONG_VAL, DOUBLE_VAL, IDENTIFYING FROM %PREFIX%JOB_EXECUTION_PARAMS "
+			+ "WHERE JOB_EXECUTION_ID IN (%IDS%)";
+
+	private static final String FIND_STEP_EXECUTIONS = "SELECT STEP_EXECUTION_ID, STEP_NAME, START_TIME, END_TIME, "
+			+ "STATUS, COMMIT_COUNT, READ_COUNT, FILTER_COUNT, WRITE_COUNT, EXIT_CODE, EXIT_MESSAGE, READ_SKIP_COUNT, "
+			+ "WRITE_SKIP_COUNT, PROCESS_SKIP_COUNT, ROLLBACK_COUNT, LAST_UPDATED, VERSION, JOB_EXECUTION_ID "
+			+ "FROM %PREFIX%STEP_EXECUTION WHERE JOB_EXECUTION_ID IN (%IDS%) ORDER BY STEP_EXECUTION_ID";
+
+	private final ConcurrentMap<Long, JobExecution> finishedExecutions = new ConcurrentHashMap<Long, JobExecution>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private DataSource dataSource;
+
+	private PagingQueryProvider allExecutionsQueryProvider;
+
+	private PagingQueryProvider byJobNameQueryProvider;
+
+	public void setDataSource(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		Assert.state(this.dataSource != null, "DataSource must be provided");
+		if (getJdbcTemplate() == null) {
+			setJdbcTemplate(new JdbcTemplate(this.dataSource));
+		}
+		super.afterPropertiesSet();
+		this.allExecutionsQueryProvider = getPagingQueryProvider(null);
+		this.byJobNameQueryProvider = getPagingQueryProvider("I.JOB_NAME=?");
+	}
+
+	/**
+	 * Return a page of executions, selected by offset.
+	 *
+	 * @param jobName the name of the job, or null for the executions of all jobs
+	 * @param start the index of the first execution of the page
+	 * @param count the maximum number of executions to return
+	 */
+	public List<JobExecution> getJobExecutions(String jobName, int start, int count) {
+		if (start <= 0) {
+			return getJobExecutions(jobName, null, count);
+		}
+		PagingQueryProvider provider = jobName == null ? this.allExecutionsQueryProvider
+				: this.byJobNameQueryProvider;
+		Long before;
+		try {
+			before = jobName == null
+					? getJdbcTemplate().queryForObject(provider.generateJumpToItemQuery(start, count), Long.class)
+					: getJdbcTemplate().queryForObject(provider.generateJumpToItemQuery(start, count), Long.class,
+							jobName);
+		}
+		catch (IncorrectResultSizeDataAccessException e) {
+			return Collections.emptyList();
+		}
+		return getJobExecutions(jobName, before, count);
+	}
+
+	/**
+	 * Return a page of executions, selected by the id of the last execution of the previous page.
+	 *
+	 * @param jobName the name of the job, or null for the executions of all jobs
+	 * @param beforeJobExecutionId the id of the last execution of the previous page, or null for the first page
+	 * @param count the maximum number of executions to return
+	 */
+	public List<JobExecution> getJobExecutions(String jobName, Long beforeJobExecutionId, int count) {
+		PagingQueryProvider provider = jobName == null ? this.allExecutionsQueryProvider
+				: this.byJobNameQueryProvider;
+		List<Object> args = new ArrayList<Object>();
+		if (jobName != null) {
+			args.add(jobName);
+		}
+		String sql;
+		if (beforeJobExecutionId == null) {
+			sql = provider.generateFirstPageQuery(count);
+		}
+		else {
+			sql = provider.generateRemainingPagesQuery(count);
+			args.add(beforeJobExecutionId);
+		}
+		List<JobExecution> executions = getJdbcTemplate().query(sql, new JobExecutionRowMapper(), args.toArray());
+		return withDetails(executions);
+	}
+
+	/**
+	 * Return the executions of the given job instances.
+	 *
+	 * @return the executions, most recent first, by job instance id; instances without executions are not mapped
+	 */
+	public Map<Long, List<JobExecution>> getJobExecutionsForJobInstances(Collection<Long> jobInstanceIds) {
+		List<JobExecution> executions = new ArrayList<JobExecution>();
+		for (List<Long> ids : partition(jobInstanceIds)) {
+			executions.addAll(getJdbcTemplate().query(inList(FIND_BY_INSTANCES, ids.size()),
+					new JobExecutionRowMapper(), ids.toArray()));
+		}
+		Map<Long, List<JobExecution>> result = new LinkedHashMap<Long, List<JobExecution>>();
+		for (JobExecution execution : withDetails(executions)) {
+			Long instanceId = execution.getJobInstance().getId();
+			List<JobExecution> forInstance = result.get(instanceId);
+			if (forInstance == null) {
+				forInstance = new ArrayList<JobExecution>();
+				result.put(instanceId, forInstance);
+			}
+			forInstance.add(execution);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of executions served from the cache
+	 */
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of executions whose details were loaded
+	 */
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Replace the finished executions by their cached instance, and load the parameters and step executions of the
+	 * others, caching those that are finished.
+	 */
+	private List<JobExecution> withDetails(List<JobExecution> executions) {
+		List<JobExecution> result = new ArrayList<JobExecution>(executions.size());
+		Map<Long, JobExecution> toLoad = new LinkedHashMap<Long, JobExecution>();
+		for (JobExecution execution : executions) {
+			JobExecution cached = this.finishedExecutions.get(execution.getId());
+			if (cached != null && cached.getVersion().equals(execution.getVersion())) {
+				this.hits.incrementAndGet();
+				result.add(cached);
+			}
+			else {
+				toLoad.put(execution.getId(), execution);
+				result.add(execution);
+			}
+		}
+		if (toLoad.isEmpty()) {
+			return result;
+		}
+		this.misses.addAndGet(toLoad.size());
+		Map<Long, Map<String, JobParameter>> parameters = loadParameters(toLoad.keySet());
+		for (int i = 0; i < result.size(); i++) {
+			JobExecution partial = toLoad.get(result.get(i).getId());
+			if (partial != null) {
+				Map<String, JobParameter> forExecution = parameters.get(partial.getId());
+				JobExecution execution = copy(partial, forExecution == null ? new JobParameters()
+						: new JobParameters(forExecution));
+				toLoad.put(execution.getId(), execution);
+				result.set(i, execution);
+			}
+		}
+		loadStepExecutions(toLoad);
+		for (JobExecution execution : toLoad.values()) {
+			if (execution.getEndTime() != null) {
+				if (this.finishedExecutions.size() >= MAX_CACHED_EXECUTIONS) {
+					this.finishedExecutions.clear();
+				}
+				this.finishedExecutions.put(execution.getId(), execution);
+			}
+		}
+		return result;
+	}
+
+	private Map<Long, Map<String, JobParameter>> loadParameters(Collection<Long> jobExecutionIds) {
+		final Map<Long, Map<String, JobParameter>> parameters = new HashMap<Long, Map<String, JobParameter>>();
+		RowCallbackHandler handler = new RowCallbackHandler() {
+
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				Long id = rs.getLong(1);
+				Map<String, JobParameter> forExecution = parameters.get(id);
+				if (forExecution == null) {
+					forExecution = new LinkedHashMap<String, JobParameter>();
+					parameters.put(id, forExecution);
+				}
+				ParameterType type = ParameterType.valueOf(rs.getString(3));
+				boolean identifying = "Y".equalsIgnoreCase(rs.getString(8));
+				JobParameter value;
+				if (type == ParameterType.STRING) {
+					value = new JobParameter(rs.getString(4), identifying);
+				}
+				else if (type == ParameterType.DATE) {
+					value = new JobParameter(rs.getTimestamp(5), identifying);
+				}
+				else if (type == ParameterType.LONG) {
+					value = new JobParameter(rs.getLong(6), identifying);
+				}
+				else {
+					value = new JobParameter(rs.getDouble(7), identifying);
+				}
+				forExecution.put(rs.getString(2), value);
+			}
+		};
+		for (List<Long> ids : partition(jobExecutionIds)) {
+			getJdbcTemplate().query(inList(FIND_PARAMETERS, ids.size()), ids.toArray(), handler);
+		}
+		return parameters;
+	}
+
+	private void loadStepExecutions(final Map<Long, JobExecution> executions) {
+		RowCallbackHandler handler = new RowCallbackHandler() {
+
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				JobExecution jobExecution = executions.get(rs.getLong(18));
+				// adds itself to the job execution
+				StepExecution stepExecution = new StepExecution(rs.getString(2), jobExecution, rs.getLong(1));
+				stepExecution.setStartTime(rs.getTimestamp(3));
+				stepExecution.setEndTime(rs.getTimestamp(4));
+				stepExecution.setStatus(BatchStatus.valueOf(rs.getString(5)));
+				stepExecution.setCommitCount(rs.getInt(6));
+				stepExecution.setReadCount(rs.getInt(7));
+				stepExecution.setFilterCount(rs.getInt(8));
+				stepExecution.setWriteCount(rs.getInt(9));
+				stepExecution.setExitStatus(new ExitStatus(rs.getString(10), rs.getString(11)));
+				stepExecution.setReadSkipCount(rs.getInt(12));
+				stepExecution.setWriteSkipCount(rs.getInt(13));
+				stepExecution.setProcessSkipCount(rs.getInt(14));
+				stepExecution.setRollbackCount(rs.getInt(15));
+				stepExecution.setLastUpdated(rs.getTimestamp(16));
+				stepExecution.setVersion(rs.getInt(17));
+			}
+		};
+		for (List<Long> ids : partition(executions.keySet())) {
+			getJdbcTemplate().query(inList(FIND_STEP_EXECUTIONS, ids.size()), ids.toArray(), handler);
+		}
+	}
+
+	private PagingQueryProvider getPagingQueryProvider(String whereClause) throws Exception {
+		SqlPagingQueryProviderFactoryBean factory = new SqlPagingQueryProviderFactoryBean();
+		factory.setDataSource(this.dataSource);
+		factory.setSelectClause(FIELDS);
+		factory.setFromClause(getQuery(FROM));
+		factory.setWhereClause(whereClause == null ? JOIN : JOIN + " AND " + whereClause);
+		factory.setSortKeys(Collections.singletonMap("JOB_EXECUTION_ID", Order.DESCENDING));
+		return factory.getObject();
+	}
+
+	private String inList(String query, int size) {
+		StringBuilder placeholders = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			placeholders.append(i == 0 ? "?" : ", ?");
+		}
+		return getQuery(query).replace("%IDS%", placeholders);
+	}
+
+	private static List<List<Long>> partition(Collection<Long> ids) {
+		List<List<Long>> partitions = new ArrayList<List<Long>>();
+		List<Long> current = null;
+		for (Long id : ids) {
+			if (current == null || current.size() == MAX_IN_LIST) {
+				current = new ArrayList<Long>();
+				partitions.add(current);
+			}
+			current.add(id);
+		}
+		return partitions;
+	}
+
+	private static JobExecution copy(JobExecution partial, JobParameters parameters) {
+		JobExecution execution = new JobExecution(partial.getJobInstance(), partial.getId(), parameters, null);
+		execution.setStartTime(partial.getStartTime());
+		execution.setEndTime(partial.getEndTime());
+		execution.setStatus(partial.getStatus());
+		execution.setExitStatus(partial.getExitStatus());
+		execution.setCreateTime(partial.getCreateTime());
+		execution.setLastUpdated(partial.getLastUpdated());
+		execution.setVersion(partial.getVersion());
+		return execution;
+	}
+
+
+	/**
+	 * Maps the columns of {@link #FIELDS}; parameters are set later, as they are loaded for a whole page.
+	 */
+	private static class JobExecutionRowMapper implements RowMapper<JobExecution> {
+
+		@Override
+		public JobExecution mapRow(ResultSet rs, int rowNum) throws SQLException {
+			JobInstance jobInstance = new JobInstance(rs.getLong(10), rs.getString(11));
+			JobExecution execution = new JobExecution(jobInstance, rs.getLong(1), null, null);
+			execution.setStartTime(rs.getTimestamp(2));
+			execution.setEndTime(rs.getTimestamp(3));
+			execution.setStatus(BatchStatus.valueOf(rs.getString(4)));
+			execution.setExitStatus(new ExitStatus(rs.getString(5), rs.getString(6)));
+			execution.setCreateTime(rs.getTimestamp(7));
+			execution.setLastUpdated(rs.getTimestamp(8));
+			execution.setVersion(rs.getInt(9));
+			return execution;
+		}
+	}
+
+}
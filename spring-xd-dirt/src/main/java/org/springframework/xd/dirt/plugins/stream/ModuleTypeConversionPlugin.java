@@ -24,10 +24,13 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.aop.framework.Advised;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.integration.channel.AbstractMessageChannel;
+import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.converter.CompositeMessageConverter;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.MimeType;
+import org.springframework.xd.dirt.integration.bus.MessageBus;
+import org.springframework.xd.dirt.integration.bus.MessageBusSupport;
 import org.springframework.xd.dirt.integration.bus.converter.AbstractFromMessageConverter;
 import org.springframework.xd.dirt.integration.bus.converter.CompositeMessageConverterFactory;
 import org.springframework.xd.dirt.integration.bus.converter.ConversionException;
@@ -44,6 +47,9 @@ import org.springframework.xd.module.core.SimpleModule;
  * A {@link Plugin} for processing module message conversion parameters (inputType and outputType). Accepts a list of
  * {@link AbstractFromMessageConverter}s which are always available along with an optional list of custom converters
  * which may be provided by end users.
+ * <p/>
+ * When a {@link #setMessageBus(MessageBus) message bus} is set, the input type of a module is also declared to the bus,
+ * so that payloads the module converts from their serialized form are handed over without being deserialized first.
  * 
  * @author David Turanski
  * @since 1.0
@@ -54,6 +60,8 @@ public class ModuleTypeConversionPlugin extends AbstractPlugin {
 
 	private final CompositeMessageConverterFactory converterFactory;
 
+	private volatile MessageBus messageBus;
+
 	/**
 	 * @param converters a list of default converters
 	 * @param customConverters a list of custom converters to extend the default converters
@@ -66,6 +74,13 @@ public class ModuleTypeConversionPlugin extends AbstractPlugin {
 		this.converterFactory = new CompositeMessageConverterFactory(converters);
 	}
 
+	/**
+	 * Set the message bus that modules are bound to, to which the input types of the modules are declared.
+	 */
+	public void setMessageBus(MessageBus messageBus) {
+		this.messageBus = messageBus;
+	}
+
 	@Override
 	public void postProcessModule(Module module) {
 		String outputType = null;
@@ -114,6 +129,11 @@ public class ModuleTypeConversionPlugin extends AbstractPlugin {
 			else {
 				channel.setDatatypes(dataType);
 				channel.setMessageConverter(converters);
+				if (isInput && messageBus instanceof MessageBusSupport) {
+					// key on the channel as bound to the bus, which may be a proxy of the one configured above
+					((MessageBusSupport) messageBus).setInputType(module.getComponent("input", MessageChannel.class),
+							contentType, dataType);
+				}
 			}
 
 		}
@@ -18,9 +18,9 @@ package org.springframework.xd.dirt.rest;
 
 import java.util.TimeZone;
 
-import org.springframework.batch.admin.service.JobService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.xd.dirt.plugins.job.DistributedJobService;
 
 
 /**
@@ -32,7 +32,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 public abstract class AbstractBatchJobsController {
 
 	@Autowired
-	protected JobService jobService;
+	protected DistributedJobService jobService;
 
 	protected TimeZone timeZone = TimeZone.getDefault();
 
@@ -66,16 +66,22 @@ public class BatchJobExecutionsController extends AbstractBatchJobsController {
 	 * List all job executions in a given range.
 	 *
 	 * @param startJobExecution index of the first job execution to get
+	 * @param beforeJobExecution id of the last job execution of the previous page; when set, takes precedence over
+	 *        startJobExecution, and saves the database from skipping the executions of the previous pages
 	 * @param pageSize how many executions to return
 	 * @return Collection of JobExecutionInfoResource
 	 */
 	@RequestMapping(value = { "" }, method = RequestMethod.GET)
 	@ResponseStatus(HttpStatus.OK)
 	public Collection<JobExecutionInfoResource> list(@RequestParam(defaultValue = "0") int startJobExecution,
+			@RequestParam(required = false) Long beforeJobExecution,
 			@RequestParam(defaultValue = "20") int pageSize) {
 
+		Collection<JobExecution> jobExecutions = beforeJobExecution != null
+				? jobService.listJobExecutionsBefore(beforeJobExecution, pageSize)
+				: jobService.listJobExecutions(startJobExecution, pageSize);
 		Collection<JobExecutionInfoResource> result = new ArrayList<JobExecutionInfoResource>();
-		for (JobExecution jobExecution : jobService.listJobExecutions(startJobExecution, pageSize)) {
+		for (JobExecution jobExecution : jobExecutions) {
 			result.add(jobExecutionInfoResourceAssembler.toResource(new JobExecutionInfo(jobExecution, timeZone)));
 		}
 		return result;
@@ -19,6 +19,7 @@ package org.springframework.xd.dirt.rest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobInstance;
@@ -86,13 +87,17 @@ public class BatchJobsController extends AbstractBatchJobsController {
 
 		try {
 			Collection<JobInstance> jobInstances = jobService.listJobInstances(jobName, startJobInstance, pageSize);
+			// executions of the whole page are loaded at once, rather than instance by instance
+			Map<Long, List<JobExecution>> jobExecutionsByInstance = jobService.getJobExecutionsForJobInstances(
+					jobName, jobInstances);
 			List<JobInstanceInfoResource> result = new ArrayList<JobInstanceInfoResource>();
 			for (JobInstance jobInstance : jobInstances) {
-				List<JobExecution> jobExecutions = (List<JobExecution>) jobService.getJobExecutionsForJobInstance(
-						jobName, jobInstance.getId());
+				List<JobExecution> jobExecutions = jobExecutionsByInstance.get(jobInstance.getId());
 				List<JobExecutionInfo> jobExecutionInfos = new ArrayList<JobExecutionInfo>();
-				for (JobExecution jobExecution : jobExecutions) {
-					jobExecutionInfos.add(new JobExecutionInfo(jobExecution, timeZone));
+				if (jobExecutions != null) {
+					for (JobExecution jobExecution : jobExecutions) {
+						jobExecutionInfos.add(new JobExecutionInfo(jobExecution, timeZone));
+					}
 				}
 				result.add(jobInstanceInfoResourceAssembler.toResource(new JobInstanceInfo(jobInstance,
 						jobExecutionInfos)));
@@ -152,6 +157,8 @@ public class BatchJobsController extends AbstractBatchJobsController {
 	 * 
 	 * @param jobName name of the job
 	 * @param startJobExecution start index for the job execution list
+	 * @param beforeJobExecution id of the last job execution of the previous page, taking precedence over
+	 *        startJobExecution if set
 	 * @param pageSize page size for the list
 	 * @return collection of JobExecutionInfo
 	 */
@@ -159,11 +166,15 @@ public class BatchJobsController extends AbstractBatchJobsController {
 	@ResponseStatus(HttpStatus.OK)
 	public Collection<JobExecutionInfoResource> executionsForJob(@PathVariable String jobName,
 			@RequestParam(defaultValue = "0") int startJobExecution,
+			@RequestParam(required = false) Long beforeJobExecution,
 			@RequestParam(defaultValue = "20") int pageSize) {
 
 		Collection<JobExecutionInfoResource> result = new ArrayList<JobExecutionInfoResource>();
 		try {
-			for (JobExecution jobExecution : jobService.listJobExecutionsForJob(jobName, startJobExecution, pageSize)) {
+			Collection<JobExecution> jobExecutions = beforeJobExecution != null
+					? jobService.listJobExecutionsForJobBefore(jobName, beforeJobExecution, pageSize)
+					: jobService.listJobExecutionsForJob(jobName, startJobExecution, pageSize);
+			for (JobExecution jobExecution : jobExecutions) {
 				result.add(jobExecutionInfoResourceAssembler.toResource(new JobExecutionInfo(jobExecution, timeZone)));
 			}
 		}
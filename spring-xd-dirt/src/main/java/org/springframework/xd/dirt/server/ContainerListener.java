@@ -18,9 +18,11 @@ package org.springframework.xd.dirt.server;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
@@ -286,7 +288,9 @@ public class ContainerListener implements PathChildrenCacheListener {
 										.setContainer(containerName)
 										.setStreamName(streamName)
 										.setModuleType(moduleType)
-										.setModuleLabel(moduleLabel).build());
+										.setModuleLabel(moduleLabel).build(),
+										createRequestData(client, containersForModule, streamName, moduleType,
+												moduleLabel));
 
 								path = new StreamDeploymentsPath()
 										.setStreamName(streamName)
@@ -345,6 +349,42 @@ public class ContainerListener implements PathChildrenCacheListener {
 		}
 	}
 
+	/**
+	 * Create the data of a request to deploy a new instance of a stream module, holding the lowest instance index not
+	 * taken by the instances already deployed.
+	 *
+	 * @param client curator client
+	 * @param containers the containers that have deployed the module
+	 * @param streamName the name of the stream
+	 * @param moduleType the module type
+	 * @param moduleLabel the module label
+	 * @return the request data
+	 * @throws Exception if ZooKeeper access fails for any reason
+	 */
+	private byte[] createRequestData(CuratorFramework client, List<String> containers, String streamName,
+			String moduleType, String moduleLabel) throws Exception {
+		Set<String> sequences = new HashSet<String>();
+		for (String container : containers) {
+			try {
+				byte[] data = client.getData().forPath(new ModuleDeploymentsPath()
+						.setContainer(container)
+						.setStreamName(streamName)
+						.setModuleType(moduleType)
+						.setModuleLabel(moduleLabel).build());
+				sequences.add(mapBytesUtility.toMap(data).get(StreamDeploymentListener.SEQUENCE_KEY));
+			}
+			catch (KeeperException.NoNodeException e) {
+				// the module is being undeployed from this container
+			}
+		}
+		int sequence = 0;
+		while (sequences.contains(String.valueOf(sequence))) {
+			sequence++;
+		}
+		return mapBytesUtility.toByteArray(Collections.singletonMap(StreamDeploymentListener.SEQUENCE_KEY,
+				String.valueOf(sequence)));
+	}
+
 	/**
 	 * This will load the {@link Stream} instance for a given stream name <i>if the stream is deployed</i>. It will
 	 * include the stream definition as well as any deployment properties data for the stream deployment.
@@ -448,11 +488,13 @@ public class ContainerListener implements PathChildrenCacheListener {
 							LOG.info("Redeploying module {} for stream {} to container {}",
 									moduleLabel, streamName, targetName);
 
+							// the new instance takes over the index, hence the partition, of the departed one
 							client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
 									.setContainer(targetName)
 									.setStreamName(streamName)
 									.setModuleType(moduleType)
-									.setModuleLabel(moduleLabel).build()
+									.setModuleLabel(moduleLabel).build(),
+									client.getData().forPath(Paths.build(containerDeployments, deployment))
 									);
 
 							// todo: consider redeployment verification
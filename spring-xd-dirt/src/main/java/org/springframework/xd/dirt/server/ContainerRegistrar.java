@@ -78,7 +78,7 @@ import org.springframework.xd.module.options.ModuleOptions;
 import org.springframework.xd.module.options.ModuleOptionsMetadata;
 import org.springframework.xd.module.options.ModuleOptionsMetadataResolver;
 import org.springframework.xd.module.options.PrefixNarrowingModuleOptions;
-import org.springframework.xd.module.support.ParentLastURLClassLoader;
+import org.springframework.xd.module.support.ModuleClassLoaderCache;
 
 /**
  * An instance of this class, registered as a bean in the context for a Container, will handle the registration of that
@@ -181,6 +181,11 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 	 */
 	private volatile ClassLoader parentClassLoader;
 
+	/**
+	 * Class loaders of the module definitions, shared by their instances.
+	 */
+	private final ModuleClassLoaderCache moduleClassLoaderCache = new ModuleClassLoaderCache();
+
 	/**
 	 * Create an instance that will register the provided {@link ContainerAttributes} whenever the underlying
 	 * {@link ZooKeeperConnection} is established. If that connection is already established at the time this instance
@@ -228,6 +233,17 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 		Module module = (moduleDescriptor.isComposed()) ? createComposedModule(moduleDescriptor, moduleOptions,
 				deploymentProperties)
 				: createSimpleModule(moduleDescriptor, moduleOptions, deploymentProperties);
+		DeploymentMetadata metadata = module.getDeploymentMetadata();
+		if (deploymentProperties.getPartitionKeyExpression() != null) {
+			metadata.addAttribute(ModuleDeploymentProperties.PARTITION_KEY_EXPRESSION_KEY,
+					deploymentProperties.getPartitionKeyExpression());
+			metadata.addAttribute(ModuleDeploymentProperties.PARTITION_COUNT_KEY,
+					deploymentProperties.getPartitionCount());
+		}
+		if (deploymentProperties.getPartitionIndex() != null) {
+			metadata.addAttribute(ModuleDeploymentProperties.PARTITION_INDEX_KEY,
+					deploymentProperties.getPartitionIndex());
+		}
 		// todo: rather than delegate, merge ContainerRegistrar itself into and remove most of ModuleDeployer
 		this.moduleDeployer.deployAndStore(module, moduleDescriptor);
 		return module;
@@ -360,7 +376,7 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 		String moduleType = moduleDeploymentsPath.getModuleType();
 		String moduleLabel = moduleDeploymentsPath.getModuleLabel();
 		Module module = (ModuleType.job.toString().equals(moduleType)) ? deployJob(client, streamName, moduleLabel)
-				: deployStreamModule(client, streamName, moduleType, moduleLabel);
+				: deployStreamModule(client, streamName, moduleType, moduleLabel, data.getData());
 		if (module != null) {
 			Map<String, String> map = new HashMap<String, String>();
 			CollectionUtils.mergePropertiesIntoMap(module.getProperties(), map);
@@ -423,9 +439,11 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 	 * @param streamName name of the stream for the module
 	 * @param moduleType module type
 	 * @param moduleLabel module label
+	 * @param requestData data of the deployment request
 	 * @return Module deployed stream module
 	 */
-	private Module deployStreamModule(CuratorFramework client, String streamName, String moduleType, String moduleLabel) {
+	private Module deployStreamModule(CuratorFramework client, String streamName, String moduleType,
+			String moduleLabel, byte[] requestData) {
 		logger.info("Deploying module '{}' for stream '{}'", moduleLabel, streamName);
 
 		String streamPath = new StreamDeploymentsPath().setStreamName(streamName)
@@ -435,13 +453,21 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 
 		Module module = null;
 		try {
-			Stream stream = streamFactory.createStream(streamName,
+			Map<String, String> map = new HashMap<String, String>(
 					mapBytesUtility.toMap(client.getData().forPath(Paths.build(Paths.STREAMS, streamName))));
+			byte[] deploymentPropertiesData = client.getData().forPath(
+					Paths.build(Paths.STREAM_DEPLOYMENTS, streamName));
+			if (deploymentPropertiesData != null && deploymentPropertiesData.length > 0) {
+				map.put("deploymentProperties", new String(deploymentPropertiesData, "UTF-8"));
+			}
+			Stream stream = streamFactory.createStream(streamName, map);
 
 			ModuleDescriptor descriptor = stream.getModuleDescriptor(moduleLabel, moduleType);
 			ModuleDeploymentProperties moduleDeploymentProperties =
 					StreamDeploymentListener.createModuleDeploymentProperties(
 							stream.getDeploymentProperties(), descriptor);
+			configurePartitioning(stream, descriptor, moduleDeploymentProperties,
+					mapBytesUtility.toMap(requestData).get(StreamDeploymentListener.SEQUENCE_KEY));
 
 			module = deployModule(descriptor, moduleDeploymentProperties);
 
@@ -466,6 +492,46 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 		return module;
 	}
 
+	/**
+	 * Complete the partitioning properties of a stream module: the number of partitions of a partitioned output
+	 * defaults to the count of the next module, and each instance of a module that consumes a partitioned output
+	 * consumes the partition matching its instance index.
+	 *
+	 * @param stream the stream of the module
+	 * @param descriptor descriptor for the module
+	 * @param deploymentProperties deployment properties for the module
+	 * @param sequence the index of the module instance, if any
+	 */
+	private void configurePartitioning(Stream stream, ModuleDescriptor descriptor,
+			ModuleDeploymentProperties deploymentProperties, String sequence) {
+		if (deploymentProperties.getPartitionKeyExpression() != null
+				&& deploymentProperties.getPartitionCount() == null) {
+			ModuleDescriptor consumer = findModuleDescriptor(stream, descriptor.getIndex() + 1);
+			Assert.state(consumer != null && descriptor.getSinkChannelName() == null,
+					"The output of module " + descriptor + " can only be partitioned if it is consumed by the stream");
+			int count = StreamDeploymentListener.createModuleDeploymentProperties(
+					stream.getDeploymentProperties(), consumer).getCount();
+			Assert.state(count > 0, "Module " + consumer + " must have a count to consume a partitioned output");
+			deploymentProperties.setPartitionCount(count);
+		}
+		ModuleDescriptor producer = descriptor.getSourceChannelName() == null
+				? findModuleDescriptor(stream, descriptor.getIndex() - 1) : null;
+		if (producer != null && StreamDeploymentListener.createModuleDeploymentProperties(
+				stream.getDeploymentProperties(), producer).getPartitionKeyExpression() != null) {
+			Assert.state(sequence != null, "No instance index in the deployment request of module " + descriptor);
+			deploymentProperties.setPartitionIndex(Integer.parseInt(sequence));
+		}
+	}
+
+	private ModuleDescriptor findModuleDescriptor(Stream stream, int index) {
+		for (ModuleDescriptor descriptor : stream.getDescriptors()) {
+			if (descriptor.getIndex() == index) {
+				return descriptor;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Event handler for deployment removals.
 	 *
@@ -550,8 +616,10 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 		String sinkChannelName = descriptor.getSinkChannelName();
 		DeploymentMetadata metadata = new DeploymentMetadata(streamName, index, sourceChannelName, sinkChannelName);
 		ModuleDefinition definition = descriptor.getModuleDefinition();
-		ClassLoader classLoader = (definition.getClasspath() == null) ? null
-				: new ParentLastURLClassLoader(definition.getClasspath(), parentClassLoader);
+		long startTime = System.currentTimeMillis();
+		ClassLoader classLoader = moduleClassLoaderCache.getClassLoader(definition, parentClassLoader);
+		logger.debug("Class loader for module {} obtained in {} ms", descriptor,
+				System.currentTimeMillis() - startTime);
 		return new SimpleModule(definition, metadata, classLoader, options);
 	}
 
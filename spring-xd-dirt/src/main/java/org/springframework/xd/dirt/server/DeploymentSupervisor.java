@@ -20,11 +20,14 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
 import org.apache.curator.framework.recipes.leader.LeaderSelector;
 import org.apache.curator.framework.recipes.leader.LeaderSelectorListener;
@@ -97,6 +100,11 @@ public class DeploymentSupervisor implements ContainerRepository, ApplicationLis
 	 */
 	private volatile ApplicationContext applicationContext;
 
+	/**
+	 * Time, in milliseconds, to wait for the containers to acknowledge the deployment of a stream module.
+	 */
+	private volatile long deploymentTimeout = 10000;
+
 	/**
 	 * Cache of children under the containers path. This path is used to track containers in the cluster.
 	 * This atomic reference is updated by:
@@ -161,6 +169,15 @@ public class DeploymentSupervisor implements ContainerRepository, ApplicationLis
 		this.moduleOptionsMetadataResolver = moduleOptionsMetadataResolver;
 	}
 
+	/**
+	 * Set the time, in milliseconds, to wait for the containers to acknowledge the deployment of a stream module.
+	 *
+	 * @param deploymentTimeout the deployment timeout
+	 */
+	public void setDeploymentTimeout(long deploymentTimeout) {
+		this.deploymentTimeout = deploymentTimeout;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -268,16 +285,57 @@ public class DeploymentSupervisor implements ContainerRepository, ApplicationLis
 	}
 
 	/**
-	 * Converts a {@link ChildData} node to a {@link Container}.
+	 * Converts a {@link ChildData} node to a {@link Container}. This converter is invoked upon every iteration of the
+	 * iterator returned by {@link #getContainerIterator}, hence the containers are kept and only decoded again when
+	 * their node is modified, as told by its modification zxid. Being registered as a listener of the containers cache,
+	 * it forgets the containers that leave the cluster.
 	 */
-	public class ContainerConverter implements Converter<ChildData, Container> {
+	public class ContainerConverter implements Converter<ChildData, Container>, PathChildrenCacheListener {
+
+		/**
+		 * Decoded containers, keyed by node path.
+		 */
+		private final ConcurrentMap<String, DecodedContainer> decoded = new ConcurrentHashMap<String, DecodedContainer>();
 
 		@Override
 		public Container convert(ChildData source) {
-			// This converter will be invoked upon every iteration of the
-			// iterator returned by getContainerIterator. While elegant,
-			// this isn't exactly efficient. TODO - revisit
-			return new Container(Paths.stripPath(source.getPath()), mapBytesUtility.toMap(source.getData()));
+			long version = source.getStat() == null ? -1 : source.getStat().getMzxid();
+			DecodedContainer entry = decoded.get(source.getPath());
+			if (entry == null || entry.version != version || version == -1) {
+				entry = new DecodedContainer(version, new Container(Paths.stripPath(source.getPath()),
+						mapBytesUtility.toMap(source.getData())));
+				decoded.put(source.getPath(), entry);
+			}
+			return entry.container;
+		}
+
+		@Override
+		public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) {
+			switch (event.getType()) {
+				case CHILD_REMOVED:
+					decoded.remove(event.getData().getPath());
+					break;
+				case CONNECTION_LOST:
+					decoded.clear();
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * A {@link Container} along with the modification zxid of the node it was decoded from.
+	 */
+	private static class DecodedContainer {
+
+		private final long version;
+
+		private final Container container;
+
+		private DecodedContainer(long version, Container container) {
+			this.version = version;
+			this.container = container;
 		}
 	}
 
@@ -309,10 +367,13 @@ public class DeploymentSupervisor implements ContainerRepository, ApplicationLis
 			PathChildrenCacheListener containerListener;
 
 			try {
-				streamListener = new StreamDeploymentListener(DeploymentSupervisor.this,
+				StreamDeploymentListener streamDeploymentListener = new StreamDeploymentListener(
+						DeploymentSupervisor.this,
 						streamDefinitionRepository,
 						moduleDefinitionRepository,
 						moduleOptionsMetadataResolver);
+				streamDeploymentListener.setDeploymentTimeout(deploymentTimeout);
+				streamListener = streamDeploymentListener;
 
 				streams = new PathChildrenCache(client, Paths.STREAMS, true,
 						ThreadUtils.newThreadFactory("StreamDefinitionPathChildrenCache"));
@@ -339,6 +400,7 @@ public class DeploymentSupervisor implements ContainerRepository, ApplicationLis
 				PathChildrenCache containersCache = new PathChildrenCache(client, Paths.CONTAINERS, true,
 						ThreadUtils.newThreadFactory("ContainersPathChildrenCache"));
 				containersCache.getListenable().addListener(containerListener);
+				containersCache.getListenable().addListener(containerConverter);
 				containersCache.start();
 
 				containers.set(containersCache);
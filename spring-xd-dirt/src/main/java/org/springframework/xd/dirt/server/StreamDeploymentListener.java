@@ -16,19 +16,29 @@
 
 package org.springframework.xd.dirt.server;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +66,12 @@ import org.springframework.xd.module.options.ModuleOptionsMetadataResolver;
  */
 public class StreamDeploymentListener implements PathChildrenCacheListener {
 
+	/**
+	 * Key, in the data of a module deployment request, for the index of the module instance; instances of a module
+	 * are numbered from 0.
+	 */
+	public static final String SEQUENCE_KEY = "sequence";
+
 	/**
 	 * Logger.
 	 */
@@ -98,6 +114,11 @@ public class StreamDeploymentListener implements PathChildrenCacheListener {
 		}
 	});
 
+	/**
+	 * Time, in milliseconds, to wait for the containers to acknowledge the deployment of a module.
+	 */
+	private volatile long deploymentTimeout = 10000;
+
 	/**
 	 * Construct a StreamDeploymentListener.
 	 *
@@ -114,6 +135,13 @@ public class StreamDeploymentListener implements PathChildrenCacheListener {
 				moduleOptionsMetadataResolver);
 	}
 
+	/**
+	 * Set the time, in milliseconds, to wait for the containers to acknowledge the deployment of a module.
+	 */
+	public void setDeploymentTimeout(long deploymentTimeout) {
+		this.deploymentTimeout = deploymentTimeout;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p/>
@@ -184,7 +212,10 @@ public class StreamDeploymentListener implements PathChildrenCacheListener {
 	}
 
 	/**
-	 * Issue deployment requests for the modules of the given stream.
+	 * Issue deployment requests for the modules of the given stream. The modules are deployed one after the other,
+	 * starting with the sink, so that each module is deployed before the modules that send messages to it; the
+	 * requests to deploy a module to each of its containers are written in a single transaction, and the
+	 * acknowledgements of the containers are awaited together, as they are notified by ZooKeeper.
 	 *
 	 * @param client curator client
 	 * @param stream stream to be deployed
@@ -192,59 +223,56 @@ public class StreamDeploymentListener implements PathChildrenCacheListener {
 	 * @throws Exception
 	 */
 	private void deployStream(CuratorFramework client, Stream stream) throws Exception {
+		long streamStart = System.currentTimeMillis();
 		for (Iterator<ModuleDescriptor> iterator = stream.getDeploymentOrderIterator(); iterator.hasNext();) {
 			ModuleDescriptor descriptor = iterator.next();
 			String streamName = stream.getName();
 			String moduleType = descriptor.getModuleDefinition().getType().toString();
 			String moduleName = descriptor.getModuleDefinition().getName();
 			String moduleLabel = descriptor.getModuleLabel();
-			Map<Container, String> mapDeploymentStatus = new HashMap<Container, String>();
 
+			long start = System.currentTimeMillis();
 			ModuleDeploymentProperties deploymentProperties =
 					createModuleDeploymentProperties(stream.getDeploymentProperties(), descriptor);
-			for (Container container : containerMatcher.match(descriptor, deploymentProperties, containerRepository)) {
-				String containerName = container.getName();
-				try {
-					client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
-							.setContainer(containerName)
-							.setStreamName(streamName)
-							.setModuleType(moduleType)
-							.setModuleLabel(moduleLabel).build());
-
-					mapDeploymentStatus.put(container, new StreamDeploymentsPath()
-							.setStreamName(streamName)
-							.setModuleType(moduleType)
-							.setModuleLabel(moduleLabel)
-							.setContainer(containerName).build());
-				}
-				catch (KeeperException.NodeExistsException e) {
-					logger.info("Module {} is already deployed to container {}", descriptor, container);
-				}
+			Collection<Container> containers = containerMatcher.match(descriptor, deploymentProperties,
+					containerRepository);
+			long matched = System.currentTimeMillis();
+
+			Map<Container, String> mapRequests = new LinkedHashMap<Container, String>();
+			Map<Container, byte[]> mapRequestData = new HashMap<Container, byte[]>();
+			int sequence = 0;
+			for (Container container : containers) {
+				mapRequests.put(container, new ModuleDeploymentsPath()
+						.setContainer(container.getName())
+						.setStreamName(streamName)
+						.setModuleType(moduleType)
+						.setModuleLabel(moduleLabel).build());
+				mapRequestData.put(container, mapBytesUtility.toByteArray(
+						Collections.singletonMap(SEQUENCE_KEY, String.valueOf(sequence++))));
 			}
-
-			// wait for all deployments to succeed
-			// todo: make timeout configurable
-			long timeout = System.currentTimeMillis() + 10000;
-			do {
-				for (Iterator<Map.Entry<Container, String>> iteratorStatus = mapDeploymentStatus.entrySet().iterator(); iteratorStatus.hasNext();) {
-					Map.Entry<Container, String> entry = iteratorStatus.next();
-					if (client.checkExists().forPath(entry.getValue()) != null) {
-						iteratorStatus.remove();
-					}
-					Thread.sleep(10);
-				}
+			Set<Container> requested = writeDeploymentRequests(client, descriptor, mapRequests, mapRequestData);
+			long written = System.currentTimeMillis();
+
+			DeploymentStatusWatcher watcher = new DeploymentStatusWatcher();
+			for (Container container : requested) {
+				watcher.watch(client, container, new StreamDeploymentsPath()
+						.setStreamName(streamName)
+						.setModuleType(moduleType)
+						.setModuleLabel(moduleLabel)
+						.setContainer(container.getName()).build());
 			}
-			while (!mapDeploymentStatus.isEmpty() && System.currentTimeMillis() < timeout);
-
-			if (!mapDeploymentStatus.isEmpty()) {
+			Set<Container> pending = watcher.await(deploymentTimeout);
+			long acknowledged = System.currentTimeMillis();
+			logger.info("Deployed {} module {} of stream {} to {} of {} containers: matching took {} ms, "
+					+ "requests {} ms, acknowledgements {} ms", moduleType, moduleLabel, streamName,
+					requested.size() - pending.size(), requested.size(), matched - start, written - matched,
+					acknowledged - written);
+
+			if (!pending.isEmpty()) {
 				// clean up failed deployment attempts
-				for (Container container : mapDeploymentStatus.keySet()) {
+				for (Container container : pending) {
 					try {
-						client.delete().forPath(new ModuleDeploymentsPath()
-								.setContainer(container.getName())
-								.setStreamName(streamName)
-								.setModuleType(moduleType)
-								.setModuleLabel(moduleLabel).build());
+						client.delete().forPath(mapRequests.get(container));
 					}
 					catch (KeeperException e) {
 						// ignore
@@ -256,9 +284,53 @@ public class StreamDeploymentListener implements PathChildrenCacheListener {
 				// error in which case the state of deployment is "unknown"
 				throw new IllegalStateException(String.format(
 						"Deployment of %s module %s to the following containers failed: %s",
-						moduleType, moduleName, mapDeploymentStatus.keySet()));
+						moduleType, moduleName, pending));
 			}
 		}
+		logger.info("Deployed stream {} in {} ms", stream.getName(), System.currentTimeMillis() - streamStart);
+	}
+
+	/**
+	 * Write the given deployment requests in a single transaction. Should the module already be deployed to any of
+	 * the containers, the requests are written one by one instead, skipping those.
+	 *
+	 * @param client curator client
+	 * @param descriptor descriptor for the module to deploy
+	 * @param mapRequests the paths of the requests, by container
+	 * @param mapRequestData the data of the requests, by container
+	 * @return the containers the requests were written for
+	 */
+	private Set<Container> writeDeploymentRequests(CuratorFramework client, ModuleDescriptor descriptor,
+			Map<Container, String> mapRequests, Map<Container, byte[]> mapRequestData) throws Exception {
+		if (mapRequests.isEmpty()) {
+			return Collections.emptySet();
+		}
+		CuratorTransaction transaction = client.inTransaction();
+		for (Map.Entry<Container, String> request : mapRequests.entrySet()) {
+			// parent nodes cannot be created as part of the transaction
+			Paths.ensurePath(client, Paths.build(Paths.MODULE_DEPLOYMENTS, request.getKey().getName()));
+			transaction = transaction.create().forPath(request.getValue(), mapRequestData.get(request.getKey()))
+					.and();
+		}
+		try {
+			((CuratorTransactionFinal) transaction).commit();
+			return mapRequests.keySet();
+		}
+		catch (KeeperException.NodeExistsException e) {
+			// the whole transaction was rolled back
+		}
+		Set<Container> requested = new LinkedHashSet<Container>();
+		for (Map.Entry<Container, String> request : mapRequests.entrySet()) {
+			try {
+				client.create().creatingParentsIfNeeded().forPath(request.getValue(),
+						mapRequestData.get(request.getKey()));
+				requested.add(request.getKey());
+			}
+			catch (KeeperException.NodeExistsException e) {
+				logger.info("Module {} is already deployed to container {}", descriptor, request.getKey());
+			}
+		}
+		return requested;
 	}
 
 	/**
@@ -284,6 +356,72 @@ public class StreamDeploymentListener implements PathChildrenCacheListener {
 		return deploymentProperties;
 	}
 
+	/**
+	 * Watcher notified as containers acknowledge the deployment of a module, by writing their node under the
+	 * {@link StreamDeploymentsPath} of the module.
+	 */
+	static class DeploymentStatusWatcher implements CuratorWatcher {
+
+		/**
+		 * Containers that have not yet acknowledged the deployment, by the path they are to write.
+		 */
+		private final Map<String, Container> pending = new HashMap<String, Container>();
+
+		/**
+		 * Start watching for the given acknowledgement.
+		 *
+		 * @param client curator client
+		 * @param container the container expected to deploy the module
+		 * @param path the path the container writes once the module is deployed
+		 */
+		void watch(CuratorFramework client, Container container, String path) throws Exception {
+			synchronized (this) {
+				this.pending.put(path, container);
+			}
+			if (client.checkExists().usingWatcher(this).forPath(path) != null) {
+				acknowledge(path);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void process(WatchedEvent event) {
+			if (event.getType() == Watcher.Event.EventType.NodeCreated) {
+				acknowledge(event.getPath());
+			}
+		}
+
+		private synchronized void acknowledge(String path) {
+			for (Iterator<String> iterator = this.pending.keySet().iterator(); iterator.hasNext();) {
+				// the path of an event is prefixed with the namespace
+				if (path.endsWith(iterator.next())) {
+					iterator.remove();
+				}
+			}
+			if (this.pending.isEmpty()) {
+				notifyAll();
+			}
+		}
+
+		/**
+		 * Wait for all the acknowledgements.
+		 *
+		 * @param timeout the maximum time to wait, in milliseconds
+		 * @return the containers that did not acknowledge the deployment in time
+		 */
+		synchronized Set<Container> await(long timeout) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeout;
+			long remaining = timeout;
+			while (!this.pending.isEmpty() && remaining > 0) {
+				wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+			return new LinkedHashSet<Container>(this.pending.values());
+		}
+	}
+
 	/**
 	 * Callable that handles events from a {@link org.apache.curator.framework.recipes.cache.PathChildrenCache}. This
 	 * allows for the handling of events to be executed in a separate thread from the Curator thread that raises these
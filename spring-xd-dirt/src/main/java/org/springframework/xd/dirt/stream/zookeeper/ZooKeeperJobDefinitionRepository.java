@@ -25,30 +25,41 @@ import java.util.Map;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.BackgroundPathAndBytesable;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.xd.dirt.stream.JobDefinition;
 import org.springframework.xd.dirt.stream.JobDefinitionRepository;
 import org.springframework.xd.dirt.util.MapBytesUtility;
 import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.SortedChildPathCache;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
+ * Job definition repository. Lookups, listings and pages are served from a {@link SortedChildPathCache} of the job
+ * nodes once it is loaded; see that class for the consistency guarantees. A lookup that misses the cache is confirmed
+ * against ZooKeeper.
+ *
  * @author Mark Fisher
  */
 // todo: the JobDefinitionRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository, InitializingBean {
+@ManagedResource
+public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository, InitializingBean, DisposableBean {
 
 	private final Logger LOG = LoggerFactory.getLogger(ZooKeeperJobDefinitionRepository.class);
 
@@ -58,6 +69,9 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
+	private final SortedChildPathCache<JobDefinition> cache = new SortedChildPathCache<JobDefinition>(
+			Paths.JOBS, true, new JobDefinitionConverter());
+
 	@Autowired
 	public ZooKeeperJobDefinitionRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
@@ -66,12 +80,36 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		zkConnection.addListener(connectionListener);
+		zkConnection.addListener(cache);
 		if (zkConnection.isConnected()) {
-			// already connected, invoke the callback directly
+			// already connected, invoke the callbacks directly
 			connectionListener.onConnect(zkConnection.getClient());
+			cache.onConnect(zkConnection.getClient());
 		}
 	}
 
+	@Override
+	public void destroy() {
+		zkConnection.removeListener(cache);
+		cache.close();
+	}
+
+	/**
+	 * @return whether the cached job definitions have been loaded
+	 */
+	@ManagedAttribute(description = "Whether the cached job definitions have been loaded")
+	public boolean isCacheInitialized() {
+		return cache.isInitialized();
+	}
+
+	/**
+	 * @return the time, in milliseconds, since the cached job definitions stopped receiving updates
+	 */
+	@ManagedAttribute(description = "Time, in milliseconds, since the cached job definitions stopped receiving updates")
+	public long getCacheStaleness() {
+		return cache.getStaleness();
+	}
+
 	@Override
 	public Iterable<JobDefinition> findAll(Sort sort) {
 		// todo: this ignores the Sort
@@ -82,6 +120,12 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public Page<JobDefinition> findAll(Pageable pageable) {
+		if (cache.isInitialized()) {
+			int total = cache.size();
+			List<JobDefinition> page = cache.getPage(pageable.getOffset(), pageable.getPageSize());
+			return total == 0 ? new PageImpl<JobDefinition>(page)
+					: new PageImpl<JobDefinition>(page, pageable, total);
+		}
 		List<JobDefinition> all = findAll();
 		if (CollectionUtils.isEmpty(all)) {
 			return new PageImpl<JobDefinition>(all);
@@ -121,6 +165,7 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 					? client.create() : client.setData();
 
 			op.forPath(path, binary);
+			cache.put(entity.getName(), new JobDefinition(entity.getName(), entity.getDefinition()));
 
 			LOG.info("Saved job {} with properties {}", path, map);
 		}
@@ -136,6 +181,10 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public JobDefinition findOne(String id) {
+		JobDefinition definition = cache.get(id);
+		if (definition != null) {
+			return definition;
+		}
 		try {
 			byte[] bytes = zkConnection.getClient().getData().forPath(Paths.build(Paths.JOBS, id));
 			if (bytes == null) {
@@ -154,6 +203,9 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public boolean exists(String id) {
+		if (cache.get(id) != null) {
+			return true;
+		}
 		try {
 			return (null != zkConnection.getClient().checkExists().forPath(Paths.build(Paths.JOBS, id)));
 		}
@@ -164,6 +216,9 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public List<JobDefinition> findAll() {
+		if (cache.isInitialized()) {
+			return cache.getAll();
+		}
 		try {
 			return this.findAll(zkConnection.getClient().getChildren().forPath(Paths.JOBS));
 		}
@@ -183,6 +238,9 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public long count() {
+		if (cache.isInitialized()) {
+			return cache.size();
+		}
 		try {
 			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.JOBS);
 			return stat == null ? 0 : stat.getNumChildren();
@@ -203,6 +261,7 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+		cache.remove(id);
 	}
 
 	@Override
@@ -233,6 +292,9 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public Iterable<JobDefinition> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
+		if (cache.isInitialized()) {
+			return cache.getRange(from, fromInclusive, to, toInclusive);
+		}
 		List<JobDefinition> all = findAll();
 		if (CollectionUtils.isEmpty(all)) {
 			return Collections.emptyList();
@@ -252,4 +314,20 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 		return results;
 	}
 
+	/**
+	 * Converter from the node of a job to its {@link JobDefinition}.
+	 */
+	private class JobDefinitionConverter implements Converter<ChildData, JobDefinition> {
+
+		@Override
+		public JobDefinition convert(ChildData source) {
+			byte[] data = source.getData();
+			if (data == null || data.length == 0) {
+				return null;
+			}
+			Map<String, String> map = mapBytesUtility.toMap(data);
+			return new JobDefinition(Paths.stripPath(source.getPath()), map.get("definition"));
+		}
+	}
+
 }
@@ -24,30 +24,41 @@ import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.Stat;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.xd.dirt.stream.Job;
 import org.springframework.xd.dirt.stream.JobDefinition;
 import org.springframework.xd.dirt.stream.JobRepository;
 import org.springframework.xd.dirt.util.MapBytesUtility;
 import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.SortedChildPathCache;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
  * Job instance repository. It should only return values for Jobs that are deployed.
+ * <p/>
+ * Lookups, listings and pages are served from a {@link SortedChildPathCache} of the job deployment nodes once it is
+ * loaded; see that class for the consistency guarantees. A lookup that misses the cache is confirmed against
+ * ZooKeeper.
  *
  * @author Mark Fisher
  */
 // todo: the JobRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
+@ManagedResource
+public class ZooKeeperJobRepository implements JobRepository, InitializingBean, DisposableBean {
 
 	private final ZooKeeperConnection zkConnection;
 
@@ -55,6 +66,9 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
+	private final SortedChildPathCache<Job> cache = new SortedChildPathCache<Job>(Paths.JOB_DEPLOYMENTS, false,
+			new JobConverter());
+
 	@Autowired
 	public ZooKeeperJobRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
@@ -63,12 +77,36 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		zkConnection.addListener(connectionListener);
+		zkConnection.addListener(cache);
 		if (zkConnection.isConnected()) {
-			// already connected, invoke the callback directly
+			// already connected, invoke the callbacks directly
 			connectionListener.onConnect(zkConnection.getClient());
+			cache.onConnect(zkConnection.getClient());
 		}
 	}
 
+	@Override
+	public void destroy() {
+		zkConnection.removeListener(cache);
+		cache.close();
+	}
+
+	/**
+	 * @return whether the cached job deployments have been loaded
+	 */
+	@ManagedAttribute(description = "Whether the cached job deployments have been loaded")
+	public boolean isCacheInitialized() {
+		return cache.isInitialized();
+	}
+
+	/**
+	 * @return the time, in milliseconds, since the cached job deployments stopped receiving updates
+	 */
+	@ManagedAttribute(description = "Time, in milliseconds, since the cached job deployments stopped receiving updates")
+	public long getCacheStaleness() {
+		return cache.getStaleness();
+	}
+
 	@Override
 	public Iterable<Job> findAll(Sort sort) {
 		// todo: implement sort support
@@ -77,6 +115,11 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public Page<Job> findAll(Pageable pageable) {
+		if (cache.isInitialized()) {
+			int total = cache.size();
+			List<Job> page = cache.getPage(pageable.getOffset(), pageable.getPageSize());
+			return total == 0 ? new PageImpl<Job>(page) : new PageImpl<Job>(page, pageable, total);
+		}
 		List<Job> all = findAll();
 		if (CollectionUtils.isEmpty(all)) {
 			return new PageImpl<Job>(all);
@@ -96,7 +139,9 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public <S extends Job> S save(S entity) {
-		// job instances are "saved" when a JobDeploymentListener deploys a job
+		// job instances are "saved" when a JobDeploymentListener deploys a job; the deployer
+		// has already written the deployment node, so make it visible to subsequent reads
+		cache.put(entity.getDefinition().getName(), entity);
 		return entity;
 	}
 
@@ -108,6 +153,10 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public Job findOne(String id) {
+		Job cached = cache.get(id);
+		if (cached != null) {
+			return cached;
+		}
 		CuratorFramework client = zkConnection.getClient();
 		String path = Paths.build(Paths.JOBS, id);
 		try {
@@ -137,6 +186,9 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public List<Job> findAll() {
+		if (cache.isInitialized()) {
+			return cache.getAll();
+		}
 		try {
 			return findAll(zkConnection.getClient().getChildren().forPath(Paths.JOBS));
 		}
@@ -164,6 +216,9 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public long count() {
+		if (cache.isInitialized()) {
+			return cache.size();
+		}
 		try {
 			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.JOB_DEPLOYMENTS);
 			return stat != null ? stat.getNumChildren() : 0;
@@ -184,6 +239,7 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+		cache.remove(id);
 	}
 
 	@Override
@@ -216,6 +272,9 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public Iterable<Job> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
+		if (cache.isInitialized()) {
+			return cache.getRange(from, fromInclusive, to, toInclusive);
+		}
 		List<Job> all = findAll();
 		if (CollectionUtils.isEmpty(all)) {
 			return Collections.emptyList();
@@ -235,4 +294,29 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 		return results;
 	}
 
+	/**
+	 * Converter from the deployment node of a job to the job instance, for which the definition is read from
+	 * ZooKeeper; deployments whose definition no longer exists are skipped.
+	 */
+	private class JobConverter implements Converter<ChildData, Job> {
+
+		@Override
+		public Job convert(ChildData source) {
+			String name = Paths.stripPath(source.getPath());
+			try {
+				byte[] data = zkConnection.getClient().getData().forPath(Paths.build(Paths.JOBS, name));
+				Map<String, String> map = mapBytesUtility.toMap(data);
+				Job job = new Job(new JobDefinition(name, map.get("definition")));
+				job.setStartedAt(new Date(source.getStat().getCtime()));
+				return job;
+			}
+			catch (KeeperException.NoNodeException e) {
+				return null;
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 }
@@ -24,18 +24,23 @@ import java.util.Map;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.BackgroundPathAndBytesable;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.util.CollectionUtils;
 import org.springframework.xd.dirt.module.ModuleDependencyRepository;
 import org.springframework.xd.dirt.stream.StreamDefinition;
@@ -43,14 +48,21 @@ import org.springframework.xd.dirt.stream.StreamDefinitionRepository;
 import org.springframework.xd.dirt.stream.StreamDefinitionRepositoryUtils;
 import org.springframework.xd.dirt.util.MapBytesUtility;
 import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.SortedChildPathCache;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
+ * Stream definition repository. Lookups, listings and pages are served from a {@link SortedChildPathCache} of the
+ * stream nodes once it is loaded; see that class for the consistency guarantees. A lookup that misses the cache is
+ * confirmed against ZooKeeper.
+ *
  * @author Mark Fisher
  */
 // todo: the StreamDefinitionRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepository, InitializingBean {
+@ManagedResource
+public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepository, InitializingBean,
+		DisposableBean {
 
 	private final Logger LOG = LoggerFactory.getLogger(ZooKeeperStreamDefinitionRepository.class);
 
@@ -62,6 +74,9 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
+	private final SortedChildPathCache<StreamDefinition> cache = new SortedChildPathCache<StreamDefinition>(
+			Paths.STREAMS, true, new StreamDefinitionConverter());
+
 	@Autowired
 	public ZooKeeperStreamDefinitionRepository(ZooKeeperConnection zkConnection,
 			ModuleDependencyRepository moduleDependencyRepository) {
@@ -72,12 +87,36 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		zkConnection.addListener(connectionListener);
+		zkConnection.addListener(cache);
 		if (zkConnection.isConnected()) {
-			// already connected, invoke the callback directly
+			// already connected, invoke the callbacks directly
 			connectionListener.onConnect(zkConnection.getClient());
+			cache.onConnect(zkConnection.getClient());
 		}
 	}
 
+	@Override
+	public void destroy() {
+		zkConnection.removeListener(cache);
+		cache.close();
+	}
+
+	/**
+	 * @return whether the cached stream definitions have been loaded
+	 */
+	@ManagedAttribute(description = "Whether the cached stream definitions have been loaded")
+	public boolean isCacheInitialized() {
+		return cache.isInitialized();
+	}
+
+	/**
+	 * @return the time, in milliseconds, since the cached stream definitions stopped receiving updates
+	 */
+	@ManagedAttribute(description = "Time, in milliseconds, since the cached stream definitions stopped receiving updates")
+	public long getCacheStaleness() {
+		return cache.getStaleness();
+	}
+
 	@Override
 	public Iterable<StreamDefinition> findAll(Sort sort) {
 		throw new UnsupportedOperationException("Auto-generated method stub");
@@ -85,6 +124,12 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public Page<StreamDefinition> findAll(Pageable pageable) {
+		if (cache.isInitialized()) {
+			int total = cache.size();
+			List<StreamDefinition> page = cache.getPage(pageable.getOffset(), pageable.getPageSize());
+			return total == 0 ? new PageImpl<StreamDefinition>(page)
+					: new PageImpl<StreamDefinition>(page, pageable, total);
+		}
 		List<StreamDefinition> all = findAll();
 		if (CollectionUtils.isEmpty(all)) {
 			return new PageImpl<StreamDefinition>(all);
@@ -125,6 +170,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 					? client.create() : client.setData();
 
 			op.forPath(path, binary);
+			cache.put(entity.getName(), new StreamDefinition(entity.getName(), entity.getDefinition()));
 
 			LOG.trace("Saved stream {} with properties {}", path, map);
 
@@ -142,6 +188,10 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public StreamDefinition findOne(String id) {
+		StreamDefinition definition = cache.get(id);
+		if (definition != null) {
+			return definition;
+		}
 		try {
 			byte[] bytes = zkConnection.getClient().getData().forPath(Paths.build(Paths.STREAMS, id));
 			if (bytes == null) {
@@ -160,6 +210,9 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public boolean exists(String id) {
+		if (cache.get(id) != null) {
+			return true;
+		}
 		try {
 			return (null != zkConnection.getClient().checkExists().forPath(Paths.build(Paths.STREAMS, id)));
 		}
@@ -170,6 +223,9 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public List<StreamDefinition> findAll() {
+		if (cache.isInitialized()) {
+			return cache.getAll();
+		}
 		try {
 			return this.findAll(zkConnection.getClient().getChildren().forPath(Paths.STREAMS));
 		}
@@ -192,6 +248,9 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public long count() {
+		if (cache.isInitialized()) {
+			return cache.size();
+		}
 		try {
 			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.STREAMS);
 			return stat == null ? 0 : stat.getNumChildren();
@@ -214,6 +273,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+		cache.remove(id);
 	}
 
 	@Override
@@ -248,4 +308,20 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 		throw new UnsupportedOperationException("Auto-generated method stub");
 	}
 
+	/**
+	 * Converter from the node of a stream to its {@link StreamDefinition}.
+	 */
+	private class StreamDefinitionConverter implements Converter<ChildData, StreamDefinition> {
+
+		@Override
+		public StreamDefinition convert(ChildData source) {
+			byte[] data = source.getData();
+			if (data == null || data.length == 0) {
+				return null;
+			}
+			Map<String, String> map = mapBytesUtility.toMap(data);
+			return new StreamDefinition(Paths.stripPath(source.getPath()), map.get("definition"));
+		}
+	}
+
 }
@@ -28,17 +28,22 @@ import java.util.TreeMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.util.Assert;
 import org.springframework.xd.dirt.core.StreamDeploymentsPath;
 import org.springframework.xd.dirt.stream.Stream;
@@ -46,17 +51,23 @@ import org.springframework.xd.dirt.stream.StreamDefinition;
 import org.springframework.xd.dirt.stream.StreamRepository;
 import org.springframework.xd.dirt.util.MapBytesUtility;
 import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.SortedChildPathCache;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 import org.springframework.xd.module.ModuleType;
 
 /**
  * Stream instance repository. It should only return values for Streams that are deployed.
+ * <p/>
+ * Lookups, listings and pages are served from a {@link SortedChildPathCache} of the stream deployment nodes once it is
+ * loaded; see that class for the consistency guarantees. A lookup that misses the cache is confirmed against
+ * ZooKeeper.
  *
  * @author Mark Fisher
  */
 // todo: the StreamRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperStreamRepository implements StreamRepository, InitializingBean {
+@ManagedResource
+public class ZooKeeperStreamRepository implements StreamRepository, InitializingBean, DisposableBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(ZooKeeperStreamRepository.class);
 
@@ -66,6 +77,9 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
+	private final SortedChildPathCache<Stream> cache = new SortedChildPathCache<Stream>(Paths.STREAM_DEPLOYMENTS, false,
+			new StreamConverter());
+
 	@Autowired
 	public ZooKeeperStreamRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
@@ -74,12 +88,36 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		zkConnection.addListener(connectionListener);
+		zkConnection.addListener(cache);
 		if (zkConnection.isConnected()) {
-			// already connected, invoke the callback directly
+			// already connected, invoke the callbacks directly
 			connectionListener.onConnect(zkConnection.getClient());
+			cache.onConnect(zkConnection.getClient());
 		}
 	}
 
+	@Override
+	public void destroy() {
+		zkConnection.removeListener(cache);
+		cache.close();
+	}
+
+	/**
+	 * @return whether the cached stream deployments have been loaded
+	 */
+	@ManagedAttribute(description = "Whether the cached stream deployments have been loaded")
+	public boolean isCacheInitialized() {
+		return cache.isInitialized();
+	}
+
+	/**
+	 * @return the time, in milliseconds, since the cached stream deployments stopped receiving updates
+	 */
+	@ManagedAttribute(description = "Time, in milliseconds, since the cached stream deployments stopped receiving updates")
+	public long getCacheStaleness() {
+		return cache.getStaleness();
+	}
+
 	@Override
 	public Iterable<Stream> findAll(Sort sort) {
 		// todo: implement sort support
@@ -88,6 +126,11 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public Page<Stream> findAll(Pageable pageable) {
+		if (cache.isInitialized()) {
+			int total = cache.size();
+			List<Stream> page = cache.getPage(pageable.getOffset(), pageable.getPageSize());
+			return total == 0 ? new PageImpl<Stream>(page) : new PageImpl<Stream>(page, pageable, total);
+		}
 		List<Stream> all = findAll();
 		if (CollectionUtils.isEmpty(all)) {
 			return new PageImpl<Stream>(all);
@@ -107,7 +150,9 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public <S extends Stream> S save(S entity) {
-		// stream instances are "saved" when a StreamDeploymentListener deploys a stream
+		// stream instances are "saved" when a StreamDeploymentListener deploys a stream; the deployer
+		// has already written the deployment node, so make it visible to subsequent reads
+		cache.put(entity.getDefinition().getName(), entity);
 		return entity;
 	}
 
@@ -119,6 +164,10 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public Stream findOne(String id) {
+		Stream cached = cache.get(id);
+		if (cached != null) {
+			return cached;
+		}
 		CuratorFramework client = zkConnection.getClient();
 		String path = Paths.build(Paths.STREAMS, id);
 		try {
@@ -148,6 +197,9 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public List<Stream> findAll() {
+		if (cache.isInitialized()) {
+			return cache.getAll();
+		}
 		try {
 			return findAll(zkConnection.getClient().getChildren().forPath(Paths.STREAM_DEPLOYMENTS));
 		}
@@ -175,6 +227,9 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public long count() {
+		if (cache.isInitialized()) {
+			return cache.size();
+		}
 		try {
 			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.STREAM_DEPLOYMENTS);
 			return stat != null ? stat.getNumChildren() : 0;
@@ -260,6 +315,7 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+		cache.remove(id);
 	}
 
 	@Override
@@ -293,6 +349,9 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public Iterable<Stream> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
+		if (cache.isInitialized()) {
+			return cache.getRange(from, fromInclusive, to, toInclusive);
+		}
 		List<Stream> all = findAll();
 		if (CollectionUtils.isEmpty(all)) {
 			return Collections.emptyList();
@@ -312,4 +371,29 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 		return results;
 	}
 
+	/**
+	 * Converter from the deployment node of a stream to the stream instance, for which the definition is read from
+	 * ZooKeeper; deployments whose definition no longer exists are skipped.
+	 */
+	private class StreamConverter implements Converter<ChildData, Stream> {
+
+		@Override
+		public Stream convert(ChildData source) {
+			String name = Paths.stripPath(source.getPath());
+			try {
+				byte[] data = zkConnection.getClient().getData().forPath(Paths.build(Paths.STREAMS, name));
+				Map<String, String> map = mapBytesUtility.toMap(data);
+				Stream stream = new Stream(new StreamDefinition(name, map.get("definition")));
+				stream.setStartedAt(new Date(source.getStat().getCtime()));
+				return stream;
+			}
+			catch (KeeperException.NoNodeException e) {
+				return null;
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 }
@@ -64,6 +64,12 @@ public class Paths {
 	 */
 	public static final String JOBS = "jobs";
 
+	/**
+	 * Name of taps node. Subscriptions to the tap of a module are written as
+	 * children of the tap's node.
+	 */
+	public static final String TAPS = "taps";
+
 	/**
 	 * Name of deployments node. Deployments are written as children of this node.
 	 */
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.zookeeper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.utils.ThreadUtils;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.util.Assert;
+
+/**
+ * Local view of the children of a ZooKeeper path, sorted by name, that is kept up to date by a
+ * {@link PathChildrenCache}. The data of each child is converted into a domain object when it is received, so that
+ * lookups, listings and pages can be served without any ZooKeeper operation.
+ * <p/>
+ * Consistency guarantees:
+ * <ul>
+ * <li>until the initial load of the children completes, {@link #isInitialized()} returns false; callers are expected
+ * to read from ZooKeeper directly in the meantime</li>
+ * <li>changes made by other processes are visible once their watch events are delivered; the view is eventually
+ * consistent with ZooKeeper, and the changes of a given child are applied in order</li>
+ * <li>changes made by this process are visible to subsequent reads as soon as they are applied with {@link #put} and
+ * {@link #remove} after the corresponding ZooKeeper operation succeeds; watch events for earlier versions of a child,
+ * as identified by their zxid, are not applied over them</li>
+ * <li>while the connection is suspended or lost, the view keeps serving the last known state; its age is reported by
+ * {@link #getStaleness()}, and it is refreshed once the connection is re-established</li>
+ * </ul>
+ *
+ * @param <T> the domain class type of the children
+ * @since 1.0
+ */
+public class SortedChildPathCache<T> implements ZooKeeperConnectionListener {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(SortedChildPathCache.class);
+
+	/**
+	 * Path whose children are cached.
+	 */
+	private final String path;
+
+	/**
+	 * Whether the data of the children is needed by {@link #converter}.
+	 */
+	private final boolean cacheData;
+
+	/**
+	 * Converter from {@link ChildData} to domain class type {@link T}; may return null to skip a child.
+	 */
+	private final Converter<ChildData, T> converter;
+
+	/**
+	 * Domain objects, keyed and sorted by child name.
+	 */
+	private final ConcurrentNavigableMap<String, Entry<T>> children = new ConcurrentSkipListMap<String, Entry<T>>();
+
+	/**
+	 * The zxids of the children removed by this process, for which the removal event has not yet been received.
+	 */
+	private final Map<String, Long> removed = new HashMap<String, Long>();
+
+	/**
+	 * Listener that applies the events of {@link #cache} to {@link #children}.
+	 */
+	private final PathChildrenCacheListener cacheListener = new CacheListener();
+
+	/**
+	 * Curator cache for the children; replaced whenever a new client connects.
+	 */
+	private PathChildrenCache cache;
+
+	/**
+	 * The client {@link #cache} was started with.
+	 */
+	private volatile CuratorFramework client;
+
+	/**
+	 * Whether the initial load of the children has completed.
+	 */
+	private volatile boolean initialized;
+
+	/**
+	 * Time at which the last event was applied.
+	 */
+	private volatile long lastUpdated;
+
+	/**
+	 * Time at which the connection was suspended or lost, or 0 while connected.
+	 */
+	private volatile long disconnectedAt;
+
+	/**
+	 * Construct a SortedChildPathCache.
+	 *
+	 * @param path path whose children are cached
+	 * @param cacheData whether the converter needs the data of the children, or only their {@code Stat}
+	 * @param converter converter from node data to domain object
+	 */
+	public SortedChildPathCache(String path, boolean cacheData, Converter<ChildData, T> converter) {
+		Assert.hasText(path, "'path' cannot be empty");
+		Assert.notNull(converter, "'converter' cannot be null");
+		this.path = path;
+		this.cacheData = cacheData;
+		this.converter = converter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * Start caching the children with the given client, unless already doing so; on reconnection, the Curator cache
+	 * refreshes itself.
+	 */
+	@Override
+	public synchronized void onConnect(CuratorFramework client) {
+		this.disconnectedAt = 0;
+		if (this.cache != null && this.client == client) {
+			return;
+		}
+		close();
+		this.client = client;
+		this.cache = new PathChildrenCache(client, this.path, this.cacheData,
+				ThreadUtils.newThreadFactory("SortedChildPathCache-" + this.path));
+		this.cache.getListenable().addListener(this.cacheListener);
+		try {
+			this.cache.start(PathChildrenCache.StartMode.POST_INITIALIZED_EVENT);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onDisconnect(CuratorFramework client) {
+		if (this.disconnectedAt == 0) {
+			this.disconnectedAt = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Stop caching the children, and clear the view.
+	 */
+	public synchronized void close() {
+		if (this.cache != null) {
+			try {
+				this.cache.close();
+			}
+			catch (Exception e) {
+				logger.warn("Exception closing cache for " + this.path, e);
+			}
+			this.cache = null;
+			this.client = null;
+		}
+		this.initialized = false;
+		this.children.clear();
+		this.removed.clear();
+	}
+
+	/**
+	 * @return whether the initial load of the children has completed
+	 */
+	public boolean isInitialized() {
+		return this.initialized;
+	}
+
+	/**
+	 * @return the time, in milliseconds, since the connection was suspended or lost, or 0 while connected
+	 */
+	public long getStaleness() {
+		long disconnected = this.disconnectedAt;
+		return disconnected == 0 ? 0 : System.currentTimeMillis() - disconnected;
+	}
+
+	/**
+	 * @return the time at which the last change was applied, or 0 if none was
+	 */
+	public long getLastUpdated() {
+		return this.lastUpdated;
+	}
+
+	/**
+	 * Return the domain object for the given child.
+	 *
+	 * @param name the child name
+	 * @return the domain object, or null if there is no such child
+	 */
+	public T get(String name) {
+		Entry<T> entry = this.children.get(name);
+		return entry == null ? null : entry.value;
+	}
+
+	/**
+	 * @return the number of children
+	 */
+	public int size() {
+		return this.children.size();
+	}
+
+	/**
+	 * @return the domain objects of all the children, sorted by name
+	 */
+	public List<T> getAll() {
+		return values(this.children.values(), 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Return the domain objects of the children whose names are within the given range, sorted by name.
+	 *
+	 * @param from the lowest name, or null to start from the first child
+	 * @param fromInclusive whether a child named {@code from} is included
+	 * @param to the highest name, or null to end with the last child
+	 * @param toInclusive whether a child named {@code to} is included
+	 * @return the domain objects
+	 */
+	public List<T> getRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
+		ConcurrentNavigableMap<String, Entry<T>> range = this.children;
+		if (from != null) {
+			range = range.tailMap(from, fromInclusive);
+		}
+		if (to != null) {
+			range = range.headMap(to, toInclusive);
+		}
+		return values(range.values(), 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Return a page of the domain objects, sorted by name.
+	 *
+	 * @param offset the index of the first domain object
+	 * @param size the maximum number of domain objects
+	 * @return the domain objects
+	 */
+	public List<T> getPage(int offset, int size) {
+		return values(this.children.values(), offset, size);
+	}
+
+	/**
+	 * Apply a child creation or update that this process has written to ZooKeeper. The version of the child is read
+	 * back, so that the watch events for earlier versions, which may still be in flight, are not applied over it.
+	 *
+	 * @param name the child name
+	 * @param value the domain object
+	 */
+	public synchronized void put(String name, T value) {
+		long mzxid = 0;
+		if (this.client != null) {
+			try {
+				Stat stat = this.client.checkExists().forPath(Paths.build(this.path, name));
+				if (stat == null) {
+					// removed since
+					return;
+				}
+				mzxid = stat.getMzxid();
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		this.children.put(name, new Entry<T>(value, mzxid));
+	}
+
+	/**
+	 * Apply a child removal that this process has written to ZooKeeper. Until the corresponding watch event is
+	 * received, the events for the removed version of the child are ignored.
+	 *
+	 * @param name the child name
+	 */
+	public synchronized void remove(String name) {
+		Entry<T> entry = this.children.remove(name);
+		if (entry != null) {
+			this.removed.put(name, entry.mzxid);
+		}
+	}
+
+	/**
+	 * Apply the addition or update of a child raised by the {@link PathChildrenCache}, unless this process has
+	 * already applied a later version of it.
+	 */
+	private synchronized void applyUpdate(ChildData data) {
+		String name = Paths.stripPath(data.getPath());
+		long mzxid = data.getStat().getMzxid();
+		Entry<T> entry = this.children.get(name);
+		Long removedMzxid = this.removed.get(name);
+		if ((entry != null && entry.mzxid > mzxid) || (removedMzxid != null && removedMzxid >= mzxid)) {
+			return;
+		}
+		this.removed.remove(name);
+		T value = this.converter.convert(data);
+		if (value == null) {
+			this.children.remove(name);
+		}
+		else {
+			this.children.put(name, new Entry<T>(value, mzxid));
+		}
+	}
+
+	/**
+	 * Apply the removal of a child raised by the {@link PathChildrenCache}, unless this process has already applied
+	 * the creation of a later version of it.
+	 */
+	private synchronized void applyRemoval(ChildData data) {
+		String name = Paths.stripPath(data.getPath());
+		this.removed.remove(name);
+		Entry<T> entry = this.children.get(name);
+		if (entry != null && entry.mzxid <= data.getStat().getMzxid()) {
+			this.children.remove(name);
+		}
+	}
+
+	private static <T> List<T> values(Collection<Entry<T>> entries, int offset, int size) {
+		List<T> values = new ArrayList<T>(Math.min(entries.size(), size));
+		int i = 0;
+		for (Entry<T> entry : entries) {
+			if (values.size() == size) {
+				break;
+			}
+			if (i++ >= offset) {
+				values.add(entry.value);
+			}
+		}
+		return values;
+	}
+
+
+	/**
+	 * Domain object of a child, along with the zxid of the change that produced it.
+	 */
+	private static class Entry<T> {
+
+		private final T value;
+
+		private final long mzxid;
+
+		Entry(T value, long mzxid) {
+			this.value = value;
+			this.mzxid = mzxid;
+		}
+	}
+
+
+	/**
+	 * Listener that applies the events raised by the {@link PathChildrenCache}.
+	 */
+	private class CacheListener implements PathChildrenCacheListener {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) throws Exception {
+			switch (event.getType()) {
+				case CHILD_ADDED:
+				case CHILD_UPDATED:
+					applyUpdate(event.getData());
+					break;
+				case CHILD_REMOVED:
+					applyRemoval(event.getData());
+					break;
+				case INITIALIZED:
+					initialized = true;
+					logger.debug("Loaded {} children of {}", children.size(), path);
+					break;
+				default:
+					// connection events are reported through onConnect/onDisconnect
+					return;
+			}
+			lastUpdated = System.currentTimeMillis();
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.cluster;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.StopWatch;
+import org.springframework.xd.dirt.core.ModuleDeploymentProperties;
+import org.springframework.xd.dirt.module.ModuleDescriptor;
+import org.springframework.xd.module.ModuleDefinition;
+import org.springframework.xd.module.ModuleType;
+
+/**
+ * Matches modules against 1,000 containers, as happens when a failed container's modules are redeployed, and checks
+ * that concurrent matches agree.
+ *
+ * @since 1.0
+ */
+public class DefaultContainerMatcherBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(DefaultContainerMatcherBenchmarkTests.class);
+
+	private static final int CONTAINERS = 1000;
+
+	private static final int MATCHES = 500;
+
+	private final DefaultContainerMatcher containerMatcher = new DefaultContainerMatcher();
+
+	private final List<Container> containers = new ArrayList<Container>();
+
+	private final ContainerRepository containerRepository = new ContainerRepository() {
+
+		@Override
+		public Iterator<Container> getContainerIterator() {
+			return containers.iterator();
+		}
+	};
+
+	private ModuleDescriptor moduleDescriptor;
+
+	@Before
+	public void setUp() {
+		moduleDescriptor = new ModuleDescriptor.Builder()
+				.setModuleDefinition(new ModuleDefinition("foo", ModuleType.processor))
+				.setGroup("test1")
+				.setModuleLabel("amodule")
+				.setIndex(0)
+				.build();
+		for (int i = 0; i < CONTAINERS; i++) {
+			Map<String, String> attributes = new HashMap<String, String>();
+			attributes.put("group", "group" + (i % 10));
+			attributes.put("color", i % 2 == 0 ? "green" : "blue");
+			containers.add(new Container("container" + i, attributes));
+		}
+	}
+
+	@Test
+	public void matchManyModules() {
+		ModuleDeploymentProperties deploymentProperties = new ModuleDeploymentProperties();
+		deploymentProperties.setCount(0);
+		StopWatch stopWatch = new StopWatch("DefaultContainerMatcher");
+		stopWatch.start(MATCHES + " matches against " + CONTAINERS + " containers");
+		for (int i = 0; i < MATCHES; i++) {
+			deploymentProperties.setCriteria("group=='group" + (2 * (i % 5)) + "' and color=='green'");
+			assertEquals(CONTAINERS / 10, containerMatcher.match(moduleDescriptor, deploymentProperties,
+					containerRepository).size());
+		}
+		stopWatch.stop();
+		logger.info(stopWatch.prettyPrint());
+	}
+
+	@Test
+	public void concurrentMatches() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < 64; i++) {
+				final String criteria = i % 2 == 0 ? "color=='green'" : "group=='group3'";
+				futures.add(executor.submit(new Callable<Integer>() {
+
+					@Override
+					public Integer call() {
+						ModuleDeploymentProperties deploymentProperties = new ModuleDeploymentProperties();
+						deploymentProperties.setCount(0);
+						deploymentProperties.setCriteria(criteria);
+						return containerMatcher.match(moduleDescriptor, deploymentProperties,
+								containerRepository).size();
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				int expected = i % 2 == 0 ? CONTAINERS / 2 : CONTAINERS / 10;
+				assertEquals(expected, futures.get(i).get().intValue());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -22,6 +22,7 @@ import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -249,4 +250,23 @@ public class DefaultContainerMatcherTests {
 				containerRepository);
 		assertEquals(0, matched.size());
 	}
+
+	@Test
+	public void matchWithCriteriaAfterContainerChange() {
+		deploymentProperties.setCount(0);
+		deploymentProperties.setCriteria("color=='blue'");
+		final List<Container> current = new ArrayList<Container>();
+		current.add(new Container("container1", Collections.singletonMap("color", "green")));
+		ContainerRepository repository = new ContainerRepository() {
+
+			@Override
+			public Iterator<Container> getContainerIterator() {
+				return current.iterator();
+			}
+		};
+		assertEquals(0, containerMatcher.match(moduleDescriptor, deploymentProperties, repository).size());
+
+		current.set(0, new Container("container1", Collections.singletonMap("color", "blue")));
+		assertEquals(1, containerMatcher.match(moduleDescriptor, deploymentProperties, repository).size());
+	}
 }
@@ -113,6 +113,38 @@ public abstract class AbstractMessageBusTests {
 		messageBus.unbindConsumers("bar.0");
 	}
 
+	@Test
+	public void testPartitionedSendAndReceive() throws Exception {
+		MessageBus messageBus = getMessageBus();
+		DirectChannel moduleOutputChannel = new DirectChannel();
+		QueueChannel partition0InputChannel = new QueueChannel();
+		QueueChannel partition1InputChannel = new QueueChannel();
+		messageBus.bindPartitionedProducer("part.0", moduleOutputChannel, "headers['key']", 2);
+		messageBus.bindPartitionedConsumer("part.0", partition0InputChannel, 0);
+		messageBus.bindPartitionedConsumer("part.0", partition1InputChannel, 1);
+		Collection<?> bindings = getBindings(messageBus);
+		assertEquals(5, bindings.size());
+
+		// the hash codes of 0 and 1 are themselves
+		moduleOutputChannel.send(MessageBuilder.withPayload("a").setHeader("key", 1).build());
+		moduleOutputChannel.send(MessageBuilder.withPayload("b").setHeader("key", 0).build());
+		moduleOutputChannel.send(MessageBuilder.withPayload("c").setHeader("key", 3).build());
+		Message<?> inbound = partition1InputChannel.receive(5000);
+		assertNotNull(inbound);
+		assertEquals("a", inbound.getPayload());
+		inbound = partition1InputChannel.receive(5000);
+		assertNotNull(inbound);
+		assertEquals("c", inbound.getPayload());
+		inbound = partition0InputChannel.receive(5000);
+		assertNotNull(inbound);
+		assertEquals("b", inbound.getPayload());
+
+		messageBus.unbindProducer("part.0", moduleOutputChannel);
+		messageBus.unbindConsumer("part.0", partition0InputChannel);
+		messageBus.unbindConsumer("part.0", partition1InputChannel);
+		assertTrue(bindings.isEmpty());
+	}
+
 	@Test
 	public void testSendAndReceivePubSub() throws Exception {
 		MessageBus messageBus = getMessageBus();
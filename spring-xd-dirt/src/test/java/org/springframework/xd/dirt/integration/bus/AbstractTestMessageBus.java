@@ -65,6 +65,21 @@ public abstract class AbstractTestMessageBus implements MessageBus {
 		addTopic(name);
 	}
 
+	@Override
+	public void bindPartitionedProducer(String name, MessageChannel moduleOutputChannel,
+			String partitionKeyExpression, int partitionCount) {
+		messageBus.bindPartitionedProducer(name, moduleOutputChannel, partitionKeyExpression, partitionCount);
+		for (int i = 0; i < partitionCount; i++) {
+			queues.add(messageBus.partitionName(name, i));
+		}
+	}
+
+	@Override
+	public void bindPartitionedConsumer(String name, MessageChannel moduleInputChannel, int partitionIndex) {
+		messageBus.bindPartitionedConsumer(name, moduleInputChannel, partitionIndex);
+		queues.add(messageBus.partitionName(name, partitionIndex));
+	}
+
 	@Override
 	public void bindRequestor(String name, MessageChannel requests, MessageChannel replies) {
 		messageBus.bindRequestor(name, requests, replies);
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.http.MediaType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.util.StopWatch;
+import org.springframework.xd.dirt.integration.bus.MessageBusSupportTests.Foo;
+import org.springframework.xd.dirt.integration.bus.serializer.AbstractCodec;
+import org.springframework.xd.dirt.integration.bus.serializer.CompositeCodec;
+import org.springframework.xd.dirt.integration.bus.serializer.kryo.PojoCodec;
+import org.springframework.xd.dirt.integration.bus.serializer.kryo.TupleCodec;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * Times round trips of payloads through {@link MessageBusSupport#serializePayloadIfNecessary(Message, MediaType)} and
+ * {@link MessageBusSupport#deserializePayloadIfNecessary(Message)}.
+ *
+ * @since 1.0
+ */
+public class MessageBusSupportBenchmarkTests {
+
+	private static final Log logger = LogFactory.getLog(MessageBusSupportBenchmarkTests.class);
+
+	private static final int WARMUP = 5000;
+
+	private static final int ROUND_TRIPS = 20000;
+
+	private final MessageBusSupportTests.TestMessageBus messageBus = new MessageBusSupportTests().new TestMessageBus();
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Before
+	public void setUp() {
+		Map<Class<?>, AbstractCodec<?>> codecs = new HashMap<Class<?>, AbstractCodec<?>>();
+		codecs.put(Tuple.class, new TupleCodec());
+		messageBus.setCodec(new CompositeCodec(codecs, new PojoCodec()));
+	}
+
+	@Test
+	public void roundTrips() {
+		StopWatch stopWatch = new StopWatch("MessageBusSupport");
+		roundTrips(stopWatch, "String", new GenericMessage<String>("foo"));
+		roundTrips(stopWatch, "POJO", new GenericMessage<Foo>(new Foo("bar")));
+		roundTrips(stopWatch, "Tuple", new GenericMessage<Tuple>(TupleBuilder.tuple().of("foo", "bar", "baz", 1)));
+		logger.info(stopWatch.prettyPrint());
+	}
+
+	private void roundTrips(StopWatch stopWatch, String name, Message<?> message) {
+		for (int i = 0; i < WARMUP; i++) {
+			roundTrip(message);
+		}
+		stopWatch.start(ROUND_TRIPS + " " + name + " round trips");
+		for (int i = 0; i < ROUND_TRIPS; i++) {
+			roundTrip(message);
+		}
+		stopWatch.stop();
+		assertEquals(message.getPayload().getClass(), roundTrip(message).getPayload().getClass());
+	}
+
+	private Message<?> roundTrip(Message<?> message) {
+		return messageBus.deserializePayloadIfNecessary(messageBus.serializePayloadIfNecessary(message,
+				MediaType.APPLICATION_OCTET_STREAM));
+	}
+
+}
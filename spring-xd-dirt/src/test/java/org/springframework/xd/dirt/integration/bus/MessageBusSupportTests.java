@@ -19,7 +19,10 @@ package org.springframework.xd.dirt.integration.bus;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,6 +32,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import org.springframework.http.MediaType;
+import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -36,8 +40,10 @@ import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.converter.ContentTypeResolver;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.util.MimeType;
+import org.springframework.xd.dirt.integration.bus.converter.MessageConverterUtils;
 import org.springframework.xd.dirt.integration.bus.serializer.AbstractCodec;
 import org.springframework.xd.dirt.integration.bus.serializer.CompositeCodec;
+import org.springframework.xd.dirt.integration.bus.serializer.SerializationException;
 import org.springframework.xd.dirt.integration.bus.serializer.kryo.PojoCodec;
 import org.springframework.xd.dirt.integration.bus.serializer.kryo.TupleCodec;
 import org.springframework.xd.tuple.DefaultTuple;
@@ -185,6 +191,104 @@ public class MessageBusSupportTests {
 		assertNull(reconstructed.getHeaders().get(MessageHeaders.CONTENT_TYPE));
 	}
 
+	@Test
+	public void testPojoInPlaceDeserialization() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write("prefix".getBytes());
+		String contentType = messageBus.serializePayload(new Foo("bar"), out);
+		byte[] frame = out.toByteArray();
+		Map<String, Object> headers = new HashMap<>();
+		headers.put(MessageHeaders.CONTENT_TYPE, contentType);
+		headers.put(MessageBusSupport.ORIGINAL_CONTENT_TYPE_HEADER, "application/json");
+
+		Message<?> reconstructed = messageBus.deserializePayloadIfNecessary(frame, 6, frame.length - 6, headers);
+		assertEquals("bar", ((Foo) reconstructed.getPayload()).getBar());
+		assertEquals("application/json", reconstructed.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+		assertNull(reconstructed.getHeaders().get(MessageBusSupport.ORIGINAL_CONTENT_TYPE_HEADER));
+	}
+
+	@Test
+	public void testStringAndBytesInPlaceDeserialization() throws IOException {
+		byte[] frame = "prefixfoo".getBytes("UTF-8");
+		Map<String, Object> headers = new HashMap<>();
+		headers.put(MessageHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE);
+		Message<?> reconstructed = messageBus.deserializePayloadIfNecessary(frame, 6, 3, headers);
+		assertEquals("foo", reconstructed.getPayload());
+		assertNull(reconstructed.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+
+		headers.put(MessageHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE);
+		reconstructed = messageBus.deserializePayloadIfNecessary(frame, 6, 3, headers);
+		assertEquals("foo", new String((byte[]) reconstructed.getPayload(), "UTF-8"));
+	}
+
+	@Test
+	public void testPayloadTypeResolvedWithThreadContextClassLoader() {
+		Message<?> converted = messageBus.serializePayloadIfNecessary(new GenericMessage<Foo>(new Foo("bar")),
+				MediaType.APPLICATION_OCTET_STREAM);
+		assertEquals("bar", ((Foo) messageBus.deserializePayloadIfNecessary(converted).getPayload()).getBar());
+
+		ClassLoader previous = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(new ClassLoader(previous) {
+
+			@Override
+			public Class<?> loadClass(String name) throws ClassNotFoundException {
+				if (name.equals(Foo.class.getName())) {
+					throw new ClassNotFoundException(name);
+				}
+				return super.loadClass(name);
+			}
+		});
+		try {
+			messageBus.deserializePayloadIfNecessary(converted);
+			fail("Expected the class not to be found by the thread context class loader");
+		}
+		catch (SerializationException e) {
+			assertTrue(e.getCause() instanceof ClassNotFoundException);
+		}
+		finally {
+			Thread.currentThread().setContextClassLoader(previous);
+		}
+		assertEquals("bar", ((Foo) messageBus.deserializePayloadIfNecessary(converted).getPayload()).getBar());
+	}
+
+	@Test
+	public void testJsonPassedThroughToTupleInput() throws IOException {
+		MessageChannel input = new DirectChannel();
+		messageBus.setInputType(input, MessageConverterUtils.X_XD_TUPLE, DefaultTuple.class);
+		Message<?> converted = messageBus.serializePayloadIfNecessary(
+				MessageBuilder.withPayload("{\"foo\":\"bar\"}").setHeader(MessageHeaders.CONTENT_TYPE,
+						"application/json").build(), MediaType.APPLICATION_OCTET_STREAM);
+
+		Message<?> reconstructed = messageBus.deserializePayloadIfNecessary(converted, input);
+		assertEquals("{\"foo\":\"bar\"}", new String((byte[]) reconstructed.getPayload(), "UTF-8"));
+		assertEquals("application/json", reconstructed.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write("prefix".getBytes());
+		String contentType = messageBus.serializePayload("{\"foo\":\"bar\"}", out);
+		Map<String, Object> headers = new HashMap<>();
+		headers.put(MessageHeaders.CONTENT_TYPE, contentType);
+		headers.put(MessageBusSupport.ORIGINAL_CONTENT_TYPE_HEADER, "application/json");
+		byte[] frame = out.toByteArray();
+		reconstructed = messageBus.deserializePayloadIfNecessary(frame, 6, frame.length - 6, headers, input);
+		assertEquals("{\"foo\":\"bar\"}", new String((byte[]) reconstructed.getPayload(), "UTF-8"));
+
+		// without a declared input type, or once unbound, the String is restored
+		assertEquals("{\"foo\":\"bar\"}", messageBus.deserializePayloadIfNecessary(converted).getPayload());
+		messageBus.unbindConsumer("foo", input);
+		assertEquals("{\"foo\":\"bar\"}", messageBus.deserializePayloadIfNecessary(converted, input).getPayload());
+	}
+
+	@Test
+	public void testJsonNotPassedThroughToStringInput() {
+		MessageChannel input = new DirectChannel();
+		messageBus.setInputType(input, MimeType.valueOf("application/json"), String.class);
+		Message<?> converted = messageBus.serializePayloadIfNecessary(
+				MessageBuilder.withPayload("{\"foo\":\"bar\"}").setHeader(MessageHeaders.CONTENT_TYPE,
+						"application/json").build(), MediaType.APPLICATION_OCTET_STREAM);
+		assertEquals("{\"foo\":\"bar\"}", messageBus.deserializePayloadIfNecessary(converted, input).getPayload());
+	}
+
 	public static class Foo {
 
 		private String bar;
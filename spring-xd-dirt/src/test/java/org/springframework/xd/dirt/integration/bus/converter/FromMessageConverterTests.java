@@ -184,6 +184,18 @@ public class FromMessageConverterTests {
 				result.getHeaders().get(MessageHeaders.CONTENT_TYPE));
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testJsonBytesToTuple() throws Exception {
+		byte[] json = "{\"foo\":\"bar\",\"count\":3}".getBytes("UTF-8");
+		Message<?> msg = MessageBuilder.withPayload(json).setHeader(MessageHeaders.CONTENT_TYPE, "application/json")
+				.build();
+		CompositeMessageConverter converter = converterFactory.newInstance(MimeType.valueOf("application/x-xd-tuple"));
+		Message<Tuple> result = (Message<Tuple>) converter.fromMessage(msg, DefaultTuple.class);
+		assertEquals("bar", result.getPayload().getString("foo"));
+		assertEquals(3, result.getPayload().getInt("count"));
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testTupleToJson() {
@@ -17,6 +17,7 @@
 package org.springframework.xd.dirt.integration.bus.serializer.kryo;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -28,6 +29,7 @@ import java.util.Map;
 
 import org.junit.Test;
 
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.xd.tuple.Tuple;
 import org.springframework.xd.tuple.TupleBuilder;
 
@@ -166,6 +168,52 @@ public class KryoCodecTests {
 		assertEquals(t0, t3);
 	}
 
+	@Test
+	public void testTupleIdentityAndConversionServiceRestored() throws IOException {
+		TupleCodec serializer = new TupleCodec();
+		Tuple t0 = TupleBuilder.tuple().of("one", "1", "two", 2);
+		Tuple t1 = TupleBuilder.tuple().of("t0", t0, "three", null);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		serializer.serialize(t1, bos);
+		Tuple t2 = serializer.deserialize(bos.toByteArray());
+		assertEquals(t1.getId(), t2.getId());
+		assertEquals(t1.getTimestamp(), t2.getTimestamp());
+		assertEquals(t1, t2);
+		assertEquals(t1.toString(), t2.toString());
+		Tuple t3 = t2.getTuple("t0");
+		assertEquals(1, t3.getInt("one"));
+		assertSame(new DirectFieldAccessor(t2).getPropertyValue("formattingConversionService"),
+				new DirectFieldAccessor(t3).getPropertyValue("formattingConversionService"));
+	}
+
+	@Test
+	public void testKryoInstancesAreReused() throws IOException {
+		PojoCodec serializer = new PojoCodec();
+		for (int i = 0; i < 10; i++) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			serializer.serialize("hello" + i, bos);
+			assertEquals("hello" + i, serializer.deserialize(bos.toByteArray(), String.class));
+		}
+		assertEquals(1, serializer.getKryoPool().getMisses());
+		assertEquals(19, serializer.getKryoPool().getHits());
+		assertEquals(1, serializer.getKryoPool().size());
+	}
+
+	@Test
+	public void testRegisteredClasses() throws IOException {
+		PojoCodec serializer = new PojoCodec();
+		serializer.setRegisteredClasses(new Class<?>[] { Foo.class, SomeClassWithNoDefaultConstructors.class });
+		Foo foo = new Foo();
+		foo.put("one", new SomeClassWithNoDefaultConstructors("foo", 123));
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		serializer.serialize(foo, bos);
+
+		PojoCodec deserializer = new PojoCodec();
+		deserializer.setRegisteredClasses(new Class<?>[] { Foo.class, SomeClassWithNoDefaultConstructors.class });
+		Foo foo2 = (Foo) deserializer.deserialize(bos.toByteArray(), Foo.class);
+		assertEquals(new SomeClassWithNoDefaultConstructors("foo", 123), foo2.get("one"));
+	}
+
 	static class Foo {
 
 		private Map<Object, Object> map;
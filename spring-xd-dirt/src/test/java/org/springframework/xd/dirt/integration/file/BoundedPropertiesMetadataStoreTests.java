@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link BoundedPropertiesMetadataStore} and {@link PatternAcceptOnceFileListFilter}.
+ *
+ * @since 1.0
+ */
+public class BoundedPropertiesMetadataStoreTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testEntriesSurviveRestart() throws Exception {
+		File file = new File(folder.getRoot(), "store/seen.properties");
+		BoundedPropertiesMetadataStore store = newStore(file, 10);
+		store.put("foo", "1");
+		assertNull(store.putIfAbsent("bar", "2"));
+		assertEquals("2", store.putIfAbsent("bar", "3"));
+		assertFalse(store.replace("bar", "3", "4"));
+		assertTrue(store.replace("bar", "2", "4"));
+		store.destroy();
+		store = newStore(file, 10);
+		assertEquals("1", store.get("foo"));
+		assertEquals("4", store.get("bar"));
+		assertEquals("4", store.remove("bar"));
+		assertNull(store.get("bar"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEntryDropped() throws Exception {
+		BoundedPropertiesMetadataStore store = newStore(folder.newFile("seen.properties"), 2);
+		store.put("foo", "1");
+		store.put("bar", "2");
+		store.get("foo");
+		store.put("baz", "3");
+		assertEquals(2, store.size());
+		assertEquals("1", store.get("foo"));
+		assertNull(store.get("bar"));
+	}
+
+	@Test
+	public void testMemoryOnlyStore() throws Exception {
+		BoundedPropertiesMetadataStore store = new BoundedPropertiesMetadataStore();
+		store.afterPropertiesSet();
+		store.put("foo", "1");
+		store.destroy();
+		assertEquals("1", store.get("foo"));
+	}
+
+	@Test
+	public void testFilesAcceptedOnceProcessedAcrossRestarts() throws Exception {
+		File dir = folder.newFolder("input");
+		File[] files = new File[] { new File(dir, "a.txt"), new File(dir, "b.csv"), new File(dir, "c.txt") };
+		for (File file : files) {
+			assertTrue(file.createNewFile());
+		}
+		File storeFile = folder.newFile("seen.properties");
+		BoundedPropertiesMetadataStore store = newStore(storeFile, 10);
+		PatternAcceptOnceFileListFilter filter = new PatternAcceptOnceFileListFilter(store, "", "*.txt");
+		assertEquals(Arrays.asList(files[0], files[2]), filter.filterFiles(files));
+		// not accepted twice while in progress, nor recorded until processed
+		assertTrue(filter.filterFiles(files).isEmpty());
+		assertEquals(0, store.size());
+		filter.processed(files[0]);
+		assertEquals(1, store.size());
+		store.destroy();
+		store = newStore(storeFile, 10);
+		List<File> accepted = new PatternAcceptOnceFileListFilter(store, "", "*.txt").filterFiles(files);
+		assertEquals(Arrays.asList(files[2]), accepted);
+	}
+
+	private BoundedPropertiesMetadataStore newStore(File file, int maxEntries) throws Exception {
+		BoundedPropertiesMetadataStore store = new BoundedPropertiesMetadataStore(file);
+		store.setMaxEntries(maxEntries);
+		store.setSaveInterval(60000);
+		store.afterPropertiesSet();
+		return store;
+	}
+
+}
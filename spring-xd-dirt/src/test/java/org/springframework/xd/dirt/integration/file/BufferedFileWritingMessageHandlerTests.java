@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.file.support.FileExistsMode;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link BufferedFileWritingMessageHandler}.
+ *
+ * @since 1.0
+ */
+public class BufferedFileWritingMessageHandlerTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private BufferedFileWritingMessageHandler handler;
+
+	@After
+	public void tearDown() {
+		if (handler != null) {
+			handler.destroy();
+		}
+	}
+
+	@Test
+	public void testDelimitedPayloadsOfAllTypes() throws Exception {
+		File source = folder.newFile("source");
+		FileCopyUtils.copy("file".getBytes("UTF-8"), source);
+		handler = newHandler();
+		handler.setDelimiter("\n");
+		handler.afterPropertiesSet();
+		send("text");
+		send("bytes".getBytes("UTF-8"));
+		send(source);
+		send(new ByteArrayInputStream("stream".getBytes("UTF-8")));
+		handler.destroy();
+		assertEquals("text\nbytes\nfile\nstream\n", contents(new File(folder.getRoot(), "out/test.txt")));
+		assertEquals(4, handler.getMessagesWritten());
+		assertEquals(23, handler.getBytesWritten());
+		assertEquals(1, handler.getFilesClosed());
+	}
+
+	@Test
+	public void testOtherPayloadsWrittenAsText() throws Exception {
+		handler = newHandler();
+		handler.setDelimiter("\n");
+		handler.afterPropertiesSet();
+		send(42);
+		send(Collections.singletonMap("foo", "bar"));
+		handler.destroy();
+		assertEquals("42\n{foo=bar}\n", contents(new File(folder.getRoot(), "out/test.txt")));
+	}
+
+	@Test(expected = MessageHandlingException.class)
+	public void testOtherPayloadsRejectedWhenBinary() throws Exception {
+		handler = newHandler();
+		handler.setBinary(true);
+		handler.afterPropertiesSet();
+		send(42);
+	}
+
+	@Test
+	public void testBufferedUntilFlushCount() throws Exception {
+		handler = newHandler();
+		handler.setFlushCount(3);
+		handler.afterPropertiesSet();
+		send("a");
+		send("b");
+		File file = handler.getCurrentFile();
+		assertEquals(0, file.length());
+		send("c");
+		assertEquals("abc", contents(file));
+	}
+
+	@Test
+	public void testFlushedOnInterval() throws Exception {
+		handler = newHandler();
+		handler.setFlushInterval(50);
+		handler.afterPropertiesSet();
+		send("a");
+		File file = handler.getCurrentFile();
+		for (int i = 0; i < 100 && file.length() == 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals("a", contents(file));
+	}
+
+	@Test
+	public void testFsyncLatencyMeasured() throws Exception {
+		handler = newHandler();
+		handler.setFlushCount(1);
+		handler.setFsync(true);
+		handler.afterPropertiesSet();
+		send("a");
+		send("b");
+		assertTrue(handler.getMaxFsyncMicros() >= handler.getMeanFsyncMicros());
+		assertEquals("ab", contents(handler.getCurrentFile()));
+	}
+
+	@Test
+	public void testRolloverOnSize() throws Exception {
+		File dir = folder.newFolder("out");
+		assertTrue(new File(dir, "test-0.txt").createNewFile());
+		handler = newHandler();
+		handler.setRollover(4);
+		handler.afterPropertiesSet();
+		send("ab");
+		send("cd");
+		send("ef");
+		handler.destroy();
+		assertEquals(0, new File(dir, "test-0.txt").length());
+		assertEquals("abcd", contents(new File(dir, "test-1.txt")));
+		assertEquals("ef", contents(new File(dir, "test-2.txt")));
+		assertEquals(2, handler.getFilesClosed());
+	}
+
+	@Test
+	public void testRolloverOnInterval() throws Exception {
+		handler = newHandler();
+		handler.setRolloverInterval(50);
+		handler.afterPropertiesSet();
+		send("a");
+		File first = handler.getCurrentFile();
+		for (int i = 0; i < 100 && handler.getFilesClosed() == 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals("a", contents(first));
+		send("b");
+		assertFalse(first.equals(handler.getCurrentFile()));
+	}
+
+	@Test
+	public void testCompressed() throws Exception {
+		handler = newHandler();
+		handler.setCompress(true);
+		handler.setDelimiter("\n");
+		handler.afterPropertiesSet();
+		send("hello");
+		send("world");
+		handler.destroy();
+		InputStream in = new GZIPInputStream(new FileInputStream(new File(folder.getRoot(), "out/test.txt.gz")));
+		assertEquals("hello\nworld\n", new String(FileCopyUtils.copyToByteArray(in), "UTF-8"));
+	}
+
+	@Test
+	public void testAppendToExistingFile() throws Exception {
+		File dir = folder.newFolder("out");
+		FileCopyUtils.copy("old".getBytes("UTF-8"), new File(dir, "test.txt"));
+		handler = newHandler();
+		handler.afterPropertiesSet();
+		send("new");
+		handler.destroy();
+		assertEquals("oldnew", contents(new File(dir, "test.txt")));
+	}
+
+	@Test
+	public void testReplaceExistingFile() throws Exception {
+		File dir = folder.newFolder("out");
+		FileCopyUtils.copy("old".getBytes("UTF-8"), new File(dir, "test.txt"));
+		handler = newHandler();
+		handler.setMode(FileExistsMode.REPLACE);
+		handler.afterPropertiesSet();
+		send("new");
+		handler.destroy();
+		assertEquals("new", contents(new File(dir, "test.txt")));
+	}
+
+	@Test
+	public void testIgnoreExistingFile() throws Exception {
+		File dir = folder.newFolder("out");
+		FileCopyUtils.copy("old".getBytes("UTF-8"), new File(dir, "test.txt"));
+		handler = newHandler();
+		handler.setMode(FileExistsMode.IGNORE);
+		handler.afterPropertiesSet();
+		send("new");
+		handler.destroy();
+		assertEquals("old", contents(new File(dir, "test.txt")));
+		assertEquals(0, handler.getMessagesWritten());
+	}
+
+	@Test
+	public void testFailOnExistingFile() throws Exception {
+		File dir = folder.newFolder("out");
+		FileCopyUtils.copy("old".getBytes("UTF-8"), new File(dir, "test.txt"));
+		handler = newHandler();
+		handler.setMode(FileExistsMode.FAIL);
+		handler.afterPropertiesSet();
+		try {
+			send("new");
+			fail("Expected MessageHandlingException");
+		}
+		catch (MessageHandlingException e) {
+			assertTrue(e.getMessage().contains("already exists"));
+		}
+	}
+
+	private BufferedFileWritingMessageHandler newHandler() {
+		BufferedFileWritingMessageHandler handler = new BufferedFileWritingMessageHandler(
+				new File(folder.getRoot(), "out"), "test");
+		handler.setSuffix(".txt");
+		return handler;
+	}
+
+	private void send(Object payload) {
+		handler.handleMessage(MessageBuilder.withPayload(payload).build());
+	}
+
+	private String contents(File file) throws IOException {
+		return new String(FileCopyUtils.copyToByteArray(file), "UTF-8");
+	}
+
+}
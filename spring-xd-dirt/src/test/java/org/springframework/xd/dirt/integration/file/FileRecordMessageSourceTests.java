@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.core.MessageSource;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.FileReadingMessageSource;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link FileRecordMessageSource}.
+ *
+ * @since 1.0
+ */
+public class FileRecordMessageSourceTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final LinkedList<File> files = new LinkedList<File>();
+
+	private final FileRecordMessageSource source = new FileRecordMessageSource(new MessageSource<File>() {
+
+		@Override
+		public Message<File> receive() {
+			return files.isEmpty() ? null : MessageBuilder.withPayload(files.poll()).build();
+		}
+	});
+
+	@Test
+	public void testLines() throws IOException {
+		files.add(newFile("a.txt", "foo\nbar\r\n\nbaz"));
+		files.add(newFile("b.txt", "qux\n"));
+		files.add(newFile("c.txt", ""));
+		Message<String> message = source.receive();
+		assertEquals("foo", message.getPayload());
+		assertEquals("a.txt", message.getHeaders().get(FileHeaders.FILENAME));
+		assertEquals(Arrays.asList("bar", "", "baz", "qux"), receiveAll());
+		assertNull(source.receive());
+	}
+
+	@Test
+	public void testDelimiterAcrossBufferBoundaries() throws IOException {
+		StringBuilder contents = new StringBuilder();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 20000; i++) {
+			expected.add("record" + i);
+			contents.append("record").append(i).append("||");
+		}
+		files.add(newFile("a.txt", contents.toString()));
+		files.add(newFile("b.txt", contents.toString()));
+		source.setDelimiter("||");
+		List<String> records = receiveAll();
+		assertEquals(expected, records.subList(0, 20000));
+		assertEquals(expected, records.subList(20000, 40000));
+	}
+
+	@Test
+	public void testPartialDelimiterKept() throws IOException {
+		files.add(newFile("a.txt", "a|b||c|"));
+		source.setDelimiter("||");
+		assertEquals(Arrays.asList("a|b", "c|"), receiveAll());
+	}
+
+	@Test
+	public void testMemoryMappedLongRecords() throws IOException {
+		char[] chars = new char[100000];
+		Arrays.fill(chars, 'x');
+		String longLine = new String(chars);
+		files.add(newFile("a.txt", longLine + "\n" + longLine));
+		source.setMapThreshold(0);
+		assertEquals(Arrays.asList(longLine, longLine), receiveAll());
+	}
+
+	@Test
+	public void testQueuedFilesReadAgainAfterUndeploy() throws Exception {
+		File dir = folder.newFolder("input");
+		newFile("input/a.txt", "a1\na2");
+		newFile("input/b.txt", "b1\nb2");
+		newFile("input/c.txt", "c1");
+		File storeFile = new File(folder.getRoot(), "seen.properties");
+		BoundedPropertiesMetadataStore store = new BoundedPropertiesMetadataStore(storeFile);
+		FileRecordMessageSource records = newRecordSource(dir, store);
+		List<String> received = new ArrayList<String>();
+		for (int i = 0; i < 3; i++) {
+			received.add(records.receive().getPayload());
+		}
+		// a.txt was read, b.txt is half read and c.txt still queued
+		assertEquals(Arrays.asList("a1", "a2", "b1"), received);
+		records.destroy();
+		store.destroy();
+
+		store = new BoundedPropertiesMetadataStore(storeFile);
+		records = newRecordSource(dir, store);
+		assertEquals(Arrays.asList("b1", "b2", "c1"), receiveAll(records));
+		records.destroy();
+		store.destroy();
+	}
+
+	private FileRecordMessageSource newRecordSource(File dir, BoundedPropertiesMetadataStore store)
+			throws Exception {
+		store.afterPropertiesSet();
+		PatternAcceptOnceFileListFilter filter = new PatternAcceptOnceFileListFilter(store, "", "*.txt");
+		FileReadingMessageSource files = new FileReadingMessageSource(new Comparator<File>() {
+
+			@Override
+			public int compare(File file1, File file2) {
+				return file1.getName().compareTo(file2.getName());
+			}
+		});
+		files.setDirectory(dir);
+		files.setFilter(filter);
+		files.afterPropertiesSet();
+		FileRecordMessageSource records = new FileRecordMessageSource(files);
+		records.setAcceptOnceFilter(filter);
+		return records;
+	}
+
+	private List<String> receiveAll() {
+		return receiveAll(source);
+	}
+
+	private List<String> receiveAll(FileRecordMessageSource source) {
+		List<String> records = new ArrayList<String>();
+		Message<String> message;
+		while ((message = source.receive()) != null) {
+			records.add(message.getPayload());
+		}
+		return records;
+	}
+
+	private File newFile(String name, String contents) throws IOException {
+		File file = folder.newFile(name);
+		FileCopyUtils.copy(contents.getBytes("UTF-8"), file);
+		return file;
+	}
+
+}
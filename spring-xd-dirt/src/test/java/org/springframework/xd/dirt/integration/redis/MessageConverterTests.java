@@ -18,6 +18,9 @@ package org.springframework.xd.dirt.integration.redis;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.Test;
 
 import org.springframework.integration.support.MessageBuilder;
@@ -33,7 +36,8 @@ public class MessageConverterTests {
 
 	@Test
 	public void testHeaderEmbedding() throws Exception {
-		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter(
+				EmbeddedHeadersMessageConverter.LEGACY_VERSION);
 		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
 				.setHeader("foo", "bar")
 				.setHeader("baz", "quxx")
@@ -49,7 +53,8 @@ public class MessageConverterTests {
 
 	@Test
 	public void testHeaderEmbeddingMissingHeader() throws Exception {
-		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter(
+				EmbeddedHeadersMessageConverter.LEGACY_VERSION);
 		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
 				.setHeader("foo", "bar")
 				.build();
@@ -57,4 +62,89 @@ public class MessageConverterTests {
 		assertEquals("\u0001\u0003foo\u0003barHello", new String(converted.getPayload()));
 	}
 
+	@Test
+	public void testVersionedHeaderEmbedding() throws Exception {
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter(
+				EmbeddedHeadersMessageConverter.CURRENT_VERSION);
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "bar")
+				.setHeader("baz", "quxx")
+				.build();
+		Message<byte[]> converted = converter.embedHeaders(message, "foo", "baz");
+		assertEquals("\u00ff\u0002\u0002\u0003foo\u0003bar\u0003baz\u0004quxxHello",
+				new String(converted.getPayload(), "ISO-8859-1"));
+
+		converted = converter.extractHeaders(converted);
+		assertEquals("Hello", new String(converted.getPayload()));
+		assertEquals("bar", converted.getHeaders().get("foo"));
+		assertEquals("quxx", converted.getHeaders().get("baz"));
+	}
+
+	@Test
+	public void testLongAndNonAsciiHeaders() throws Exception {
+		StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			longValue.append('x');
+		}
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter(
+				EmbeddedHeadersMessageConverter.CURRENT_VERSION);
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", longValue.toString())
+				.setHeader("baz", "qu\u00e9")
+				.build();
+		Message<byte[]> converted = converter.extractHeaders(converter.embedHeaders(message, "foo", "baz"));
+		assertEquals("Hello", new String(converted.getPayload()));
+		assertEquals(longValue.toString(), converted.getHeaders().get("foo"));
+		assertEquals("qu\u00e9", converted.getHeaders().get("baz"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLegacyRejectsLongHeader() throws Exception {
+		StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 256; i++) {
+			longValue.append('x');
+		}
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", longValue.toString())
+				.build();
+		new EmbeddedHeadersMessageConverter(EmbeddedHeadersMessageConverter.LEGACY_VERSION).embedHeaders(message,
+				"foo");
+	}
+
+	@Test
+	public void testLegacyFramesAreRead() throws Exception {
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		Message<byte[]> converted = converter.extractHeaders(MessageBuilder.withPayload(
+				"\u0001\u0003foo\u0003barHello".getBytes()).build());
+		assertEquals("Hello", new String(converted.getPayload()));
+		assertEquals("bar", converted.getHeaders().get("foo"));
+	}
+
+	@Test
+	public void testDefaultVersionReadableByEarlierReleases() throws Exception {
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "bar")
+				.build();
+		byte[] frame = new EmbeddedHeadersMessageConverter().embedHeaders(message, "foo").getPayload();
+		assertEquals("\u0001\u0003foo\u0003barHello", new String(frame));
+	}
+
+	@Test
+	public void testDecodeReturnsPayloadOffset() throws Exception {
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter(
+				EmbeddedHeadersMessageConverter.CURRENT_VERSION);
+		byte[] frame = converter.embedHeaders(MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "bar").build(), "foo").getPayload();
+		Map<String, Object> headers = new HashMap<>();
+		int offset = converter.decodeHeaders(frame, headers);
+		assertEquals("Hello", new String(frame, offset, frame.length - offset));
+		assertEquals("bar", headers.get("foo"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownVersionIsRejected() throws Exception {
+		new EmbeddedHeadersMessageConverter().decodeHeaders(new byte[] { (byte) 0xff, 3, 0 },
+				new HashMap<String, Object>());
+	}
+
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.redis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.xd.dirt.integration.bus.BusTestUtils;
+import org.springframework.xd.dirt.integration.bus.serializer.AbstractCodec;
+import org.springframework.xd.dirt.integration.bus.serializer.CompositeCodec;
+import org.springframework.xd.dirt.integration.bus.serializer.kryo.PojoCodec;
+
+/**
+ * Checks the commands sent by the batching Redis queue adapters against a mock connection.
+ *
+ * @since 1.0
+ */
+public class RedisQueueBatchingTests {
+
+	private static final byte[] QUEUE = "queue.test".getBytes();
+
+	private final RedisConnection connection = mock(RedisConnection.class);
+
+	private final RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+	@Before
+	public void setUp() {
+		when(connectionFactory.getConnection()).thenReturn(connection);
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void testPushesFullBatchAtOnce() throws Exception {
+		RedisQueueBatchingOutboundHandler handler = new RedisQueueBatchingOutboundHandler("queue.test",
+				connectionFactory, scheduler);
+		handler.setBeanFactory(BusTestUtils.MOCK_BF);
+		handler.setBatchSize(3);
+		handler.setBatchTimeout(60000000);
+		handler.afterPropertiesSet();
+		handler.handleMessage(message("a"));
+		handler.handleMessage(message("b"));
+		verify(connection, never()).lPush(any(byte[].class), Matchers.<byte[]> anyVararg());
+		handler.handleMessage(message("c"));
+		verify(connection).lPush(QUEUE, "a".getBytes(), "b".getBytes(), "c".getBytes());
+		assertEquals(1L, handler.getHistogram().getCounts()[1]);
+	}
+
+	@Test
+	public void testPushesIncompleteBatchAfterTimeout() throws Exception {
+		RedisQueueBatchingOutboundHandler handler = new RedisQueueBatchingOutboundHandler("queue.test",
+				connectionFactory, scheduler);
+		handler.setBeanFactory(BusTestUtils.MOCK_BF);
+		handler.setBatchSize(10);
+		handler.setBatchTimeout(1000);
+		handler.afterPropertiesSet();
+		handler.handleMessage(message("a"));
+		handler.handleMessage(message("b"));
+		verify(connection, timeout(5000)).lPush(QUEUE, "a".getBytes(), "b".getBytes());
+	}
+
+	@Test
+	public void testFailedPushRetriedOnce() throws Exception {
+		when(connection.lPush(any(byte[].class), Matchers.<byte[]> anyVararg())).thenThrow(
+				new RedisConnectionFailureException("down")).thenThrow(
+				new RedisConnectionFailureException("down")).thenReturn(3L);
+		ScheduledExecutorService mockScheduler = mock(ScheduledExecutorService.class);
+		RedisQueueBatchingOutboundHandler handler = new RedisQueueBatchingOutboundHandler("queue.test",
+				connectionFactory, mockScheduler);
+		handler.setBeanFactory(BusTestUtils.MOCK_BF);
+		handler.setBatchSize(2);
+		handler.afterPropertiesSet();
+		handler.handleMessage(message("a"));
+		// accepted, so not failed although the push is
+		handler.handleMessage(message("b"));
+		try {
+			handler.handleMessage(message("c"));
+			fail("Expected the payload to be rejected while the batch is pending");
+		}
+		catch (MessagingException e) {
+			assertTrue(e.getCause() instanceof RedisConnectionFailureException);
+		}
+		ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+		verify(mockScheduler).schedule(retry.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+		retry.getValue().run();
+		verify(connection, times(3)).lPush(QUEUE, "a".getBytes(), "b".getBytes());
+		assertEquals(1L, handler.getHistogram().getCounts()[1]);
+	}
+
+	@Test
+	public void testHistogramsRemovedOnUnbind() {
+		RedisMessageBus bus = new RedisMessageBus(connectionFactory, new CompositeCodec(
+				Collections.<Class<?>, AbstractCodec<?>> emptyMap(), new PojoCodec()));
+		bus.setBeanFactory(BusTestUtils.MOCK_BF);
+		bus.setBatchSize(10);
+		DirectChannel output = new DirectChannel();
+		bus.bindProducer("test", output);
+		assertEquals(Collections.singleton("outbound.test"), bus.getBatchSizeHistograms().keySet());
+		bus.unbindProducer("test", output);
+		assertTrue(bus.getBatchSizeHistograms().isEmpty());
+	}
+
+	@Test
+	public void testDrainsBatchOldestFirst() {
+		when(connection.bRPop(anyInt(), Matchers.<byte[]> anyVararg())).thenReturn(
+				Arrays.asList(QUEUE, "a".getBytes()));
+		when(connection.exec()).thenReturn(
+				Arrays.<Object> asList(Arrays.asList("c".getBytes(), "b".getBytes()), "OK"));
+		RedisQueueBatchingInboundEndpoint endpoint = new RedisQueueBatchingInboundEndpoint("queue.test",
+				connectionFactory);
+		endpoint.setBatchSize(3);
+		endpoint.setOutputChannel(new QueueChannel());
+
+		List<byte[]> batch = endpoint.receive();
+		assertEquals(3, batch.size());
+		assertArrayEquals("a".getBytes(), batch.get(0));
+		assertArrayEquals("b".getBytes(), batch.get(1));
+		assertArrayEquals("c".getBytes(), batch.get(2));
+		verify(connection).multi();
+		verify(connection).lRange(QUEUE, -2, -1);
+		verify(connection).lTrim(QUEUE, 0, -3);
+		assertEquals(1L, endpoint.getHistogram().getCounts()[1]);
+	}
+
+	@Test
+	public void testReceiveTimeout() {
+		RedisQueueBatchingInboundEndpoint endpoint = new RedisQueueBatchingInboundEndpoint("queue.test",
+				connectionFactory);
+		assertEquals(0, endpoint.receive().size());
+		verify(connection, never()).multi();
+	}
+
+	@Test
+	public void testHistogramBuckets() {
+		BatchSizeHistogram histogram = new BatchSizeHistogram();
+		histogram.record(1);
+		histogram.record(3);
+		histogram.record(100);
+		histogram.record(100000);
+		long[] counts = histogram.getCounts();
+		assertEquals(1L, counts[0]);
+		assertEquals(1L, counts[1]);
+		assertEquals(1L, counts[6]);
+		assertEquals(1L, counts[16]);
+		assertEquals("[1=1, 2-3=1, 64-127=1, 65536+=1] mean=25026.0", histogram.toString());
+	}
+
+	private Message<byte[]> message(String payload) {
+		return MessageBuilder.withPayload(payload.getBytes()).build();
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.xd.module.ModuleDefinition;
+import org.springframework.xd.module.ModuleType;
+
+/**
+ * Tests that the catalog of {@link ResourceModuleRegistry} follows changes to a module directory.
+ *
+ * @since 1.0
+ */
+public class ResourceModuleRegistryRefreshTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ResourceModuleRegistry registry;
+
+	private File sources;
+
+	@Before
+	public void setUp() throws IOException {
+		sources = folder.newFolder("source");
+		registry = new ResourceModuleRegistry(folder.getRoot().toURI().toString());
+		registry.setRefreshInterval(0);
+	}
+
+	@Test
+	public void testModuleAddedAndRemoved() throws IOException {
+		assertNull(registry.findDefinition("foo", ModuleType.source));
+		File module = newSimpleModule("foo");
+		assertNotNull(registry.findDefinition("foo", ModuleType.source));
+		assertTrue(module.delete());
+		touch(sources);
+		assertNull(registry.findDefinition("foo", ModuleType.source));
+	}
+
+	@Test
+	public void testJarAdded() throws IOException {
+		File lib = newEnhancedModule("bar");
+		assertNull(registry.findDefinition("bar", ModuleType.source).getClasspath());
+		new File(lib, "some.jar").createNewFile();
+		touch(lib);
+		assertEquals(1, registry.findDefinition("bar", ModuleType.source).getClasspath().length);
+	}
+
+	@Test
+	public void testEnhancedModuleWinsAndListingIsSorted() throws IOException {
+		newSimpleModule("bar");
+		newSimpleModule("abc");
+		newEnhancedModule("bar");
+		ModuleDefinition definition = registry.findDefinition("bar", ModuleType.source);
+		assertTrue(definition.getResource().getURL().toString().endsWith("bar/config/bar.xml"));
+		assertEquals(2, registry.findDefinitions(ModuleType.source).size());
+		assertEquals("abc", registry.findDefinitions(ModuleType.source).get(0).getName());
+	}
+
+	@Test
+	public void testChangesIgnoredWithinInterval() throws IOException {
+		registry.setRefreshInterval(60000);
+		assertNull(registry.findDefinition("foo", ModuleType.source));
+		newSimpleModule("foo");
+		assertNull(registry.findDefinition("foo", ModuleType.source));
+	}
+
+	private File newSimpleModule(String name) throws IOException {
+		File file = new File(sources, name + ".xml");
+		assertTrue(file.createNewFile());
+		touch(sources);
+		return file;
+	}
+
+	/**
+	 * Create an enhanced module with no jars, and return its lib directory.
+	 */
+	private File newEnhancedModule(String name) throws IOException {
+		File config = new File(sources, name + "/config");
+		assertTrue(config.mkdirs());
+		assertTrue(new File(config, name + ".xml").createNewFile());
+		File lib = new File(sources, name + "/lib");
+		assertTrue(lib.mkdirs());
+		touch(sources);
+		return lib;
+	}
+
+	/**
+	 * Make sure a directory change is seen despite the granularity of modification times.
+	 */
+	private void touch(File directory) {
+		directory.setLastModified(directory.lastModified() + 2000);
+	}
+
+}
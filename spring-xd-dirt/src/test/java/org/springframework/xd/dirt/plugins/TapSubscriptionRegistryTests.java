@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.interceptor.WireTap;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.xd.dirt.plugins.TapSubscriptionRegistryTests.TapSubscriptionRegistryTestsConfig;
+import org.springframework.xd.dirt.zookeeper.EmbeddedZooKeeper;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+
+/**
+ * Integration test of {@link TapSubscriptionRegistry}.
+ *
+ * @since 1.0
+ */
+@ContextConfiguration(classes = TapSubscriptionRegistryTestsConfig.class)
+@RunWith(SpringJUnit4ClassRunner.class)
+public class TapSubscriptionRegistryTests {
+
+	@Autowired
+	private TapSubscriptionRegistry registry;
+
+	@Autowired
+	private ZooKeeperConnection zooKeeperConnection;
+
+	@Before
+	public void waitForConnection() throws InterruptedException {
+		for (int i = 0; i < 100 && !zooKeeperConnection.isConnected(); i++) {
+			Thread.sleep(50);
+		}
+	}
+
+	@Test
+	public void testTapRunsWhileSubscribed() throws Exception {
+		WireTap tap = new WireTap(new DirectChannel());
+		tap.stop();
+		registry.track("foo.http.0", tap);
+		assertFalse(tap.isRunning());
+
+		Object subscriber1 = new Object();
+		Object subscriber2 = new Object();
+		registry.subscribe(subscriber1, "foo.http.0");
+		registry.subscribe(subscriber2, "foo.http.0");
+		assertRunning(true, tap);
+		assertEquals(2, zooKeeperConnection.getClient().getChildren()
+				.forPath(Paths.build(Paths.TAPS, "foo.http.0")).size());
+
+		registry.unsubscribe(subscriber1);
+		assertRunning(true, tap);
+		registry.unsubscribe(subscriber2);
+		assertRunning(false, tap);
+		registry.stopTracking("foo.http.0");
+	}
+
+	@Test
+	public void testExistingSubscriptionStartsTap() throws Exception {
+		Object subscriber = new Object();
+		registry.subscribe(subscriber, "foo.log.1");
+		WireTap tap = new WireTap(new DirectChannel());
+		tap.stop();
+		registry.track("foo.log.1", tap);
+		assertRunning(true, tap);
+		registry.stopTracking("foo.log.1");
+		registry.unsubscribe(subscriber);
+	}
+
+	private void assertRunning(boolean expected, WireTap tap) throws InterruptedException {
+		for (int i = 0; i < 100 && tap.isRunning() != expected; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(expected, tap.isRunning());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		zooKeeperConnection.getClient().delete().deletingChildrenIfNeeded().forPath(Paths.TAPS);
+	}
+
+	@Configuration
+	public static class TapSubscriptionRegistryTestsConfig {
+
+		@Bean
+		public EmbeddedZooKeeper embeddedZooKeeper() {
+			return new EmbeddedZooKeeper();
+		}
+
+		@Bean
+		public ZooKeeperConnection zooKeeperConnection() {
+			return new ZooKeeperConnection("localhost:" + embeddedZooKeeper().getClientPort());
+		}
+
+		@Bean
+		public TapSubscriptionRegistry tapSubscriptionRegistry() {
+			return new TapSubscriptionRegistry(zooKeeperConnection());
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.plugins.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.DefaultExecutionContextSerializer;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+/**
+ * Tests for {@link JdbcJobExecutionDetailsDao}.
+ *
+ * @since 1.0
+ */
+public class JdbcJobExecutionDetailsDaoTests {
+
+	private final EmbeddedDatabase db = new EmbeddedDatabaseBuilder().addScript(
+			"classpath:/org/springframework/batch/core/schema-hsqldb.sql").build();
+
+	private final JdbcJobExecutionDetailsDao dao = new JdbcJobExecutionDetailsDao();
+
+	private JobRepository jobRepository;
+
+	/**
+	 * Executions of job "foo" (first two, then every other one) and "bar", oldest first.
+	 */
+	private final List<JobExecution> executions = new ArrayList<JobExecution>();
+
+	@Before
+	public void setUp() throws Exception {
+		JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+		factory.setDataSource(db);
+		factory.setTransactionManager(new DataSourceTransactionManager(db));
+		factory.setSerializer(new DefaultExecutionContextSerializer());
+		factory.afterPropertiesSet();
+		jobRepository = factory.getObject();
+		for (int i = 0; i < 10; i++) {
+			String jobName = i < 2 || i % 2 == 0 ? "foo" : "bar";
+			JobExecution execution = jobRepository.createJobExecution(jobName,
+					new JobParametersBuilder().addLong("run", (long) i).addString("name", "run" + i, false)
+							.toJobParameters());
+			for (int j = 0; j <= i % 3; j++) {
+				StepExecution step = execution.createStepExecution("step" + j);
+				step.setReadCount(i * 10 + j);
+				jobRepository.add(step);
+			}
+			executions.add(execution);
+		}
+		dao.setDataSource(db);
+		dao.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() {
+		db.shutdown();
+	}
+
+	@Test
+	public void testPagesWithDetails() {
+		List<JobExecution> page = dao.getJobExecutions(null, (Long) null, 4);
+		assertEquals(ids(9, 8, 7, 6), ids(page));
+		JobExecution execution = page.get(1);
+		assertEquals("foo", execution.getJobInstance().getJobName());
+		assertEquals(Long.valueOf(8), execution.getJobParameters().getLong("run"));
+		assertEquals("run8", execution.getJobParameters().getString("name"));
+		assertEquals(3, execution.getStepExecutions().size());
+		assertEquals(82, find(execution, "step2").getReadCount());
+		assertEquals(ids(5, 4, 3, 2), ids(dao.getJobExecutions(null, page.get(3).getId(), 4)));
+		assertEquals(ids(5, 4, 3, 2), ids(dao.getJobExecutions(null, 4, 4)));
+		assertEquals(ids(1, 0), ids(dao.getJobExecutions(null, 8, 4)));
+		assertTrue(dao.getJobExecutions(null, 12, 4).isEmpty());
+	}
+
+	@Test
+	public void testPagesForJob() {
+		List<JobExecution> page = dao.getJobExecutions("foo", (Long) null, 3);
+		assertEquals(ids(8, 6, 4), ids(page));
+		assertEquals(ids(2, 1, 0), ids(dao.getJobExecutions("foo", page.get(2).getId(), 3)));
+		assertEquals(ids(2, 1, 0), ids(dao.getJobExecutions("foo", 3, 3)));
+	}
+
+	@Test
+	public void testExecutionsForJobInstances() throws Exception {
+		JobExecution failed = executions.get(0);
+		failed.setStatus(BatchStatus.FAILED);
+		failed.setEndTime(new Date());
+		jobRepository.update(failed);
+		JobExecution restarted = jobRepository.createJobExecution("foo", executions.get(0).getJobParameters());
+		Map<Long, List<JobExecution>> byInstance = dao.getJobExecutionsForJobInstances(Arrays.asList(
+				executions.get(0).getJobInstance().getId(), executions.get(1).getJobInstance().getId()));
+		assertEquals(2, byInstance.size());
+		assertEquals(Arrays.asList(restarted.getId(), executions.get(0).getId()),
+				ids(byInstance.get(executions.get(0).getJobInstance().getId())));
+		assertEquals(2, byInstance.get(executions.get(1).getJobInstance().getId()).get(0).getStepExecutions().size());
+	}
+
+	@Test
+	public void testOnlyFinishedExecutionsCached() {
+		JobExecution finished = executions.get(9);
+		finished.setStatus(BatchStatus.COMPLETED);
+		finished.setEndTime(new Date());
+		jobRepository.update(finished);
+		List<JobExecution> first = dao.getJobExecutions(null, (Long) null, 2);
+		List<JobExecution> second = dao.getJobExecutions(null, (Long) null, 2);
+		assertSame(first.get(0), second.get(0));
+		assertNotSame(first.get(1), second.get(1));
+		assertEquals(1, dao.getHitCount());
+		assertEquals(3, dao.getMissCount());
+		// updated since it was cached
+		jobRepository.update(finished);
+		assertNotSame(first.get(0), dao.getJobExecutions(null, (Long) null, 1).get(0));
+	}
+
+	private StepExecution find(JobExecution execution, String stepName) {
+		for (StepExecution step : execution.getStepExecutions()) {
+			if (step.getStepName().equals(stepName)) {
+				return step;
+			}
+		}
+		throw new AssertionError("No step execution named " + stepName);
+	}
+
+	/**
+	 * @return the ids of the executions at the given indexes of {@link #executions}
+	 */
+	private List<Long> ids(int... indexes) {
+		List<Long> ids = new ArrayList<Long>();
+		for (int index : indexes) {
+			ids.add(executions.get(index).getId());
+		}
+		return ids;
+	}
+
+	private List<Long> ids(List<JobExecution> executions) {
+		List<Long> ids = new ArrayList<Long>();
+		for (JobExecution execution : executions) {
+			ids.add(execution.getId());
+		}
+		return ids;
+	}
+
+}
@@ -306,6 +306,17 @@ public class JobPluginTests extends RandomConfigurationSupport {
 			producerNames.add(name);
 		}
 
+		@Override
+		public void bindPartitionedProducer(String name, MessageChannel moduleOutputChannel,
+				String partitionKeyExpression, int partitionCount) {
+			Assert.fail("Should not be called.");
+		}
+
+		@Override
+		public void bindPartitionedConsumer(String name, MessageChannel moduleInputChannel, int partitionIndex) {
+			Assert.fail("Should not be called.");
+		}
+
 		@Override
 		public void unbindConsumers(String name) {
 			Assert.fail("Should be not be called.");
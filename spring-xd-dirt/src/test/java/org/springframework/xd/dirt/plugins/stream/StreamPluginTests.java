@@ -17,10 +17,14 @@
 package org.springframework.xd.dirt.plugins.stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.xd.module.options.spi.ModulePlaceholders.XD_STREAM_NAME_KEY;
@@ -38,7 +42,9 @@ import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.interceptor.WireTap;
 import org.springframework.integration.test.util.TestUtils;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.xd.dirt.core.ModuleDeploymentProperties;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
+import org.springframework.xd.dirt.plugins.TapSubscriptionRegistry;
 import org.springframework.xd.dirt.server.options.XDPropertyKeys;
 import org.springframework.xd.module.DeploymentMetadata;
 import org.springframework.xd.module.ModuleDefinition;
@@ -107,6 +113,27 @@ public class StreamPluginTests {
 		verify(bus).unbindProducers("tap:foo.testing.1");
 	}
 
+	@Test
+	public void partitionedStreamChannelTests() {
+		DeploymentMetadata metadata = new DeploymentMetadata("foo", 1);
+		metadata.addAttribute(ModuleDeploymentProperties.PARTITION_INDEX_KEY, 2);
+		metadata.addAttribute(ModuleDeploymentProperties.PARTITION_KEY_EXPRESSION_KEY, "payload.id");
+		metadata.addAttribute(ModuleDeploymentProperties.PARTITION_COUNT_KEY, 3);
+		Module module = mock(Module.class);
+		when(module.getDeploymentMetadata()).thenReturn(metadata);
+		when(module.getType()).thenReturn(ModuleType.processor);
+		when(module.getName()).thenReturn("testing");
+		when(module.getComponent("input", MessageChannel.class)).thenReturn(input);
+		when(module.getComponent("output", MessageChannel.class)).thenReturn(output);
+		plugin.postProcessModule(module);
+		verify(bus).bindPartitionedConsumer("foo.0", input, 2);
+		verify(bus).bindPartitionedProducer("foo.1", output, "payload.id", 3);
+		plugin.beforeShutdown(module);
+		plugin.removeModule(module);
+		verify(bus).unbindConsumer("foo.0", input);
+		verify(bus).unbindProducer("foo.1", output);
+	}
+
 	@Test
 	public void testTapOnProxy() {
 		Module module = mock(Module.class);
@@ -121,4 +148,54 @@ public class StreamPluginTests {
 		assertEquals(1, interceptors.size());
 		assertTrue(interceptors.get(0) instanceof WireTap);
 	}
+
+	@Test
+	public void testTapStartsStoppedWithRegistry() {
+		TapSubscriptionRegistry registry = mock(TapSubscriptionRegistry.class);
+		Module module = mock(Module.class);
+		when(module.getDeploymentMetadata()).thenReturn(new DeploymentMetadata("foo", 1));
+		when(module.getType()).thenReturn(ModuleType.processor);
+		when(module.getName()).thenReturn("testing");
+		DirectChannel output = new DirectChannel();
+		when(module.getComponent("output", MessageChannel.class)).thenReturn(output);
+		StreamPlugin plugin = new StreamPlugin(bus);
+		plugin.setTapSubscriptionRegistry(registry);
+		plugin.postProcessModule(module);
+		List<?> interceptors = TestUtils.getPropertyValue(output, "interceptors.interceptors", List.class);
+		WireTap tap = (WireTap) interceptors.get(0);
+		assertFalse(tap.isRunning());
+		verify(registry).track("foo.testing.1", tap);
+		plugin.beforeShutdown(module);
+		verify(registry).stopTracking("foo.testing.1");
+	}
+
+	@Test
+	public void testTapConsumerSubscribes() {
+		TapSubscriptionRegistry registry = mock(TapSubscriptionRegistry.class);
+		Module module = mock(Module.class);
+		DeploymentMetadata metadata = new DeploymentMetadata("bar", 0, "tap:foo.testing.1", null);
+		when(module.getDeploymentMetadata()).thenReturn(metadata);
+		when(module.getComponent("input", MessageChannel.class)).thenReturn(input);
+		StreamPlugin plugin = new StreamPlugin(bus);
+		plugin.setTapSubscriptionRegistry(registry);
+		plugin.postProcessModule(module);
+		verify(bus).bindPubSubConsumer("tap:foo.testing.1", input);
+		verify(registry).subscribe(same(module), eq("foo.testing.1"));
+		plugin.beforeShutdown(module);
+		verify(registry).unsubscribe(module);
+	}
+
+	@Test
+	public void testJobTapConsumerDoesNotSubscribe() {
+		TapSubscriptionRegistry registry = mock(TapSubscriptionRegistry.class);
+		Module module = mock(Module.class);
+		DeploymentMetadata metadata = new DeploymentMetadata("bar", 0, "tap:job:myjob.step", null);
+		when(module.getDeploymentMetadata()).thenReturn(metadata);
+		when(module.getComponent("input", MessageChannel.class)).thenReturn(input);
+		StreamPlugin plugin = new StreamPlugin(bus);
+		plugin.setTapSubscriptionRegistry(registry);
+		plugin.postProcessModule(module);
+		verify(bus).bindPubSubConsumer("tap:job:myjob.step", input);
+		verify(registry, never()).subscribe(any(), anyString());
+	}
 }
@@ -148,6 +148,7 @@ public class BatchJobExecutionsControllerIntegrationTests extends AbstractContro
 		when(jobService.isIncrementable(job2.getName())).thenReturn(true);
 
 		when(jobService.listJobExecutions(0, 20)).thenReturn(jobExecutions1);
+		when(jobService.listJobExecutionsBefore(3L, 20)).thenReturn(jobExecutions2);
 		when(jobService.listJobExecutionsForJob(job2.getName(), 0, 20)).thenReturn(jobExecutions2);
 		when(jobService.getJobExecution(jobExecution1.getId())).thenReturn(jobExecution1);
 		when(jobService.getJobExecution(99999L)).thenThrow(new NoSuchJobExecutionException("Not found."));
@@ -184,6 +185,14 @@ public class BatchJobExecutionsControllerIntegrationTests extends AbstractContro
 				jsonPath("$[*].jobExecution[*].jobParameters.parameters.param2.identifying", contains(false, false)));
 	}
 
+	@Test
+	public void testGetBatchJobExecutionsBeforeExecution() throws Exception {
+		mockMvc.perform(
+				get("/batch/executions").param("beforeJobExecution", "3").param("pageSize", "20").accept(
+						MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andExpect(
+				jsonPath("$", Matchers.hasSize(1))).andExpect(jsonPath("$[*].executionId", contains(3)));
+	}
+
 	@Test
 	public void testGetSingleBatchJobExecution() throws Exception {
 		mockMvc.perform(
@@ -21,7 +21,6 @@ import static org.mockito.Mockito.mock;
 import org.springframework.batch.admin.service.JdbcSearchableJobExecutionDao;
 import org.springframework.batch.admin.service.JdbcSearchableJobInstanceDao;
 import org.springframework.batch.admin.service.JdbcSearchableStepExecutionDao;
-import org.springframework.batch.admin.service.JobService;
 import org.springframework.batch.admin.service.SearchableJobExecutionDao;
 import org.springframework.batch.admin.service.SearchableJobInstanceDao;
 import org.springframework.batch.admin.service.SearchableStepExecutionDao;
@@ -206,7 +205,7 @@ public class Dependencies {
 	}
 
 	@Bean
-	public JobService jobService() {
+	public DistributedJobService jobService() {
 		return mock(DistributedJobService.class);
 	}
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.xd.dirt.cluster.Container;
+import org.springframework.xd.dirt.server.StreamDeploymentListener.DeploymentStatusWatcher;
+import org.springframework.xd.dirt.zookeeper.EmbeddedZooKeeper;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+
+/**
+ * Tests for {@link DeploymentStatusWatcher}.
+ *
+ * @since 1.0
+ */
+public class DeploymentStatusWatcherTests {
+
+	private EmbeddedZooKeeper zooKeeper;
+
+	private ZooKeeperConnection zooKeeperConnection;
+
+	@Before
+	public void setUp() throws InterruptedException {
+		zooKeeper = new EmbeddedZooKeeper();
+		zooKeeper.start();
+		zooKeeperConnection = new ZooKeeperConnection("localhost:" + zooKeeper.getClientPort());
+		zooKeeperConnection.start();
+		for (int i = 0; i < 100 && !zooKeeperConnection.isConnected(); i++) {
+			Thread.sleep(50);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		zooKeeperConnection.stop();
+		zooKeeper.stop();
+	}
+
+	@Test
+	public void testAcknowledgements() throws Exception {
+		CuratorFramework client = zooKeeperConnection.getClient();
+		Container existing = new Container("existing", Collections.<String, String> emptyMap());
+		Container created = new Container("created", Collections.<String, String> emptyMap());
+		Container missing = new Container("missing", Collections.<String, String> emptyMap());
+		String path = Paths.build(Paths.STREAM_DEPLOYMENTS, "foo", "sink.log");
+		client.create().creatingParentsIfNeeded().forPath(Paths.build(path, "existing"));
+
+		DeploymentStatusWatcher watcher = new DeploymentStatusWatcher();
+		watcher.watch(client, existing, Paths.build(path, "existing"));
+		watcher.watch(client, created, Paths.build(path, "created"));
+		watcher.watch(client, missing, Paths.build(path, "missing"));
+		client.create().forPath(Paths.build(path, "created"));
+
+		long start = System.currentTimeMillis();
+		Set<Container> pending = watcher.await(500);
+		assertTrue(System.currentTimeMillis() - start >= 500);
+		assertEquals(Collections.singleton(missing), pending);
+
+		client.create().forPath(Paths.build(path, "missing"));
+		assertTrue(watcher.await(10000).isEmpty());
+	}
+
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -35,7 +36,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.xd.dirt.module.store.ZooKeeperModuleDependencyRepository;
 import org.springframework.xd.dirt.stream.StreamDefinition;
+import org.springframework.xd.dirt.util.MapBytesUtility;
 import org.springframework.xd.dirt.zookeeper.EmbeddedZooKeeper;
+import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
@@ -76,6 +79,7 @@ public class ZooKeeperStreamDefinitionRepositoryTests {
 	public void shutdownRepository() {
 		if (repository != null) {
 			repository.deleteAll();
+			repository.destroy();
 		}
 
 	}
@@ -232,4 +236,33 @@ public class ZooKeeperStreamDefinitionRepositoryTests {
 
 	}
 
+	@Test
+	public void externalChanges() throws Exception {
+		for (int i = 0; !repository.isCacheInitialized() && i < 100; i++) {
+			Thread.sleep(50);
+		}
+		Assert.assertTrue(repository.isCacheInitialized());
+		repository.save(new StreamDefinition("local", "http | hdfs"));
+
+		// written by another admin
+		String path = Paths.build(Paths.STREAMS, "remote");
+		zkConnection.getClient().create().forPath(path,
+				new MapBytesUtility().toByteArray(Collections.singletonMap("definition", "time | log")));
+		for (int i = 0; repository.count() < 2 && i < 100; i++) {
+			Thread.sleep(50);
+		}
+		List<StreamDefinition> all = repository.findAll();
+		Assert.assertEquals(2, all.size());
+		Assert.assertEquals("local", all.get(0).getName());
+		Assert.assertEquals("remote", all.get(1).getName());
+		Assert.assertEquals("time | log", all.get(1).getDefinition());
+
+		zkConnection.getClient().delete().forPath(path);
+		for (int i = 0; repository.count() > 1 && i < 100; i++) {
+			Thread.sleep(50);
+		}
+		Assert.assertEquals(1, repository.count());
+		Assert.assertFalse(repository.exists("remote"));
+	}
+
 }
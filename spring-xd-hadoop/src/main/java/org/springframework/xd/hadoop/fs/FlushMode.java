@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+/**
+ * How far the data buffered by a {@link HdfsTextFileWriter} is pushed when it is flushed.
+ * 
+ * @since 1.0
+ */
+public enum FlushMode {
+
+	/**
+	 * Write the buffered data to the output stream, and flush the client side buffers of the stream.
+	 */
+	FLUSH,
+
+	/**
+	 * Additionally make the data visible to new readers, by flushing it to all the DataNodes of the current block
+	 * (see {@code FSDataOutputStream.hflush()}); requires Hadoop 2.
+	 */
+	HFLUSH,
+
+	/**
+	 * Additionally have the DataNodes sync the data to disk (see {@code FSDataOutputStream.hsync()}); requires Hadoop 2.
+	 */
+	HSYNC
+
+}
@@ -19,6 +19,8 @@ package org.springframework.xd.hadoop.fs;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -29,53 +31,202 @@ import org.springframework.messaging.MessageHandlingException;
 import org.springframework.util.Assert;
 
 /**
+ * Writes the payloads of messages to a text file, which is kept open until it reaches the rollover threshold; the
+ * next file is then created on the following write, so that the NameNode is only involved when files are opened.
+ * <p>
+ * Payloads are accumulated in a buffer of {@link #setBufferSize(int) bufferSize} bytes, which is flushed, according to
+ * the {@link #setFlushMode(FlushMode) flushMode}, once any of the {@link #setFlushCount(int) flushCount},
+ * {@link #setFlushBytes(long) flushBytes} or {@link #setFlushInterval(long) flushInterval} thresholds is reached, when
+ * it is full, and when the file is closed. The interval is checked on each write, not by a timer; {@link #flush()} may
+ * be called to flush an idle writer.
  * 
  * @author Mark Pollack
  */
 public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter {
 
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private final Log logger = LogFactory.getLog(getClass());
+
 	private FileSystem fileSystem;
 
 	private FSDataOutputStream fsDataOutputStream;
 
+	private Path currentPath;
+
 	private volatile String charset = "UTF-8";
 
+	private byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+
+	private int bufferCount;
+
+	private volatile FlushMode flushMode = FlushMode.FLUSH;
+
+	private volatile int flushCount;
+
+	private volatile long flushBytes;
+
+	private volatile long flushInterval;
+
+	private int unflushedCount;
+
+	private long unflushedBytes;
+
+	private long lastFlush = System.currentTimeMillis();
+
+	private final LatencyStatistics writeLatency = new LatencyStatistics();
+
+	private final LatencyStatistics flushLatency = new LatencyStatistics();
+
 	public HdfsTextFileWriter(FileSystem fileSystem) {
 		Assert.notNull(fileSystem, "Hadoop FileSystem must not be null.");
 		this.fileSystem = fileSystem;
 	}
 
+	/**
+	 * Set the size of the buffer payloads are accumulated in; larger payloads are written directly to the stream.
+	 */
+	public synchronized void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be greater than 0");
+		Assert.state(this.bufferCount == 0, "'bufferSize' cannot be changed while data is buffered");
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Set how far the buffered data is pushed on each flush; defaults to {@link FlushMode#FLUSH}.
+	 */
+	public void setFlushMode(FlushMode flushMode) {
+		Assert.notNull(flushMode, "'flushMode' cannot be null");
+		this.flushMode = flushMode;
+	}
+
+	/**
+	 * Set the number of messages after which the buffer is flushed, or 0 (the default) for no such threshold.
+	 */
+	public void setFlushCount(int flushCount) {
+		this.flushCount = flushCount;
+	}
+
+	/**
+	 * Set the number of bytes after which the buffer is flushed, or 0 (the default) for no such threshold.
+	 */
+	public void setFlushBytes(long flushBytes) {
+		this.flushBytes = flushBytes;
+	}
+
+	/**
+	 * Set the time, in milliseconds, after which the buffer is flushed by the next write, or 0 (the default) for no
+	 * such threshold.
+	 */
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * @return the latency of the writes, including any flush they trigger
+	 */
+	public LatencyStatistics getWriteLatency() {
+		return this.writeLatency;
+	}
+
+	/**
+	 * @return the latency of the flushes
+	 */
+	public LatencyStatistics getFlushLatency() {
+		return this.flushLatency;
+	}
 
 	@Override
-	public void write(Message<?> message) throws IOException {
+	public synchronized void write(Message<?> message) throws IOException {
+		long start = System.nanoTime();
+		byte[] bytes = getPayloadAsBytes(message);
 		initializeCounterIfNecessary();
 		prepareOutputStream();
-		copy(getPayloadAsBytes(message), this.fsDataOutputStream);
+		if (bytes.length > this.buffer.length - this.bufferCount) {
+			writeBuffer();
+		}
+		if (bytes.length > this.buffer.length) {
+			this.fsDataOutputStream.write(bytes);
+		}
+		else {
+			System.arraycopy(bytes, 0, this.buffer, this.bufferCount, bytes.length);
+			this.bufferCount += bytes.length;
+		}
+		incrementBytesWritten(bytes.length);
+		this.unflushedCount++;
+		this.unflushedBytes += bytes.length;
+		if (getBytesWritten() >= getRolloverThresholdInBytes()) {
+			closeCurrentFile();
+		}
+		else if ((this.flushCount > 0 && this.unflushedCount >= this.flushCount)
+				|| (this.flushBytes > 0 && this.unflushedBytes >= this.flushBytes)
+				|| (this.flushInterval > 0 && System.currentTimeMillis() - this.lastFlush >= this.flushInterval)) {
+			flush();
+		}
+		this.writeLatency.record(System.nanoTime() - start);
 	}
 
+	/**
+	 * Write the buffered data to the current file, and flush it according to the {@link FlushMode}.
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.fsDataOutputStream == null) {
+			return;
+		}
+		long start = System.nanoTime();
+		writeBuffer();
+		switch (this.flushMode) {
+			case HSYNC:
+				this.fsDataOutputStream.hsync();
+				break;
+			case HFLUSH:
+				this.fsDataOutputStream.hflush();
+				break;
+			default:
+				this.fsDataOutputStream.flush();
+		}
+		this.unflushedCount = 0;
+		this.unflushedBytes = 0;
+		this.lastFlush = System.currentTimeMillis();
+		this.flushLatency.record(System.nanoTime() - start);
+	}
 
+	/**
+	 * Open the next file, unless one is already open.
+	 */
 	private void prepareOutputStream() throws IOException {
-		boolean found = false;
-		Path name = null;
-
-		// TODO improve algorithm
-		while (!found) {
-			name = new Path(getFileName());
-			// If it doesn't exist, create it. If it exists, return false
-			if (getFileSystem().createNewFile(name)) {
-				found = true;
-				this.resetBytesWritten();
-				// this.fsDataOutputStream = this.getFileSystem().append(name);
-				this.fsDataOutputStream = this.getFileSystem().create(name);
+		while (this.fsDataOutputStream == null) {
+			Path name = new Path(getFileName());
+			if (getFileSystem().exists(name)) {
+				incrementCounter();
+				continue;
 			}
-			else {
-				if (this.getBytesWritten() >= getRolloverThresholdInBytes()) {
-					close();
-					incrementCounter();
-				}
-				else {
-					found = true;
-				}
+			this.fsDataOutputStream = getFileSystem().create(name, false);
+			this.currentPath = name;
+			this.resetBytesWritten();
+			this.lastFlush = System.currentTimeMillis();
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		if (this.bufferCount > 0) {
+			this.fsDataOutputStream.write(this.buffer, 0, this.bufferCount);
+			this.bufferCount = 0;
+		}
+	}
+
+	private void closeCurrentFile() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			IOUtils.closeStream(this.fsDataOutputStream);
+			this.fsDataOutputStream = null;
+			this.bufferCount = 0;
+			incrementCounter();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Closed " + this.currentPath + " after " + getBytesWritten() + " bytes; writes: "
+						+ this.writeLatency + ", flushes: " + this.flushLatency);
 			}
 		}
 	}
@@ -85,16 +236,6 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 		return this.fileSystem;
 	}
 
-	/**
-	 * Simple not optimized copy
-	 */
-	public void copy(byte[] in, FSDataOutputStream out) throws IOException {
-		Assert.notNull(in, "No input byte array specified");
-		Assert.notNull(out, "No OutputStream specified");
-		out.write(in);
-		incrementBytesWritten(in.length);
-	}
-
 	// TODO note, taken from TcpMessageMapper
 	/**
 	 * Extracts the payload as a byte array.
@@ -125,9 +266,14 @@ public class HdfsTextFileWriter extends AbstractHdfsWriter implements HdfsWriter
 	}
 
 	@Override
-	public void close() {
+	public synchronized void close() {
 		if (fsDataOutputStream != null) {
-			IOUtils.closeStream(fsDataOutputStream);
+			try {
+				closeCurrentFile();
+			}
+			catch (IOException e) {
+				logger.warn("Failed to flush " + this.currentPath + " on close", e);
+			}
 		}
 	}
 
@@ -44,6 +44,16 @@ public class HdfsTextFileWriterFactory implements HdfsWriterFactory {
 
 	private String fileSuffix = DEFAULT_FILE_SUFFIX;
 
+	private int bufferSize = HdfsTextFileWriter.DEFAULT_BUFFER_SIZE;
+
+	private FlushMode flushMode = FlushMode.FLUSH;
+
+	private int flushCount;
+
+	private long flushBytes;
+
+	private long flushInterval;
+
 	public HdfsTextFileWriterFactory(FileSystem fileSystem) {
 		Assert.notNull(fileSystem, "Hadoop FileSystem must not be null.");
 		this.fileSystem = fileSystem;
@@ -81,6 +91,46 @@ public class HdfsTextFileWriterFactory implements HdfsWriterFactory {
 		this.rolloverThresholdInBytes = rolloverThresholdInBytes;
 	}
 
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public FlushMode getFlushMode() {
+		return flushMode;
+	}
+
+	public void setFlushMode(FlushMode flushMode) {
+		this.flushMode = flushMode;
+	}
+
+	public int getFlushCount() {
+		return flushCount;
+	}
+
+	public void setFlushCount(int flushCount) {
+		this.flushCount = flushCount;
+	}
+
+	public long getFlushBytes() {
+		return flushBytes;
+	}
+
+	public void setFlushBytes(long flushBytes) {
+		this.flushBytes = flushBytes;
+	}
+
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
 
 	@Override
 	public HdfsWriter createWriter() {
@@ -89,6 +139,11 @@ public class HdfsTextFileWriterFactory implements HdfsWriterFactory {
 		textFileWriter.setBaseFilename(baseFilename);
 		textFileWriter.setFileSuffix(fileSuffix);
 		textFileWriter.setRolloverThresholdInBytes(rolloverThresholdInBytes);
+		textFileWriter.setBufferSize(bufferSize);
+		textFileWriter.setFlushMode(flushMode);
+		textFileWriter.setFlushCount(flushCount);
+		textFileWriter.setFlushBytes(flushBytes);
+		textFileWriter.setFlushInterval(flushInterval);
 		return textFileWriter;
 	}
 
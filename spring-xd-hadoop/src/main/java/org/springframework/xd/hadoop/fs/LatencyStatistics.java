@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count, mean and maximum duration of an operation.
+ * 
+ * @since 1.0
+ */
+public class LatencyStatistics {
+
+	private long count;
+
+	private long totalNanos;
+
+	private long maxNanos;
+
+	/**
+	 * Record an execution of the operation.
+	 * 
+	 * @param nanos the duration of the execution, in nanoseconds
+	 */
+	public synchronized void record(long nanos) {
+		this.count++;
+		this.totalNanos += nanos;
+		if (nanos > this.maxNanos) {
+			this.maxNanos = nanos;
+		}
+	}
+
+	public synchronized long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return the mean duration, in microseconds
+	 */
+	public synchronized long getMeanMicros() {
+		return this.count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(this.totalNanos / this.count);
+	}
+
+	/**
+	 * @return the maximum duration, in microseconds
+	 */
+	public synchronized long getMaxMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(this.maxNanos);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%dus, max=%dus", getCount(), getMeanMicros(), getMaxMicros());
+	}
+
+}
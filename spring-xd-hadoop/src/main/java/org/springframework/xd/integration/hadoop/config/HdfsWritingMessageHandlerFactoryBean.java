@@ -20,6 +20,8 @@ import org.apache.hadoop.fs.FileSystem;
 
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.util.Assert;
+import org.springframework.xd.hadoop.fs.FlushMode;
+import org.springframework.xd.hadoop.fs.HdfsTextFileWriter;
 import org.springframework.xd.hadoop.fs.HdfsTextFileWriterFactory;
 import org.springframework.xd.integration.hadoop.outbound.HdfsWritingMessageHandler;
 
@@ -38,6 +40,16 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 
 	private volatile long rolloverThresholdInBytes;
 
+	private volatile int bufferSize = HdfsTextFileWriter.DEFAULT_BUFFER_SIZE;
+
+	private volatile FlushMode flushMode = FlushMode.FLUSH;
+
+	private volatile int flushCount;
+
+	private volatile long flushBytes;
+
+	private volatile long flushInterval;
+
 	private volatile Boolean autoStartup;
 
 	private volatile HdfsWritingMessageHandler handler;
@@ -63,6 +75,26 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 		this.rolloverThresholdInBytes = rolloverThresholdInBytes;
 	}
 
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public void setFlushMode(FlushMode flushMode) {
+		this.flushMode = flushMode;
+	}
+
+	public void setFlushCount(int flushCount) {
+		this.flushCount = flushCount;
+	}
+
+	public void setFlushBytes(long flushBytes) {
+		this.flushBytes = flushBytes;
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
 	public void setAutoStartup(boolean autoStartup) {
 		this.autoStartup = autoStartup;
 	}
@@ -85,6 +117,11 @@ public class HdfsWritingMessageHandlerFactoryBean implements FactoryBean<HdfsWri
 			writerFactory.setBaseFilename(this.baseFilename);
 			writerFactory.setFileSuffix(fileSuffix);
 			writerFactory.setRolloverThresholdInBytes(rolloverThresholdInBytes);
+			writerFactory.setBufferSize(bufferSize);
+			writerFactory.setFlushMode(flushMode);
+			writerFactory.setFlushCount(flushCount);
+			writerFactory.setFlushBytes(flushBytes);
+			writerFactory.setFlushInterval(flushInterval);
 			this.handler = new HdfsWritingMessageHandler(writerFactory);
 			if (this.autoStartup != null) {
 				this.handler.setAutoStartup(this.autoStartup);
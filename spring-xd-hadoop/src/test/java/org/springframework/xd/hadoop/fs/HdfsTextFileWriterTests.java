@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.hadoop.fs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link HdfsTextFileWriter}, against the local file system.
+ *
+ * @since 1.0
+ */
+public class HdfsTextFileWriterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystem fileSystem;
+
+	private HdfsTextFileWriter writer;
+
+	@Before
+	public void setUp() throws IOException {
+		fileSystem = FileSystem.getLocal(new Configuration()).getRawFileSystem();
+		writer = new HdfsTextFileWriter(fileSystem);
+		writer.setBasePath(folder.getRoot().getAbsolutePath());
+		writer.setBaseFilename("data");
+		writer.setFileSuffix("log");
+	}
+
+	@Test
+	public void testBufferedUntilClose() throws IOException {
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.write(MessageBuilder.withPayload("bar\n".getBytes()).build());
+		assertEquals("", read("data-0.log"));
+		writer.close();
+		assertEquals("foo\nbar\n", read("data-0.log"));
+		assertEquals(2, writer.getWriteLatency().getCount());
+		assertEquals(1, writer.getFlushLatency().getCount());
+	}
+
+	@Test
+	public void testFlushCount() throws IOException {
+		writer.setFlushCount(2);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		assertEquals("", read("data-0.log"));
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		assertEquals("foo\nbar\n", read("data-0.log"));
+		writer.close();
+	}
+
+	@Test
+	public void testFlushBytes() throws IOException {
+		writer.setFlushBytes(6);
+		writer.setFlushMode(FlushMode.HFLUSH);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		assertEquals("", read("data-0.log"));
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		assertEquals("foo\nbar\n", read("data-0.log"));
+		writer.close();
+	}
+
+	@Test
+	public void testFullBufferIsWritten() throws IOException {
+		writer.setBufferSize(5);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		writer.write(MessageBuilder.withPayload("larger than the buffer\n").build());
+		writer.close();
+		assertEquals("foo\nbar\nlarger than the buffer\n", read("data-0.log"));
+	}
+
+	@Test
+	public void testRollover() throws IOException {
+		writer.setRolloverThresholdInBytes(8);
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.write(MessageBuilder.withPayload("bar\n").build());
+		writer.write(MessageBuilder.withPayload("baz\n").build());
+		assertEquals("foo\nbar\n", read("data-0.log"));
+		writer.close();
+		assertEquals("baz\n", read("data-1.log"));
+		assertFalse(new File(folder.getRoot(), "data-2.log").exists());
+	}
+
+	@Test
+	public void testExistingFilesAreSkipped() throws IOException {
+		assertTrue(new File(folder.getRoot(), "data-0.log").createNewFile());
+		writer.write(MessageBuilder.withPayload("foo\n").build());
+		writer.close();
+		assertEquals("", read("data-0.log"));
+		assertEquals("foo\n", read("data-1.log"));
+	}
+
+	private String read(String name) throws IOException {
+		return new String(FileCopyUtils.copyToByteArray(new File(folder.getRoot(), name)));
+	}
+
+}
@@ -29,11 +29,13 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.boot.autoconfigure.PropertyPlaceholderAutoConfiguration;
 import org.springframework.boot.builder.ParentContextCloserApplicationListener;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.context.ContextIdApplicationContextInitializer;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.Ordered;
@@ -44,11 +46,13 @@ import org.springframework.core.env.PropertiesPropertySource;
 import org.springframework.core.env.PropertySource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.Assert;
 import org.springframework.validation.BindException;
 import org.springframework.xd.module.DeploymentMetadata;
 import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.options.ModuleOptions;
 import org.springframework.xd.module.options.PassthruModuleOptionsMetadata;
+import org.springframework.xd.module.support.CachingXmlBeanDefinitionReader;
 
 /**
  * A {@link Module} implementation backed by a Spring {@link ApplicationContext}.
@@ -121,8 +125,18 @@ public class SimpleModule extends AbstractModule {
 
 	private final List<ApplicationListener<?>> listeners = new ArrayList<ApplicationListener<?>>();
 
+	/**
+	 * XML resources, loaded with a {@link CachingXmlBeanDefinitionReader} rather than by the application builder.
+	 */
+	private final List<Resource> xmlResources = new ArrayList<Resource>();
+
 	private ModuleOptions moduleOptions;
 
+	/**
+	 * Time spent loading bean definitions from {@link #xmlResources} during {@link #initialize()}, in ms.
+	 */
+	private volatile long definitionsLoadTime;
+
 	public SimpleModule(ModuleDefinition definition, DeploymentMetadata metadata) {
 		this(definition, metadata, null, defaultModuleOptions());
 	}
@@ -176,7 +190,13 @@ public class SimpleModule extends AbstractModule {
 
 	@Override
 	public void addComponents(Resource resource) {
-		addSource(resource);
+		String filename = resource.getFilename();
+		if (filename != null && filename.endsWith(".xml")) {
+			this.xmlResources.add(resource);
+		}
+		else {
+			addSource(resource);
+		}
 	}
 
 	protected void addSource(Object source) {
@@ -225,7 +245,11 @@ public class SimpleModule extends AbstractModule {
 
 	@Override
 	public void initialize() {
+		long startTime = System.currentTimeMillis();
 		this.application.initializers(new ContextIdApplicationContextInitializer(this.toString()));
+		if (!this.xmlResources.isEmpty()) {
+			this.application.initializers(new XmlResourcesInitializer());
+		}
 		ConfigurableEnvironment parentEnvironment = parent == null ? null
 				: parent.getEnvironment();
 		ModuleEnvironment environment = new ModuleEnvironment(moduleOptions.asPropertySource(), parentEnvironment);
@@ -240,14 +264,21 @@ public class SimpleModule extends AbstractModule {
 		this.application.listeners(new ModuleParentContextCloserApplicationListener(getDeploymentMetadata().getIndex()));
 		this.context = this.application.run();
 		if (logger.isInfoEnabled()) {
-			logger.info("initialized module: " + this.toString());
+			long total = System.currentTimeMillis() - startTime;
+			logger.info("initialized module: " + this.toString() + " in " + total + " ms (bean definitions: "
+					+ definitionsLoadTime + " ms, refresh: " + (total - definitionsLoadTime) + " ms)");
 		}
 	}
 
 	@Override
 	public void start() {
+		long startTime = System.currentTimeMillis();
 		try {
 			context.start();
+			if (logger.isInfoEnabled()) {
+				logger.info("started module: " + this.toString() + " in " + (System.currentTimeMillis() - startTime)
+						+ " ms");
+			}
 		}
 		catch (BeansException be) {
 			// Make sure the context is destroyed; this will allow possible destruction of life-cycle beans registered
@@ -284,4 +315,26 @@ public class SimpleModule extends AbstractModule {
 		}
 	}
 
+
+	/**
+	 * Registers the bean definitions of {@link #xmlResources} into the context, in the order they were added, as the
+	 * application builder would have.
+	 */
+	private class XmlResourcesInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+		@Override
+		public void initialize(ConfigurableApplicationContext applicationContext) {
+			Assert.isInstanceOf(BeanDefinitionRegistry.class, applicationContext);
+			long startTime = System.currentTimeMillis();
+			CachingXmlBeanDefinitionReader reader = new CachingXmlBeanDefinitionReader(
+					(BeanDefinitionRegistry) applicationContext);
+			reader.setEnvironment(applicationContext.getEnvironment());
+			reader.setResourceLoader(applicationContext);
+			for (Resource resource : xmlResources) {
+				reader.loadBeanDefinitions(resource);
+			}
+			definitionsLoadTime = System.currentTimeMillis() - startTime;
+		}
+	}
+
 }
@@ -26,13 +26,13 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
-import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.options.spi.Mixin;
-import org.springframework.xd.module.support.ParentLastURLClassLoader;
+import org.springframework.xd.module.support.CachingXmlBeanDefinitionReader;
+import org.springframework.xd.module.support.ModuleClassLoaderCache;
 
 /**
  * The default implementation of {@link ModuleOptionsMetadataResolver} that deals with simple modules and reads the
@@ -92,6 +92,11 @@ public class DefaultModuleOptionsMetadataResolver implements ModuleOptionsMetada
 
 	private final DefaultModuleOptionsMetadataCollector defaultModuleOptionsMetadataCollector = new DefaultModuleOptionsMetadataCollector();
 
+	/**
+	 * Class loaders of the module definitions, reused across resolutions.
+	 */
+	private final ModuleClassLoaderCache classLoaderCache = new ModuleClassLoaderCache();
+
 	/**
 	 * Construct a new {@link DefaultModuleOptionsMetadataResolver} that will use the provided conversion service when
 	 * converting from String to rich object (supported for {@link PojoModuleOptionsMetadata} only).
@@ -173,8 +178,7 @@ public class DefaultModuleOptionsMetadataResolver implements ModuleOptionsMetada
 	private ModuleOptionsMetadata resolveNormalMetadata(ModuleDefinition definition) {
 		try {
 			ClassLoader classLoaderToUse = definition.getClasspath() != null
-					? new ParentLastURLClassLoader(definition.getClasspath(),
-							ModuleOptionsMetadataResolver.class.getClassLoader())
+					? classLoaderCache.getClassLoader(definition, ModuleOptionsMetadataResolver.class.getClassLoader())
 					: ModuleOptionsMetadataResolver.class.getClassLoader();
 			Resource propertiesResource = definition.getResource().createRelative(
 					definition.getName() + ".properties");
@@ -226,7 +230,7 @@ public class DefaultModuleOptionsMetadataResolver implements ModuleOptionsMetada
 	 */
 	private ModuleOptionsMetadata inferModuleOptionsMetadata(ModuleDefinition definition, ClassLoader classLoaderToUse) {
 		final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
-		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(beanFactory);
+		CachingXmlBeanDefinitionReader reader = new CachingXmlBeanDefinitionReader(beanFactory);
 		reader.setResourceLoader(new PathMatchingResourcePatternResolver(classLoaderToUse));
 		reader.loadBeanDefinitions(definition.getResource());
 
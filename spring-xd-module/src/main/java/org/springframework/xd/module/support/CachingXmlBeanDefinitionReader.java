@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module.support;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.Resource;
+
+/**
+ * {@link XmlBeanDefinitionReader} that keeps the documents it parses, so that the XML files of a module, and those
+ * added by plugins, are parsed and validated once rather than for every module instance. Bean definitions are still
+ * registered from the document for each instance, so that profiles and placeholders are applied per instance, and
+ * each instance gets its own, mutable, bean definitions.
+ * <p/>
+ * Documents are cached by URL for the whole JVM, and parsed again when the modification time of their resource
+ * changes; each reader is handed a copy of the cached document.
+ *
+ * @since 1.0
+ */
+public class CachingXmlBeanDefinitionReader extends XmlBeanDefinitionReader {
+
+	private static final ConcurrentMap<String, CachedDocument> documents = new ConcurrentHashMap<String, CachedDocument>();
+
+	private static final AtomicLong hits = new AtomicLong();
+
+	private static final AtomicLong misses = new AtomicLong();
+
+	public CachingXmlBeanDefinitionReader(BeanDefinitionRegistry registry) {
+		super(registry);
+	}
+
+	@Override
+	protected Document doLoadDocument(InputSource inputSource, Resource resource) throws Exception {
+		String key = key(resource);
+		if (key == null) {
+			return super.doLoadDocument(inputSource, resource);
+		}
+		long lastModified = lastModified(resource);
+		CachedDocument cached = documents.get(key);
+		if (cached == null || cached.lastModified != lastModified) {
+			misses.incrementAndGet();
+			cached = new CachedDocument(super.doLoadDocument(inputSource, resource), lastModified);
+			documents.put(key, cached);
+		}
+		else {
+			hits.incrementAndGet();
+		}
+		return cached.copy();
+	}
+
+	/**
+	 * @return the number of documents served from the cache
+	 */
+	public static long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of documents parsed
+	 */
+	public static long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Forget all the cached documents.
+	 */
+	public static void clearCache() {
+		documents.clear();
+	}
+
+	private static String key(Resource resource) {
+		try {
+			return resource.getURL().toString();
+		}
+		catch (IOException e) {
+			// e.g. a byte array resource, which cannot be told apart from another
+			return null;
+		}
+	}
+
+	private static long lastModified(Resource resource) {
+		try {
+			return resource.lastModified();
+		}
+		catch (IOException e) {
+			return 0;
+		}
+	}
+
+
+	private static class CachedDocument {
+
+		private final Document document;
+
+		private final long lastModified;
+
+		CachedDocument(Document document, long lastModified) {
+			this.document = document;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * DOM implementations do not guarantee that concurrent reads are safe (nodes may be expanded lazily), hence
+		 * copies are made one at a time.
+		 */
+		synchronized Document copy() {
+			return (Document) this.document.cloneNode(true);
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module.support;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.ResourceUtils;
+import org.springframework.xd.module.ModuleDefinition;
+
+/**
+ * Cache of the {@link ParentLastURLClassLoader}s of module definitions, so that all the instances of a module share
+ * the classes loaded from its jars, instead of loading (and keeping in memory) a copy of them per deployment.
+ * <p/>
+ * A class loader is replaced by a new one when the classpath of the definition, or the size or modification time of
+ * any of its files, changes; module instances created earlier keep using the class loader they were created with. As
+ * with any shared class loader, static state of the module classes is shared by the instances of the module.
+ *
+ * @since 1.0
+ */
+public class ModuleClassLoaderCache {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Return the class loader for the given module definition, creating it if needed.
+	 *
+	 * @param definition the module definition
+	 * @param parent the parent class loader
+	 * @return the class loader, or null if the definition has no classpath of its own
+	 */
+	public ClassLoader getClassLoader(ModuleDefinition definition, ClassLoader parent) {
+		URL[] classpath = definition.getClasspath();
+		if (classpath == null) {
+			return null;
+		}
+		String key = definition.getType() + ":" + definition.getName();
+		long fingerprint = fingerprint(classpath);
+		synchronized (this.entries) {
+			Entry entry = this.entries.get(key);
+			if (entry != null && entry.parent == parent && entry.fingerprint == fingerprint
+					&& Arrays.equals(entry.classpath, classpath)) {
+				this.hits.incrementAndGet();
+				return entry.classLoader;
+			}
+			if (entry != null && logger.isInfoEnabled()) {
+				logger.info("Classpath of module " + key + " changed, creating a new class loader");
+			}
+			this.misses.incrementAndGet();
+			entry = new Entry(classpath, parent, fingerprint);
+			this.entries.put(key, entry);
+			return entry.classLoader;
+		}
+	}
+
+	/**
+	 * Forget the class loader of the given module definition; the next instance gets a new one.
+	 */
+	public void evict(ModuleDefinition definition) {
+		synchronized (this.entries) {
+			this.entries.remove(definition.getType() + ":" + definition.getName());
+		}
+	}
+
+	public int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Combine the size and modification time of the files of the classpath, so that a change to any of them is
+	 * detected; entries that are not files only contribute their URL.
+	 */
+	private static long fingerprint(URL[] classpath) {
+		long fingerprint = 17;
+		for (URL url : classpath) {
+			fingerprint = 31 * fingerprint + url.toString().hashCode();
+			if (ResourceUtils.isFileURL(url)) {
+				try {
+					File file = ResourceUtils.getFile(url);
+					fingerprint = 31 * fingerprint + file.lastModified();
+					fingerprint = 31 * fingerprint + file.length();
+				}
+				catch (FileNotFoundException e) {
+					// not a file after all; the URL is enough
+				}
+			}
+		}
+		return fingerprint;
+	}
+
+
+	private static class Entry {
+
+		private final URL[] classpath;
+
+		private final ClassLoader parent;
+
+		private final long fingerprint;
+
+		private final ClassLoader classLoader;
+
+		Entry(URL[] classpath, ClassLoader parent, long fingerprint) {
+			this.classpath = classpath.clone();
+			this.parent = parent;
+			this.fingerprint = fingerprint;
+			this.classLoader = new ParentLastURLClassLoader(classpath, parent);
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Tests for {@link CachingXmlBeanDefinitionReader}.
+ *
+ * @since 1.0
+ */
+public class CachingXmlBeanDefinitionReaderTests {
+
+	private final Resource resource = new ClassPathResource("caching-reader-test.xml", getClass());
+
+	@Before
+	public void setUp() {
+		CachingXmlBeanDefinitionReader.clearCache();
+	}
+
+	@Test
+	public void testDocumentParsedOnce() {
+		long misses = CachingXmlBeanDefinitionReader.getMissCount();
+		long hits = CachingXmlBeanDefinitionReader.getHitCount();
+		DefaultListableBeanFactory first = load();
+		DefaultListableBeanFactory second = load();
+		assertEquals(misses + 1, CachingXmlBeanDefinitionReader.getMissCount());
+		assertEquals(hits + 1, CachingXmlBeanDefinitionReader.getHitCount());
+		assertTrue(second.containsBeanDefinition("foo"));
+		assertNotSame(first.getBeanDefinition("foo"), second.getBeanDefinition("foo"));
+	}
+
+	@Test
+	public void testProfilesAppliedPerReader() {
+		assertFalse(load().containsBeanDefinition("bar"));
+		assertTrue(load("bar").containsBeanDefinition("bar"));
+	}
+
+	private DefaultListableBeanFactory load(String... profiles) {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		CachingXmlBeanDefinitionReader reader = new CachingXmlBeanDefinitionReader(beanFactory);
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.setActiveProfiles(profiles);
+		reader.setEnvironment(environment);
+		reader.loadBeanDefinitions(resource);
+		return beanFactory;
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.xd.module.ModuleDefinition;
+import org.springframework.xd.module.ModuleType;
+
+/**
+ * Tests for {@link ModuleClassLoaderCache}.
+ *
+ * @since 1.0
+ */
+public class ModuleClassLoaderCacheTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final ModuleClassLoaderCache cache = new ModuleClassLoaderCache();
+
+	private final ClassLoader parent = getClass().getClassLoader();
+
+	private File jar;
+
+	private ModuleDefinition definition;
+
+	@Before
+	public void setUp() throws IOException {
+		jar = folder.newFile("lib.jar");
+		definition = definition(jar);
+	}
+
+	@Test
+	public void testNoClasspath() {
+		assertNull(cache.getClassLoader(new ModuleDefinition("foo", ModuleType.source), parent));
+	}
+
+	@Test
+	public void testSharedByInstances() throws IOException {
+		ClassLoader classLoader = cache.getClassLoader(definition, parent);
+		assertTrue(classLoader instanceof ParentLastURLClassLoader);
+		assertSame(classLoader, cache.getClassLoader(definition(jar), parent));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertNotSame(classLoader, cache.getClassLoader(definition, new ParentLastURLClassLoader(null, parent)));
+	}
+
+	@Test
+	public void testReplacedWhenJarChanges() throws IOException {
+		ClassLoader classLoader = cache.getClassLoader(definition, parent);
+		FileCopyUtils.copy("changed".getBytes(), jar);
+		assertNotSame(classLoader, cache.getClassLoader(definition, parent));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testReplacedWhenClasspathChanges() throws IOException {
+		ClassLoader classLoader = cache.getClassLoader(definition, parent);
+		assertNotSame(classLoader, cache.getClassLoader(definition(jar, folder.newFile("other.jar")), parent));
+	}
+
+	@Test
+	public void testEvict() throws IOException {
+		ClassLoader classLoader = cache.getClassLoader(definition, parent);
+		cache.evict(definition);
+		assertEquals(0, cache.size());
+		assertNotSame(classLoader, cache.getClassLoader(definition, parent));
+	}
+
+	private ModuleDefinition definition(File... jars) throws IOException {
+		URL[] classpath = new URL[jars.length];
+		for (int i = 0; i < jars.length; i++) {
+			classpath[i] = jars[i].toURI().toURL();
+		}
+		return new ModuleDefinition("foo", ModuleType.source, new FileSystemResource(folder.getRoot()), classpath);
+	}
+
+}
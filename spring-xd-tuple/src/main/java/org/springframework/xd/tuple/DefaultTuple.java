@@ -20,6 +20,7 @@ import com.eaio.uuid.UUIDGen;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashMap;
@@ -52,23 +53,30 @@ public class DefaultTuple implements Tuple {
 	// caused the failure. Need to wrap ConversionFailedException with IllegalArgumentException and add that context
 	// back in.
 
-	// TODO consider LinkedHashMap and map to link index position to nam,e, look at efficient impls in goldman sach's
-	// collection class lib.
-	private List<String> names;
+	private TupleSchema schema;
 
-	private List<Object> values;
+	private Object[] values;
 
 	private transient FormattingConversionService formattingConversionService;
 
 	private transient Converter<Tuple, String> tupleToStringConverter = new DefaultTupleToStringConverter();
 
-	private UUID id;
+	// generated on first access, see getId()
+	private volatile UUID id;
 
 	private Long timestamp;
 
 	// TODO consider making final and package protect ctor so as to always use TupleBuilder
 
 	public DefaultTuple(List<String> names, List<Object> values, FormattingConversionService formattingConversionService) {
+		this(names, values, formattingConversionService, null, Long.valueOf(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Create a tuple with an existing id and timestamp, e.g. when restoring a tuple that has been serialized.
+	 */
+	public DefaultTuple(List<String> names, List<Object> values,
+			FormattingConversionService formattingConversionService, UUID id, Long timestamp) {
 		Assert.notNull(names);
 		Assert.notNull(values);
 		Assert.notNull(formattingConversionService);
@@ -78,11 +86,31 @@ public class DefaultTuple implements Tuple {
 		}
 		// TODO check for no duplicate names.
 		// TODO check for no null values.
-		this.names = new ArrayList<String>(names);
-		this.values = new ArrayList<Object>(values); // shallow copy
+		this.schema = TupleSchema.forNames(names);
+		this.values = values.toArray(); // shallow copy
+		this.formattingConversionService = formattingConversionService;
+		this.id = id;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Create a tuple from a schema and values without copying them. The values array is owned by the tuple afterwards
+	 * and must not be modified by the caller.
+	 */
+	public DefaultTuple(TupleSchema schema, Object[] values, FormattingConversionService formattingConversionService,
+			UUID id, Long timestamp) {
+		Assert.notNull(schema);
+		Assert.notNull(values);
+		Assert.notNull(formattingConversionService);
+		if (values.length != schema.size()) {
+			throw new IllegalArgumentException("Field names must be same length as values: names=" + schema
+					+ ", values=" + Arrays.asList(values));
+		}
+		this.schema = schema;
+		this.values = values;
 		this.formattingConversionService = formattingConversionService;
-		this.id = new UUID(UUIDGen.newTime(), UUIDGen.getClockSeqAndNode());
-		this.timestamp = Long.valueOf(System.currentTimeMillis());
+		this.id = id;
+		this.timestamp = timestamp;
 	}
 
 	/*
@@ -92,7 +120,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public int size() {
-		return values.size();
+		return values.length;
 	}
 
 	/*
@@ -102,7 +130,17 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public UUID getId() {
-		return this.id;
+		UUID id = this.id;
+		if (id == null) {
+			synchronized (this) {
+				id = this.id;
+				if (id == null) {
+					id = new UUID(UUIDGen.newTime(), UUIDGen.getClockSeqAndNode());
+					this.id = id;
+				}
+			}
+		}
+		return id;
 	}
 
 	/*
@@ -122,7 +160,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public List<String> getFieldNames() {
-		return Collections.unmodifiableList(names);
+		return schema.getFieldNames();
 	}
 
 	/**
@@ -132,12 +170,12 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public List<Object> getValues() {
-		return Collections.unmodifiableList(values);
+		return Collections.unmodifiableList(Arrays.asList(values));
 	}
 
 	@Override
 	public int getFieldCount() {
-		return this.names.size();
+		return schema.size();
 	}
 
 	/*
@@ -147,7 +185,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public boolean hasFieldName(String name) {
-		return names.contains(name);
+		return schema.hasFieldName(name);
 	}
 
 	/*
@@ -168,15 +206,15 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public Object getValue(int index) {
-		return values.get(index);
+		return values[index];
 	}
 
 	@SuppressWarnings("rawtypes")
 	@Override
 	public List<Class> getFieldTypes() {
-		ArrayList<Class> types = new ArrayList<Class>(values.size());
+		ArrayList<Class> types = new ArrayList<Class>(values.length);
 		for (Object val : values) {
-			types.add(val.getClass());
+			types.add(val == null ? null : val.getClass());
 		}
 		return Collections.unmodifiableList(types);
 	}
@@ -190,8 +228,8 @@ public class DefaultTuple implements Tuple {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((names == null) ? 0 : names.hashCode());
-		result = prime * result + ((values == null) ? 0 : values.hashCode());
+		result = prime * result + schema.hashCode();
+		result = prime * result + Arrays.hashCode(values);
 		return result;
 	}
 
@@ -212,20 +250,10 @@ public class DefaultTuple implements Tuple {
 			return false;
 		}
 		DefaultTuple other = (DefaultTuple) obj;
-		if (names == null) {
-			if (other.names != null) {
-				return false;
-			}
-		}
-		else if (!names.equals(other.names)) {
+		if (!schema.equals(other.schema)) {
 			return false;
 		}
-		if (values == null) {
-			if (other.values != null) {
-				return false;
-			}
-		}
-		else if (!values.equals(other.values)) {
+		if (!Arrays.equals(values, other.values)) {
 			return false;
 		}
 		return true;
@@ -244,7 +272,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public Tuple getTuple(int index) {
-		return convert(values.get(index), Tuple.class);
+		return convert(values[index], Tuple.class);
 	}
 
 	@Override
@@ -257,7 +285,7 @@ public class DefaultTuple implements Tuple {
 	 * @return the converted raw value, trimmed
 	 */
 	private String readAndTrim(int index) {
-		Object rawValue = values.get(index);
+		Object rawValue = values[index];
 		if (rawValue != null) {
 			String value = convert(rawValue, String.class);
 			if (value != null) {
@@ -280,7 +308,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public String getRawString(int index) {
-		Object rawValue = values.get(index);
+		Object rawValue = values[index];
 		if (rawValue != null) {
 			String value = convert(rawValue, String.class);
 			if (value != null) {
@@ -342,7 +370,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public byte getByte(int index) {
-		Byte b = convert(values.get(index), Byte.class);
+		Byte b = convert(values[index], Byte.class);
 		return (b != null) ? b : 0;
 	}
 
@@ -354,7 +382,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public byte getByte(int index, byte defaultValue) {
-		Byte b = convert(values.get(index), Byte.class);
+		Byte b = convert(values[index], Byte.class);
 		return (b != null) ? b : defaultValue;
 	}
 
@@ -366,7 +394,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public short getShort(int index) {
-		Short s = convert(values.get(index), Short.class);
+		Short s = convert(values[index], Short.class);
 		return (s != null) ? s : 0;
 	}
 
@@ -378,7 +406,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public short getShort(int index, short defaultValue) {
-		Short s = convert(values.get(index), Short.class);
+		Short s = convert(values[index], Short.class);
 		return (s != null) ? s : defaultValue;
 	}
 
@@ -390,7 +418,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public int getInt(int index) {
-		Integer i = convert(values.get(index), Integer.class);
+		Integer i = convert(values[index], Integer.class);
 		return (i != null) ? i : 0;
 	}
 
@@ -402,7 +430,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public int getInt(int index, int defaultValue) {
-		Integer i = convert(values.get(index), Integer.class);
+		Integer i = convert(values[index], Integer.class);
 		return (i != null) ? i : defaultValue;
 	}
 
@@ -414,7 +442,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public long getLong(int index) {
-		Long l = convert(values.get(index), Long.class);
+		Long l = convert(values[index], Long.class);
 		return (l != null) ? l : 0;
 	}
 
@@ -426,7 +454,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public long getLong(int index, long defaultValue) {
-		Long l = convert(values.get(index), Long.class);
+		Long l = convert(values[index], Long.class);
 		return (l != null) ? l : defaultValue;
 	}
 
@@ -438,7 +466,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public float getFloat(int index) {
-		Float f = convert(values.get(index), Float.class);
+		Float f = convert(values[index], Float.class);
 		return (f != null) ? f : 0;
 	}
 
@@ -450,7 +478,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public float getFloat(int index, float defaultValue) {
-		Float f = convert(values.get(index), Float.class);
+		Float f = convert(values[index], Float.class);
 		return (f != null) ? f : defaultValue;
 	}
 
@@ -462,7 +490,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public double getDouble(int index) {
-		Double d = convert(values.get(index), Double.class);
+		Double d = convert(values[index], Double.class);
 		return (d != null) ? d : 0;
 	}
 
@@ -474,7 +502,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public double getDouble(int index, double defaultValue) {
-		Double d = convert(values.get(index), Double.class);
+		Double d = convert(values[index], Double.class);
 		return (d != null) ? d : defaultValue;
 	}
 
@@ -485,7 +513,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public BigDecimal getBigDecimal(int index) {
-		return convert(values.get(index), BigDecimal.class);
+		return convert(values[index], BigDecimal.class);
 	}
 
 	@Override
@@ -496,13 +524,13 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public BigDecimal getBigDecimal(int index, BigDecimal defaultValue) {
-		BigDecimal bd = convert(values.get(index), BigDecimal.class);
+		BigDecimal bd = convert(values[index], BigDecimal.class);
 		return (bd != null) ? bd : defaultValue;
 	}
 
 	@Override
 	public Date getDate(int index) {
-		return convert(values.get(index), Date.class);
+		return convert(values[index], Date.class);
 	}
 
 	@Override
@@ -567,7 +595,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public <T> T getValue(String name, Class<T> valueClass) {
-		Object value = values.get(indexOf(name));
+		Object value = values[indexOf(name)];
 		return convert(value, valueClass);
 	}
 
@@ -578,7 +606,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public <T> T getValue(int index, Class<T> valueClass) {
-		return convert(values.get(index), valueClass);
+		return convert(values[index], valueClass);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -607,9 +635,10 @@ public class DefaultTuple implements Tuple {
 	 * @return names and values as a {@code Map<String, Object>}
 	 */
 	Map<String, Object> toMap() {
-		Map<String, Object> map = new LinkedHashMap<String, Object>(values.size());
-		for (int i = 0; i < values.size(); i++) {
-			map.put(names.get(i), values.get(i));
+		List<String> names = schema.getFieldNames();
+		Map<String, Object> map = new LinkedHashMap<String, Object>(values.length);
+		for (int i = 0; i < values.length; i++) {
+			map.put(names.get(i), values[i]);
 		}
 		return map;
 	}
@@ -642,14 +671,14 @@ public class DefaultTuple implements Tuple {
 	 * @throws IllegalArgumentException if a the given name is not defined.
 	 */
 	protected int indexOf(String name) {
-		return names.indexOf(name);
+		return schema.indexOf(name);
 	}
 
 	/**
 	 * 
 	 * @param tupleToStringConverter
 	 */
-	protected void setTupleToStringConverter(Converter<Tuple, String> tupleToStringConverter) {
+	public void setTupleToStringConverter(Converter<Tuple, String> tupleToStringConverter) {
 		Assert.notNull(tupleToStringConverter, "tupleToStringConverter cannot be null");
 		this.tupleToStringConverter = tupleToStringConverter;
 	}
@@ -663,8 +692,8 @@ public class DefaultTuple implements Tuple {
 
 		@Override
 		public String convert(Tuple source) {
-			return "DefaultTuple [names=" + names + ", values=" + values + ", id=" + id + ", timestamp=" + timestamp
-					+ "]";
+			return "DefaultTuple [names=" + schema + ", values=" + Arrays.asList(values) + ", id=" + getId()
+					+ ", timestamp=" + timestamp + "]";
 		}
 
 	}
@@ -15,21 +15,24 @@ package org.springframework.xd.tuple;
 
 import org.springframework.core.convert.converter.Converter;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
+ * Converts JSON bytes to a {@link Tuple} by streaming through them with a {@link JsonParser}; numbers and booleans
+ * keep their JSON types. See {@link JsonParserToTupleConverter}.
+ * 
  * @author David Turanski
  * 
  */
 public class JsonBytesToTupleConverter implements Converter<byte[], Tuple> {
 
-	private final ObjectMapper mapper = new ObjectMapper();
+	private final JsonFactory jsonFactory = new JsonFactory();
 
-	private final JsonNodeToTupleConverter jsonNodeToTupleConverter = new JsonNodeToTupleConverter();
+	private final JsonParserToTupleConverter jsonParserToTupleConverter = new JsonParserToTupleConverter();
 
 	public JsonBytesToTupleConverter() {
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+		jsonFactory.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
 	}
 
 	@Override
@@ -38,7 +41,16 @@ public class JsonBytesToTupleConverter implements Converter<byte[], Tuple> {
 			return null;
 		}
 		try {
-			return jsonNodeToTupleConverter.convert(mapper.readTree(source));
+			JsonParser parser = jsonFactory.createParser(source);
+			try {
+				return jsonParserToTupleConverter.convert(parser);
+			}
+			finally {
+				parser.close();
+			}
+		}
+		catch (IllegalArgumentException e) {
+			throw e;
 		}
 		catch (Exception e) {
 			throw new IllegalArgumentException(e.getMessage(), e);
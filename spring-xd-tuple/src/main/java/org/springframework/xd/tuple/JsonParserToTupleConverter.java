@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.convert.converter.Converter;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads a {@link Tuple} straight from a streaming {@link JsonParser}, without building an intermediate
+ * {@link com.fasterxml.jackson.databind.JsonNode} tree. Nested objects become nested tuples and arrays become lists.
+ * Scalars keep their JSON type: strings are stored as {@link String}, numbers as {@link Integer}, {@link Long},
+ * {@link java.math.BigInteger} or {@link Double}, booleans as {@link Boolean} and {@code null} as {@code null}. A
+ * scalar root value is stored in a single field named "value".
+ * 
+ * As with {@link JsonNodeToTupleConverter}, scalar "id" and "timestamp" fields are not copied to the tuple.
+ * 
+ * @since 1.0
+ */
+public class JsonParserToTupleConverter implements Converter<JsonParser, Tuple> {
+
+	@Override
+	public Tuple convert(JsonParser parser) {
+		try {
+			JsonToken token = parser.getCurrentToken();
+			if (token == null) {
+				token = parser.nextToken();
+			}
+			if (token == null) {
+				throw new IllegalArgumentException("No JSON content to convert to a Tuple");
+			}
+			if (token == JsonToken.START_OBJECT) {
+				return readObject(parser);
+			}
+			if (token == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				return TupleBuilder.tuple().build();
+			}
+			return TupleBuilder.tuple().of("value", readScalar(parser));
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	private Tuple readObject(JsonParser parser) throws IOException {
+		TupleBuilder builder = TupleBuilder.tuple();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT) {
+				builder.addEntry(name, readObject(parser));
+			}
+			else if (token == JsonToken.START_ARRAY) {
+				builder.addEntry(name, readArray(parser));
+			}
+			else if (!name.equals("id") && !name.equals("timestamp")) {
+				// TODO how should id and timestamp be handled?
+				builder.addEntry(name, readScalar(parser));
+			}
+		}
+		return builder.build();
+	}
+
+	private List<Object> readArray(JsonParser parser) throws IOException {
+		List<Object> list = new ArrayList<Object>();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			if (token == JsonToken.START_OBJECT) {
+				list.add(readObject(parser));
+			}
+			else if (token == JsonToken.START_ARRAY) {
+				list.add(readArray(parser));
+			}
+			else {
+				list.add(readScalar(parser));
+			}
+		}
+		return list;
+	}
+
+	private Object readScalar(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+			case VALUE_STRING:
+				return parser.getText();
+			case VALUE_NUMBER_INT:
+			case VALUE_NUMBER_FLOAT:
+				return parser.getNumberValue();
+			case VALUE_TRUE:
+				return Boolean.TRUE;
+			case VALUE_FALSE:
+				return Boolean.FALSE;
+			case VALUE_NULL:
+				return null;
+			case VALUE_EMBEDDED_OBJECT:
+				return parser.getEmbeddedObject();
+			default:
+				return parser.getText();
+		}
+	}
+
+}
@@ -44,23 +44,32 @@ import org.springframework.util.NumberUtils;
  */
 public class LocaleAwareStringToNumberConverterFactory implements ConverterFactory<String, Number> {
 
-	private NumberFormat numberFormat;
+	private final NumberFormat numberFormat;
+
+	// NumberFormat is not thread safe (and NumberUtils may reconfigure it while parsing), so use a copy per thread
+	private final ThreadLocal<NumberFormat> threadNumberFormat = new ThreadLocal<NumberFormat>() {
+
+		@Override
+		protected NumberFormat initialValue() {
+			return (NumberFormat) numberFormat.clone();
+		}
+	};
 
 	public LocaleAwareStringToNumberConverterFactory(NumberFormat numberFormat) {
-		this.numberFormat = numberFormat;
+		this.numberFormat = (NumberFormat) numberFormat.clone();
 	}
 
 	public <T extends Number> Converter<String, T> getConverter(Class<T> targetType) {
-		return new StringToNumber<T>(targetType, numberFormat);
+		return new StringToNumber<T>(targetType, threadNumberFormat);
 	}
 
 	private static final class StringToNumber<T extends Number> implements Converter<String, T> {
 
 		private final Class<T> targetType;
 
-		private NumberFormat numberFormat;
+		private final ThreadLocal<NumberFormat> numberFormat;
 
-		public StringToNumber(Class<T> targetType, NumberFormat numberFormat) {
+		public StringToNumber(Class<T> targetType, ThreadLocal<NumberFormat> numberFormat) {
 			this.targetType = targetType;
 			this.numberFormat = numberFormat;
 		}
@@ -69,7 +78,7 @@ public class LocaleAwareStringToNumberConverterFactory implements ConverterFacto
 			if (source.length() == 0) {
 				return null;
 			}
-			return NumberUtils.parseNumber(source, this.targetType, numberFormat);
+			return NumberUtils.parseNumber(source, this.targetType, numberFormat.get());
 		}
 	}
 
@@ -24,7 +24,8 @@ import java.util.Date;
 import org.springframework.core.convert.converter.Converter;
 
 /**
- * Converter for Strings to Date that can take into account date patterns
+ * Converter for Strings to Date that can take into account date patterns. Each thread parses with its own copy of the
+ * configured {@link DateFormat}, so a converter can be shared.
  * 
  * @author Mark Pollack
  * 
@@ -33,12 +34,18 @@ public class StringToDateConverter implements Converter<String, Date> {
 
 	private final static String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
 
-	private DateFormat dateFormat;
+	private final DateFormat dateFormat;
 
-	public StringToDateConverter() {
-		this.dateFormat = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
-		this.dateFormat.setLenient(false);
+	private final ThreadLocal<DateFormat> threadDateFormat = new ThreadLocal<DateFormat>() {
 
+		@Override
+		protected DateFormat initialValue() {
+			return (DateFormat) dateFormat.clone();
+		}
+	};
+
+	public StringToDateConverter() {
+		this(DEFAULT_DATE_PATTERN);
 	}
 
 	public StringToDateConverter(String pattern) {
@@ -47,13 +54,13 @@ public class StringToDateConverter implements Converter<String, Date> {
 	}
 
 	public StringToDateConverter(DateFormat dateFormat) {
-		this.dateFormat = dateFormat;
+		this.dateFormat = (DateFormat) dateFormat.clone();
 	}
 
 	@Override
 	public Date convert(String source) {
 		try {
-			return dateFormat.parse(source);
+			return threadDateFormat.get().parse(source);
 		}
 		catch (ParseException e) {
 			String pattern;
@@ -68,7 +68,7 @@ public interface Tuple {
 	boolean hasFieldName(String name);
 
 	/**
-	 * Return the Java types of the fields in this tuple.
+	 * Return the Java types of the fields in this tuple, {@code null} for fields whose value is {@code null}.
 	 * 
 	 * @return the Java types of the fields in this tuple.
 	 */
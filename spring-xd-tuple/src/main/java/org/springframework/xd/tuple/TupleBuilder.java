@@ -18,7 +18,6 @@ package org.springframework.xd.tuple;
 
 import java.text.DateFormat;
 import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -43,28 +42,22 @@ public class TupleBuilder {
 
 	private List<Object> values = new ArrayList<Object>();
 
-	private FormattingConversionService formattingConversionService = new DefaultTupleConversionService();
+	/**
+	 * Set only when the caller customizes conversion beyond a locale and date pattern, otherwise a shared instance is
+	 * obtained from the {@link TupleConversionServiceRegistry} when building.
+	 */
+	private FormattingConversionService formattingConversionService;
 
-	private final static String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
+	private Locale locale = TupleConversionServiceRegistry.DEFAULT_LOCALE;
 
-	private final static Locale DEFAULT_LOCALE = Locale.US;
+	private String datePattern = TupleConversionServiceRegistry.DEFAULT_DATE_PATTERN;
 
 	private static Converter<Tuple, String> tupleToStringConverter = new TupleToJsonStringConverter();
 
 	private static Converter<String, Tuple> stringToTupleConverter = new JsonStringToTupleConverter();
 
-	private DateFormat dateFormat = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
-	{
-		dateFormat.setLenient(false);
-	}
-
 	public static TupleBuilder tuple() {
-		TupleBuilder tb = new TupleBuilder();
-		tb.setNumberFormatFromLocale(DEFAULT_LOCALE);
-		DateFormat dateFormat = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
-		dateFormat.setLenient(false);
-		tb.setDateFormat(dateFormat);
-		return tb;
+		return new TupleBuilder();
 	}
 
 	public Tuple of(String k1, Object v1) {
@@ -119,13 +112,38 @@ public class TupleBuilder {
 
 	public TupleBuilder setNumberFormatFromLocale(Locale locale) {
 		Assert.notNull(locale);
-		formattingConversionService.addConverterFactory(new LocaleAwareStringToNumberConverterFactory(NumberFormat
-				.getInstance(locale)));
+		if (formattingConversionService != null) {
+			formattingConversionService.addConverterFactory(new LocaleAwareStringToNumberConverterFactory(
+					NumberFormat.getInstance(locale)));
+		}
+		this.locale = locale;
+		return this;
+	}
+
+	/**
+	 * Set the pattern used to convert strings to dates. Unlike {@link #setDateFormat(DateFormat)}, this allows the
+	 * built tuples to share a cached conversion service.
+	 */
+	public TupleBuilder setDatePattern(String datePattern) {
+		Assert.notNull(datePattern);
+		if (formattingConversionService != null) {
+			formattingConversionService.addConverter(new StringToDateConverter(datePattern));
+		}
+		this.datePattern = datePattern;
 		return this;
 	}
 
+	/**
+	 * Set the format used to convert strings to dates. As an arbitrary {@link DateFormat} can't be cached, this creates
+	 * a conversion service for this builder; prefer {@link #setDatePattern(String)} where possible.
+	 */
 	public TupleBuilder setDateFormat(DateFormat dateFormat) {
 		Assert.notNull(dateFormat);
+		if (formattingConversionService == null) {
+			formattingConversionService = new DefaultTupleConversionService();
+			formattingConversionService.addConverterFactory(new LocaleAwareStringToNumberConverterFactory(
+					NumberFormat.getInstance(locale)));
+		}
 		formattingConversionService.addConverter(new StringToDateConverter(dateFormat));
 		return this;
 	}
@@ -149,7 +167,9 @@ public class TupleBuilder {
 	}
 
 	protected Tuple newTuple(List<String> names, List<Object> values) {
-		DefaultTuple tuple = new DefaultTuple(names, values, formattingConversionService);
+		FormattingConversionService conversionService = (formattingConversionService != null) ? formattingConversionService
+				: TupleConversionServiceRegistry.getConversionService(locale, datePattern);
+		DefaultTuple tuple = new DefaultTuple(names, values, conversionService);
 		tuple.setTupleToStringConverter(tupleToStringConverter);
 		return tuple;
 	}
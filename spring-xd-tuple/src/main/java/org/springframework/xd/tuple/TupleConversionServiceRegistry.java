@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.format.support.FormattingConversionService;
+import org.springframework.util.Assert;
+
+/**
+ * Caches the conversion services used by tuples, keyed by number format locale and date pattern, so that tuples built
+ * with the same settings share a single instance instead of each creating and configuring its own.
+ *
+ * The cached conversion services are thread safe and cannot be modified; any attempt to add or remove a converter
+ * results in an {@link UnsupportedOperationException}.
+ *
+ * @since 1.0
+ */
+public final class TupleConversionServiceRegistry {
+
+	public final static String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
+
+	public final static Locale DEFAULT_LOCALE = Locale.US;
+
+	private static final ConcurrentMap<Key, FormattingConversionService> conversionServices = new ConcurrentHashMap<Key, FormattingConversionService>();
+
+	private TupleConversionServiceRegistry() {
+	}
+
+	/**
+	 * @return the shared conversion service for the default locale and date pattern
+	 */
+	public static FormattingConversionService getConversionService() {
+		return getConversionService(DEFAULT_LOCALE, DEFAULT_DATE_PATTERN);
+	}
+
+	/**
+	 * @param locale the locale used to parse numbers
+	 * @param datePattern the {@link java.text.SimpleDateFormat} pattern used to parse dates
+	 * @return the shared conversion service for the given locale and date pattern
+	 */
+	public static FormattingConversionService getConversionService(Locale locale, String datePattern) {
+		Assert.notNull(locale, "locale cannot be null");
+		Assert.notNull(datePattern, "datePattern cannot be null");
+		Key key = new Key(locale, datePattern);
+		FormattingConversionService conversionService = conversionServices.get(key);
+		if (conversionService == null) {
+			conversionService = new UnmodifiableTupleConversionService(locale, datePattern);
+			FormattingConversionService existing = conversionServices.putIfAbsent(key, conversionService);
+			if (existing != null) {
+				conversionService = existing;
+			}
+		}
+		return conversionService;
+	}
+
+
+	private static class UnmodifiableTupleConversionService extends DefaultTupleConversionService {
+
+		private final boolean initialized;
+
+		public UnmodifiableTupleConversionService(Locale locale, String datePattern) {
+			addConverterFactory(new LocaleAwareStringToNumberConverterFactory(NumberFormat.getInstance(locale)));
+			addConverter(new StringToDateConverter(datePattern));
+			this.initialized = true;
+		}
+
+		@Override
+		public void addConverter(GenericConverter converter) {
+			assertModifiable();
+			super.addConverter(converter);
+		}
+
+		@Override
+		public void removeConvertible(Class<?> sourceType, Class<?> targetType) {
+			assertModifiable();
+			super.removeConvertible(sourceType, targetType);
+		}
+
+		private void assertModifiable() {
+			if (this.initialized) {
+				throw new UnsupportedOperationException("Shared tuple conversion services cannot be modified");
+			}
+		}
+	}
+
+
+	private static class Key {
+
+		private final Locale locale;
+
+		private final String datePattern;
+
+		Key(Locale locale, String datePattern) {
+			this.locale = locale;
+			this.datePattern = datePattern;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.locale.equals(other.locale) && this.datePattern.equals(other.datePattern);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.locale.hashCode() + this.datePattern.hashCode();
+		}
+	}
+
+}
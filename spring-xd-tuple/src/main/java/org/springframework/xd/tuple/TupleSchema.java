@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.util.Assert;
+
+/**
+ * The ordered field names of a {@link Tuple}, with a hashed name to index lookup. Schemas are interned, so that all
+ * tuples with the same field names share a single instance.
+ *
+ * To protect against unbounded growth when field names are data driven (e.g. JSON objects used as maps), at most
+ * {@link #MAX_INTERNED_SCHEMAS} schemas are interned; beyond that, new schemas are created per tuple.
+ *
+ * @since 1.0
+ */
+public final class TupleSchema {
+
+	public static final int MAX_INTERNED_SCHEMAS = 10000;
+
+	private static final ConcurrentMap<List<String>, TupleSchema> schemas = new ConcurrentHashMap<List<String>, TupleSchema>();
+
+	private static final AtomicInteger internedCount = new AtomicInteger();
+
+	private final List<String> names;
+
+	private final Map<String, Integer> indexes;
+
+	private final int hashCode;
+
+	private TupleSchema(List<String> names) {
+		this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+		this.indexes = new HashMap<String, Integer>(names.size() * 2);
+		for (int i = 0; i < names.size(); i++) {
+			String name = names.get(i);
+			// with duplicate names, the first occurrence wins (as with List.indexOf)
+			if (!this.indexes.containsKey(name)) {
+				this.indexes.put(name, i);
+			}
+		}
+		this.hashCode = this.names.hashCode();
+	}
+
+	/**
+	 * Return the (interned) schema for the given field names.
+	 *
+	 * @param names the field names, in order
+	 * @return the schema
+	 */
+	public static TupleSchema forNames(List<String> names) {
+		Assert.notNull(names);
+		TupleSchema schema = schemas.get(names);
+		if (schema != null) {
+			return schema;
+		}
+		schema = new TupleSchema(names);
+		if (internedCount.get() < MAX_INTERNED_SCHEMAS) {
+			TupleSchema existing = schemas.putIfAbsent(schema.names, schema);
+			if (existing != null) {
+				return existing;
+			}
+			internedCount.incrementAndGet();
+		}
+		return schema;
+	}
+
+	/**
+	 * @return an unmodifiable list of the field names
+	 */
+	public List<String> getFieldNames() {
+		return this.names;
+	}
+
+	/**
+	 * @param name the field name
+	 * @return the index of the field, or -1 if there is no such field
+	 */
+	public int indexOf(String name) {
+		Integer index = this.indexes.get(name);
+		return (index == null) ? -1 : index.intValue();
+	}
+
+	public boolean hasFieldName(String name) {
+		return this.indexes.containsKey(name);
+	}
+
+	public int size() {
+		return this.names.size();
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TupleSchema)) {
+			return false;
+		}
+		TupleSchema other = (TupleSchema) obj;
+		return this.hashCode == other.hashCode && this.names.equals(other.names);
+	}
+
+	@Override
+	public String toString() {
+		return this.names.toString();
+	}
+
+}
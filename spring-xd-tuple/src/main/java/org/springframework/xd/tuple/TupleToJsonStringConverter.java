@@ -13,6 +13,8 @@
 
 package org.springframework.xd.tuple;
 
+import java.util.List;
+
 import org.springframework.core.convert.converter.Converter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -43,9 +45,11 @@ public class TupleToJsonStringConverter implements Converter<Tuple, String> {
 		ObjectNode root = mapper.createObjectNode();
 		root.put("id", source.getId().toString());
 		root.put("timestamp", source.getTimestamp());
+		List<Object> values = source.getValues();
+		List<String> names = source.getFieldNames();
 		for (int i = 0; i < source.size(); i++) {
-			Object value = source.getValues().get(i);
-			String name = source.getFieldNames().get(i);
+			Object value = values.get(i);
+			String name = names.get(i);
 			if (value != null) {
 				// System.out.print("parsing " + name + " as ");
 				if (value instanceof Tuple) {
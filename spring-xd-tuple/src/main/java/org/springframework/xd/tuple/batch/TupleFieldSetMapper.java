@@ -17,14 +17,20 @@
 package org.springframework.xd.tuple.batch;
 
 import java.text.DateFormat;
+import java.text.NumberFormat;
 import java.util.Map;
 
 import org.springframework.batch.item.file.mapping.FieldSetMapper;
 import org.springframework.batch.item.file.transform.FieldSet;
+import org.springframework.format.support.FormattingConversionService;
 import org.springframework.util.CollectionUtils;
 import org.springframework.validation.BindException;
+import org.springframework.xd.tuple.DefaultTupleConversionService;
+import org.springframework.xd.tuple.LocaleAwareStringToNumberConverterFactory;
+import org.springframework.xd.tuple.StringToDateConverter;
 import org.springframework.xd.tuple.Tuple;
 import org.springframework.xd.tuple.TupleBuilder;
+import org.springframework.xd.tuple.TupleConversionServiceRegistry;
 
 /**
  * A {@link FieldSetMapper} implementation intended to allow a user use a {@link Tuple} as the item. By default, all
@@ -38,7 +44,8 @@ import org.springframework.xd.tuple.TupleBuilder;
 public class TupleFieldSetMapper implements FieldSetMapper<Tuple> {
 
 	// TODO: Is one date format good enough or will we need to be able to map formats to fields?
-	private DateFormat dateFormat;
+	// Built once from the configured date format and shared by all mapped tuples
+	private FormattingConversionService conversionService;
 
 	// TODO: Currently this is bound by the convenience methods on the Tuple object. Is custom conversion necessary?
 	private Map<String, FieldSetType> types;
@@ -54,8 +61,8 @@ public class TupleFieldSetMapper implements FieldSetMapper<Tuple> {
 
 		TupleBuilder builder = TupleBuilder.tuple();
 
-		if (dateFormat != null) {
-			builder.setDateFormat(dateFormat);
+		if (conversionService != null) {
+			builder.setFormattingConversionService(conversionService);
 		}
 
 		for (int i = 0; i < fieldSet.getFieldCount(); i++) {
@@ -120,7 +127,16 @@ public class TupleFieldSetMapper implements FieldSetMapper<Tuple> {
 	 * @param formatter The format any dates provided will be in.
 	 */
 	public void setDateFormat(DateFormat formatter) {
-		this.dateFormat = formatter;
+		if (formatter == null) {
+			this.conversionService = null;
+		}
+		else {
+			FormattingConversionService conversionService = new DefaultTupleConversionService();
+			conversionService.addConverterFactory(new LocaleAwareStringToNumberConverterFactory(
+					NumberFormat.getInstance(TupleConversionServiceRegistry.DEFAULT_LOCALE)));
+			conversionService.addConverter(new StringToDateConverter(formatter));
+			this.conversionService = conversionService;
+		}
 	}
 
 	/**
@@ -64,13 +64,13 @@ public class TuplePropertyAccessor implements PropertyAccessor {
 	@Override
 	public TypedValue read(EvaluationContext context, Object target, String name) throws AccessException {
 		Tuple tuple = (Tuple) target;
-		boolean hasKey = false;
-		Object value = null;
-		if (tuple.hasFieldName(name)) {
+		// a non-null value implies the field exists, saving a second name lookup in the common case
+		Object value = tuple.getValue(name);
+		boolean hasKey = (value != null);
+		if (!hasKey && tuple.hasFieldName(name)) {
 			hasKey = true;
-			value = tuple.getValue(name);
 		}
-		else {
+		else if (!hasKey) {
 			Integer index = maybeIndex(name, tuple);
 			if (index != null) {
 				hasKey = true;
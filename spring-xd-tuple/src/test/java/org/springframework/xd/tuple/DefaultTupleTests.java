@@ -272,6 +272,10 @@ public class DefaultTupleTests {
 		expectedTypes = new Class[] { Integer.class, Double.class, Boolean.class };
 		assertThat(tuple.getFieldTypes(), equalTo(Arrays.asList(expectedTypes)));
 
+		tuple = TupleBuilder.tuple().of("up", 1, "charm", null);
+		expectedTypes = new Class[] { Integer.class, null };
+		assertThat(tuple.getFieldTypes(), equalTo(Arrays.asList(expectedTypes)));
+
 	}
 
 	@Test
@@ -14,6 +14,12 @@
 package org.springframework.xd.tuple;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -31,4 +37,38 @@ public class JsonBytesToTupleConverterTests {
 		Tuple t = converter.convert(json.getBytes());
 		assertEquals("VMW", t.getValue("symbol"));
 	}
+
+	@Test
+	public void testNativeTypesArePreserved() {
+		String json = "{'symbol':'VMW','price':73.5,'volume':1000,'big':12345678901,'active':true,'note':null,"
+				+ "'quote':{'bid':73,'ask':74},'history':[1,'two',{'three':3}],'id':'ignored'}";
+		Tuple t = converter.convert(json.getBytes());
+		assertEquals(73.5, t.getValue("price"));
+		assertEquals(1000, t.getValue("volume"));
+		assertEquals(12345678901L, t.getValue("big"));
+		assertEquals(Boolean.TRUE, t.getValue("active"));
+		assertTrue(t.hasFieldName("note"));
+		assertNull(t.getValue("note"));
+		assertEquals(74, t.getTuple("quote").getInt("ask"));
+		List<?> history = (List<?>) t.getValue("history");
+		assertEquals(1, history.get(0));
+		assertEquals("two", history.get(1));
+		assertEquals(3, ((Tuple) history.get(2)).getValue("three"));
+		assertFalse(t.hasFieldName("id"));
+		assertEquals("73.5", t.getString("price"));
+	}
+
+	@Test
+	public void testNullField() {
+		Tuple t = converter.convert("{\"symbol\":\"VMW\",\"note\":null}".getBytes());
+		assertTrue(t.hasFieldName("note"));
+		assertNull(t.getString("note"));
+		assertEquals(Arrays.asList(String.class, null), t.getFieldTypes());
+	}
+
+	@Test
+	public void testScalarRoot() {
+		Tuple t = converter.convert("42".getBytes());
+		assertEquals(42, t.getValue("value"));
+	}
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.format.support.FormattingConversionService;
+
+public class TupleConversionServiceRegistryTests {
+
+	@Test
+	public void testSameSettingsShareConversionService() {
+		assertSame(TupleConversionServiceRegistry.getConversionService(Locale.GERMAN, "dd.MM.yyyy"),
+				TupleConversionServiceRegistry.getConversionService(Locale.GERMAN, "dd.MM.yyyy"));
+		assertNotSame(TupleConversionServiceRegistry.getConversionService(Locale.GERMAN, "dd.MM.yyyy"),
+				TupleConversionServiceRegistry.getConversionService(Locale.US, "dd.MM.yyyy"));
+	}
+
+	@Test
+	public void testBuiltTuplesShareConversionService() {
+		Tuple t1 = TupleBuilder.tuple().of("foo", "1");
+		Tuple t2 = TupleBuilder.tuple().of("bar", "2");
+		assertSame(conversionServiceOf(t1), conversionServiceOf(t2));
+		assertSame(TupleConversionServiceRegistry.getConversionService(), conversionServiceOf(t1));
+
+		Tuple t3 = TupleBuilder.tuple().setNumberFormatFromLocale(Locale.GERMAN).setDatePattern("dd.MM.yyyy")
+				.of("foo", "354,224", "date", "13.01.1999");
+		assertSame(TupleConversionServiceRegistry.getConversionService(Locale.GERMAN, "dd.MM.yyyy"),
+				conversionServiceOf(t3));
+		assertEquals(354.224, t3.getDouble("foo"), 0.0001);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSharedConversionServiceIsUnmodifiable() {
+		TupleConversionServiceRegistry.getConversionService().addConverter(new StringToDateConverter("yyyy"));
+	}
+
+	@Test
+	public void testConcurrentDateParsing() throws Exception {
+		final FormattingConversionService conversionService = TupleConversionServiceRegistry.getConversionService();
+		final Date expected = new SimpleDateFormat("yyyy-MM-dd").parse("2013-05-02");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(new Callable<Boolean>() {
+
+					@Override
+					public Boolean call() {
+						for (int j = 0; j < 1000; j++) {
+							if (!expected.equals(conversionService.convert("2013-05-02", Date.class))) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertEquals(Boolean.TRUE, result.get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Object conversionServiceOf(Tuple tuple) {
+		return new DirectFieldAccessor(tuple).getPropertyValue("formattingConversionService");
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.springframework.beans.DirectFieldAccessor;
+
+public class TupleSchemaTests {
+
+	@Test
+	public void testSchemasAreInterned() {
+		TupleSchema schema = TupleSchema.forNames(Arrays.asList("foo", "bar"));
+		assertSame(schema, TupleSchema.forNames(Arrays.asList("foo", "bar")));
+		assertEquals(Arrays.asList("foo", "bar"), schema.getFieldNames());
+	}
+
+	@Test
+	public void testIndexLookup() {
+		TupleSchema schema = TupleSchema.forNames(Arrays.asList("foo", "bar", "foo"));
+		assertEquals(0, schema.indexOf("foo"));
+		assertEquals(1, schema.indexOf("bar"));
+		assertEquals(-1, schema.indexOf("baz"));
+		assertTrue(schema.hasFieldName("bar"));
+		assertFalse(schema.hasFieldName("baz"));
+	}
+
+	@Test
+	public void testTuplesWithSameNamesShareSchema() {
+		Tuple t1 = TupleBuilder.tuple().of("foo", 1, "bar", 2);
+		Tuple t2 = TupleBuilder.fromString("{\"foo\":\"x\",\"bar\":\"y\"}");
+		assertSame(new DirectFieldAccessor(t1).getPropertyValue("schema"),
+				new DirectFieldAccessor(t2).getPropertyValue("schema"));
+		assertEquals("y", t2.getString("bar"));
+	}
+
+	@Test
+	public void testIdIsGeneratedLazilyAndStable() {
+		Tuple tuple = TupleBuilder.tuple().of("foo", 1);
+		assertEquals(null, new DirectFieldAccessor(tuple).getPropertyValue("id"));
+		assertSame(tuple.getId(), tuple.getId());
+	}
+}